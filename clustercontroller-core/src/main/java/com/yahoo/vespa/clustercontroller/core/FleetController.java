@@ -169,7 +169,8 @@ public class FleetController implements NodeStateOrHostInfoChangeHandler, NodeAd
 
     public static FleetController createForStandAlone(FleetControllerOptions options) throws Exception {
         Timer timer = new RealTimer();
-        RpcServer rpcServer = new RpcServer(timer, timer, options.clusterName, options.fleetControllerIndex, options.slobrokBackOffPolicy);
+        RpcServer rpcServer = new RpcServer(timer, timer, options.clusterName, options.fleetControllerIndex,
+                                            options.slobrokBackOffPolicy, options.numNetworkThreads);
         StatusPageServer statusPageServer = new StatusPageServer(timer, timer, options.httpPort);
         return create(options, timer, statusPageServer, rpcServer, new NoMetricReporter());
     }
@@ -190,7 +191,7 @@ public class FleetController implements NodeStateOrHostInfoChangeHandler, NodeAd
                 options.minRatioOfStorageNodesUp);
         NodeStateGatherer stateGatherer = new NodeStateGatherer(timer, timer, log);
         Communicator communicator = new RPCCommunicator(
-                RPCCommunicator.createRealSupervisor(),
+                RPCCommunicator.createRealSupervisor(options.numNetworkThreads),
                 timer,
                 options.fleetControllerIndex,
                 options.nodeStateRequestTimeoutMS,
@@ -198,7 +199,7 @@ public class FleetController implements NodeStateOrHostInfoChangeHandler, NodeAd
                 options.nodeStateRequestTimeoutLatestPercentage,
                 options.nodeStateRequestRoundTripTimeMaxSeconds);
         DatabaseHandler database = new DatabaseHandler(new ZooKeeperDatabaseFactory(), timer, options.zooKeeperServerAddress, options.fleetControllerIndex, timer);
-        NodeLookup lookUp = new SlobrokClient(timer);
+        NodeLookup lookUp = new SlobrokClient(timer, options.numNetworkThreads);
         StateChangeHandler stateGenerator = new StateChangeHandler(timer, log, metricUpdater);
         SystemStateBroadcaster stateBroadcaster = new SystemStateBroadcaster(timer, timer);
         MasterElectionHandler masterElectionHandler = new MasterElectionHandler(options.fleetControllerIndex, options.fleetControllerCount, timer, timer);
@@ -124,6 +124,9 @@ public class FleetControllerOptions implements Cloneable {
     // TODO: Choose a default value
     public double minMergeCompletionRatio = 1.0;
 
+    /** The number of threads doing network IO in each RPC supervisor */
+    public int numNetworkThreads = 1;
+
     // TODO: Replace usage of this by usage where the nodes are explicitly passed (below)
     public FleetControllerOptions(String clusterName) {
         this.clusterName = clusterName;
@@ -50,7 +50,11 @@ public class RPCCommunicator implements Communicator {
     private final int fleetControllerIndex;
 
     public static Supervisor createRealSupervisor() {
-        return new Supervisor(new Transport());
+        return createRealSupervisor(1);
+    }
+
+    public static Supervisor createRealSupervisor(int numNetworkThreads) {
+        return new Supervisor(new Transport(numNetworkThreads));
     }
 
     public RPCCommunicator(Supervisor supervisor,
@@ -54,15 +54,22 @@ public class RpcServer {
     private final List<Request> rpcRequests = new LinkedList<>();
     private MasterElectionHandler masterHandler;
     private BackOffPolicy slobrokBackOffPolicy;
+    private final int numNetworkThreads;
     private long lastConnectErrorTime = 0;
     private String lastConnectError = "";
 
     public RpcServer(Timer timer, Object monitor, String clusterName, int fleetControllerIndex, BackOffPolicy bop) {
+        this(timer, monitor, clusterName, fleetControllerIndex, bop, 1);
+    }
+
+    public RpcServer(Timer timer, Object monitor, String clusterName, int fleetControllerIndex, BackOffPolicy bop,
+                     int numNetworkThreads) {
         this.timer = timer;
         this.monitor = monitor;
         this.clusterName = clusterName;
         this.fleetControllerIndex = fleetControllerIndex;
         this.slobrokBackOffPolicy = bop;
+        this.numNetworkThreads = numNetworkThreads;
     }
 
     public void setMasterElectionHandler(MasterElectionHandler handler) { this.masterHandler = handler; }
@@ -99,7 +106,7 @@ public class RpcServer {
         disconnect();
         log.log(LogLevel.DEBUG, "Fleetcontroller " + fleetControllerIndex + ": Connecting RPC server.");
         if (supervisor != null) disconnect();
-        supervisor = new Supervisor(new Transport());
+        supervisor = new Supervisor(new Transport(numNetworkThreads));
         addMethods();
         log.log(LogLevel.DEBUG, "Fleetcontroller " + fleetControllerIndex + ": Attempting to bind to port " + port);
         acceptor = supervisor.listen(new Spec(port));
@@ -27,9 +27,15 @@ public class SlobrokClient implements NodeLookup {
     private Mirror mirror;
     private Supervisor supervisor;
     private boolean freshMirror = false;
+    private final int numNetworkThreads;
 
     public SlobrokClient(Timer timer) {
+        this(timer, 1);
+    }
+
+    public SlobrokClient(Timer timer, int numNetworkThreads) {
         this.timer = timer;
+        this.numNetworkThreads = numNetworkThreads;
     }
 
     public boolean equalsExistingSpec(String spec[]) {
@@ -47,7 +53,7 @@ public class SlobrokClient implements NodeLookup {
         if (equalsExistingSpec(slobrokConnectionSpecs)) return;
         this.connectionSpecs = slobrokConnectionSpecs;
         shutdown();
-        supervisor = new Supervisor(new Transport());
+        supervisor = new Supervisor(new Transport(numNetworkThreads));
         SlobrokList slist = new SlobrokList();
         slist.setup(slobrokConnectionSpecs);
         mirror = new Mirror(supervisor, slist);
@@ -5,7 +5,7 @@ import com.yahoo.log.LogLevel;
 import com.yahoo.vespa.config.RawConfig;
 import com.yahoo.vespa.config.protocol.JRTServerConfigRequest;
 
-import java.util.concurrent.DelayQueue;
+import java.util.List;
 import java.util.logging.Logger;
 
 /**
@@ -43,31 +43,21 @@ class ClientUpdater {
     private void sendResponse(RawConfig config) {
         if (config.isError()) { statistics.incErrorCount(); }
         log.log(LogLevel.DEBUG, () -> "Sending response for " + config.getKey() + "," + config.getGeneration());
-        DelayQueue<DelayedResponse> responseDelayQueue = delayedResponses.responses();
-        log.log(LogLevel.SPAM, () -> "Delayed response queue: " + responseDelayQueue);
-        if (responseDelayQueue.size() == 0) {
-            log.log(LogLevel.DEBUG, () -> "There exists no matching element on delayed response queue for " + config.getKey());
+        List<DelayedResponse> responses = delayedResponses.waitingFor(config.getKey());
+        if (responses.isEmpty()) {
+            log.log(LogLevel.DEBUG, () -> "Found no recipient for " + config.getKey() + " in delayed response queue");
             return;
-        } else {
-            log.log(LogLevel.DEBUG, () -> "Delayed response queue has " + responseDelayQueue.size() + " elements");
         }
-        DelayedResponse[] responses = responseDelayQueue.toArray(new DelayedResponse[0]);
-        boolean found = false;
+        log.log(LogLevel.DEBUG, () -> "Delayed response queue has " + responses.size() + " elements for " + config.getKey());
         for (DelayedResponse response : responses) {
             JRTServerConfigRequest request = response.getRequest();
-            if (request.getConfigKey().equals(config.getKey())) {
-                if (delayedResponses.remove(response)) {
-                    found = true;
-                    log.log(LogLevel.DEBUG, () -> "Call returnOkResponse for " + config.getKey() + "," + config.getGeneration());
-                    rpcServer.returnOkResponse(request, config);
-                } else {
-                    log.log(LogLevel.INFO, "Could not remove " + config.getKey() + " from delayedResponses queue, already removed");
-                }
+            if (delayedResponses.remove(response)) {
+                log.log(LogLevel.DEBUG, () -> "Call returnOkResponse for " + config.getKey() + "," + config.getGeneration());
+                rpcServer.returnOkResponse(request, config);
+            } else {
+                log.log(LogLevel.INFO, "Could not remove " + config.getKey() + " from delayedResponses queue, already removed");
             }
         }
-        if (!found) {
-            log.log(LogLevel.DEBUG, () -> "Found no recipient for " + config.getKey() + " in delayed response queue");
-        }
         log.log(LogLevel.DEBUG, () -> "Finished updating config for " + config.getKey() + "," + config.getGeneration());
     }
 
@@ -10,7 +10,6 @@ import com.yahoo.vespa.config.protocol.JRTServerConfigRequest;
 import com.yahoo.vespa.config.protocol.JRTServerConfigRequestV3;
 
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.Set;
 import java.util.logging.Logger;
 
@@ -300,13 +299,8 @@ public class ConfigProxyRpcServer implements Runnable, TargetWatcher, RpcServer
     @Override
     public void notifyTargetInvalid(Target target) {
         log.log(LogLevel.DEBUG, () -> "Target invalid " + target);
-        for (Iterator<DelayedResponse> it = proxyServer.delayedResponses.responses().iterator(); it.hasNext(); ) {
-            DelayedResponse delayed = it.next();
-            JRTServerConfigRequest request = delayed.getRequest();
-            if (request.getRequest().target().equals(target)) {
-                log.log(LogLevel.DEBUG, () -> "Removing " + request.getShortDescription());
-                it.remove();
-            }
+        for (DelayedResponse delayed : proxyServer.delayedResponses.removeFrom(target)) {
+            log.log(LogLevel.DEBUG, () -> "Removed " + delayed.getRequest().getShortDescription());
         }
         // TODO: Could we also cancel active getConfig requests upstream if the client was the only one
         // requesting this config?
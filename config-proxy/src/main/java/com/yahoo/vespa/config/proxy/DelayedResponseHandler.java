@@ -39,12 +39,13 @@ public class DelayedResponseHandler implements Runnable {
         try {
             long start = System.currentTimeMillis();
             if (log.isLoggable(LogLevel.SPAM)) {
-                log.log(LogLevel.SPAM, "Running DelayedResponseHandler. There are " + delayedResponses.size() + " delayed responses. First one is " + delayedResponses.responses().peek());
+                log.log(LogLevel.SPAM, "Running DelayedResponseHandler. There are " + delayedResponses.size() + " delayed responses. First one is " +
+                                       delayedResponses.responses().stream().sorted().findFirst().orElse(null));
             }
             DelayedResponse response;
             int i = 0;
 
-            while ((response = delayedResponses.responses().poll()) != null) {
+            while ((response = delayedResponses.pollExpired()) != null) {
                 if (log.isLoggable(LogLevel.DEBUG)) {
                     log.log(LogLevel.DEBUG, "Returning with response that has return time " + new Date(response.getReturnTime()));
                 }
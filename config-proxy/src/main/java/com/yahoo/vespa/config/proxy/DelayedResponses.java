@@ -1,16 +1,27 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.config.proxy;
 
+import com.yahoo.jrt.Target;
+import com.yahoo.vespa.config.ConfigKey;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.DelayQueue;
 
 /**
- * Queue for requests that have no corresponding config in cache and which we are awaiting response from server for
+ * Queue for requests that have no corresponding config in cache and which we are awaiting response from server for.
+ * The requests are also kept by config key, so the ones waiting for a config can be answered as soon as it changes.
  *
  * @author hmusum
  */
 class DelayedResponses {
 
     private final DelayQueue<DelayedResponse> delayedResponses = new DelayQueue<>();
+    private final Map<ConfigKey<?>, Set<DelayedResponse>> delayedResponsesByKey = new ConcurrentHashMap<>();
     private final ConfigProxyStatistics statistics;
 
     DelayedResponses(ConfigProxyStatistics statistics) {
@@ -19,20 +30,62 @@ class DelayedResponses {
 
     void add(DelayedResponse response) {
         delayedResponses.add(response);
+        delayedResponsesByKey.compute(response.getRequest().getConfigKey(), (key, responses) -> {
+            if (responses == null) responses = new HashSet<>();
+            responses.add(response);
+            return responses;
+        });
         statistics.delayedResponses(delayedResponses.size());
     }
 
     boolean remove(DelayedResponse response) {
         statistics.decDelayedResponses();
+        removeFromKey(response);
         return delayedResponses.remove(response);
     }
 
-    DelayQueue<DelayedResponse> responses() {
-        return delayedResponses;
+    /** Removes and returns the first response which has timed out, or returns null if there are none */
+    DelayedResponse pollExpired() {
+        DelayedResponse response = delayedResponses.poll();
+        if (response != null)
+            removeFromKey(response);
+        return response;
+    }
+
+    /** Removes and returns the responses to requests received from the given target, e.g., as it has closed its connection */
+    List<DelayedResponse> removeFrom(Target target) {
+        List<DelayedResponse> removed = new ArrayList<>();
+        for (DelayedResponse response : delayedResponses) {
+            if (response.getRequest().getRequest().target().equals(target) && remove(response))
+                removed.add(response);
+        }
+        return removed;
+    }
+
+    /** Returns the responses waiting for config with the given key now */
+    List<DelayedResponse> waitingFor(ConfigKey<?> key) {
+        List<DelayedResponse> waiting = new ArrayList<>();
+        delayedResponsesByKey.computeIfPresent(key, (k, responses) -> {
+            waiting.addAll(responses);
+            return responses;
+        });
+        return waiting;
+    }
+
+    private void removeFromKey(DelayedResponse response) {
+        delayedResponsesByKey.computeIfPresent(response.getRequest().getConfigKey(), (key, responses) -> {
+            responses.remove(response);
+            return responses.isEmpty() ? null : responses;
+        });
+    }
+
+    /** Returns a snapshot of the responses waiting now, in no particular order */
+    List<DelayedResponse> responses() {
+        return new ArrayList<>(delayedResponses);
     }
 
     int size() {
-        return responses().size();
+        return delayedResponses.size();
     }
 
 }
@@ -1,10 +1,27 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.config.proxy;
 
+import com.yahoo.jrt.Acceptor;
+import com.yahoo.jrt.ListenFailedException;
+import com.yahoo.jrt.Method;
+import com.yahoo.jrt.Request;
+import com.yahoo.jrt.Spec;
+import com.yahoo.jrt.Supervisor;
+import com.yahoo.jrt.Target;
+import com.yahoo.jrt.Transport;
+import com.yahoo.vespa.config.ConfigKey;
+import com.yahoo.vespa.config.JRTMethods;
+import com.yahoo.vespa.config.protocol.JRTServerConfigRequestV3;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author hmusum
@@ -20,7 +37,10 @@ public class DelayedResponsesTest {
         responses.add(delayedResponse);
 
         assertThat(responses.size(), is(1));
-        assertThat(responses.responses().take(), is(delayedResponse));
+        DelayedResponse expired;
+        while ((expired = responses.pollExpired()) == null)
+            Thread.sleep(1);
+        assertThat(expired, is(delayedResponse));
         assertThat(responses.size(), is(0));
 
         responses.add(delayedResponse);
@@ -29,4 +49,80 @@ public class DelayedResponsesTest {
         assertThat(responses.size(), is(0));
     }
 
+    @Test
+    public void responsesAreFoundByConfigKey() {
+        ConfigTester tester = new ConfigTester();
+        DelayedResponses responses = new DelayedResponses(new ConfigProxyStatistics());
+        DelayedResponse foo1 = new DelayedResponse(tester.createRequest("foo", "id", "bar", 10000));
+        DelayedResponse foo2 = new DelayedResponse(tester.createRequest("foo", "id", "bar", 20000));
+        DelayedResponse fooOtherId = new DelayedResponse(tester.createRequest("foo", "id2", "bar", 10000));
+        responses.add(foo1);
+        responses.add(foo2);
+        responses.add(fooOtherId);
+
+        ConfigKey<?> fooKey = new ConfigKey<>("foo", "id", "bar");
+        assertThat(new HashSet<>(responses.waitingFor(fooKey)), is(new HashSet<>(Arrays.asList(foo1, foo2))));
+        assertThat(responses.waitingFor(new ConfigKey<>("foo", "id2", "bar")), is(Arrays.asList(fooOtherId)));
+        assertTrue(responses.waitingFor(new ConfigKey<>("baz", "id", "bar")).isEmpty());
+
+        responses.remove(foo1);
+        assertThat(responses.waitingFor(fooKey), is(Arrays.asList(foo2)));
+        assertThat(responses.size(), is(2));
+    }
+
+    @Test
+    public void expiredResponsesAreRemovedFromKey() {
+        ConfigTester tester = new ConfigTester();
+        DelayedResponses responses = new DelayedResponses(new ConfigProxyStatistics());
+        DelayedResponse expired = new DelayedResponse(tester.createRequest("foo", "id", "bar", 0));
+        DelayedResponse waiting = new DelayedResponse(tester.createRequest("foo", "id", "bar", 1200000));
+        responses.add(expired);
+        responses.add(waiting);
+
+        assertThat(responses.pollExpired(), is(expired));
+        assertThat(responses.pollExpired(), is((DelayedResponse) null));
+        assertThat(responses.waitingFor(new ConfigKey<>("foo", "id", "bar")), is(Arrays.asList(waiting)));
+        assertThat(responses.size(), is(1));
+    }
+
+    @Test
+    public void responsesToClosedTargetAreRemoved() throws ListenFailedException, InterruptedException {
+        ConfigTester tester = new ConfigTester();
+        DelayedResponses responses = new DelayedResponses(new ConfigProxyStatistics());
+        List<Target> serverTargets = new CopyOnWriteArrayList<>();
+        Supervisor server = new Supervisor(new Transport());
+        Supervisor client = new Supervisor(new Transport());
+        try {
+            server.addMethod(new Method(JRTMethods.configV3getConfigMethodName, "*", "", request -> {
+                request.detach();
+                serverTargets.add(request.target());
+                responses.add(new DelayedResponse(JRTServerConfigRequestV3.createFromRequest(request)));
+            }));
+            Acceptor acceptor = server.listen(new Spec(0));
+            Target first = client.connect(new Spec("localhost", acceptor.port()));
+            Target second = client.connect(new Spec("localhost", acceptor.port()));
+            first.invokeAsync(getConfigRequest(tester), 60, request -> { });
+            while (responses.size() < 1)
+                Thread.sleep(1);
+            second.invokeAsync(getConfigRequest(tester), 60, request -> { });
+            while (responses.size() < 2)
+                Thread.sleep(1);
+
+            List<DelayedResponse> removed = responses.removeFrom(serverTargets.get(0));
+            assertThat(removed.size(), is(1));
+            assertThat(removed.get(0).getRequest().getRequest().target(), is(serverTargets.get(0)));
+            assertThat(responses.size(), is(1));
+            assertThat(responses.waitingFor(new ConfigKey<>("foo", "id", "bar")).size(), is(1));
+            assertTrue(responses.removeFrom(serverTargets.get(0)).isEmpty());
+            acceptor.shutdown().join();
+        } finally {
+            client.transport().shutdown().join();
+            server.transport().shutdown().join();
+        }
+    }
+
+    private static Request getConfigRequest(ConfigTester tester) {
+        return tester.createRequest("foo", "id", "bar", 60000).getRequest();
+    }
+
 }
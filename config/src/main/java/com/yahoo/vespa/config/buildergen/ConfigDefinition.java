@@ -6,9 +6,11 @@ import com.yahoo.config.codegen.DefParser;
 import com.yahoo.config.codegen.InnerCNode;
 import com.yahoo.config.codegen.JavaClassBuilder;
 import com.yahoo.text.StringUtilities;
+import com.yahoo.vespa.config.util.ConfigUtils;
 
 import java.io.File;
 import java.io.StringReader;
+import java.util.Arrays;
 
 /**
  * Represents a higher level functionality on a config definition to (in the future) hide the InnerCNode class.
@@ -18,6 +20,7 @@ public class ConfigDefinition {
     private final String name;
     private final String[] defSchema;
     private final InnerCNode cnode;
+    private volatile String defMd5 = null;
 
     // TODO: Should have namespace
     public ConfigDefinition(String name, String[] defSchema) {
@@ -30,6 +33,13 @@ public class ConfigDefinition {
         return cnode;
     }
 
+    /** Returns the md5 sum of this definition, as computed by clients requesting config with it */
+    public String getDefMd5() {
+        if (defMd5 == null)
+            defMd5 = ConfigUtils.getDefMd5(Arrays.asList(defSchema));
+        return defMd5;
+    }
+
     public ConfigDefinitionClass generateClass() {
         File tempDir = Files.createTempDir();
         DefParser parser = new DefParser(name, new StringReader(StringUtilities.implode(defSchema, "\n")));
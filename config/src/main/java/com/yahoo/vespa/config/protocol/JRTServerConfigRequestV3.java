@@ -37,7 +37,11 @@ public class JRTServerConfigRequestV3 extends SlimeServerConfigRequest {
         this.internalRedeploy = internalRedeploy;
         boolean changedConfig = !configMd5.equals(getRequestConfigMd5());
         boolean changedConfigAndNewGeneration = changedConfig && ConfigUtils.isGenerationNewer(generation, getRequestGeneration());
-        Payload responsePayload = payload.withCompression(getCompressionType());
+        if (payload == null) {
+            throw new RuntimeException("Payload is null for ' " + this + ", not able to create response");
+        }
+        // The payload is only sent when it has changed, so don't (de)compress it for the many responses where it has not
+        Payload responsePayload = changedConfigAndNewGeneration ? payload.withCompression(getCompressionType()) : null;
         ByteArrayOutputStream byteArrayOutputStream = new NoCopyByteArrayOutputStream(4096);
         try {
             JsonGenerator jsonGenerator = createJsonGenerator(byteArrayOutputStream);
@@ -47,14 +51,9 @@ public class JRTServerConfigRequestV3 extends SlimeServerConfigRequest {
             setResponseField(jsonGenerator, SlimeResponseData.RESPONSE_CONFIG_GENERATION, generation);
             setResponseField(jsonGenerator, SlimeResponseData.RESPONSE_INTERNAL_REDEPLOY, internalRedeploy);
             jsonGenerator.writeObjectFieldStart(SlimeResponseData.RESPONSE_COMPRESSION_INFO);
-            if (responsePayload == null) {
-                throw new RuntimeException("Payload is null for ' " + this + ", not able to create response");
-            }
-            CompressionInfo compressionInfo = responsePayload.getCompressionInfo();
             // If payload is not being sent, we must adjust compression info to avoid client confusion.
-            if (!changedConfigAndNewGeneration) {
-                compressionInfo = CompressionInfo.create(compressionInfo.getCompressionType(), 0);
-            }
+            CompressionInfo compressionInfo = changedConfigAndNewGeneration ? responsePayload.getCompressionInfo()
+                                                                            : CompressionInfo.create(getCompressionType(), 0);
             compressionInfo.serialize(jsonGenerator);
             jsonGenerator.writeEndObject();
             if (log.isLoggable(LogLevel.SPAM)) {
@@ -8,7 +8,10 @@ import com.yahoo.vespa.config.buildergen.ConfigDefinition;
 import com.yahoo.vespa.config.protocol.ConfigResponse;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * Cache that holds configs and config definitions (builtin and user config definitions).
@@ -23,7 +26,8 @@ public class ServerCache {
     // NOTE: The reason we do a double mapping here is to dedup configs that have the same md5.
     private final Map<ConfigCacheKey, String> md5Sums = new ConcurrentHashMap<>();
     private final Map<String, ConfigResponse> md5ToConfig = new ConcurrentHashMap<>();
-
+    // Configs being resolved now, which other requests for the same key wait for rather than resolving them again
+    private final Map<ConfigCacheKey, CompletableFuture<ConfigResponse>> resolving = new ConcurrentHashMap<>();
 
     public ServerCache(ConfigDefinitionRepo builtinConfigDefinitions, ConfigDefinitionRepo userConfigDefinitions) {
         this.builtinConfigDefinitions = builtinConfigDefinitions;
@@ -46,6 +50,50 @@ public class ServerCache {
         return md5ToConfig.get(md5);
     }
 
+    /**
+     * Returns the config with the given key, after resolving it with the given function and adding it to this
+     * if it is not already present. If the same config is being resolved by another thread already,
+     * this waits for that resolution and returns its result instead of resolving it again.
+     *
+     * @throws RuntimeException the exception thrown by the function resolving the config, also to threads waiting for it
+     */
+    public ConfigResponse computeIfAbsent(ConfigCacheKey key, Function<ConfigCacheKey, ConfigResponse> resolver) {
+        ConfigResponse config = get(key);
+        if (config != null) return config;
+
+        CompletableFuture<ConfigResponse> resolution = new CompletableFuture<>();
+        CompletableFuture<ConfigResponse> ongoing = resolving.putIfAbsent(key, resolution);
+        if (ongoing != null) return join(ongoing);
+
+        try {
+            config = get(key); // may have been added by a resolution which completed after we last checked
+            if (config == null) {
+                config = resolver.apply(key);
+                put(key, config, config.getConfigMd5());
+            }
+            resolution.complete(config);
+            return config;
+        }
+        catch (RuntimeException | Error e) {
+            resolution.completeExceptionally(e);
+            throw e;
+        }
+        finally {
+            resolving.remove(key, resolution);
+        }
+    }
+
+    private static ConfigResponse join(CompletableFuture<ConfigResponse> resolution) {
+        try {
+            return resolution.join();
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw e;
+        }
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -23,9 +23,15 @@ import com.yahoo.vespa.config.server.UnknownConfigDefinitionException;
 import com.yahoo.vespa.config.server.modelfactory.ModelResult;
 import com.yahoo.vespa.config.server.monitoring.MetricUpdater;
 import com.yahoo.vespa.config.util.ConfigUtils;
+import com.yahoo.yolean.Exceptions;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * A Vespa application for a specific version of Vespa. It holds data and metadata associated with
@@ -128,20 +134,66 @@ public class Application implements ModelResult {
         if (logDebug()) {
             debug("Resolving " + configKey + " with config definition " + def);
         }
+
+        ConfigResponse configResponse;
+        try {
+            if (req.noCache()) {
+                configResponse = createConfigResponse(configKey, def, responseFactory);
+            } else {
+                // Many clients ask for the same config right after activation: let one resolve it while the others wait
+                configResponse = cache.computeIfAbsent(cacheKey, key -> createConfigResponse(configKey, def, responseFactory));
+                metricUpdater.setCacheConfigElems(cache.configElems());
+                metricUpdater.setCacheChecksumElems(cache.checkSumElems());
+            }
+        } catch (ConfigurationRuntimeException e) {
+            metricUpdater.incrementFailedRequests();
+            throw e;
+        }
+        metricUpdater.incrementProcTime(System.currentTimeMillis() - start);
+        return configResponse;
+    }
+
+    private ConfigResponse createConfigResponse(ConfigKey<?> configKey, ConfigDefinition def, ConfigResponseFactory responseFactory) {
         ConfigPayload payload = model.getConfig(configKey, def);
         if (payload == null) {
-            metricUpdater.incrementFailedRequests();
             throw new ConfigurationRuntimeException("Unable to resolve config " + configKey);
         }
+        return responseFactory.createResponse(payload, def.getCNode(), appGeneration, internalRedeploy);
+    }
 
-        ConfigResponse configResponse = responseFactory.createResponse(payload, def.getCNode(), appGeneration, internalRedeploy);
-        metricUpdater.incrementProcTime(System.currentTimeMillis() - start);
-        if ( ! req.noCache()) {
-            cache.put(cacheKey, configResponse, configResponse.getConfigMd5());
-            metricUpdater.setCacheConfigElems(cache.configElems());
-            metricUpdater.setCacheChecksumElems(cache.checkSumElems());
+    /**
+     * Resolves all the configs produced by the model of this and adds them to the cache, using the given executor
+     * to resolve them in parallel, and returns when all are resolved. Configs are resolved with the config
+     * definitions known to the cache, and those which cannot be resolved are left to be resolved on request.
+     */
+    public void preResolveConfigs(ConfigResponseFactory responseFactory, ExecutorService executor) {
+        long start = System.currentTimeMillis();
+        List<Future<?>> resolutions = new ArrayList<>();
+        for (ConfigKey<?> configKey : allConfigsProduced()) {
+            ConfigDefinition def = cache.getDef(new ConfigDefinitionKey(configKey.getName(), configKey.getNamespace()));
+            if (def == null) continue;
+            ConfigCacheKey cacheKey = new ConfigCacheKey(configKey, def.getDefMd5());
+            resolutions.add(executor.submit(() -> cache.computeIfAbsent(cacheKey, key -> createConfigResponse(configKey, def, responseFactory))));
         }
-        return configResponse;
+
+        int failed = 0;
+        for (Future<?> resolution : resolutions) {
+            try {
+                resolution.get();
+            } catch (ExecutionException e) {
+                failed++;
+                if (logDebug()) {
+                    debug("Could not pre-resolve config: " + Exceptions.toMessageString(e));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        metricUpdater.setCacheConfigElems(cache.configElems());
+        metricUpdater.setCacheChecksumElems(cache.checkSumElems());
+        log.log(LogLevel.DEBUG, TenantRepository.logPre(getId()) + "Pre-resolved " + (resolutions.size() - failed) + " of " +
+                                resolutions.size() + " configs of " + this + " in " + (System.currentTimeMillis() - start) + " ms");
     }
 
     private boolean logDebug() {
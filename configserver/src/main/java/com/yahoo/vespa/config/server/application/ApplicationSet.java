@@ -4,9 +4,11 @@ import com.yahoo.config.model.api.HostInfo;
 import com.yahoo.config.model.api.Model;
 import com.yahoo.config.provision.ApplicationId;
 import com.yahoo.config.provision.Version;
+import com.yahoo.vespa.config.server.rpc.ConfigResponseFactory;
 
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
 /**
@@ -88,6 +90,17 @@ public final class ApplicationSet {
         }
     }
 
+    /**
+     * Resolves all the configs of all the applications in this and adds them to their caches.
+     *
+     * @see Application#preResolveConfigs
+     */
+    public void preResolveConfigs(ConfigResponseFactory responseFactory, ExecutorService executor) {
+        for (Application application : applications.values()) {
+            application.preResolveConfigs(responseFactory, executor);
+        }
+    }
+
     public long getApplicationGeneration() {
         return generation;
     }
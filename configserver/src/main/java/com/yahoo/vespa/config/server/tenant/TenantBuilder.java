@@ -132,7 +132,8 @@ public class TenantBuilder {
                                                                  tenant,
                                                                  Collections.singletonList(componentRegistry.getReloadListener()),
                                                                  ConfigResponseFactory.create(componentRegistry.getConfigserverConfig()),
-                                                                 componentRegistry.getHostRegistries());
+                                                                 componentRegistry.getHostRegistries(),
+                                                                 componentRegistry.getConfigserverConfig().numConfigPreResolvers());
             if (hostValidator == null) {
                 this.hostValidator = impl;
             }
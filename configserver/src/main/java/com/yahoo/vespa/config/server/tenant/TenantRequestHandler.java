@@ -3,7 +3,11 @@ package com.yahoo.vespa.config.server.tenant;
 
 import java.time.Clock;
 import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import com.yahoo.concurrent.ThreadFactoryFactory;
 import com.yahoo.config.provision.Version;
 import com.yahoo.log.LogLevel;
 import com.yahoo.vespa.config.*;
@@ -44,18 +48,38 @@ public class TenantRequestHandler implements RequestHandler, ReloadHandler, Host
     private final ApplicationMapper applicationMapper = new ApplicationMapper();
     private final MetricUpdater tenantMetricUpdater;
     private final Clock clock = Clock.systemUTC();
+    /** Resolves the configs of applications when they are activated, or empty to only resolve configs on request */
+    private final Optional<ThreadPoolExecutor> configPreResolver;
 
     public TenantRequestHandler(Metrics metrics,
                                 TenantName tenant,
                                 List<ReloadListener> reloadListeners,
                                 ConfigResponseFactory responseFactory,
                                 HostRegistries hostRegistries) {
+        this(metrics, tenant, reloadListeners, responseFactory, hostRegistries, 0);
+    }
+
+    public TenantRequestHandler(Metrics metrics,
+                                TenantName tenant,
+                                List<ReloadListener> reloadListeners,
+                                ConfigResponseFactory responseFactory,
+                                HostRegistries hostRegistries,
+                                int numConfigPreResolvers) {
         this.metrics = metrics;
         this.tenant = tenant;
         this.reloadListeners = reloadListeners;
         this.responseFactory = responseFactory;
         tenantMetricUpdater = metrics.getOrCreateMetricUpdater(Metrics.createDimensions(tenant));
         hostRegistry = hostRegistries.createApplicationHostRegistry(tenant);
+        configPreResolver = numConfigPreResolvers > 0 ? Optional.of(createConfigPreResolver(numConfigPreResolvers))
+                                                      : Optional.empty();
+    }
+
+    private ThreadPoolExecutor createConfigPreResolver(int threads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                                                             ThreadFactoryFactory.getDaemonThreadFactory("config pre-resolver " + tenant));
+        executor.allowCoreThreadTimeOut(true); // activations are rare, so don't keep idle threads for each tenant
+        return executor;
     }
 
     /**
@@ -84,11 +108,13 @@ public class TenantRequestHandler implements RequestHandler, ReloadHandler, Host
     }
 
     /**
-     * Activates the config of the given app. Notifies listeners
+     * Activates the config of the given app. Notifies listeners. If configs are pre-resolved, all configs of
+     * the app are resolved before it is activated, so the clients asking for them when notified are answered from cache.
      *
      * @param applicationSet the {@link ApplicationSet} to be reloaded
      */
     public void reloadConfig(ApplicationSet applicationSet) {
+        configPreResolver.ifPresent(executor -> applicationSet.preResolveConfigs(responseFactory, executor));
         setLiveApp(applicationSet);
         notifyReloadListeners(applicationSet);
     }
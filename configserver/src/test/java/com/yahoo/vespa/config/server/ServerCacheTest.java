@@ -11,10 +11,23 @@ import com.yahoo.vespa.config.protocol.SlimeConfigResponse;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author Ulf Lilleengen
@@ -76,4 +89,59 @@ public class ServerCacheTest {
     public void testThatCacheWorksWithDifferentKeySameMd5() {
         assertTrue(cache.get(fooBarCacheKey) == cache.get(bazQuuxCacheKey));
     }
+
+    @Test
+    public void testThatCachedConfigIsNotResolvedAgain() {
+        ConfigResponse cached = cache.get(fooBarCacheKey);
+        assertSame(cached, cache.computeIfAbsent(fooBarCacheKey, key -> { throw new AssertionError("Should not resolve"); }));
+    }
+
+    @Test
+    public void testThatConcurrentRequestsForSameConfigAreResolvedOnce() throws Exception {
+        ConfigCacheKey key = new ConfigCacheKey(new ConfigKey<>("foo", "id3", "bar"), defMd5);
+        AtomicInteger resolutions = new AtomicInteger();
+        CountDownLatch resolving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ConfigResponse>> responses = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                responses.add(executor.submit(() -> cache.computeIfAbsent(key, k -> {
+                    resolutions.incrementAndGet();
+                    resolving.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    return SlimeConfigResponse.fromConfigPayload(ConfigPayload.empty(), def.getCNode(), 2, false, "md5_3");
+                })));
+            }
+            assertTrue(resolving.await(60, TimeUnit.SECONDS));
+            Thread.sleep(10); // let the other requests find the ongoing resolution
+            release.countDown();
+            ConfigResponse first = responses.get(0).get();
+            for (Future<ConfigResponse> response : responses)
+                assertSame(first, response.get());
+            assertEquals(1, resolutions.get());
+            assertSame(first, cache.get(key));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testThatFailedResolutionIsNotCached() {
+        ConfigCacheKey key = new ConfigCacheKey(new ConfigKey<>("foo", "id4", "bar"), defMd5);
+        try {
+            cache.computeIfAbsent(key, k -> { throw new IllegalArgumentException("Cannot resolve"); });
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Cannot resolve", e.getMessage());
+        }
+        assertNull(cache.get(key));
+        ConfigResponse response = cache.computeIfAbsent(key, k -> SlimeConfigResponse.fromConfigPayload(ConfigPayload.empty(), def.getCNode(), 2, false, "md5_4"));
+        assertSame(response, cache.get(key));
+    }
+
 }
@@ -32,4 +32,20 @@ public class AccessLog {
         }
     }
 
+    /** Returns the number of lines dropped by all the access logs since the last call to this */
+    public long takeDroppedLines() {
+        long dropped = 0;
+        for (AccessLogInterface log : implementers.allComponents())
+            dropped += log.statistics().map(AccessLogStatistics::takeDroppedLines).orElse(0L);
+        return dropped;
+    }
+
+    /** Returns the number of lines which are queued to be written by all the access logs now */
+    public long queuedLines() {
+        long queued = 0;
+        for (AccessLogInterface log : implementers.allComponents())
+            queued += log.statistics().map(AccessLogStatistics::queuedLines).orElse(0L);
+        return queued;
+    }
+
 }
@@ -5,19 +5,14 @@ import com.yahoo.container.core.AccessLogConfig;
 
 import static com.yahoo.container.core.AccessLogConfig.FileHandler.RotateScheme.DATE;
 
-import java.util.logging.Logger;
-
 /**
  * @author Bjorn Borud
  */
 class AccessLogHandler {
 
-    public Logger access = Logger.getAnonymousLogger();
     private LogFileHandler logFileHandler;
 
     public AccessLogHandler(AccessLogConfig.FileHandler config) {
-        access.setUseParentHandlers(false);
-
         logFileHandler = new LogFileHandler(config.rotateScheme(), config.compressOnRotation());
 
         logFileHandler.setFilePattern(config.pattern());
@@ -25,12 +20,16 @@ class AccessLogHandler {
 
         if (config.rotateScheme() == DATE)
             createSymlink(config, logFileHandler);
+    }
 
+    /** Writes a line, which must include its trailing newline, to the access log */
+    void log(String line) {
+        logFileHandler.publish(line);
+    }
 
-        LogFormatter lf = new LogFormatter();
-        lf.messageOnly(true);
-        this.logFileHandler.setFormatter(lf);
-        access.addHandler(this.logFileHandler);
+    /** Writes a UTF-8 encoded line, which must include its trailing newline, to the access log */
+    void log(byte[] line) {
+        logFileHandler.publish(line);
     }
 
     private void createSymlink(AccessLogConfig.FileHandler config, LogFileHandler handler) {
@@ -40,7 +39,6 @@ class AccessLogHandler {
 
     public void shutdown() {
         logFileHandler.close();
-        access.removeHandler(logFileHandler);
 
         if (logFileHandler!=null)
             logFileHandler.shutdown();
@@ -49,4 +47,8 @@ class AccessLogHandler {
     void rotateNow() {
         logFileHandler.rotateNow();
     }
+
+    AccessLogStatistics statistics() {
+        return logFileHandler.statistics();
+    }
 }
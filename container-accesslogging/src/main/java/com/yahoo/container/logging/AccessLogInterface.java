@@ -1,9 +1,14 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.container.logging;
 
+import java.util.Optional;
+
 /**
  * @author Tony Vaagenes
  */
 public interface AccessLogInterface {
     void log(AccessLogEntry accessLogEntry);
+
+    /** Returns the statistics of the file written by this, or empty if it does not write to a file */
+    default Optional<AccessLogStatistics> statistics() { return Optional.empty(); }
 }
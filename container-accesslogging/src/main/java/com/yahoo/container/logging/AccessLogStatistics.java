@@ -0,0 +1,32 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.logging;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of an access log file, for reporting as metrics.
+ */
+public final class AccessLogStatistics {
+
+    private final LongAdder droppedLines = new LongAdder();
+    private final LogFileHandler handler;
+
+    AccessLogStatistics(LogFileHandler handler) {
+        this.handler = handler;
+    }
+
+    void lineDropped() {
+        droppedLines.increment();
+    }
+
+    /** Returns the number of lines dropped because the queue of lines to write was full since the last call to this */
+    public long takeDroppedLines() {
+        return droppedLines.sumThenReset();
+    }
+
+    /** Returns the number of lines which are queued to be written to the log file now */
+    public long queuedLines() {
+        return handler.queuedLines();
+    }
+
+}
@@ -3,7 +3,8 @@ package com.yahoo.container.logging;
 
 import com.yahoo.container.core.AccessLogConfig;
 
-import java.util.logging.Level;
+import java.io.ByteArrayOutputStream;
+import java.util.Optional;
 
 /**
  * Log a message in Vespa JSON access log format.
@@ -21,7 +22,10 @@ public final class JSONAccessLog implements  AccessLogInterface {
 
     @Override
     public void log(AccessLogEntry logEntry) {
-        logHandler.access.log(Level.INFO, new JSONFormatter(logEntry).format() + '\n');
+        ByteArrayOutputStream line = new ByteArrayOutputStream(512);
+        new JSONFormatter(logEntry).format(line);
+        line.write('\n');
+        logHandler.log(line.toByteArray());
     }
 
     // TODO: This is never called. We should have a DI provider and call this method from its deconstruct.
@@ -33,4 +37,9 @@ public final class JSONAccessLog implements  AccessLogInterface {
         logHandler.rotateNow();
     }
 
+    @Override
+    public Optional<AccessLogStatistics> statistics() {
+        return Optional.of(logHandler.statistics());
+    }
+
 }
@@ -8,6 +8,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.security.Principal;
@@ -25,14 +26,12 @@ import java.util.logging.Logger;
 public class JSONFormatter {
 
     private AccessLogEntry accessLogEntry;
-    private final JsonFactory generatorFactory;
+    private static final JsonFactory generatorFactory = new JsonFactory(new ObjectMapper());
 
     private static Logger logger = Logger.getLogger(JSONFormatter.class.getName());
 
     public JSONFormatter(final AccessLogEntry entry) {
         accessLogEntry = entry;
-        generatorFactory = new JsonFactory();
-        generatorFactory.setCodec(new ObjectMapper());
     }
 
     /**
@@ -42,6 +41,15 @@ public class JSONFormatter {
      */
     public String format() {
         ByteArrayOutputStream logLine = new ByteArrayOutputStream();
+        format(logLine);
+        return logLine.toString();
+    }
+
+    /**
+     * Formats the associated {@link AccessLogEntry} as a Vespa JSON access log entry, and writes it as UTF-8
+     * to the given stream, without trailing newline
+     */
+    void format(OutputStream logLine) {
         try {
             JsonGenerator generator = generatorFactory.createGenerator(logLine, JsonEncoding.UTF8);
             generator.writeStartObject();
@@ -121,8 +129,6 @@ public class JSONFormatter {
         } catch (IOException e) {
             logger.log(Level.WARNING, "Unable to generate JSON access log entry: " + e.getMessage());
         }
-
-        return logLine.toString();
     }
 
 
@@ -11,17 +11,27 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
-import java.util.logging.StreamHandler;
+import java.util.logging.SimpleFormatter;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.GZIPOutputStream;
@@ -29,15 +39,24 @@ import java.util.zip.GZIPOutputStream;
 /**
  * <p>Implements log file naming/rotating logic for container logs.</p>
  *
+ * <p>Lines are added to a bounded queue without blocking, and written by a single thread, which encodes them as UTF-8
+ * into a reused buffer and writes them to the current file in batches. Lines published while the queue is full are
+ * dropped, and counted in the {@link AccessLogStatistics} of this.</p>
+ *
  * <p>Overridden methods: publish</p>
  *
  * <p>Added methods: setFilePattern, setRotationTimes, rotateNow (+ few others)</p>
  *
  * @author Bob Travis
  */
-public class LogFileHandler extends StreamHandler {
+public class LogFileHandler extends Handler {
 
     private final static Logger logger = Logger.getLogger(LogFileHandler.class.getName());
+    private static final int QUEUE_SIZE = 100000;
+    private static final int BUFFER_SIZE = 256 * 1024;
+    /** The longest time the log thread waits for new lines before checking whether it should stop */
+    private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
     /** True to use the sequence file name scheme, false (default) to use the date scheme */
     private final boolean useSequenceNameScheme;
     private final boolean compressOnRotation;
@@ -46,57 +65,157 @@ public class LogFileHandler extends StreamHandler {
     private long lastRotationTime = -1; // absolute time (millis since epoch) of current file start
     private int numberOfRecords = -1;
     private long nextRotationTime = 0;
-    private OutputStream currentOutputStream = null;
-    private String fileName;
+    private FileChannel currentChannel = null;
+    private volatile String fileName;
     private String symlinkName = null;
-    private ArrayBlockingQueue<LogRecord> logQueue = new ArrayBlockingQueue<>(100000);
-    private LogRecord rotateCmd = new LogRecord(Level.SEVERE, "rotateNow");
+    private final LogQueue<Object> logQueue = new LogQueue<>(QUEUE_SIZE);
+    private final Object rotateCmd = new Object();
+    private final AccessLogStatistics statistics = new AccessLogStatistics(this);
     private ExecutorService executor = Executors.newCachedThreadPool(ThreadFactoryFactory.getDaemonThreadFactory("logfilehandler.compression"));
 
-    static private class LogThread extends Thread {
-        LogFileHandler logFileHandler;
-        long lastFlush = 0;
-        LogThread(LogFileHandler logFile) {
+    /** The number of entries taken from the queue and written to the current file, updated after each write */
+    private volatile long written = 0;
+    /** Whether the log thread is waiting for entries, and must be woken when one is added */
+    private volatile boolean waiting = false;
+    /**
+     * Whether the log thread should write what is queued and stop. The thread is not interrupted to stop it,
+     * as that would close the file channel during a write, and lose the lines being written.
+     */
+    private volatile boolean stopped = false;
+
+    private class LogThread extends Thread {
+
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                                                                     .onMalformedInput(CodingErrorAction.REPLACE)
+                                                                     .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private char[] chars = new char[1024];
+        private long taken = 0;
+
+        LogThread() {
             super("Logger");
             setDaemon(true);
-            logFileHandler = logFile;
         }
+
         @Override
         public void run() {
             try {
                 storeLogRecords();
+                // write what was queued before we were asked to stop
+                for (Object entry = logQueue.poll(); entry != null; entry = logQueue.poll())
+                    store(entry);
+                writeBuffer();
             } catch (InterruptedException e) {
             } catch (Exception e) {
                 com.yahoo.protect.Process.logAndDie("Failed storing log records", e);
             }
-
-            logFileHandler.flush();
+            closeChannel();
         }
 
         private void storeLogRecords() throws InterruptedException {
-            while (!isInterrupted()) {
-                LogRecord r = logFileHandler.logQueue.poll(100, TimeUnit.MILLISECONDS);
-                if (r != null) {
-                    if (r == logFileHandler.rotateCmd) {
-                        logFileHandler.internalRotateNow();
-                        lastFlush = System.nanoTime();
-                    } else {
-                        logFileHandler.internalPublish(r);
-                    }
-                    flushIfOld(3, TimeUnit.SECONDS);
+            while ( ! stopped) {
+                Object entry = logQueue.poll();
+                if (entry != null) {
+                    store(entry);
                 } else {
-                    flushIfOld(100, TimeUnit.MILLISECONDS);
+                    writeBuffer();
+                    waitForEntries();
                 }
             }
         }
 
-        private void flushIfOld(long age, TimeUnit unit) {
-            long now = System.nanoTime();
-            if (TimeUnit.NANOSECONDS.toMillis(now - lastFlush) > unit.toMillis(age)) {
-                logFileHandler.flush();
-                lastFlush = now;
+        private void waitForEntries() {
+            waiting = true;
+            if (logQueue.isEmpty())
+                LockSupport.parkNanos(this, MAX_WAIT_NANOS);
+            waiting = false;
+        }
+
+        private void store(Object entry) throws InterruptedException {
+            if (entry == rotateCmd) {
+                writeBuffer();
+                internalRotateNow();
+                written = ++taken;
+                return;
+            }
+
+            // first check to see if new file needed.
+            long now = System.currentTimeMillis();
+            if (nextRotationTime <= 0) {
+                nextRotationTime = getNextRotationTime(now); // lazy initialization
             }
+            if (now > nextRotationTime || currentChannel == null) {
+                writeBuffer();
+                internalRotateNow();
+            }
+            // count records, and publish
+            numberOfRecords++;
+            if (entry instanceof byte[]) {
+                put((byte[])entry);
+            } else if (entry instanceof String) {
+                put((String)entry);
+            } else {
+                LogRecord record = (LogRecord)entry;
+                if (isLoggable(record)) {
+                    put(getFormatter().format(record));
+                }
+            }
+            // counted only now, as a write of a full buffer during put marks the lines taken so far as written
+            taken++;
         }
+
+        private void put(byte[] line) {
+            if (line.length > buffer.remaining()) {
+                writeBuffer();
+                if (line.length > buffer.capacity()) {
+                    write(ByteBuffer.wrap(line));
+                    return;
+                }
+            }
+            buffer.put(line);
+        }
+
+        private void put(String line) {
+            int length = line.length();
+            if (length > chars.length) {
+                chars = new char[Math.max(length, chars.length * 2)];
+            }
+            line.getChars(0, length, chars, 0);
+            CharBuffer input = CharBuffer.wrap(chars, 0, length);
+            encoder.reset();
+            while (true) {
+                CoderResult result = encoder.encode(input, buffer, true);
+                if (result.isOverflow()) {
+                    writeBuffer();
+                } else {
+                    break;
+                }
+            }
+            while (encoder.flush(buffer).isOverflow()) {
+                writeBuffer();
+            }
+        }
+
+        /** Writes the buffered lines to the current file, and marks all lines taken so far as written */
+        private void writeBuffer() {
+            if (buffer.position() > 0) {
+                buffer.flip();
+                write(buffer);
+                buffer.clear();
+            }
+            written = taken;
+        }
+
+        private void write(ByteBuffer bytes) {
+            try {
+                while (bytes.hasRemaining()) {
+                    currentChannel.write(bytes);
+                }
+            } catch (IOException e) {
+                reportError(null, e, ErrorManager.WRITE_FAILURE);
+            }
+        }
+
     }
     private final LogThread logThread;
 
@@ -113,36 +232,66 @@ public class LogFileHandler extends StreamHandler {
         super();
         this.useSequenceNameScheme = (rotateScheme == AccessLogConfig.FileHandler.RotateScheme.Enum.SEQUENCE);
         this.compressOnRotation = compressOnRotation;
-        logThread = new LogThread(this);
+        setFormatter(new SimpleFormatter());
+        logThread = new LogThread();
         logThread.start();
     }
 
     /**
      * Sends logrecord to file, first rotating file if needed.
+     * The record is dropped if the queue of records to write is full.
      *
      * @param r logrecord to publish
      */
+    @Override
     public void publish(LogRecord r) {
-        try {
-            logQueue.put(r);
-        } catch (InterruptedException e) {
-        }
+        enqueue(r);
     }
 
-    private void internalPublish(LogRecord r) throws InterruptedException {
-        // first check to see if new file needed.
-        // if so, use this.internalRotateNow() to do it
+    /**
+     * Sends a line, which must include its trailing newline, to file, first rotating file if needed.
+     * The line is dropped if the queue of lines to write is full.
+     */
+    void publish(String line) {
+        enqueue(line);
+    }
 
-        long now = System.currentTimeMillis();
-        if (nextRotationTime <= 0) {
-            nextRotationTime = getNextRotationTime(now); // lazy initialization
+    /**
+     * Sends a UTF-8 encoded line, which must include its trailing newline, to file, first rotating file if needed.
+     * The line is dropped if the queue of lines to write is full.
+     */
+    void publish(byte[] line) {
+        enqueue(line);
+    }
+
+    private void enqueue(Object entry) {
+        if (logQueue.offer(entry)) {
+            wakeLogThread();
+        } else {
+            statistics.lineDropped();
         }
-        if (now > nextRotationTime || currentOutputStream == null) {
-            internalRotateNow();
+    }
+
+    private void wakeLogThread() {
+        if (waiting) {
+            LockSupport.unpark(logThread);
         }
-        // count records, and publish
-        numberOfRecords++;
-        super.publish(r);
+    }
+
+    @Override
+    public boolean isLoggable(LogRecord record) {
+        if (record == null || record.getLevel().intValue() < getLevel().intValue()) return false;
+        return getFilter() == null || getFilter().isLoggable(record);
+    }
+
+    /** Returns the number of lines which are queued to be written */
+    int queuedLines() {
+        return logQueue.size();
+    }
+
+    /** Returns the statistics of the file written by this */
+    AccessLogStatistics statistics() {
+        return statistics;
     }
 
     /**
@@ -197,14 +346,30 @@ public class LogFileHandler extends StreamHandler {
         return next;
     }
 
+    /** Waits until all the lines published before this was called are written to file */
     void waitDrained() {
-        while(! logQueue.isEmpty()) {
+        long target = logQueue.added();
+        while (written < target && logThread.isAlive()) {
             try {
                 Thread.sleep(1);
             } catch (InterruptedException e) {
             }
         }
-        super.flush();
+    }
+
+    /** Waits until all the lines published before this was called are written to file */
+    @Override
+    public void flush() {
+        waitDrained();
+    }
+
+    /**
+     * Waits until all the lines published before this was called are written to file. The file is closed
+     * by {@link #shutdown}.
+     */
+    @Override
+    public void close() {
+        waitDrained();
     }
 
     private void checkAndCreateDir(String pathname) {
@@ -222,20 +387,27 @@ public class LogFileHandler extends StreamHandler {
      * Force file rotation now, independent of schedule.
      */
     void rotateNow () {
-        publish(rotateCmd);
+        while ( ! logQueue.offer(rotateCmd)) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+        wakeLogThread();
     }
 
     // Throw InterruptedException upwards rather than relying on isInterrupted to stop the thread as
     // isInterrupted() returns false after interruption in p.waitFor
     private void internalRotateNow() throws InterruptedException {
         // figure out new file name, then
-        // use super.setOutputStream to switch to a new file
+        // switch the channel to a new file
 
         String oldFileName = fileName;
         long now = System.currentTimeMillis();
-        fileName = LogFormatter.insertDate(filePattern, now);
-        super.flush();
-        super.close();
+        String newFileName = LogFormatter.insertDate(filePattern, now);
+        closeChannel();
+        fileName = newFileName;
 
         if (useSequenceNameScheme)
             moveCurrentFile();
@@ -243,8 +415,7 @@ public class LogFileHandler extends StreamHandler {
         try {
             checkAndCreateDir(fileName);
             FileOutputStream os = new FileOutputStream(fileName, true); // append mode, for safety
-            super.setOutputStream(os);
-            currentOutputStream = os;
+            currentChannel = os.getChannel();
             if (! useSequenceNameScheme) LogFileDb.nowLoggingTo(fileName);
         }
         catch (IOException e) {
@@ -270,28 +441,34 @@ public class LogFileHandler extends StreamHandler {
         }
     }
 
+    private void closeChannel() {
+        if (currentChannel == null) return;
+        try {
+            currentChannel.close();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.CLOSE_FAILURE);
+        }
+        currentChannel = null;
+    }
+
     private void runCompression(File oldFile) {
         File gzippedFile = new File(oldFile.getPath() + ".gz");
-        try {
-            GZIPOutputStream compressor = new GZIPOutputStream(new FileOutputStream(gzippedFile), 0x100000);
-            FileInputStream inputStream = new FileInputStream(oldFile);
+        try (InputStream inputStream = new FileInputStream(oldFile);
+             OutputStream compressor = new GZIPOutputStream(new FileOutputStream(gzippedFile), 0x100000)) {
             byte [] buffer = new byte[0x100000];
 
             for (int read = inputStream.read(buffer); read > 0; read = inputStream.read(buffer)) {
                 compressor.write(buffer, 0, read);
             }
-            inputStream.close();
-            compressor.finish();
-            compressor.flush();
-            compressor.close();
-
-            NativeIO nativeIO = new NativeIO();
-            nativeIO.dropFileFromCache(oldFile); // Drop from cache in case somebody else has a reference to it preventing from dying quickly.
-            oldFile.delete();
-            nativeIO.dropFileFromCache(gzippedFile);
         } catch (IOException e) {
             logger.warning("Got '" + e + "' while compressing '" + oldFile.getPath() + "'.");
+            return;
         }
+
+        NativeIO nativeIO = new NativeIO();
+        nativeIO.dropFileFromCache(oldFile); // Drop from cache in case somebody else has a reference to it preventing from dying quickly.
+        oldFile.delete();
+        nativeIO.dropFileFromCache(gzippedFile);
     }
 
     /** Name files by date - create a symlink with a constant name to the newest file */
@@ -403,11 +580,12 @@ public class LogFileHandler extends StreamHandler {
     }
 
     /**
-     * Flushes all queued messages, interrupts the log thread in this and
+     * Flushes all queued messages, stops the log thread in this and
      * waits for it to end before returning
      */
     public void shutdown() {
-        logThread.interrupt();
+        stopped = true;
+        LockSupport.unpark(logThread);
         try {
             logThread.join();
             executor.shutdown();
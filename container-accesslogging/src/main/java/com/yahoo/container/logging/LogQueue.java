@@ -0,0 +1,79 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded queue of entries to log, which any number of threads may add to and a single thread takes from.
+ * The slots of the queue are allocated up front and reused, and adding and taking entries never locks or blocks:
+ * an entry is rejected if the queue is full.
+ */
+final class LogQueue<T> {
+
+    private final Object[] entries;
+    /** The state of each slot: the position to add at when it is free, and that plus one when it holds an entry */
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong(0); // the position of the next entry to add
+    private volatile long head = 0; // the position of the next entry to take
+
+    /** Creates a queue with room for at least the given number of entries */
+    LogQueue(int capacity) {
+        if (capacity < 1 || capacity > (1 << 30))
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30, got " + capacity);
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+        entries = new Object[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++)
+            sequences.set(i, i);
+        mask = size - 1;
+    }
+
+    /**
+     * Adds an entry to this queue unless it is full. This may be called by any thread.
+     *
+     * @return whether the entry was added
+     */
+    boolean offer(T entry) {
+        while (true) {
+            long position = tail.get();
+            int index = (int)position & mask;
+            long sequence = sequences.get(index);
+            if (sequence < position) return false; // the entry added a lap ago is not taken yet
+            if (sequence == position && tail.compareAndSet(position, position + 1)) {
+                entries[index] = entry;
+                sequences.set(index, position + 1);
+                return true;
+            }
+        }
+    }
+
+    /** Takes the next entry of this queue, or returns null if it is empty. This must only be called by one thread. */
+    @SuppressWarnings("unchecked")
+    T poll() {
+        long position = head;
+        int index = (int)position & mask;
+        if (sequences.get(index) != position + 1) return null;
+        T entry = (T)entries[index];
+        entries[index] = null;
+        sequences.lazySet(index, position + entries.length);
+        head = position + 1;
+        return entry;
+    }
+
+    /** Returns the number of entries which have been added to this queue so far */
+    long added() { return tail.get(); }
+
+    /** Returns the number of entries in this queue now */
+    int size() { return (int)Math.max(0, tail.get() - head); }
+
+    /** Returns whether this queue is empty now */
+    boolean isEmpty() { return size() == 0; }
+
+    /** Returns the maximum number of entries this can hold */
+    int capacity() { return entries.length; }
+
+}
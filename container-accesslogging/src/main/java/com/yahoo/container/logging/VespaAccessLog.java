@@ -5,8 +5,8 @@ import com.yahoo.container.core.AccessLogConfig;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Optional;
 import java.util.TimeZone;
-import java.util.logging.Level;
 
 /**
  * @author Bjorn Borud
@@ -69,7 +69,7 @@ public final class VespaAccessLog implements AccessLogInterface {
                 .append(" 0.0 ")
                 .append((hitcounts == null) ? 0 : hitcounts.getSummaryCount())
                 .append('\n');
-        logHandler.access.log(Level.INFO, sb.toString());
+        logHandler.log(sb.toString());
     }
 
     private void decimalsOfSecondsFromMilliseconds(long ms, StringBuilder sb) {
@@ -108,4 +108,10 @@ public final class VespaAccessLog implements AccessLogInterface {
                 accessLogEntry.getHitCounts(),
                 accessLogEntry.getStatusCode());
     }
+
+    @Override
+    public Optional<AccessLogStatistics> statistics() {
+        return Optional.of(logHandler.statistics());
+    }
+
 }
@@ -3,7 +3,7 @@ package com.yahoo.container.logging;
 
 import com.yahoo.container.core.AccessLogConfig;
 
-import java.util.logging.Level;
+import java.util.Optional;
 
 /**
  * Log a message in yApache log format.
@@ -20,7 +20,7 @@ public final class YApacheAccessLog implements  AccessLogInterface {
 
     @Override
     public void log(final AccessLogEntry logEntry) {
-        logHandler.access.log(Level.INFO, new YApacheFormatter(logEntry).format() + '\n');
+        logHandler.log(new YApacheFormatter(logEntry).format() + '\n');
     }
 
 
@@ -33,4 +33,9 @@ public final class YApacheAccessLog implements  AccessLogInterface {
         logHandler.rotateNow();
     }
 
+    @Override
+    public Optional<AccessLogStatistics> statistics() {
+        return Optional.of(logHandler.statistics());
+    }
+
 }
@@ -8,6 +8,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -119,6 +120,62 @@ public class LogFileHandlerTestCase {
       new File(logFilePattern).deleteOnExit();
     }
 
+    @Test
+    public void testFormattedLines() throws IOException {
+        IOUtils.recursiveDeleteDir(new File("./testformattedlines"));
+        LogFileHandler h = new LogFileHandler();
+        h.setFilePattern("./testformattedlines/logfilehandlertest.%Y%m%d%H%M%S%s");
+        StringBuilder longLine = new StringBuilder();
+        while (longLine.length() < 300000)
+            longLine.append("a line longer than the write buffer ");
+        longLine.append('\n');
+
+        h.publish("plain line\n");
+        h.publish("line with non-ascii characters: æøå ☺\n".getBytes(StandardCharsets.UTF_8));
+        h.publish("more non-ascii characters: æøå ☺\n");
+        h.publish(longLine.toString());
+        h.publish("last line\n");
+        h.waitDrained();
+
+        String content = IOUtils.readFile(new File(h.getFileName()));
+        assertEquals("plain line\n" +
+                     "line with non-ascii characters: æøå ☺\n" +
+                     "more non-ascii characters: æøå ☺\n" +
+                     longLine +
+                     "last line\n",
+                     content);
+        assertEquals(0, h.queuedLines());
+        h.shutdown();
+        IOUtils.recursiveDeleteDir(new File("./testformattedlines"));
+    }
+
+    @Test
+    public void testWaitDrainedIncludesLinesLongerThanTheBuffer() throws IOException {
+        IOUtils.recursiveDeleteDir(new File("./testwaitdrained"));
+        LogFileHandler h = new LogFileHandler();
+        h.setFilePattern("./testwaitdrained/logfilehandlertest.%Y%m%d%H%M%S%s");
+        StringBuilder longLine = new StringBuilder();
+        while (longLine.length() < 300000)
+            longLine.append("a line longer than the write buffer ");
+        longLine.append('\n');
+        byte[] longBytes = longLine.toString().getBytes(StandardCharsets.UTF_8);
+
+        long expectedLength = 0;
+        for (int i = 0; i < 10; i++) {
+            if (i % 2 == 0)
+                h.publish(longLine.toString());
+            else
+                h.publish(longBytes);
+            expectedLength += longBytes.length;
+            h.waitDrained();
+            assertEquals(expectedLength, new File(h.getFileName()).length());
+        }
+        assertEquals(0, h.statistics().queuedLines());
+        assertEquals(0, h.statistics().takeDroppedLines());
+        h.shutdown();
+        IOUtils.recursiveDeleteDir(new File("./testwaitdrained"));
+    }
+
     @Test
     public void testSymlink() {
         LogFileHandler h = new LogFileHandler();
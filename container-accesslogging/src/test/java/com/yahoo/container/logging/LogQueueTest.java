@@ -0,0 +1,78 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.logging;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LogQueueTest {
+
+    @Test
+    public void testCapacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(1, new LogQueue<String>(1).capacity());
+        assertEquals(8, new LogQueue<String>(5).capacity());
+        assertEquals(131072, new LogQueue<String>(100000).capacity());
+    }
+
+    @Test
+    public void testEntriesAreTakenInOrderAndRejectedWhenFull() {
+        LogQueue<String> queue = new LogQueue<>(4);
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+        for (int lap = 0; lap < 3; lap++) {
+            for (int i = 0; i < 4; i++)
+                assertTrue(queue.offer("entry" + i));
+            assertFalse(queue.offer("one too many"));
+            assertEquals(4, queue.size());
+            for (int i = 0; i < 4; i++)
+                assertEquals("entry" + i, queue.poll());
+            assertNull(queue.poll());
+            assertTrue(queue.isEmpty());
+        }
+        assertEquals(12, queue.added());
+    }
+
+    @Test
+    public void testManyProducers() throws InterruptedException {
+        int producers = 4, entriesPerProducer = 100000;
+        LogQueue<int[]> queue = new LogQueue<>(1024);
+        AtomicInteger rejected = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < entriesPerProducer; i++) {
+                    while ( ! queue.offer(new int[] { producer, i }))
+                        rejected.incrementAndGet();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        int[] next = new int[producers];
+        for (int taken = 0; taken < producers * entriesPerProducer; ) {
+            int[] entry = queue.poll();
+            if (entry == null) {
+                Thread.yield();
+                continue;
+            }
+            assertEquals("Entries from each producer are taken in order", next[entry[0]]++, entry[1]);
+            taken++;
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertNull(queue.poll());
+        assertEquals(producers * entriesPerProducer, queue.added());
+        for (int p = 0; p < producers; p++)
+            assertEquals(entriesPerProducer, next[p]);
+    }
+
+}
@@ -114,11 +114,13 @@ public final class SessionCache extends AbstractComponent {
 
         mbusParams.setMaxPendingCount(mbusConfig.maxpendingcount());
         mbusParams.setMaxPendingSize(maxPendingSize);
+        mbusParams.setNumMessengerThreads(mbusConfig.nummessengerthreads());
 
         final RPCNetworkParams netParams = new RPCNetworkParams()
                 .setSlobrokConfigId(slobrokConfigId)
                 .setIdentity(new Identity(identity))
-                .setListenPort(mbusConfig.port());
+                .setListenPort(mbusConfig.port())
+                .setNumNetworkThreads(mbusConfig.numnetworkthreads());
         return SharedMessageBus.newInstance(mbusParams, netParams);
     }
 
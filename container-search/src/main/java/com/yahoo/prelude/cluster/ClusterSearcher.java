@@ -14,6 +14,7 @@ import com.yahoo.fs4.mplex.Backend;
 import com.yahoo.container.search.LegacyEmulationConfig;
 import com.yahoo.net.HostName;
 import com.yahoo.search.dispatch.Dispatcher;
+import com.yahoo.search.dispatch.LoadBalancer;
 import com.yahoo.prelude.fastsearch.FS4ResourcePool;
 import com.yahoo.prelude.IndexFacts;
 import com.yahoo.prelude.Ping;
@@ -28,6 +29,7 @@ import com.yahoo.prelude.fastsearch.VespaBackEndSearcher;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.Searcher;
+import com.yahoo.search.cache.ResultCache;
 import com.yahoo.search.config.ClusterConfig;
 import com.yahoo.search.query.ParameterParser;
 import com.yahoo.search.result.ErrorMessage;
@@ -74,6 +76,9 @@ public class ClusterSearcher extends Searcher {
 
     private final Value cacheHitRatio;
 
+    /** The cache shared by the backend searchers of this cluster, or null if not created */
+    private final CacheControl cacheControl;
+
     private final String clusterModelName;
 
     // The set of document types contained in this search cluster
@@ -129,7 +134,10 @@ public class ClusterSearcher extends Searcher {
         maxQueryCacheTimeout = ParameterParser.asMilliSeconds(clusterConfig.maxQueryCacheTimeout(),
                                                               DEFAULT_MAX_QUERY_CACHE_TIMEOUT);
 
-        CacheParams cacheParams = new CacheParams(createCache(clusterConfig, clusterModelName));
+        cacheControl = createCache(clusterConfig, clusterModelName);
+        cacheControl.cache().ifPresent(cache -> addCacheMetrics(cache, manager));
+        addLoadBalancerMetrics(dispatcher.loadBalancer(), manager);
+        CacheParams cacheParams = new CacheParams(cacheControl);
         SummaryParameters docSumParams = new SummaryParameters(qrsConfig
                 .com().yahoo().prelude().fastsearch().FastSearcher().docsum()
                 .defaultclass());
@@ -237,6 +245,7 @@ public class ClusterSearcher extends Searcher {
         cacheHitRatio = new Value("com.yahoo.prelude.cluster.ClusterSearcher.ClusterSearcher().dummy",
                                   Statistics.nullImplementation, new Value.Parameters());
         clusterModelName = "testScenario";
+        cacheControl = null;
         fs4ResourcePool = null;
         maxQueryTimeout = DEFAULT_MAX_QUERY_TIMEOUT;
         maxQueryCacheTimeout = DEFAULT_MAX_QUERY_CACHE_TIMEOUT;
@@ -254,6 +263,32 @@ public class ClusterSearcher extends Searcher {
         return new CacheControl(config.cacheSize(), config.cacheTimeout());
     }
 
+    /** Adds metrics sampled from the given cache each time statistics are logged */
+    private void addCacheMetrics(ResultCache<?, ?> cache, Statistics manager) {
+        new Value(clusterModelName + ".cache_evictions", manager,
+                  new Value.Parameters().setNameExtension(false).setLogRaw(true)
+                                        .setCallback((handle, firstTime) -> ((Value)handle).put(cache.evictions())));
+        new Value(clusterModelName + ".cache_expirations", manager,
+                  new Value.Parameters().setNameExtension(false).setLogRaw(true)
+                                        .setCallback((handle, firstTime) -> ((Value)handle).put(cache.expirations())));
+        new Value(clusterModelName + ".cache_size_bytes", manager,
+                  new Value.Parameters().setNameExtension(false).setLogRaw(true)
+                                        .setCallback((handle, firstTime) -> ((Value)handle).put(cache.totalSize())));
+    }
+
+    /** Adds metrics sampled from the status of each group in the scoreboard of the given load balancer */
+    private void addLoadBalancerMetrics(LoadBalancer loadBalancer, Statistics manager) {
+        for (LoadBalancer.GroupStatus group : loadBalancer.scoreboard()) {
+            String prefix = clusterModelName + ".group_" + group.group().id();
+            new Value(prefix + ".average_latency", manager,
+                      new Value.Parameters().setNameExtension(false).setLogRaw(true)
+                                            .setCallback((handle, firstTime) -> ((Value)handle).put(group.averageLatency())));
+            new Value(prefix + ".selections", manager,
+                      new Value.Parameters().setNameExtension(false).setLogRaw(true)
+                                            .setCallback((handle, firstTime) -> ((Value)handle).put(group.selections())));
+        }
+    }
+
     ClusterMonitor getMonitor() {
         return monitor;
     }
@@ -500,11 +535,18 @@ public class ClusterSearcher extends Searcher {
     /** NodeManager method, called from ClusterMonitor. */
     void working(VespaBackEndSearcher node) {
         server = node;
+        invalidateCache(); // the node may have missed updates while failed
     }
 
     /** Called from ClusterMonitor. */
     void failed(VespaBackEndSearcher node) {
         server = null;
+        invalidateCache(); // results from now on may come from a different set of nodes
+    }
+
+    private void invalidateCache() {
+        if (cacheControl != null)
+            cacheControl.invalidate();
     }
 
     /**
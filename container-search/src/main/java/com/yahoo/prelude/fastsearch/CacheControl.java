@@ -7,6 +7,7 @@ import com.yahoo.fs4.QueryPacket;
 import com.yahoo.fs4.QueryResultPacket;
 import com.yahoo.search.Query;
 import com.yahoo.processing.request.CompoundName;
+import com.yahoo.search.cache.ResultCache;
 
 import java.util.Optional;
 
@@ -23,13 +24,13 @@ public class CacheControl {
     /** Whether this CacheControl actually should cache hits at all. */
     private final boolean activeCache;
 
-    /** Direct unsychronized cache access */
-    private final PacketCache packetCache;
+    /** The cache, which handles concurrent access itself */
+    private final ResultCache<CacheKey, PacketWrapper> packetCache;
 
     public CacheControl(int sizeMegaBytes, double cacheTimeOutSeconds) {
         activeCache = sizeMegaBytes > 0 && cacheTimeOutSeconds > 0.0d;
         if (activeCache) {
-            packetCache = new PacketCache(sizeMegaBytes, 0, cacheTimeOutSeconds);
+            packetCache = new ResultCache<>(((long)sizeMegaBytes) << 20, cacheTimeOutSeconds, PacketWrapper::getPacketsSize);
         } else {
             packetCache = null;
         }
@@ -37,7 +38,7 @@ public class CacheControl {
 
     /** Returns the capacity of the packet cache in megabytes */
     public final int capacity() {
-        return packetCache.getCapacity();
+        return (int)(packetCache.byteCapacity() >> 20);
     }
 
     public final boolean useCache(Query query) {
@@ -46,10 +47,7 @@ public class CacheControl {
 
     public final PacketWrapper lookup(CacheKey key, Query query) {
         if ((key != null) && useCache(query)) {
-            long now = System.currentTimeMillis();
-            synchronized (packetCache) {
-                return packetCache.get(key, now);
-            }
+            return packetCache.get(key, System.currentTimeMillis());
         }
         return null;
     }
@@ -67,9 +65,7 @@ public class CacheControl {
         oldTimestamp = wrapper.getTimestamp();
         wrapper = (PacketWrapper) wrapper.clone();
         wrapper.addResultPacket(resultPacket);
-        synchronized (packetCache) {
-            packetCache.put(key, wrapper, oldTimestamp);
-        }
+        put(key, wrapper, oldTimestamp);
     }
 
     // updates phases after first phase phase in multi phase search
@@ -81,13 +77,12 @@ public class CacheControl {
 
         wrapper = (PacketWrapper) wrapper.clone();
         wrapper.addDocsums(packetKeys, packets);
-        synchronized (packetCache) {
-            packetCache.put(key, wrapper, wrapper.getTimestamp());
-        }
+        put(key, wrapper, wrapper.getTimestamp());
     }
 
     void cache(CacheKey key, Query query, DocsumPacketKey[] packetKeys, Packet[] packets, Optional<Integer> distributionKey) {
         if ( ! activeCache) return;
+        if (key == null) return;
 
         if (query.getNoCache()) return;
         if (query.properties().getBoolean(nocachewrite)) return;
@@ -95,20 +90,35 @@ public class CacheControl {
         PacketWrapper wrapper = lookup(key, query);
         if (wrapper == null) {
             wrapper = new PacketWrapper(key, packetKeys, packets, distributionKey);
-            long now = System.currentTimeMillis();
-            synchronized (packetCache) {
-                packetCache.put(key, wrapper, now);
-            }
+            put(key, wrapper, System.currentTimeMillis());
         } else {
             wrapper = (PacketWrapper) wrapper.clone();
             wrapper.addResultPacket((QueryResultPacket) packets[0]);
             wrapper.addDocsums(packetKeys, packets, 1);
-            synchronized (packetCache) {
-                packetCache.put(key, wrapper, wrapper.getTimestamp());
-            }
+            put(key, wrapper, wrapper.getTimestamp());
+        }
+    }
+
+    private void put(CacheKey key, PacketWrapper wrapper, long timestamp) {
+        wrapper.setTimestamp(timestamp);
+        packetCache.put(key, wrapper, timestamp);
+    }
+
+    /**
+     * Invalidates all the current content of the cache,
+     * e.g because the content or the set of nodes serving it has changed
+     */
+    public void invalidate() {
+        if (packetCache != null) {
+            packetCache.invalidateAll();
         }
     }
 
+    /** Returns the cache of this, or empty if caching is not active */
+    public Optional<ResultCache<CacheKey, PacketWrapper>> cache() {
+        return Optional.ofNullable(packetCache);
+    }
+
     /** Test method. */
     public void clear() {
         if (packetCache != null) {
@@ -2,10 +2,9 @@
 package com.yahoo.prelude.fastsearch;
 
 import com.google.common.collect.ImmutableMap;
-import com.yahoo.slime.BinaryFormat;
-import com.yahoo.data.access.Inspector;
-import com.yahoo.slime.Slime;
-import com.yahoo.data.access.slime.SlimeAdapter;
+import com.yahoo.slime.BinaryView;
+import com.yahoo.slime.Inspector;
+import com.yahoo.slime.Type;
 import com.yahoo.prelude.ConfigurationException;
 import com.yahoo.container.search.LegacyEmulationConfig;
 
@@ -17,8 +16,6 @@ import java.util.Map;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
-import static com.yahoo.data.access.Type.OBJECT;
-
 /**
  * A set of docsum definitions
  *
@@ -87,9 +84,8 @@ public final class DocsumDefinitionSet {
             throw new IllegalArgumentException("Only expecting SchemaLess docsums - summary class:" + summaryClass + " hit:" + hit);
         }
         DocsumDefinition docsumDefinition = getDocsum(summaryClass);
-        Slime value = BinaryFormat.decode(buffer.array(), buffer.arrayOffset()+buffer.position(), buffer.remaining());
-        Inspector docsum = new SlimeAdapter(value.get());
-        if (docsum.type() != OBJECT) {
+        Inspector docsum = BinaryView.inspect(buffer.array(), buffer.arrayOffset()+buffer.position(), buffer.remaining());
+        if (docsum.type() != Type.OBJECT) {
             return "Hit " + hit + " failed: " + docsum.asString();
         }
         hit.addSummary(docsumDefinition, docsum);
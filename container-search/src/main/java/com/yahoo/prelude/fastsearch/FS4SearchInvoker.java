@@ -36,6 +36,7 @@ public class FS4SearchInvoker extends SearchInvoker implements ResponseMonitor<F
     private ErrorMessage pendingSearchError = null;
     private Query query = null;
     private QueryPacket queryPacket = null;
+    private long searchStartTime = 0;
 
     public FS4SearchInvoker(VespaBackEndSearcher searcher, Query query, FS4Channel channel, Optional<Node> node) {
         super(node);
@@ -58,6 +59,7 @@ public class FS4SearchInvoker extends SearchInvoker implements ResponseMonitor<F
 
         this.query = query;
         this.queryPacket = queryPacket;
+        this.searchStartTime = System.currentTimeMillis();
 
         channel.setResponseMonitor(this);
 
@@ -91,6 +93,7 @@ public class FS4SearchInvoker extends SearchInvoker implements ResponseMonitor<F
         if (basicPackets.length == 0) {
             return errorResult(ErrorMessage.createBackendCommunicationError(getName() + " got no packets back"));
         }
+        setFinalStatus(true, System.currentTimeMillis() - searchStartTime);
 
         if (isLoggingFine())
             getLogger().finest("got packets " + basicPackets.length + " packets");
@@ -130,6 +133,7 @@ public class FS4SearchInvoker extends SearchInvoker implements ResponseMonitor<F
     }
 
     private List<Result> errorResult(ErrorMessage errorMessage) {
+        setFinalStatus(false, System.currentTimeMillis() - searchStartTime);
         Result error = new Result(query, errorMessage);
         getErrorCoverage().ifPresent(error::setCoverage);
         return Arrays.asList(error);
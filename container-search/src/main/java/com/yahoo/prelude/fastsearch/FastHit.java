@@ -2,11 +2,13 @@
 package com.yahoo.prelude.fastsearch;
 
 import com.yahoo.data.access.ObjectTraverser;
+import com.yahoo.data.access.slime.SlimeAdapter;
 import com.yahoo.document.GlobalId;
 import com.yahoo.fs4.QueryPacketData;
 import com.yahoo.net.URI;
 import com.yahoo.search.result.Hit;
 import com.yahoo.search.result.Relevance;
+import com.yahoo.slime.BinaryView;
 import com.yahoo.data.access.Inspector;
 
 import java.util.ArrayList;
@@ -163,9 +165,21 @@ public class FastHit extends Hit {
 
     /** For internal use */
     public void addSummary(DocsumDefinition docsumDef, Inspector value) {
+        addSummary(docsumDef, value, null);
+    }
+
+    /**
+     * For internal use. Adds a summary given as Slime. Values are only decoded when accessed, and if this is a
+     * {@link BinaryView}, string fields are rendered directly from the buffer it views.
+     */
+    public void addSummary(DocsumDefinition docsumDef, com.yahoo.slime.Inspector value) {
+        addSummary(docsumDef, new SlimeAdapter(value), value);
+    }
+
+    private void addSummary(DocsumDefinition docsumDef, Inspector value, com.yahoo.slime.Inspector slimeValue) {
         if (removedFields != null)
             removedFields.removeAll(docsumDef.fieldNames());
-        summaries.add(0, new SummaryData(this, docsumDef, value, 1 + summaries.size()));
+        summaries.add(0, new SummaryData(this, docsumDef, value, slimeValue, 1 + summaries.size()));
     }
 
     /**
@@ -524,13 +538,17 @@ public class FastHit extends Hit {
         private final DocsumDefinition type;
         private final Inspector data;
 
+        /** The Slime data wrapped by data, or null if not known */
+        private final com.yahoo.slime.Inspector slimeData;
+
         /** The index from the end of this summary in the list of summaries */
         private final int index;
 
-        SummaryData(FastHit hit, DocsumDefinition type, Inspector data, int index) {
+        SummaryData(FastHit hit, DocsumDefinition type, Inspector data, com.yahoo.slime.Inspector slimeData, int index) {
             this.hit = hit;
             this.type = type;
             this.data = data;
+            this.slimeData = slimeData;
             this.index = index;
         }
 
@@ -554,21 +572,37 @@ public class FastHit extends Hit {
         }
 
         void forEachFieldAsRaw(RawUtf8Consumer consumer) {
-            data.traverse((ObjectTraverser)(name, value) -> {
-                if (!shadowed(name) && !removed(name)) {
-                    DocsumField fieldType = type.getField(name);
-                    if (fieldType != null) {
-                        if (fieldType.isString()) {
-                            byte[] utf8Value = value.asUtf8();
-                            consumer.accept(name, utf8Value, 0, utf8Value.length);
-                        } else {
-                            Object convertedValue = fieldType.convert(value);
-                            if (convertedValue != null)
-                                consumer.accept(name, convertedValue);
+            if (slimeData != null) {
+                slimeData.traverse((com.yahoo.slime.ObjectTraverser)(name, value) -> {
+                    if (value instanceof BinaryView && value.type() == com.yahoo.slime.Type.STRING) {
+                        if (shadowed(name) || removed(name)) return;
+                        DocsumField fieldType = type.getField(name);
+                        if (fieldType != null && fieldType.isString()) { // render without copying or decoding
+                            BinaryView stringValue = (BinaryView)value;
+                            consumer.accept(name, stringValue.data(), stringValue.valueOffset(), stringValue.valueLength());
+                            return;
                         }
                     }
-                }
-            });
+                    acceptAsRaw(name, new SlimeAdapter(value), consumer);
+                });
+            }
+            else {
+                data.traverse((ObjectTraverser)(name, value) -> acceptAsRaw(name, value, consumer));
+            }
+        }
+
+        private void acceptAsRaw(String name, Inspector value, RawUtf8Consumer consumer) {
+            if (shadowed(name) || removed(name)) return;
+            DocsumField fieldType = type.getField(name);
+            if (fieldType == null) return;
+            if (fieldType.isString()) {
+                byte[] utf8Value = value.asUtf8();
+                consumer.accept(name, utf8Value, 0, utf8Value.length);
+            } else {
+                Object convertedValue = fieldType.convert(value);
+                if (convertedValue != null)
+                    consumer.accept(name, convertedValue);
+            }
         }
 
         Iterator<Map.Entry<String, Object>> fieldIterator() {
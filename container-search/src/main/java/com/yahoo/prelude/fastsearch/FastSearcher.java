@@ -17,12 +17,12 @@ import com.yahoo.search.Query;
 import com.yahoo.search.Result;
 import com.yahoo.search.dispatch.Dispatcher;
 import com.yahoo.search.dispatch.FillInvoker;
+import com.yahoo.search.dispatch.PartialResultMerger;
 import com.yahoo.search.dispatch.SearchInvoker;
 import com.yahoo.search.dispatch.searchcluster.Node;
 import com.yahoo.search.grouping.GroupingRequest;
 import com.yahoo.search.grouping.request.GroupingOperation;
 import com.yahoo.search.query.Ranking;
-import com.yahoo.search.result.Coverage;
 import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.search.searchchain.Execution;
 import edu.umd.cs.findbugs.annotations.NonNull;
@@ -269,51 +269,22 @@ public class FastSearcher extends VespaBackEndSearcher {
             return results.get(0);
         }
 
-        Result result = new Result(query);
-        // keep a separate tally of coverage as the normal merge counts using
-        // federated query rules
-        Coverage finalCoverage = null;
+        PartialResultMerger merger = new PartialResultMerger(query, dispatcher.searchCluster().dispatchConfig().searchableCopies());
+        results.forEach(merger::add);
+        Result result = merger.merged();
 
-        for (Result partialResult : results) {
-            if(finalCoverage == null) {
-                finalCoverage = partialResult.getCoverage(true);
-            } else {
-                finalCoverage.mergeWithPartition(partialResult.getCoverage(true));
-            }
-            result.mergeWith(partialResult);
-            result.hits().addAll(partialResult.hits().asUnorderedHits());
-        }
-        if (finalCoverage != null) {
-            adjustCoverageDegradedReason(finalCoverage);
-            result.setCoverage(finalCoverage);
-        }
-
-        if (query.getOffset() != 0 || result.hits().size() > query.getHits()) {
+        if (result.getHitOrderer() != null && (query.getOffset() != 0 || result.hits().size() > query.getHits())) {
             // with multiple results, each partial result is expected to have
             // offset = 0 to allow correct offset positioning after merge
 
-            if (result.getHitOrderer() != null) {
-                // Make sure we have the necessary data for sorting
-                fill(result, Execution.ATTRIBUTEPREFETCH, execution);
-            }
+            // Make sure we have the necessary data for sorting
+            fill(result, Execution.ATTRIBUTEPREFETCH, execution);
             result.hits().trim(query.getOffset(), query.getHits());
         }
 
         return result;
     }
 
-    private void adjustCoverageDegradedReason(Coverage coverage) {
-        int asked = coverage.getNodesTried();
-        int answered = coverage.getNodes();
-        if (asked > answered) {
-            int searchableCopies = (int) dispatcher.searchCluster().dispatchConfig().searchableCopies();
-            int missingNodes = (asked - answered) - (searchableCopies - 1);
-            if (missingNodes > 0) {
-                coverage.setDegradedReason(com.yahoo.container.handler.Coverage.DEGRADED_BY_TIMEOUT);
-            }
-        }
-    }
-
     private static @NonNull Optional<String> quotedSummaryClass(String summaryClass) {
         return Optional.of(summaryClass == null ? "[null]" : quote(summaryClass));
     }
@@ -26,8 +26,6 @@ import com.yahoo.document.DocumentId;
  * @author Steinar Knutsen
  * @author Mathias Lidal
  */
-// TODO: Remove packet cache as it timed out a long time ago.
-// 1 - It does not work with grouping, 2 the packet protocol is eroding away.
 public class PacketWrapper implements Cloneable {
 
     private static Logger log = Logger.getLogger(PacketWrapper.class.getName());
@@ -66,7 +64,7 @@ public class PacketWrapper implements Cloneable {
     }
 
     /**
-     *  Only used by PacketCacheTestCase, should not be used otherwise
+     *  Only used by ResultCacheTestCase, should not be used otherwise
      */
     public PacketWrapper(CacheKey key, BasicPacket[] packets) {
         // Should support key == null as this is for testing
@@ -0,0 +1,288 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * A size bounded LRU cache of results which may be accessed by many threads concurrently.
+ * <p>
+ * The cache is divided into a number of segments, each guarded by its own lock and holding an equal share
+ * of the total capacity, such that threads accessing different keys rarely contend.
+ * The size of each entry is given in bytes by a sizer function, and the least recently used entries
+ * of a segment are evicted when the segment exceeds its share of the capacity.
+ * <p>
+ * Entries expire when they are older than the max age of the cache, and all current entries can be
+ * invalidated in constant time by {@link #invalidateAll}, which bumps the generation of the cache
+ * such that older entries are dropped when they are next encountered.
+ *
+ * @param <KEY> the type of the keys of this, which must implement hashCode and equals
+ * @param <VALUE> the type of the cached values
+ */
+public class ResultCache<KEY, VALUE> {
+
+    /** The default number of segments of a cache */
+    public static final int defaultConcurrency = 16;
+
+    /** The max size of a cached item compared to the total size */
+    private final int maxItemPercentage;
+
+    /** The maximum number of bytes in this cache */
+    private final long byteCapacity;
+
+    /** The max age for a valid cache entry in milliseconds */
+    private final long maxAge;
+
+    private final ToIntFunction<VALUE> sizer;
+
+    private final Segment<KEY, VALUE>[] segments;
+
+    /** Entries of older generations than this are invalid */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * Creates a cache where a single item can use at most 1% of the capacity
+     *
+     * @param byteCapacity the total size of this cache in bytes
+     * @param maxAgeSeconds seconds a cache entry is valid, 0 or less are illegal arguments
+     * @param sizer returns the size in bytes of a value
+     */
+    public ResultCache(long byteCapacity, double maxAgeSeconds, ToIntFunction<VALUE> sizer) {
+        this(byteCapacity, maxAgeSeconds, 1, defaultConcurrency, sizer);
+    }
+
+    /**
+     * Creates a cache
+     *
+     * @param byteCapacity the total size of this cache in bytes
+     * @param maxAgeSeconds seconds a cache entry is valid, 0 or less are illegal arguments
+     * @param maxItemPercentage the max size of a cached item in percent of the total size.
+     *                          Requests to cache larger items are ignored.
+     * @param concurrency the desired number of independently locked segments of this, which is rounded up to
+     *                    a power of two. Each segment is given an equal share of the capacity, so fewer segments
+     *                    are used if needed to give each segment room for the largest item allowed.
+     * @param sizer returns the size in bytes of a value
+     */
+    @SuppressWarnings("unchecked")
+    public ResultCache(long byteCapacity, double maxAgeSeconds, int maxItemPercentage, int concurrency,
+                       ToIntFunction<VALUE> sizer) {
+        if (byteCapacity <= 0)
+            throw new IllegalArgumentException("Total cache size set to 0 or less bytes. " +
+                                               "If no caching is desired, avoid creating this object instead.");
+        if (maxAgeSeconds <= 0.0d)
+            throw new IllegalArgumentException("maxAge <= 0 not legal, use some very large number for no timeout.");
+        if (maxItemPercentage <= 0 || maxItemPercentage > 100)
+            throw new IllegalArgumentException("maxItemPercentage must be in [1, 100], not " + maxItemPercentage);
+        if (concurrency <= 0)
+            throw new IllegalArgumentException("concurrency must be positive, not " + concurrency);
+
+        this.byteCapacity = byteCapacity;
+        this.maxAge = (long) Math.min(maxAgeSeconds * 1000.0d, Long.MAX_VALUE);
+        this.maxItemPercentage = maxItemPercentage;
+        this.sizer = sizer;
+
+        int segmentCount = 1;
+        while (segmentCount < concurrency && (segmentCount << 1) * maxItemPercentage <= 100)
+            segmentCount <<= 1;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++)
+            segments[i] = new Segment<>(byteCapacity / segmentCount);
+    }
+
+    /**
+     * Adds a value to this cache with the current time as timestamp,
+     * unless its size is more than maxItemPercentage of the total size
+     *
+     * @return the previous value of this key, or null if none
+     */
+    public VALUE put(KEY key, VALUE value) {
+        return put(key, value, System.currentTimeMillis());
+    }
+
+    /**
+     * Adds a value to this cache, unless its size is more than maxItemPercentage of the total size
+     *
+     * @param timestamp the time this value was created in milliseconds, from which it ages
+     * @return the previous value of this key, or null if none
+     */
+    public VALUE put(KEY key, VALUE value, long timestamp) {
+        int size = sizer.applyAsInt(value);
+        if (size * 100L > byteCapacity * maxItemPercentage) // don't insert if it is too big, and remove the now stale entry
+            return remove(key);
+        return segmentOf(key).put(key, new Entry<>(value, size, timestamp, generation.get()), this);
+    }
+
+    /** Returns the value of this key if present and valid at the current time, and null otherwise */
+    public VALUE get(KEY key) {
+        return get(key, System.currentTimeMillis());
+    }
+
+    /** Returns the value of this key if present and valid at the given time, and null otherwise */
+    public VALUE get(KEY key, long now) {
+        VALUE value = segmentOf(key).get(key, now, this);
+        if (value == null)
+            misses.increment();
+        else
+            hits.increment();
+        return value;
+    }
+
+    /** Removes the given key from this, and returns the value removed, or null if none */
+    public VALUE remove(KEY key) {
+        return segmentOf(key).remove(key);
+    }
+
+    /**
+     * Invalidates all the entries currently in this cache without blocking concurrent access to it.
+     * Invalidated entries are released as they are encountered by lookups or evicted.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+    }
+
+    /** Removes all the entries of this */
+    public void clear() {
+        for (Segment<KEY, VALUE> segment : segments)
+            segment.clear();
+    }
+
+    /** Returns the current number of bytes of the entries in this cache */
+    public long totalSize() {
+        long totalSize = 0;
+        for (Segment<KEY, VALUE> segment : segments)
+            totalSize += segment.totalSize();
+        return totalSize;
+    }
+
+    /** Returns the number of entries currently in this cache, including invalidated entries not yet released */
+    public int size() {
+        int size = 0;
+        for (Segment<KEY, VALUE> segment : segments)
+            size += segment.size();
+        return size;
+    }
+
+    /** Returns the maximum number of bytes in this cache */
+    public long byteCapacity() { return byteCapacity; }
+
+    /** Returns the number of lookups which found a valid entry since this was created */
+    public long hits() { return hits.sum(); }
+
+    /** Returns the number of lookups which did not find a valid entry since this was created */
+    public long misses() { return misses.sum(); }
+
+    /** Returns the number of entries evicted to make room for others since this was created */
+    public long evictions() { return evictions.sum(); }
+
+    /** Returns the number of entries dropped because they were too old or invalidated since this was created */
+    public long expirations() { return expirations.sum(); }
+
+    /** Returns the ratio of lookups which were hits since this was created, or 0 if there has been no lookups */
+    public double hitRatio() {
+        long hits = hits();
+        long lookups = hits + misses();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    private Segment<KEY, VALUE> segmentOf(KEY key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16); // spread the higher bits as we only use the lower ones
+        return segments[hash & (segments.length - 1)];
+    }
+
+    private boolean isValid(Entry<VALUE> entry, long now) {
+        return entry.generation == generation.get() && now - entry.timestamp <= maxAge;
+    }
+
+    private static final class Entry<VALUE> {
+
+        final VALUE value;
+        final int size;
+        final long timestamp;
+        final long generation;
+
+        Entry(VALUE value, int size, long timestamp, long generation) {
+            this.value = value;
+            this.size = size;
+            this.timestamp = timestamp;
+            this.generation = generation;
+        }
+
+    }
+
+    /** A part of the cache with its own lock, map in access order and share of the capacity */
+    private static final class Segment<KEY, VALUE> {
+
+        private final LinkedHashMap<KEY, Entry<VALUE>> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+        private final long capacity;
+
+        /** The current number of bytes in this segment */
+        private long totalSize = 0;
+
+        Segment(long capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized VALUE put(KEY key, Entry<VALUE> entry, ResultCache<KEY, VALUE> cache) {
+            Entry<VALUE> previous = entries.put(key, entry);
+            totalSize += entry.size;
+            if (previous != null)
+                totalSize -= previous.size;
+            if (totalSize > capacity)
+                removeOverflow(key, cache);
+            return previous == null ? null : previous.value;
+        }
+
+        synchronized VALUE get(KEY key, long now, ResultCache<KEY, VALUE> cache) {
+            Entry<VALUE> entry = entries.get(key);
+            if (entry == null) return null;
+
+            if ( ! cache.isValid(entry, now)) {
+                entries.remove(key);
+                totalSize -= entry.size;
+                cache.expirations.increment();
+                return null;
+            }
+            return entry.value;
+        }
+
+        synchronized VALUE remove(KEY key) {
+            Entry<VALUE> removed = entries.remove(key);
+            if (removed == null) return null;
+            totalSize -= removed.size;
+            return removed.value;
+        }
+
+        synchronized void clear() {
+            entries.clear();
+            totalSize = 0;
+        }
+
+        synchronized long totalSize() { return totalSize; }
+
+        synchronized int size() { return entries.size(); }
+
+        /** Removes the eldest entries, except the one just added, until this is within capacity */
+        private void removeOverflow(KEY addedKey, ResultCache<KEY, VALUE> cache) {
+            for (Iterator<Map.Entry<KEY, Entry<VALUE>>> i = entries.entrySet().iterator(); i.hasNext() && totalSize > capacity; ) {
+                Map.Entry<KEY, Entry<VALUE>> eldest = i.next();
+                if (eldest.getKey().equals(addedKey)) continue;
+                totalSize -= eldest.getValue().size;
+                i.remove();
+                cache.evictions.increment();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,55 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Selects groups by the power of two choices: Two distinct candidate groups are picked at random and the one
+ * with the lowest expected cost is selected, where the cost is the average latency of the group multiplied by
+ * the number of queries it will have in flight. Groups with sufficient coverage are preferred.
+ * <p>
+ * This avoids sending a full share of the traffic to a group which is slow (due to e.g. garbage collection,
+ * a merge or a hot node) while not herding all queries onto the single currently fastest group.
+ */
+public class AdaptiveScheduler implements GroupScheduler {
+
+    @Override
+    public Optional<LoadBalancer.GroupStatus> select(List<LoadBalancer.GroupStatus> scoreboard, Set<Integer> rejectedGroups) {
+        List<LoadBalancer.GroupStatus> candidates = candidates(scoreboard, rejectedGroups);
+        if (candidates.isEmpty()) return Optional.empty();
+        if (candidates.size() == 1) return Optional.of(candidates.get(0));
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) second++; // make the choices distinct
+
+        long now = System.currentTimeMillis();
+        LoadBalancer.GroupStatus a = candidates.get(first);
+        LoadBalancer.GroupStatus b = candidates.get(second);
+        return Optional.of(cost(a, now) <= cost(b, now) ? a : b);
+    }
+
+    /** Returns the groups which may be selected, which are the ones with sufficient coverage if there are any */
+    private List<LoadBalancer.GroupStatus> candidates(List<LoadBalancer.GroupStatus> scoreboard, Set<Integer> rejectedGroups) {
+        List<LoadBalancer.GroupStatus> withCoverage = new ArrayList<>(scoreboard.size());
+        List<LoadBalancer.GroupStatus> withoutCoverage = new ArrayList<>(0);
+        for (LoadBalancer.GroupStatus candidate : scoreboard) {
+            if (rejectedGroups != null && rejectedGroups.contains(candidate.group().id())) continue;
+            if (candidate.group().hasSufficientCoverage())
+                withCoverage.add(candidate);
+            else
+                withoutCoverage.add(candidate);
+        }
+        return withCoverage.isEmpty() ? withoutCoverage : withCoverage;
+    }
+
+    private static double cost(LoadBalancer.GroupStatus group, long now) {
+        return group.averageLatency(now) * (group.outstandingQueries() + 1);
+    }
+
+}
@@ -2,6 +2,7 @@
 package com.yahoo.search.dispatch;
 
 import java.io.Closeable;
+import java.util.function.BiConsumer;
 
 /**
  * CloseableInvoker is an abstract implementation of {@link Closeable} with an additional hook for
@@ -13,16 +14,29 @@ import java.io.Closeable;
 public abstract class CloseableInvoker implements Closeable {
     protected abstract void release();
 
-    private Runnable teardown = null;
+    private BiConsumer<Boolean, Long> teardown = null;
+    private boolean success = false;
+    private long responseTimeMillis = 0;
 
-    public void teardown(Runnable teardown) {
+    /**
+     * Sets the code to run when this is closed. It receives whether the invocation succeeded
+     * and its response time in milliseconds, as set by {@link #setFinalStatus}.
+     * An invocation which is closed before its status is set has failed.
+     */
+    public void teardown(BiConsumer<Boolean, Long> teardown) {
         this.teardown = teardown;
     }
 
+    /** Sets the outcome of this invocation, which is passed to the teardown code when this is closed */
+    protected void setFinalStatus(boolean success, long responseTimeMillis) {
+        this.success = success;
+        this.responseTimeMillis = responseTimeMillis;
+    }
+
     @Override
     public final void close() {
         if (teardown != null) {
-            teardown.run();
+            teardown.accept(success, responseTimeMillis);
             teardown = null;
         }
         release();
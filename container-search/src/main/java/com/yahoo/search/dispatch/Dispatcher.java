@@ -61,6 +61,11 @@ public class Dispatcher extends AbstractComponent {
         return searchCluster;
     }
 
+    /** Returns the load balancer selecting the group to dispatch each query to */
+    public LoadBalancer loadBalancer() {
+        return loadBalancer;
+    }
+
     @Override
     public void deconstruct() {
         rpcResourcePool.release();
@@ -144,7 +149,7 @@ public class Dispatcher extends AbstractComponent {
             if (invoker.isPresent()) {
                 query.trace(false, 2, "Dispatching internally to search group ", group.id());
                 query.getModel().setSearchPath("/" + group.id());
-                invoker.get().teardown(() -> loadBalancer.releaseGroup(group));
+                invoker.get().teardown((success, responseTime) -> loadBalancer.releaseGroup(group, success, responseTime, query.getTimeout()));
                 return invoker;
             } else {
                 loadBalancer.releaseGroup(group);
@@ -0,0 +1,23 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A policy deciding which group of content nodes the {@link LoadBalancer} should send the next query to.
+ * Implementations must be multithread safe, and should not block.
+ */
+public interface GroupScheduler {
+
+    /**
+     * Selects the group which should receive the next query.
+     *
+     * @param scoreboard the current status of all the groups of the cluster, always in the same order
+     * @param rejectedGroups if not null, the ids of groups which must not be selected
+     * @return the status of the selected group, or empty if no group can be selected
+     */
+    Optional<LoadBalancer.GroupStatus> select(List<LoadBalancer.GroupStatus> scoreboard, Set<Integer> rejectedGroups);
+
+}
@@ -28,7 +28,8 @@ import static com.yahoo.container.handler.Coverage.DEGRADED_BY_TIMEOUT;
 /**
  * InterleavedSearchInvoker uses multiple {@link SearchInvoker} objects to interface with content
  * nodes in parallel. Operationally it first sends requests to all contained invokers and then
- * collects the results. The user of this class is responsible for merging the results if needed.
+ * collects the results. Results ordered by relevance are merged here, while the user of this class
+ * is responsible for merging results which are sorted otherwise.
  *
  * @author ollivir
  */
@@ -45,6 +46,9 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
     private long adaptiveTimeoutMax = 0;
     private long deadline = 0;
 
+    private long searchStartTime = 0;
+    private long lastResponseTime = 0;
+
     public InterleavedSearchInvoker(Collection<SearchInvoker> invokers, SearchCluster searchCluster) {
         super(Optional.empty());
         this.invokers = Collections.newSetFromMap(new IdentityHashMap<>());
@@ -62,7 +66,8 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
     protected void sendSearchRequest(Query query, QueryPacket queryPacket) throws IOException {
         this.query = query;
         invokers.forEach(invoker -> invoker.setMonitor(this));
-        deadline = currentTime() + query.getTimeLeft();
+        searchStartTime = currentTime();
+        deadline = searchStartTime + query.getTimeLeft();
 
         int originalHits = query.getHits();
         int originalOffset = query.getOffset();
@@ -77,11 +82,19 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
         query.setOffset(originalOffset);
     }
 
+    /**
+     * Collects the results of the contained invokers. If the hits are ordered by relevance, the results are merged
+     * into a single result as they arrive, keeping only the requested window of hits. Otherwise the results are
+     * returned unmerged, as the caller may need to get the data required for sorting before merging them.
+     */
     @Override
     protected List<Result> getSearchResults(CacheKey cacheKey) throws IOException {
         int requests = invokers.size();
         int responses = 0;
         List<Result> results = new ArrayList<>();
+        PartialResultMerger merger = query.getRanking().getSorting() == null
+                                     ? new PartialResultMerger(query, searchCluster.dispatchConfig().searchableCopies())
+                                     : null;
 
         long nextTimeout = query.getTimeLeft();
         try {
@@ -94,7 +107,14 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
                     break;
                 } else {
                     invokers.remove(invoker);
-                    results.addAll(invoker.getSearchResults(cacheKey));
+                    // Each node only returns a part of the result, which must not be cached under the key of the query.
+                    // Results searched through the dispatcher are therefore not cached.
+                    List<Result> partialResults = invoker.getSearchResults(null);
+                    if (merger != null)
+                        partialResults.forEach(merger::add);
+                    else
+                        results.addAll(partialResults);
+                    lastResponseTime = currentTime();
                     responses++;
                 }
                 nextTimeout = nextTimeout(requests, responses);
@@ -103,8 +123,15 @@ public class InterleavedSearchInvoker extends SearchInvoker implements ResponseM
             throw new RuntimeException("Interrupted while waiting for search results", e);
         }
 
+        // The group responds as fast as its slowest node, and a group which timed out is as slow as the timeout
+        boolean allResponded = invokers.isEmpty();
+        setFinalStatus(allResponded, (allResponded ? lastResponseTime : currentTime()) - searchStartTime);
+
         insertTimeoutErrors(results);
-        return results;
+        if (merger == null) return results;
+
+        results.forEach(merger::add);
+        return Collections.singletonList(merger.merged());
     }
 
     private void insertTimeoutErrors(List<Result> results) {
@@ -1,46 +1,48 @@
 // Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.search.dispatch;
 
+import com.google.common.collect.ImmutableList;
 import com.yahoo.search.dispatch.searchcluster.Group;
 import com.yahoo.search.dispatch.searchcluster.SearchCluster;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * LoadBalancer determines which group of content nodes should be accessed next for each search query when the internal java dispatcher is
- * used.
+ * used. The choice is made by a {@link GroupScheduler} from the status of each group kept in a scoreboard.
+ * The scoreboard is updated without locking, so this is multithread safe without serializing queries.
  *
  * @author ollivir
  */
 public class LoadBalancer {
-    // The implementation here is a simplistic least queries in flight + round-robin load balancer
 
     private static final Logger log = Logger.getLogger(LoadBalancer.class.getName());
 
-    private final List<GroupSchedule> scoreboard;
-    private int needle = 0;
+    private final List<GroupStatus> scoreboard;
+    private final GroupScheduler scheduler;
 
     public LoadBalancer(SearchCluster searchCluster, boolean roundRobin) {
+        this(searchCluster, roundRobin ? new RoundRobinScheduler() : new AdaptiveScheduler());
+    }
+
+    public LoadBalancer(SearchCluster searchCluster, GroupScheduler scheduler) {
+        this.scheduler = scheduler;
         if (searchCluster == null) {
             this.scoreboard = null;
             return;
         }
-        this.scoreboard = new ArrayList<>(searchCluster.groups().size());
-
+        ImmutableList.Builder<GroupStatus> scoreboard = new ImmutableList.Builder<>();
         for (Group group : searchCluster.orderedGroups()) {
-            scoreboard.add(new GroupSchedule(group));
-        }
-
-        if(! roundRobin) {
-            // TODO - More randomness could be desirable
-            Collections.shuffle(scoreboard);
+            scoreboard.add(new GroupStatus(group));
         }
+        this.scoreboard = scoreboard.build();
     }
 
     /**
@@ -55,98 +57,139 @@ public class LoadBalancer {
             return Optional.empty();
         }
 
-        return allocateNextGroup(rejectedGroups);
+        Optional<GroupStatus> selected = scheduler.select(scoreboard, rejectedGroups);
+        selected.ifPresent(GroupStatus::allocate);
+        if (log.isLoggable(Level.FINE)) {
+            log.fine("Offering <" + selected.map(GroupStatus::group).orElse(null) + "> for query connection");
+        }
+        return selected.map(GroupStatus::group);
     }
 
     /**
-     * Release an allocation given by {@link #takeGroup}. The release must be done exactly once for each allocation.
+     * Release an allocation given by {@link #takeGroup} without reporting how the query went.
+     * The release must be done exactly once for each allocation.
      *
-     * @param group
-     *            previously allocated group
+     * @param group previously allocated group
      */
     public void releaseGroup(Group group) {
-        synchronized (this) {
-            for (GroupSchedule sched : scoreboard) {
-                if (sched.group.id() == group.id()) {
-                    sched.adjustScore(-1);
-                    break;
-                }
-            }
-        }
+        statusOf(group).ifPresent(GroupStatus::release);
     }
 
-    private Optional<Group> allocateNextGroup(Set<Integer> rejectedGroups) {
-        synchronized (this) {
-            GroupSchedule bestSchedule = null;
-            int bestIndex = needle;
-
-            int index = needle;
-            for (int i = 0; i < scoreboard.size(); i++) {
-                GroupSchedule sched = scoreboard.get(index);
-                if (rejectedGroups == null || !rejectedGroups.contains(sched.group.id())) {
-                    if (sched.isPreferredOver(bestSchedule)) {
-                        bestSchedule = sched;
-                        bestIndex = index;
-                    }
-                }
-                index = nextScoreboardIndex(index);
-            }
-            needle = nextScoreboardIndex(bestIndex);
+    /**
+     * Release an allocation given by {@link #takeGroup}, and record the response time of the group.
+     * A failure is recorded as a response at the timeout of the query, or when it failed if that is later,
+     * such that a group which fails quickly is not taken to be fast.
+     * The release must be done exactly once for each allocation.
+     *
+     * @param group previously allocated group
+     * @param success whether the group responded in time
+     * @param responseTimeMillis the time the group used to respond, or to fail
+     * @param timeoutMillis the timeout of the query
+     */
+    public void releaseGroup(Group group, boolean success, long responseTimeMillis, long timeoutMillis) {
+        long latency = success ? responseTimeMillis : Math.max(responseTimeMillis, timeoutMillis);
+        statusOf(group).ifPresent(status -> {
+            status.release();
+            status.addLatencySample(Math.max(1, latency), System.currentTimeMillis()); // less is below clock resolution
+        });
+    }
 
-            Group ret = null;
-            if (bestSchedule != null) {
-                bestSchedule.adjustScore(1);
-                ret = bestSchedule.group;
-            }
-            if (log.isLoggable(Level.FINE)) {
-                log.fine("Offering <" + ret + "> for query connection");
-            }
-            return Optional.ofNullable(ret);
-        }
+    /** Returns the current status of the groups of this, or an empty list if this has no groups */
+    public List<GroupStatus> scoreboard() {
+        return scoreboard == null ? ImmutableList.of() : scoreboard;
     }
 
-    private int nextScoreboardIndex(int current) {
-        int next = current + 1;
-        if (next >= scoreboard.size()) {
-            next %= scoreboard.size();
+    private Optional<GroupStatus> statusOf(Group group) {
+        for (GroupStatus status : scoreboard) {
+            if (status.group().id() == group.id()) {
+                return Optional.of(status);
+            }
         }
-        return next;
+        return Optional.empty();
     }
 
-    private static class GroupSchedule {
+    /** The status of a group as seen by this load balancer. This is multithread safe. */
+    public static class GroupStatus {
+
+        /** The weight of each new latency sample in the moving average */
+        static final double latencySampleWeight = 0.1;
+
+        /**
+         * The time in milliseconds over which the average latency decays by a factor of e when the group receives
+         * no queries, such that groups which are avoided because they were slow are eventually tried again
+         */
+        static final double idleDecayMillis = 2000;
+
         private final Group group;
-        private int score;
+        private final AtomicInteger outstandingQueries = new AtomicInteger(0);
+        private final AtomicLong selections = new AtomicLong(0);
+        private final AtomicReference<Latency> latency = new AtomicReference<>(Latency.none);
 
-        public GroupSchedule(Group group) {
+        GroupStatus(Group group) {
             this.group = group;
-            this.score = 0;
         }
 
-        public boolean isPreferredOver(GroupSchedule other) {
-            if (other == null) {
-                return true;
-            }
+        /** Returns the group this is the status of */
+        public Group group() { return group; }
 
-            // different coverage
-            if (this.group.hasSufficientCoverage() != other.group.hasSufficientCoverage()) {
-                if (! this.group.hasSufficientCoverage()) {
-                    // this doesn't have coverage, other does
-                    return false;
-                } else {
-                    // other doesn't have coverage, this does
-                    return true;
-                }
-            }
+        /** Returns the number of queries currently in flight to this group */
+        public int outstandingQueries() { return outstandingQueries.get(); }
+
+        /** Returns the number of times this group has been selected to receive a query */
+        public long selections() { return selections.get(); }
+
+        /** Returns the exponential moving average of the response time of this group in milliseconds */
+        public double averageLatency() { return latency.get().average; }
+
+        /**
+         * Returns the average response time of this group in milliseconds as seen at the given time,
+         * where it decays toward zero for as long as no new response time is recorded
+         */
+        public double averageLatency(long now) { return latency.get().decayedAt(now); }
 
-            return this.score < other.score;
+        void allocate() {
+            outstandingQueries.incrementAndGet();
+            selections.incrementAndGet();
         }
 
-        public void adjustScore(int amount) {
-            this.score += amount;
-            if (score < 0) {
+        void release() {
+            if (outstandingQueries.getAndUpdate(count -> count > 0 ? count - 1 : 0) == 0) {
                 log.warning("Double free of query target group detected");
-                score = 0;
             }
         }
+
+        void addLatencySample(long responseTimeMillis, long now) {
+            latency.updateAndGet(current -> current.add(responseTimeMillis, now));
+        }
+
+    }
+
+    /** An immutable exponential moving average of latencies */
+    private static class Latency {
+
+        static final Latency none = new Latency(0, 0, false);
+
+        final double average;
+        final long timestamp;
+        final boolean hasSamples;
+
+        Latency(double average, long timestamp, boolean hasSamples) {
+            this.average = average;
+            this.timestamp = timestamp;
+            this.hasSamples = hasSamples;
+        }
+
+        double decayedAt(long now) {
+            if (now <= timestamp) return average;
+            return average * Math.exp(- (now - timestamp) / GroupStatus.idleDecayMillis);
+        }
+
+        Latency add(double sample, long now) {
+            if ( ! hasSamples) return new Latency(sample, now, true);
+            double current = decayedAt(now);
+            return new Latency(current + GroupStatus.latencySampleWeight * (sample - current), Math.max(now, timestamp), true);
+        }
+
     }
+
 }
@@ -0,0 +1,127 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.result.Coverage;
+import com.yahoo.search.result.Hit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Merges the partial results returned by the content nodes of a group into a single result,
+ * one partial result at a time as they become available.
+ * <p>
+ * When the hits are ordered by relevance, only the best offset+hits concrete hits seen so far are kept,
+ * in a bounded heap, so merging a partial result costs at most one heap operation per hit kept
+ * and the final result is sorted and trimmed to the requested window.
+ * When the query specifies a sort order, all the hits are kept as the data needed to sort them may not
+ * be available yet, and the caller is responsible for sorting and trimming the merged result.
+ * <p>
+ * This is not multithread safe.
+ */
+public class PartialResultMerger {
+
+    private final Query query;
+    private final Result result;
+    private final long searchableCopies;
+
+    /** The number of concrete hits to keep, or -1 to keep all because hits are not ordered by relevance */
+    private final int hitsToKeep;
+
+    /** The best hits seen so far, with the worst of them at the head */
+    private final PriorityQueue<Hit> topHits;
+
+    /** The coverage tally, kept separately as the normal merge counts using federated query rules */
+    private Coverage coverage = null;
+
+    /**
+     * Creates a merger
+     *
+     * @param query the query the partial results are for, with the offset and hits requested of the final result
+     * @param searchableCopies the number of searchable copies of each document in the cluster,
+     *                         used to determine whether missing nodes caused the result to be degraded
+     */
+    public PartialResultMerger(Query query, long searchableCopies) {
+        this.query = query;
+        this.result = new Result(query);
+        this.searchableCopies = searchableCopies;
+        if (result.getHitOrderer() == null) {
+            hitsToKeep = query.getOffset() + query.getHits();
+            topHits = new PriorityQueue<>(Math.min(hitsToKeep, 1000) + 1, Comparator.reverseOrder());
+        }
+        else {
+            hitsToKeep = -1;
+            topHits = null;
+        }
+    }
+
+    /** Merges a partial result into this */
+    public void add(Result partialResult) {
+        if (coverage == null)
+            coverage = partialResult.getCoverage(true);
+        else
+            coverage.mergeWithPartition(partialResult.getCoverage(true));
+        result.mergeWith(partialResult);
+
+        if (topHits == null) {
+            result.hits().addAll(partialResult.hits().asUnorderedHits());
+            return;
+        }
+
+        // The hits of a partial result are in relevance order, so once one hit does not make it into the top hits
+        // no following concrete hit will either
+        boolean full = false;
+        for (Hit hit : partialResult.hits().asList()) {
+            if (hit.isAuxiliary())
+                result.hits().add(hit);
+            else if (full)
+                continue;
+            else if (topHits.size() < hitsToKeep)
+                topHits.add(hit);
+            else if (hitsToKeep > 0 && hit.compareTo(topHits.peek()) < 0)
+                replaceWorst(hit);
+            else
+                full = true;
+        }
+    }
+
+    private void replaceWorst(Hit hit) {
+        topHits.poll();
+        topHits.add(hit);
+    }
+
+    /**
+     * Returns the result merged from all the partial results added to this.
+     * This should be called once, after all partial results are added.
+     */
+    public Result merged() {
+        if (topHits != null) {
+            List<Hit> hits = new ArrayList<>(topHits);
+            Collections.sort(hits);
+            for (int i = query.getOffset(); i < hits.size(); i++)
+                result.hits().add(hits.get(i));
+        }
+        if (coverage != null) {
+            adjustCoverageDegradedReason(coverage);
+            result.setCoverage(coverage);
+        }
+        return result;
+    }
+
+    private void adjustCoverageDegradedReason(Coverage coverage) {
+        int asked = coverage.getNodesTried();
+        int answered = coverage.getNodes();
+        if (asked > answered) {
+            int missingNodes = (asked - answered) - ((int)searchableCopies - 1);
+            if (missingNodes > 0) {
+                coverage.setDegradedReason(com.yahoo.container.handler.Coverage.DEGRADED_BY_TIMEOUT);
+            }
+        }
+    }
+
+}
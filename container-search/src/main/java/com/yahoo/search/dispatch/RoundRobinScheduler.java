@@ -0,0 +1,49 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.dispatch;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Selects the group with the fewest queries in flight, preferring groups with sufficient coverage,
+ * and resolves ties by going round-robin over the groups.
+ */
+public class RoundRobinScheduler implements GroupScheduler {
+
+    private final AtomicInteger needle = new AtomicInteger(0);
+
+    @Override
+    public Optional<LoadBalancer.GroupStatus> select(List<LoadBalancer.GroupStatus> scoreboard, Set<Integer> rejectedGroups) {
+        if (scoreboard.isEmpty()) return Optional.empty();
+
+        LoadBalancer.GroupStatus best = null;
+        int start = Math.floorMod(needle.get(), scoreboard.size());
+        int bestIndex = start;
+        int index = start;
+        for (int i = 0; i < scoreboard.size(); i++) {
+            LoadBalancer.GroupStatus candidate = scoreboard.get(index);
+            if (rejectedGroups == null || ! rejectedGroups.contains(candidate.group().id())) {
+                if (isPreferred(candidate, best)) {
+                    best = candidate;
+                    bestIndex = index;
+                }
+            }
+            index = (index + 1) % scoreboard.size();
+        }
+        needle.set((bestIndex + 1) % scoreboard.size());
+        return Optional.ofNullable(best);
+    }
+
+    private static boolean isPreferred(LoadBalancer.GroupStatus candidate, LoadBalancer.GroupStatus other) {
+        if (other == null) return true;
+
+        // different coverage
+        if (candidate.group().hasSufficientCoverage() != other.group().hasSufficientCoverage())
+            return candidate.group().hasSufficientCoverage();
+
+        return candidate.outstandingQueries() < other.outstandingQueries();
+    }
+
+}
@@ -5,8 +5,6 @@ import com.yahoo.collections.ListMap;
 import com.yahoo.compress.CompressionType;
 import com.yahoo.compress.Compressor;
 import com.yahoo.container.protect.Error;
-import com.yahoo.data.access.Inspector;
-import com.yahoo.data.access.slime.SlimeAdapter;
 import com.yahoo.prelude.fastsearch.DocumentDatabase;
 import com.yahoo.prelude.fastsearch.FastHit;
 import com.yahoo.prelude.fastsearch.TimeoutException;
@@ -17,7 +15,9 @@ import com.yahoo.search.result.ErrorMessage;
 import com.yahoo.search.result.Hit;
 import com.yahoo.slime.ArrayTraverser;
 import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.BinaryView;
 import com.yahoo.slime.Cursor;
+import com.yahoo.slime.Inspector;
 import com.yahoo.slime.Slime;
 
 import java.util.Iterator;
@@ -214,8 +214,8 @@ public class RpcFillInvoker extends FillInvoker {
             return 0;
         }
 
-        private void addErrors(com.yahoo.slime.Inspector errors) {
-            errors.traverse((ArrayTraverser) (int index, com.yahoo.slime.Inspector value) -> {
+        private void addErrors(Inspector errors) {
+            errors.traverse((ArrayTraverser) (int index, Inspector value) -> {
                 int errorCode = ("timeout".equalsIgnoreCase(value.field("type").asString()))
                         ? Error.TIMEOUT.code
                         : Error.UNSPECIFIED.code;
@@ -225,20 +225,20 @@ public class RpcFillInvoker extends FillInvoker {
         }
 
         private int fill(List<FastHit> hits, String summaryClass, DocumentDatabase documentDb, byte[] slimeBytes) {
-            com.yahoo.slime.Inspector root = BinaryFormat.decode(slimeBytes).get();
-            com.yahoo.slime.Inspector errors = root.field("errors");
+            Inspector root = BinaryView.inspect(slimeBytes, 0, slimeBytes.length);
+            Inspector errors = root.field("errors");
             boolean hasErrors = errors.valid() && (errors.entries() > 0);
             if (hasErrors) {
                 addErrors(errors);
             }
 
-            Inspector summaries = new SlimeAdapter(root.field("docsums"));
+            Inspector summaries = root.field("docsums");
             if ( ! summaries.valid())
                 return 0; // No summaries; Perhaps we requested a non-existing summary class
             int skippedHits = 0;
             for (int i = 0; i < hits.size(); i++) {
                 Inspector summary = summaries.entry(i).field("docsum");
-                if (summary.fieldCount() != 0) {
+                if (summary.fields() != 0) {
                     hits.get(i).setField(Hit.SDDOCNAME_FIELD, documentDb.getName());
                     hits.get(i).addSummary(documentDb.getDocsumDefinitionSet().getDocsum(summaryClass), summary);
                     hits.get(i).setFilled(summaryClass);
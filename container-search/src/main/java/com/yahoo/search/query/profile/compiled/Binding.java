@@ -78,6 +78,15 @@ public class Binding implements Comparable<Binding> {
     /** Returns true only if this binding is null (contains no values for its dimensions (if any) */
     public boolean isNull() { return dimensions.length == 0; }
 
+    /** Returns the number of dimensions which have values in this */
+    int size() { return dimensions.length; }
+
+    /** Returns the name of the dimension at the given index */
+    String dimension(int i) { return dimensions[i]; }
+
+    /** Returns the value of the dimension at the given index */
+    String dimensionValue(int i) { return dimensionValues[i]; }
+
     @Override
     public String toString() {
         StringBuilder b = new StringBuilder("Binding[");
@@ -9,10 +9,15 @@ import com.yahoo.search.query.profile.QueryProfileProperties;
 import com.yahoo.search.query.profile.SubstituteString;
 import com.yahoo.search.query.profile.types.QueryProfileType;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -25,6 +30,12 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
 
     private static final Pattern namePattern=Pattern.compile("[$a-zA-Z_/][-$a-zA-Z0-9_/()]*");
 
+    /** The max number of distinct contexts to keep resolved values for */
+    private static final int maxResolvedContexts = 256;
+
+    /** The number of times resolved values may be forgotten because there are too many contexts before we stop keeping them */
+    private static final int maxResolvedValuesClears = 3;
+
     private final CompiledQueryProfileRegistry registry;
 
     /** The type of this, or null if none */
@@ -42,6 +53,18 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
     /** Values which are not overridable in this. Used as a set. */
     private final DimensionalMap<CompoundName, Object> unoverridables;
 
+    /** The dimensions the values of this depend on */
+    private final String[] dimensions;
+
+    /** The values which have been looked up in this, for each distinct context (values of the dimensions) */
+    private final Map<Context, Map<CompoundName, Object>> resolvedValues = new ConcurrentHashMap<>();
+
+    /** The number of times the resolved values have been forgotten */
+    private final AtomicInteger resolvedValuesClears = new AtomicInteger();
+
+    /** Whether resolved values are kept for new contexts, false if the distinct contexts are too many to keep */
+    private volatile boolean keepResolvedValues = true;
+
     /**
      * Creates a new query profile from an id.
      */
@@ -60,6 +83,7 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
         this.types = types;
         this.references = references;
         this.unoverridables = unoverridables;
+        this.dimensions = dimensionsOf(entries);
         if ( ! id.isAnonymous())
             validateName(id.getName());
     }
@@ -154,7 +178,40 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
         return get(new CompoundName(name), context, substitution);
     }
     public final Object get(CompoundName name, Map<String, String> context, Properties substitution) {
-        return substitute(entries.get(name, context), context, substitution);
+        return substitute(resolve(name, context), context, substitution);
+    }
+
+    /** Returns the value of the given name in the given context, remembering it for further lookups in the context */
+    private Object resolve(CompoundName name, Map<String, String> context) {
+        if (dimensions.length == 0) return entries.get(name, context);
+
+        Context key = new Context(dimensions, context);
+        Map<CompoundName, Object> values = resolvedValues.get(key);
+        if (values == null) {
+            if ( ! keepResolvedValues) return entries.get(name, context);
+            if (resolvedValues.size() >= maxResolvedContexts) { // many distinct contexts are in use: Don't grow without bound
+                resolvedValues.clear();
+                if (resolvedValuesClears.incrementAndGet() >= maxResolvedValuesClears) { // and stop if they keep changing
+                    keepResolvedValues = false;
+                    return entries.get(name, context);
+                }
+            }
+            values = resolvedValues.computeIfAbsent(key, k -> new ConcurrentHashMap<>());
+        }
+        Object value = values.get(name);
+        if (value == null) {
+            value = entries.get(name, context);
+            if (value != null) // names without values are not remembered, as any name may be looked up
+                values.put(name, value);
+        }
+        return value;
+    }
+
+    private static String[] dimensionsOf(DimensionalMap<CompoundName, Object> entries) {
+        Set<String> dimensions = new LinkedHashSet<>();
+        for (Map.Entry<CompoundName, DimensionalValue<Object>> entry : entries.entrySet())
+            entry.getValue().addDimensionsTo(dimensions);
+        return dimensions.toArray(new String[dimensions.size()]);
     }
 
     private Object substitute(Object value, Map<String, String> context, Properties substitution) {
@@ -181,4 +238,31 @@ public class CompiledQueryProfile extends AbstractComponent implements Cloneable
         return "query profile '" + getId()  + "'" + (type!=null ? " of type '" + type.getId() + "'" : "");
     }
 
+    /** The values of the dimensions of a query profile in a context */
+    private static final class Context {
+
+        private final String[] values;
+        private final int hashCode;
+
+        Context(String[] dimensions, Map<String, String> context) {
+            values = new String[dimensions.length];
+            if (context != null) {
+                for (int i = 0; i < dimensions.length; i++)
+                    values[i] = context.get(dimensions[i]);
+            }
+            hashCode = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if ( ! (o instanceof Context)) return false;
+            return Arrays.equals(values, ((Context)o).values);
+        }
+
+        @Override
+        public int hashCode() { return hashCode; }
+
+    }
+
 }
@@ -4,9 +4,11 @@ package com.yahoo.search.query.profile.compiled;
 import com.yahoo.search.query.profile.DimensionBinding;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -20,18 +22,24 @@ public class DimensionalValue<VALUE> {
 
     private final List<Value<VALUE>> values;
 
+    /** An index of the values by the dimension values they are bound to, or null if there are less than two values */
+    private final VariantIndex index;
+
     /** Create a set of variants which is a single value regardless of dimensions */
     public DimensionalValue(Value<VALUE> value) {
         this.values = Collections.singletonList(value);
+        this.index = null;
     }
 
     public DimensionalValue(List<Value<VALUE>> valueVariants) {
         if (valueVariants.size() == 1) { // special cased for efficiency
             this.values = Collections.singletonList(valueVariants.get(0));
+            this.index = null;
         }
         else {
             this.values = new ArrayList<>(valueVariants);
             Collections.sort(this.values);
+            this.index = values.size() > 1 ? new VariantIndex(values) : null;
         }
     }
 
@@ -39,6 +47,10 @@ public class DimensionalValue<VALUE> {
     public VALUE get(Map<String, String> context) {
         if (context == null)
             context = Collections.emptyMap();
+        if (index != null) {
+            int match = index.firstMatch(context);
+            return match < 0 ? null : values.get(match).value();
+        }
         for (Value<VALUE> value : values) {
             if (value.matches(context))
                 return value.value();
@@ -48,6 +60,14 @@ public class DimensionalValue<VALUE> {
 
     public boolean isEmpty() { return values.isEmpty(); }
 
+    /** Adds the dimensions which the value of this depends on to the given set */
+    void addDimensionsTo(Set<String> dimensions) {
+        for (Value<VALUE> value : values) {
+            for (int i = 0; i < value.binding().size(); i++)
+                dimensions.add(value.binding().dimension(i));
+        }
+    }
+
     @Override
     public String toString() {
         return values.toString();
@@ -79,6 +99,94 @@ public class DimensionalValue<VALUE> {
 
     }
 
+    /**
+     * An index of a list of values by the dimension values their bindings require. For each dimension, this holds
+     * the set of values which are bound to each value of the dimension, and the set of values which are not bound
+     * in the dimension. The values matching a context is then the intersection over all dimensions of the
+     * values bound to the context value of the dimension and the values not bound in it, and the value to return
+     * is the first of these. Sets of values are bit sets over the value positions in the list.
+     */
+    private static class VariantIndex {
+
+        private final String[] dimensions;
+
+        /** The number of 64-bit words in the bit sets of this */
+        private final int words;
+
+        /** The values bound to each value of each dimension */
+        private final List<Map<String, long[]>> boundValues;
+
+        /** The values which are not bound in each dimension */
+        private final long[][] unboundValues;
+
+        /** All the values */
+        private final long[] allValues;
+
+        VariantIndex(List<? extends Value<?>> values) {
+            Set<String> dimensionSet = new LinkedHashSet<>();
+            for (Value<?> value : values) {
+                for (int i = 0; i < value.binding().size(); i++)
+                    dimensionSet.add(value.binding().dimension(i));
+            }
+            dimensions = dimensionSet.toArray(new String[dimensionSet.size()]);
+            words = (values.size() + 63) / 64;
+
+            allValues = new long[words];
+            boundValues = new ArrayList<>(dimensions.length);
+            unboundValues = new long[dimensions.length][words];
+            for (int i = 0; i < values.size(); i++)
+                set(allValues, i);
+            for (int d = 0; d < dimensions.length; d++) {
+                Map<String, long[]> boundInDimension = new HashMap<>();
+                for (int i = 0; i < values.size(); i++) {
+                    String boundValue = boundValue(values.get(i).binding(), dimensions[d]);
+                    if (boundValue == null)
+                        set(unboundValues[d], i);
+                    else
+                        set(boundInDimension.computeIfAbsent(boundValue, k -> new long[words]), i);
+                }
+                boundValues.add(boundInDimension);
+            }
+        }
+
+        private static String boundValue(Binding binding, String dimension) {
+            for (int i = 0; i < binding.size(); i++) {
+                if (binding.dimension(i).equals(dimension))
+                    return binding.dimensionValue(i);
+            }
+            return null;
+        }
+
+        private static void set(long[] bits, int index) {
+            bits[index / 64] |= 1L << (index % 64);
+        }
+
+        /** Returns the position of the first value matching the given context, or -1 if none */
+        int firstMatch(Map<String, String> context) {
+            if (words == 1) { // special cased to avoid allocation
+                long candidates = allValues[0];
+                for (int d = 0; d < dimensions.length && candidates != 0; d++) {
+                    long[] bound = boundValues.get(d).get(context.get(dimensions[d]));
+                    candidates &= unboundValues[d][0] | (bound == null ? 0 : bound[0]);
+                }
+                return candidates == 0 ? -1 : Long.numberOfTrailingZeros(candidates);
+            }
+
+            long[] candidates = Arrays.copyOf(allValues, words);
+            for (int d = 0; d < dimensions.length; d++) {
+                long[] bound = boundValues.get(d).get(context.get(dimensions[d]));
+                for (int word = 0; word < words; word++)
+                    candidates[word] &= unboundValues[d][word] | (bound == null ? 0 : bound[word]);
+            }
+            for (int word = 0; word < words; word++) {
+                if (candidates[word] != 0)
+                    return word * 64 + Long.numberOfTrailingZeros(candidates[word]);
+            }
+            return -1;
+        }
+
+    }
+
     /** A value for a particular binding */
     private static class Value<VALUE> implements Comparable<Value> {
 
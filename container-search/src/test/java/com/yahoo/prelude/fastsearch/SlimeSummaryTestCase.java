@@ -141,6 +141,25 @@ public class SlimeSummaryTestCase {
         assertEquals(tensor2, hit.getField("tensor_field2"));
     }
 
+    @Test
+    public void testRawStringFieldsAreReadFromTheSummaryBuffer() {
+        DocsumDefinitionSet docsum = createDocsumDefinitionSet(partial_summary3_cf);
+        FastHit hit = new FastHit();
+        byte[] summary = partialSummary3();
+        assertNull(docsum.lazyDecode("partial3", summary, hit));
+
+        Map<String, Object> traversed = new HashMap<>();
+        hit.forEachFieldAsRaw(new Utf8FieldTraverser(traversed) {
+            @Override
+            public void accept(String fieldName, byte[] utf8Data, int offset, int length) {
+                assertTrue("UTF-8 data is not copied", utf8Data == summary);
+                super.accept(fieldName, utf8Data, offset, length);
+            }
+        });
+        assertEquals("new str val", traversed.get("string_field"));
+        assertEquals(5, traversed.get("integer_field"));
+    }
+
     @Test
     public void testFieldAccessAPI() {
         DocsumDefinitionSet partialDocsum1 = createDocsumDefinitionSet(partial_summary1_cf);
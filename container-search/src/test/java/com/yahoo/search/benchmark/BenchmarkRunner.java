@@ -0,0 +1,197 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.benchmark;
+
+import com.yahoo.slime.Cursor;
+import com.yahoo.slime.JsonFormat;
+import com.yahoo.slime.Slime;
+
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Runs benchmarks of single operations and reports the results as JSON, such that results from different
+ * versions can be compared by a program.
+ * <p>
+ * Each benchmark is first run for a warmup period to let the JIT compile it, and then for a number of
+ * measurement rounds of fixed duration. The throughput of each round is reported, along with the median,
+ * such that noisy runs are easy to spot.
+ */
+public class BenchmarkRunner {
+
+    /** An operation to measure */
+    @FunctionalInterface
+    public interface Operation {
+
+        /**
+         * Runs the operation once
+         *
+         * @param iteration the number of times this has been run before
+         * @return some value derived from the work done, to avoid the JIT eliminating it as dead code
+         */
+        long run(int iteration) throws Exception;
+
+    }
+
+    /** A named benchmark, with a setup step which is not measured */
+    public static class Benchmark {
+
+        private final String name;
+        private final String description;
+        private final Callable<Operation> setup;
+
+        public Benchmark(String name, String description, Callable<Operation> setup) {
+            this.name = name;
+            this.description = description;
+            this.setup = setup;
+        }
+
+        public String name() { return name; }
+
+        public String description() { return description; }
+
+    }
+
+    private final long warmupMillis;
+    private final long roundMillis;
+    private final int rounds;
+
+    /** Where to report the progress of the benchmarks, or null to report nothing */
+    private final PrintStream progress;
+
+    /** Consumes the values returned by operations */
+    private long blackhole = 0;
+
+    /** Creates a runner which only writes the results */
+    public BenchmarkRunner(long warmupMillis, long roundMillis, int rounds) {
+        this(warmupMillis, roundMillis, rounds, null);
+    }
+
+    /** Creates a runner which also reports the progress of the benchmarks to the given stream, unless it is null */
+    public BenchmarkRunner(long warmupMillis, long roundMillis, int rounds, PrintStream progress) {
+        if (rounds < 1) throw new IllegalArgumentException("Must run at least one round, got " + rounds);
+        this.warmupMillis = warmupMillis;
+        this.roundMillis = roundMillis;
+        this.rounds = rounds;
+        this.progress = progress;
+    }
+
+    /** Runs the given benchmarks in order, and writes the results to the given stream as a JSON object */
+    public void run(List<Benchmark> benchmarks, OutputStream out) throws Exception {
+        Slime slime = new Slime();
+        Cursor root = slime.setObject();
+        root.setString("java.version", System.getProperty("java.version"));
+        root.setString("java.vm.name", System.getProperty("java.vm.name"));
+        root.setLong("processors", Runtime.getRuntime().availableProcessors());
+        root.setLong("timestamp", System.currentTimeMillis());
+        root.setLong("warmupMillis", warmupMillis);
+        root.setLong("roundMillis", roundMillis);
+        Cursor results = root.setArray("benchmarks");
+        for (Benchmark benchmark : benchmarks) {
+            if (progress != null)
+                progress.println("Running " + benchmark.name() + ": " + benchmark.description());
+            measure(benchmark, results.addObject());
+        }
+        root.setLong("ignored", blackhole); // make the results of the operations observable
+        new JsonFormat(false).encode(out, slime);
+        out.flush();
+    }
+
+    private void measure(Benchmark benchmark, Cursor result) throws Exception {
+        Operation operation = benchmark.setup.call();
+        runFor(operation, warmupMillis);
+
+        List<Double> opsPerSecond = new ArrayList<>(rounds);
+        for (int round = 0; round < rounds; round++) {
+            long startNanos = System.nanoTime();
+            long operations = runFor(operation, roundMillis);
+            long elapsedNanos = System.nanoTime() - startNanos;
+            opsPerSecond.add(operations * 1e9 / elapsedNanos);
+        }
+
+        result.setString("name", benchmark.name());
+        result.setString("description", benchmark.description());
+        Cursor roundResults = result.setArray("opsPerSecond");
+        opsPerSecond.forEach(roundResults::addDouble);
+        List<Double> sorted = new ArrayList<>(opsPerSecond);
+        Collections.sort(sorted);
+        double median = sorted.get(sorted.size() / 2);
+        result.setDouble("medianOpsPerSecond", median);
+        result.setDouble("medianNanosPerOp", 1e9 / median);
+        result.setDouble("minOpsPerSecond", sorted.get(0));
+        result.setDouble("maxOpsPerSecond", sorted.get(sorted.size() - 1));
+        if (progress != null)
+            progress.println(String.format("  %.1f ops/s, %.1f ns/op", median, 1e9 / median));
+    }
+
+    /** Runs the operation repeatedly for at least the given duration and returns the number of runs */
+    private long runFor(Operation operation, long millis) throws Exception {
+        long endNanos = System.nanoTime() + millis * 1_000_000;
+        int iterations = 0;
+        long sum = 0;
+        do {
+            // Check the clock only every few iterations to keep it out of the measurement of fast operations
+            for (int i = 0; i < 16; i++)
+                sum += operation.run(iterations++);
+        } while (System.nanoTime() < endNanos);
+        blackhole += sum;
+        return iterations;
+    }
+
+    /**
+     * Runs the given benchmarks as directed by the given command line arguments:
+     * <ul>
+     *     <li><code>--out file</code> - the file to write the JSON result to. Default: stdout</li>
+     *     <li><code>--warmup millis</code> - the warmup time of each benchmark. Default: 5000</li>
+     *     <li><code>--round millis</code> - the duration of each measurement round. Default: 2000</li>
+     *     <li><code>--rounds count</code> - the number of measurement rounds. Default: 5</li>
+     *     <li>Any other argument is a benchmark name prefix; if any are given only the matching benchmarks are run</li>
+     * </ul>
+     */
+    public static void runFromCommandLine(List<Benchmark> benchmarks, String... args) throws Exception {
+        String outFile = null;
+        long warmupMillis = 5000;
+        long roundMillis = 2000;
+        int rounds = 5;
+        List<String> filters = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--out" : outFile = args[++i]; break;
+                case "--warmup" : warmupMillis = Long.parseLong(args[++i]); break;
+                case "--round" : roundMillis = Long.parseLong(args[++i]); break;
+                case "--rounds" : rounds = Integer.parseInt(args[++i]); break;
+                default: filters.add(args[i]);
+            }
+        }
+
+        List<Benchmark> selected = new ArrayList<>();
+        for (Benchmark benchmark : benchmarks)
+            if (filters.isEmpty() || filters.stream().anyMatch(prefix -> benchmark.name().startsWith(prefix)))
+                selected.add(benchmark);
+        if (selected.isEmpty())
+            throw new IllegalArgumentException("No benchmarks match " + filters + ", available: " + names(benchmarks));
+
+        BenchmarkRunner runner = new BenchmarkRunner(warmupMillis, roundMillis, rounds, System.err);
+        if (outFile == null) {
+            runner.run(selected, System.out);
+            System.out.println();
+        }
+        else {
+            try (OutputStream out = new FileOutputStream(outFile)) {
+                runner.run(selected, out);
+            }
+        }
+    }
+
+    private static List<String> names(List<Benchmark> benchmarks) {
+        List<String> names = new ArrayList<>();
+        for (Benchmark benchmark : benchmarks)
+            names.add(benchmark.name());
+        return names;
+    }
+
+}
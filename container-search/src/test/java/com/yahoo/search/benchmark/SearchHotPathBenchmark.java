@@ -0,0 +1,162 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.benchmark;
+
+import com.yahoo.container.jdisc.HttpRequest;
+import com.yahoo.jdisc.http.HttpRequest.Method;
+import com.yahoo.processing.request.CompoundName;
+import com.yahoo.search.Query;
+import com.yahoo.search.Result;
+import com.yahoo.search.benchmark.BenchmarkRunner.Benchmark;
+import com.yahoo.search.benchmark.BenchmarkRunner.Operation;
+import com.yahoo.search.query.QueryTree;
+import com.yahoo.search.query.parser.Parsable;
+import com.yahoo.search.query.parser.ParserEnvironment;
+import com.yahoo.search.query.profile.QueryProfile;
+import com.yahoo.search.query.profile.QueryProfileRegistry;
+import com.yahoo.search.query.profile.compiled.CompiledQueryProfile;
+import com.yahoo.search.rendering.JsonRenderer;
+import com.yahoo.search.result.Hit;
+import com.yahoo.search.result.HitGroup;
+import com.yahoo.search.searchchain.Execution;
+import com.yahoo.search.yql.YqlParser;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmarks of the stages of the container query and result path which run for every query:
+ * YQL parsing, query construction, query profile lookup, hit sorting and JSON rendering.
+ * The fixtures are sized like typical production queries and results, and none of the benchmarks
+ * need any content nodes.
+ * <p>
+ * Run with e.g <code>java -cp [test classpath] com.yahoo.search.benchmark.SearchHotPathBenchmark --out result.json</code>.
+ * See {@link BenchmarkRunner#runFromCommandLine} for the arguments accepted.
+ */
+public class SearchHotPathBenchmark {
+
+    private static final String[] yqlQueries = {
+            "select * from sources * where title contains \"madonna\";",
+            "select foo from bar where title contains \"madonna\" and !(title contains \"saint\") and price < 500;",
+            "select * from sources music, video where (artist contains \"beatles\" or title contains phrase(\"let\", \"it\", \"be\")) " +
+            "and year > 1965 and year < 1971 order by year desc limit 20 offset 10;",
+            "select * from sources * where [{\"defaultIndex\": \"default\", \"grammar\": \"all\"}]userInput(\"new york pizza delivery\") " +
+            "and weightedSet(tags, {\"pizza\":10, \"food\":5, \"delivery\":3});",
+            "select * from sources * where default contains ([{\"distance\": 5}]near(\"a\", \"b\", \"c\")) and " +
+            "range(price, 10, 100) and ([{\"ranked\": false}]category contains \"books\");"
+    };
+
+    private static final String[] queryStrings = {
+            "?query=madonna&hits=10",
+            "?query=new+york+pizza&hits=20&offset=10&ranking=bm25&presentation.format=json&timeout=500ms",
+            "?query=title:beatles+year:%3E1965&type=all&hits=10&restrict=music&ranking.features.query(weight)=0.5",
+            "?query=a+b+c+d+e+f&type=any&hits=100&presentation.summary=short&trace.level=0&model.defaultIndex=title"
+    };
+
+    public static List<Benchmark> benchmarks() {
+        return Arrays.asList(
+                new Benchmark("yql.parse", "Parse YQL queries into query trees", SearchHotPathBenchmark::yqlParsing),
+                new Benchmark("query.create", "Create a query from a request string", SearchHotPathBenchmark::queryCreation),
+                new Benchmark("queryprofile.get", "Look up properties with variants in a compiled query profile",
+                              SearchHotPathBenchmark::queryProfileLookup),
+                new Benchmark("hitgroup.sort", "Sort a result of 400 hits by relevance", SearchHotPathBenchmark::hitSorting),
+                new Benchmark("render.json", "Render a result of 100 hits with 10 fields as JSON",
+                              SearchHotPathBenchmark::jsonRendering));
+    }
+
+    private static Operation yqlParsing() {
+        YqlParser parser = new YqlParser(new ParserEnvironment());
+        return iteration -> {
+            QueryTree tree = parser.parse(new Parsable().setQuery(yqlQueries[iteration % yqlQueries.length]));
+            return tree.getRoot().hashCode();
+        };
+    }
+
+    private static Operation queryCreation() {
+        return iteration -> {
+            Query query = new Query(queryStrings[iteration % queryStrings.length]);
+            return query.getHits() + query.getModel().getQueryString().length();
+        };
+    }
+
+    private static Operation queryProfileLookup() {
+        QueryProfile profile = new QueryProfile("default");
+        profile.setDimensions(new String[] { "region", "device" });
+        for (int i = 0; i < 20; i++) {
+            profile.set("properties.p" + i, "default" + i, (QueryProfileRegistry)null);
+            profile.set("properties.p" + i, "us" + i, new String[] { "us" }, null);
+            profile.set("properties.p" + i, "us-mobile" + i, new String[] { "us", "mobile" }, null);
+            profile.set("properties.p" + i, "any-mobile" + i, new String[] { null, "mobile" }, null);
+        }
+        profile.freeze();
+        CompiledQueryProfile compiled = profile.compile(null);
+
+        String[] requests = { "?query=test&region=us&device=mobile", "?query=test&region=eu&device=mobile",
+                              "?query=test&region=us", "?query=test" };
+        Query[] queries = new Query[requests.length];
+        for (int i = 0; i < requests.length; i++)
+            queries[i] = new Query(HttpRequest.createTestRequest(requests[i], Method.GET), compiled);
+        CompoundName[] names = new CompoundName[20];
+        for (int i = 0; i < names.length; i++)
+            names[i] = new CompoundName("properties.p" + i);
+
+        return iteration -> {
+            Query query = queries[iteration % queries.length];
+            long length = 0;
+            for (CompoundName name : names)
+                length += query.properties().getString(name).length();
+            return length;
+        };
+    }
+
+    private static Operation hitSorting() {
+        Random random = new Random(42);
+        Hit[] hits = new Hit[400];
+        for (int i = 0; i < hits.length; i++)
+            hits[i] = new Hit("hit:" + i, random.nextDouble());
+        return iteration -> {
+            HitGroup group = new HitGroup();
+            for (int i = 0; i < hits.length; i++)
+                group.add(hits[(i + iteration) % hits.length]); // start at a new offset each time
+            group.sort();
+            return group.get(0).getId().hashCode();
+        };
+    }
+
+    private static Operation jsonRendering() {
+        Query query = new Query("?query=test&hits=100");
+        Result result = new Result(query);
+        result.setTotalHitCount(123456);
+        for (int i = 0; i < 100; i++) {
+            Hit hit = new Hit("id:test:music::" + i, 1.0 / (i + 1));
+            hit.setSource("music");
+            hit.setField("title", "Title of the document number " + i);
+            hit.setField("artist", "Some artist");
+            hit.setField("album", "An album name with a few words " + (i % 7));
+            hit.setField("year", 1960 + i % 50);
+            hit.setField("duration", 180 + i);
+            hit.setField("popularity", i * 0.37);
+            hit.setField("url", "http://example.com/music/" + i);
+            hit.setField("snippet", "Some summary text with <hi>highlighted</hi> terms which is about as long as " +
+                                    "what a dynamic summary typically contains, number " + i);
+            hit.setField("tags", Arrays.asList("rock", "pop", "sixties"));
+            hit.setField("explicit", (i % 10) == 0);
+            result.hits().add(hit);
+        }
+        JsonRenderer prototype = new JsonRenderer();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        return iteration -> {
+            JsonRenderer renderer = (JsonRenderer)prototype.clone(); // as done for each request in production
+            renderer.init();
+            out.reset();
+            renderer.render(out, result, new Execution(Execution.Context.createContextStub()), query).get();
+            return out.size();
+        };
+    }
+
+    public static void main(String... args) throws Exception {
+        BenchmarkRunner.runFromCommandLine(benchmarks(), args);
+    }
+
+}
@@ -0,0 +1,34 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.search.benchmark;
+
+import com.yahoo.slime.Inspector;
+import com.yahoo.slime.JsonDecoder;
+import com.yahoo.slime.Slime;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the benchmarks briefly to check that they work and produce well-formed results
+ */
+public class SearchHotPathBenchmarkTestCase {
+
+    @Test
+    public void testBenchmarksProduceResults() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BenchmarkRunner(1, 1, 2).run(SearchHotPathBenchmark.benchmarks(), out);
+
+        Inspector results = new JsonDecoder().decode(new Slime(), out.toByteArray()).get().field("benchmarks");
+        assertEquals(SearchHotPathBenchmark.benchmarks().size(), results.entries());
+        for (int i = 0; i < results.entries(); i++) {
+            Inspector result = results.entry(i);
+            assertEquals(SearchHotPathBenchmark.benchmarks().get(i).name(), result.field("name").asString());
+            assertEquals(2, result.field("opsPerSecond").entries());
+            assertTrue(result.field("medianOpsPerSecond").asDouble() > 0);
+        }
+    }
+
+}
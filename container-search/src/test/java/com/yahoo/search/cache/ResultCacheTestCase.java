@@ -1,28 +1,31 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
-package com.yahoo.prelude.fastsearch.test;
+package com.yahoo.search.cache;
 
 import com.yahoo.fs4.BasicPacket;
 import com.yahoo.fs4.BufferTooSmallException;
 import com.yahoo.fs4.PacketDecoder;
 import com.yahoo.fs4.QueryPacket;
 import com.yahoo.search.Query;
+import com.yahoo.search.grouping.vespa.GroupingExecutor;
+import com.yahoo.searchlib.aggregation.Grouping;
 import com.yahoo.prelude.fastsearch.CacheKey;
-import com.yahoo.prelude.fastsearch.PacketCache;
 import com.yahoo.prelude.fastsearch.PacketWrapper;
 import org.junit.Test;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
 /**
- * Tests the packet cache. Also tested in FastSearcherTestCase.
+ * Tests the result cache with packets as values. Also tested in FastSearcherTestCase.
  *
  * @author  bratseth
  */
-public class PacketCacheTestCase {
+public class ResultCacheTestCase {
 
     static byte[] queryResultPacketData = new byte[] {
         0, 0, 0, 104,
@@ -46,9 +49,7 @@ public class PacketCacheTestCase {
 
     @Test
     public void testPutAndGet() throws BufferTooSmallException {
-        PacketCache cache = new PacketCache(0, (length + 30) * 3 - 1, 1e64);
-
-        cache.setMaxCacheItemPercentage(50);
+        ResultCache<CacheKey, PacketWrapper> cache = createCache((length + 30) * 3 - 1, 1e64);
 
         final int keysz = 36;
 
@@ -59,33 +60,32 @@ public class PacketCacheTestCase {
 
         cache.put(key1, createCacheEntry(key1));
         assertNotNull(cache.get(key1));
-        assertEquals(keysz + length, cache.totalPacketSize());
+        assertEquals(keysz + length, cache.totalSize());
 
         cache.put(key2, createCacheEntry(key2));
         assertNotNull(cache.get(key1));
         assertNotNull(cache.get(key2));
-        assertEquals(keysz*2 + length*2, cache.totalPacketSize());
+        assertEquals(keysz*2 + length*2, cache.totalSize());
 
         cache.put(key1, createCacheEntry(key1));
         assertNotNull(cache.get(key1));
         assertNotNull(cache.get(key2));
-        assertEquals(keysz*2 + length*2, cache.totalPacketSize());
+        assertEquals(keysz*2 + length*2, cache.totalSize());
 
         // This should cause key1 (the eldest accessed) to be removed, as 3 is 1 2 many
         cache.put(key3, createCacheEntry(key3));
-        assertEquals(keysz*2 + length*2, cache.totalPacketSize());
+        assertEquals(keysz*2 + length*2, cache.totalSize());
         assertNull(cache.get(key1));
         assertNotNull(cache.get(key2));
         assertNotNull(cache.get(key3));
-        assertEquals(keysz*2 + length*2, cache.totalPacketSize());
+        assertEquals(keysz*2 + length*2, cache.totalSize());
     }
 
     // more control that delete code does not change internal access order
     @Test
     public void testInternalOrdering() throws BufferTooSmallException {
         // room for three entries
-        PacketCache cache = new PacketCache(0, length * 4 - 1, 1e64);
-        cache.setMaxCacheItemPercentage(50);
+        ResultCache<CacheKey, PacketWrapper> cache = createCache(length * 4 - 1, 1e64);
 
         cache.put(key1, createCacheEntry());
         cache.put(key2, createCacheEntry());
@@ -109,20 +109,16 @@ public class PacketCacheTestCase {
 
     @Test
     public void testTooLargeItem() throws BufferTooSmallException {
-        PacketCache cache = new PacketCache(0, 100, 1e64); // 100 bytes cache
-
-        cache.setMaxCacheItemPercentage(50);
+        ResultCache<CacheKey, PacketWrapper> cache = createCache(100, 1e64); // 100 bytes cache
 
         cache.put(key1, createCacheEntry());
         assertNull(cache.get(key1)); // 68 is more than 50% of the size
-        assertEquals(0, cache.totalPacketSize());
+        assertEquals(0, cache.totalSize());
     }
 
     @Test
     public void testClearing() throws BufferTooSmallException {
-        PacketCache cache = new PacketCache(0, 140, 1e64); // 140 bytes cache
-
-        cache.setMaxCacheItemPercentage(50);
+        ResultCache<CacheKey, PacketWrapper> cache = createCache(140, 1e64); // 140 bytes cache
 
         cache.put(key1, createCacheEntry());
         cache.put(key2, createCacheEntry());
@@ -130,14 +126,12 @@ public class PacketCacheTestCase {
         cache.clear();
         assertNull(cache.get(key1));
         assertNull(cache.get(key2));
-        assertEquals(0, cache.totalPacketSize());
+        assertEquals(0, cache.totalSize());
     }
 
     @Test
     public void testRemoving() throws BufferTooSmallException {
-        PacketCache cache = new PacketCache(0, length*2, 1e64); // 96*2 bytes cache
-
-        cache.setMaxCacheItemPercentage(50);
+        ResultCache<CacheKey, PacketWrapper> cache = createCache(length*2, 1e64); // 96*2 bytes cache
 
         cache.put(key1, createCacheEntry());
         cache.put(key2, createCacheEntry());
@@ -145,15 +139,13 @@ public class PacketCacheTestCase {
         cache.remove(key1);
         assertNull(cache.get(key1));
         assertNotNull(cache.get(key2));
-        assertEquals(length, cache.totalPacketSize());
+        assertEquals(length, cache.totalSize());
     }
 
     @Test
     public void testEntryAging() throws BufferTooSmallException {
         // 1k bytes cache, 5h timeout
-        PacketCache cache = new PacketCache(0, 1024, 5 * 3600);
-
-        cache.setMaxCacheItemPercentage(50);
+        ResultCache<CacheKey, PacketWrapper> cache = createCache(1024, 5 * 3600);
         cache.put(key1, createCacheEntry(),
                 System.currentTimeMillis() - 10 * 3600 * 1000);
         cache.put(key2, createCacheEntry(), System.currentTimeMillis());
@@ -166,9 +158,78 @@ public class PacketCacheTestCase {
     }
 
     @Test
-    public void testTooBigCapacity() {
-        PacketCache cache = new PacketCache(2048, 0, 5 * 3600);
-        assertEquals(Integer.MAX_VALUE, cache.getByteCapacity());
+    public void testCapacityAbove2Gb() {
+        ResultCache<CacheKey, PacketWrapper> cache = new ResultCache<>(2048L << 20, 5 * 3600, PacketWrapper::getPacketsSize);
+        assertEquals(2048L << 20, cache.byteCapacity());
+    }
+
+    @Test
+    public void testInvalidation() throws BufferTooSmallException {
+        ResultCache<CacheKey, PacketWrapper> cache = createCache(1024, 1e64);
+        cache.put(key1, createCacheEntry());
+        assertNotNull(cache.get(key1));
+
+        cache.invalidateAll();
+        cache.put(key2, createCacheEntry());
+        assertNull(cache.get(key1));
+        assertNotNull(cache.get(key2));
+        assertEquals(length, cache.totalSize());
+        assertEquals(1, cache.expirations());
+    }
+
+    @Test
+    public void testMetrics() throws BufferTooSmallException {
+        ResultCache<CacheKey, PacketWrapper> cache = createCache(length * 2, 1e64);
+        assertEquals(0, cache.hitRatio(), 0);
+
+        cache.put(key1, createCacheEntry());
+        cache.put(key2, createCacheEntry());
+        cache.put(key3, createCacheEntry());
+        assertEquals(1, cache.evictions());
+
+        assertNull(cache.get(key1));
+        assertNotNull(cache.get(key2));
+        assertNotNull(cache.get(key3));
+        assertNull(cache.get(key4));
+        assertEquals(2, cache.hits());
+        assertEquals(2, cache.misses());
+        assertEquals(0.5, cache.hitRatio(), 0.000001);
+    }
+
+    @Test
+    public void testSegmentedCache() throws BufferTooSmallException {
+        ResultCache<CacheKey, PacketWrapper> cache = new ResultCache<>(1 << 20, 1e64, PacketWrapper::getPacketsSize);
+        CacheKey[] keys = new CacheKey[100];
+        long totalSize = 0;
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = createKey("key" + i);
+            cache.put(keys[i], createCacheEntry(keys[i]));
+            totalSize += length + keys[i].byteSize();
+        }
+        for (CacheKey key : keys)
+            assertNotNull(cache.get(key));
+        assertEquals(keys.length, cache.size());
+        assertEquals(totalSize, cache.totalSize());
+    }
+
+    @Test
+    public void testGroupingIsPartOfTheKey() {
+        assertEquals(key1, createKey("key1"));
+        assertFalse(createKey("key1").equals(createKey("key1", new Grouping(0))));
+        assertFalse(createKey("key1", new Grouping(0)).equals(createKey("key1", new Grouping(1))));
+        assertEquals(createKey("key1", new Grouping(1)), createKey("key1", new Grouping(1)));
+    }
+
+    private CacheKey createKey(String queryString, Grouping ... groupings) {
+        Query query = new Query("/?query=" + queryString);
+        if (groupings.length > 0)
+            GroupingExecutor.setGroupingList(query, Arrays.asList(groupings));
+        return new CacheKey(QueryPacket.create(query));
+    }
+
+    /** Returns a cache with a single segment, such that its content is exactly in LRU order */
+    private ResultCache<CacheKey, PacketWrapper> createCache(int byteCapacity, double maxAgeSeconds) {
+        return new ResultCache<>(byteCapacity, maxAgeSeconds, 50, 1, PacketWrapper::getPacketsSize);
     }
 
     /** Creates a 64-byte packet in an array wrapped in a PacketWrapper */
@@ -5,6 +5,7 @@ import com.yahoo.fs4.QueryPacket;
 import com.yahoo.prelude.fastsearch.CacheKey;
 import com.yahoo.search.Query;
 import com.yahoo.search.Result;
+import com.yahoo.search.result.Hit;
 import com.yahoo.search.dispatch.searchcluster.Node;
 import com.yahoo.search.dispatch.searchcluster.SearchCluster;
 import com.yahoo.test.ManualClock;
@@ -63,8 +64,9 @@ public class InterleavedSearchInvokerTest {
         List<Result> results = invoker.search(query, null, null);
 
         assertTrue("All test scenario events processed", expectedEvents.isEmpty());
-        assertNotNull("Last invoker is marked as an error", results.get(2).hits().getErrorHit());
-        assertTrue("Timed out invoker is a normal timeout", results.get(2).getCoverage(false).isDegradedByTimeout());
+        assertEquals("Results are merged", 1, results.size());
+        assertNotNull("Last invoker is marked as an error", results.get(0).hits().getErrorHit());
+        assertTrue("Timed out invoker is a normal timeout", results.get(0).getCoverage(false).isDegradedByTimeout());
     }
 
     @Test
@@ -80,8 +82,73 @@ public class InterleavedSearchInvokerTest {
         List<Result> results = invoker.search(query, null, null);
 
         assertTrue("All test scenario events processed", expectedEvents.isEmpty());
-        assertNotNull("Last invoker is marked as an error", results.get(3).hits().getErrorHit());
-        assertTrue("Timed out invoker is an adaptive timeout", results.get(3).getCoverage(false).isDegradedByAdapativeTimeout());
+        assertEquals("Results are merged", 1, results.size());
+        assertNotNull("Last invoker is marked as an error", results.get(0).hits().getErrorHit());
+        assertTrue("Timed out invoker is an adaptive timeout", results.get(0).getCoverage(false).isDegradedByAdapativeTimeout());
+    }
+
+    @Test
+    public void requireThatTopHitsAreMergedAsResultsArrive() throws IOException {
+        SearchCluster cluster = new MockSearchCluster("!", createDispatchConfig(100.0), 1, 3);
+        invokers.add(new TestInvoker(0.9, 0.5, 0.1));
+        invokers.add(new TestInvoker(0.8, 0.7, 0.6, 0.2));
+        invokers.add(new TestInvoker(0.95, 0.3));
+        SearchInvoker invoker = createInterleavedInvoker(cluster, 0);
+
+        expectedEvents.add(new Event(5000, 100, 0));
+        expectedEvents.add(new Event(4900, 100, 1));
+        expectedEvents.add(new Event(4800, 100, 2));
+
+        query.setOffset(1);
+        query.setHits(4);
+        List<Result> results = invoker.search(query, null, null);
+
+        assertEquals(1, results.size());
+        Result result = results.get(0);
+        assertEquals(4, result.getHitCount());
+        assertEquals(0.9, result.hits().get(0).getRelevance().getScore(), 0.0001);
+        assertEquals(0.8, result.hits().get(1).getRelevance().getScore(), 0.0001);
+        assertEquals(0.7, result.hits().get(2).getRelevance().getScore(), 0.0001);
+        assertEquals(0.6, result.hits().get(3).getRelevance().getScore(), 0.0001);
+        assertEquals(9, result.getTotalHitCount());
+        assertEquals(1, query.getOffset());
+        assertEquals(4, query.getHits());
+    }
+
+    @Test
+    public void requireThatResponseTimeOfSlowestNodeIsReported() throws IOException {
+        SearchCluster cluster = new MockSearchCluster("!", createDispatchConfig(100.0), 1, 3);
+        SearchInvoker invoker = createInterleavedInvoker(cluster, 3);
+        List<Object> status = new ArrayList<>();
+        invoker.teardown((success, responseTime) -> { status.add(success); status.add(responseTime); });
+
+        expectedEvents.add(new Event(5000, 100, 0));
+        expectedEvents.add(new Event(4900, 200, 1));
+        expectedEvents.add(new Event(4700, 50, 2));
+
+        invoker.search(query, null, null);
+        invoker.close();
+
+        assertEquals(true, status.get(0));
+        assertEquals(350L, status.get(1));
+    }
+
+    @Test
+    public void requireThatTimeoutIsReportedAsFailure() throws IOException {
+        SearchCluster cluster = new MockSearchCluster("!", createDispatchConfig(100.0), 1, 3);
+        SearchInvoker invoker = createInterleavedInvoker(cluster, 3);
+        List<Object> status = new ArrayList<>();
+        invoker.teardown((success, responseTime) -> { status.add(success); status.add(responseTime); });
+
+        expectedEvents.add(new Event(5000, 300, 0));
+        expectedEvents.add(new Event(4700, 300, 1));
+        expectedEvents.add(null);
+
+        invoker.search(query, null, null);
+        invoker.close();
+
+        assertEquals(false, status.get(0));
+        assertEquals(600L, status.get(1));
     }
 
     private InterleavedSearchInvoker createInterleavedInvoker(SearchCluster searchCluster, int numInvokers) {
@@ -141,8 +208,11 @@ public class InterleavedSearchInvokerTest {
     }
 
     private class TestInvoker extends SearchInvoker {
-        protected TestInvoker() {
+        private final double[] relevances;
+
+        protected TestInvoker(double ... relevances) {
             super(Optional.of(new Node(42, "?", 0, 0)));
+            this.relevances = relevances;
         }
 
         @Override
@@ -151,7 +221,11 @@ public class InterleavedSearchInvokerTest {
 
         @Override
         protected List<Result> getSearchResults(CacheKey cacheKey) throws IOException {
-            return Collections.singletonList(new Result(query));
+            Result result = new Result(query);
+            for (double relevance : relevances)
+                result.hits().add(new Hit("hit:" + relevance, relevance));
+            result.setTotalHitCount(relevances.length);
+            return Collections.singletonList(result);
         }
 
         @Override
@@ -7,13 +7,18 @@ import com.yahoo.search.dispatch.searchcluster.SearchCluster;
 import junit.framework.AssertionFailedError;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Optional;
 
 import static com.yahoo.search.dispatch.MockSearchCluster.createDispatchConfig;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author ollivir
@@ -104,4 +109,80 @@ public class LoadBalancerTest {
         group = grp.get();
         assertThat(group.id(), equalTo(id2));
     }
+
+    @Test
+    public void requireThatScoreboardTracksSelectionsAndLatency() {
+        Node n1 = new Node(0, "test-node1", 0, 0);
+        Node n2 = new Node(1, "test-node2", 1, 1);
+        SearchCluster cluster = new SearchCluster("a", createDispatchConfig(n1, n2), null, 1, null);
+        LoadBalancer lb = new LoadBalancer(cluster, true);
+
+        Group group = lb.takeGroup(null).get();
+        LoadBalancer.GroupStatus status = statusOf(lb, group);
+        assertThat(status.outstandingQueries(), equalTo(1));
+        assertThat(status.selections(), equalTo(1L));
+
+        lb.releaseGroup(group, true, 100, 1000);
+        assertThat(status.outstandingQueries(), equalTo(0));
+        assertEquals(100.0, status.averageLatency(), 0.000001);
+
+        lb.takeGroup(null);
+        group = lb.takeGroup(null).get(); // same group as before again
+        lb.releaseGroup(group, true, 200, 1000);
+        assertEquals(110.0, status.averageLatency(), 1.0); // allows for decay while running the test
+    }
+
+    @Test
+    public void requireThatAdaptiveLoadBalancerAvoidsSlowGroups() {
+        Node n1 = new Node(0, "test-node1", 0, 0);
+        Node n2 = new Node(1, "test-node2", 1, 1);
+        SearchCluster cluster = new SearchCluster("a", createDispatchConfig(n1, n2), null, 1, null);
+        LoadBalancer lb = new LoadBalancer(cluster, false);
+
+        for (int i = 0; i < 1000; i++) {
+            Group group = lb.takeGroup(null).get();
+            lb.releaseGroup(group, true, group.id() == 0 ? 500 : 10, 1000);
+        }
+        LoadBalancer.GroupStatus slow = lb.scoreboard().stream().filter(status -> status.group().id() == 0).findFirst().get();
+        assertTrue("Slow group received " + slow.selections() + " queries", slow.selections() < 100);
+    }
+
+    @Test
+    public void requireThatAdaptiveLoadBalancerAvoidsGroupsWhichFailQuickly() {
+        Node n1 = new Node(0, "test-node1", 0, 0);
+        Node n2 = new Node(1, "test-node2", 1, 1);
+        SearchCluster cluster = new SearchCluster("a", createDispatchConfig(n1, n2), null, 1, null);
+        LoadBalancer lb = new LoadBalancer(cluster, false);
+
+        for (int i = 0; i < 1000; i++) {
+            Group group = lb.takeGroup(null).get();
+            if (group.id() == 0)
+                lb.releaseGroup(group, false, 0, 500);
+            else
+                lb.releaseGroup(group, true, 50, 500);
+        }
+        LoadBalancer.GroupStatus failing = lb.scoreboard().stream().filter(status -> status.group().id() == 0).findFirst().get();
+        assertTrue("Failing group received " + failing.selections() + " queries", failing.selections() < 100);
+        assertEquals(500.0, failing.averageLatency(), 50.0);
+    }
+
+    @Test
+    public void requireThatAdaptiveLoadBalancerRespectsRejectedGroups() {
+        Node n1 = new Node(0, "test-node1", 0, 0);
+        Node n2 = new Node(1, "test-node2", 1, 1);
+        SearchCluster cluster = new SearchCluster("a", createDispatchConfig(n1, n2), null, 1, null);
+        LoadBalancer lb = new LoadBalancer(cluster, false);
+
+        for (int i = 0; i < 10; i++) {
+            Group group = lb.takeGroup(Collections.singleton(0)).get();
+            assertThat(group.id(), equalTo(1));
+            lb.releaseGroup(group);
+        }
+        assertThat(lb.takeGroup(new HashSet<>(Arrays.asList(0, 1))).isPresent(), is(false));
+    }
+
+    private LoadBalancer.GroupStatus statusOf(LoadBalancer lb, Group group) {
+        return lb.scoreboard().stream().filter(status -> status.group().id() == group.id()).findFirst().get();
+    }
+
 }
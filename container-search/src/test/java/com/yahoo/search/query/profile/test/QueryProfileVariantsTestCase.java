@@ -1056,6 +1056,56 @@ public class QueryProfileVariantsTestCase {
         assertEquals("yahoo/alerts", cAlert.get("vertical.custid", toMap("entry=alert", "intl=us", "lang=en-US")));
     }
 
+    @Test
+    public void testManyVariants() {
+        QueryProfile profile = new QueryProfile("test");
+        profile.setDimensions(new String[] {"x", "y", "z"});
+        profile.set("a", "default", null);
+        for (int x = 0; x < 50; x++) {
+            profile.set("a", "x" + x, new String[] {"x" + x}, null);
+            profile.set("a", "x" + x + ".y" + (x % 3), new String[] {"x" + x, "y" + (x % 3)}, null);
+            profile.set("a", "x" + x + ".*.z" + (x % 5), new String[] {"x" + x, null, "z" + (x % 5)}, null);
+        }
+        profile.set("a", "*.y1.z1", new String[] {null, "y1", "z1"}, null);
+        CompiledQueryProfile cprofile = profile.compile(null);
+
+        for (int i = 0; i < 2; i++) { // The second time values are looked up they may be remembered
+            assertGet("default", "a", new String[] {null, null, null}, profile, cprofile);
+            assertGet("default", "a", new String[] {"x50", "y0", "z0"}, profile, cprofile);
+            assertGet("x10", "a", new String[] {"x10", null, null}, profile, cprofile);
+            assertGet("x10", "a", new String[] {"x10", "y0", "z1"}, profile, cprofile);
+            assertGet("x10.y1", "a", new String[] {"x10", "y1", "z0"}, profile, cprofile);
+            assertGet("x10.y1", "a", new String[] {"x10", "y1", "z1"}, profile, cprofile);
+            assertGet("x10.*.z0", "a", new String[] {"x10", "y2", "z0"}, profile, cprofile);
+            assertGet("x49.*.z4", "a", new String[] {"x49", null, "z4"}, profile, cprofile);
+            assertGet("x49.y1", "a", new String[] {"x49", "y1", "z4"}, profile, cprofile);
+            assertGet("*.y1.z1", "a", new String[] {"x50", "y1", "z1"}, profile, cprofile);
+            assertGet(null, "b", new String[] {"x10", "y1", "z1"}, profile, cprofile);
+        }
+    }
+
+    @Test
+    public void testManyContexts() {
+        QueryProfile profile = new QueryProfile("test");
+        profile.setDimensions(new String[] {"x", "y"});
+        profile.set("a", "default", null);
+        for (int x = 0; x < 10; x++) {
+            profile.set("a", "x" + x, new String[] {"x" + x}, null);
+            profile.set("a", "x" + x + ".y1", new String[] {"x" + x, "y1"}, null);
+        }
+        CompiledQueryProfile cprofile = profile.compile(null);
+
+        // More distinct contexts than values are remembered for, looked up repeatedly
+        for (int i = 0; i < 5; i++) {
+            for (int x = 0; x < 1000; x++) {
+                String y = "y" + (x % 3);
+                String expected = x >= 10 ? "default" : (y.equals("y1") ? "x" + x + ".y1" : "x" + x);
+                assertGet(expected, "a", new String[] {"x" + x, y}, profile, cprofile);
+                assertGet(null, "b", new String[] {"x" + x, y}, profile, cprofile);
+            }
+        }
+    }
+
     private void assertGet(String expectedValue, String parameter, String[] dimensionValues, QueryProfile profile, CompiledQueryProfile cprofile) {
         Map<String,String> context=toMap(profile,dimensionValues);
         assertEquals("Looking up '" + parameter + "' for '" + Arrays.toString(dimensionValues) + "'",expectedValue,cprofile.get(parameter,context));
@@ -12,6 +12,10 @@ import com.google.common.base.Preconditions;
 
 /**
  * Helper class to enable lookahead in the token stream.
+ * <p>
+ * A buffer may also be created to read a JSON object or array directly from a parser, see
+ * {@link #TokenBuffer(JsonParser)}. It then holds no tokens itself, so no lookahead is possible,
+ * but no objects are created per token either.
  *
  * @author Steinar Knutsen
  */
@@ -32,21 +36,48 @@ public class TokenBuffer {
     private Deque<Token> buffer;
     private int nesting = 0;
 
+    /** The parser tokens are read from, if they are not buffered */
+    private final JsonParser source;
+    private boolean sourceExhausted = false;
+
     public TokenBuffer() {
         this(new ArrayDeque<>());
     }
 
     private TokenBuffer(Deque<Token> buffer) {
         this.buffer = buffer;
+        this.source = null;
         if (buffer.size() > 0) {
             updateNesting(buffer.peekFirst().token);
         }
     }
 
+    /**
+     * Creates a buffer which reads the object or array the given parser is positioned at directly from the
+     * parser. The parser is left positioned at the end of the object or array when this is exhausted.
+     * Lookahead, that is prefetching, is not supported by such a buffer.
+     */
+    public TokenBuffer(JsonParser source) {
+        this.buffer = null;
+        this.source = source;
+        Preconditions.checkArgument(source.currentToken() != null && source.currentToken().isStructStart(),
+                                    "Expected start of JSON object or array, got %s", source.currentToken());
+        updateNesting(source.currentToken());
+    }
+
     /** Returns whether any tokens are available in this */
     public boolean isEmpty() { return size() == 0; }
 
     public JsonToken next() {
+        if (source != null) {
+            if (sourceExhausted || nesting == 0) {
+                sourceExhausted = true;
+                return null;
+            }
+            JsonToken t = nextValue(source);
+            updateNesting(t);
+            return t;
+        }
         buffer.removeFirst();
         Token t = buffer.peekFirst();
         if (t == null) {
@@ -58,6 +89,7 @@ public class TokenBuffer {
 
     /** Returns the current token without changing position, or null if none */
     public JsonToken currentToken() {
+        if (source != null) return sourceExhausted ? null : source.currentToken();
         Token token = buffer.peekFirst();
         if (token == null) return null;
         return token.token;
@@ -65,6 +97,7 @@ public class TokenBuffer {
 
     /** Returns the current token name without changing position, or null if none */
     public String currentName() {
+        if (source != null) return sourceExhausted ? null : sourceName();
         Token token = buffer.peekFirst();
         if (token == null) return null;
         return token.name;
@@ -72,16 +105,59 @@ public class TokenBuffer {
 
     /** Returns the current token text without changing position, or null if none */
     public String currentText() {
+        if (source != null) return sourceExhausted ? null : sourceText();
         Token token = buffer.peekFirst();
         if (token == null) return null;
         return token.text;
     }
 
+    /**
+     * Returns whether the current token is an integer which can be read by {@link #currentLongValue}
+     * without being converted from text
+     */
+    public boolean currentIsLong() {
+        if (source == null || sourceExhausted || source.currentToken() != JsonToken.VALUE_NUMBER_INT) return false;
+        try {
+            JsonParser.NumberType type = source.getNumberType();
+            return type == JsonParser.NumberType.INT || type == JsonParser.NumberType.LONG;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /** Returns the value of the current token, which must be an integer, see {@link #currentIsLong} */
+    public long currentLongValue() {
+        if ( ! currentIsLong()) return Long.parseLong(currentText());
+        try {
+            return source.getLongValue();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the current token as a double. This is read without conversion to text if the token
+     * is a number read directly from a parser, and parsed from the token text otherwise.
+     *
+     * @throws NumberFormatException if the current token is not a number
+     */
+    public double currentDoubleValue() {
+        if (source == null || sourceExhausted || ! source.currentToken().isNumeric())
+            return Double.valueOf(currentText());
+        try {
+            return source.getDoubleValue();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public int size() {
+        if (source != null) return sourceExhausted ? 0 : 1;
         return buffer.size();
     }
 
     private void add(JsonToken token, String name, String text) {
+        Preconditions.checkState(source == null, "Tokens read directly from a parser cannot be buffered");
         buffer.addLast(new Token(token, name, text));
     }
 
@@ -133,6 +209,22 @@ public class TokenBuffer {
         }
     }
 
+    private String sourceName() {
+        try {
+            return source.getCurrentName();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private String sourceText() {
+        try {
+            return source.getText();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private JsonToken nextValue(JsonParser tokens) {
         try {
             return tokens.nextValue();
@@ -153,6 +245,10 @@ public class TokenBuffer {
     public String dumpContents() {
         StringBuilder b = new StringBuilder();
         b.append("[nesting: ").append(nesting()).append("\n");
+        if (source != null) {
+            b.append("(").append(currentToken()).append(", \"").append(currentName()).append("\", \"").append(currentText()).append("\")\n");
+            return b.append("]\n").toString();
+        }
         for (Token t : buffer) {
             b.append("(").append(t.token).append(", \"").append(t.name).append("\", \"").append(t.text).append("\")\n");
         }
@@ -168,6 +264,7 @@ public class TokenBuffer {
     }
 
     public TokenBuffer prefetchCurrentElement() {
+        Preconditions.checkState(source == null, "Tokens read directly from a parser cannot be prefetched");
         Deque<Token> copy = new ArrayDeque<>();
 
         if (currentToken().isScalarValue()) {
@@ -187,6 +284,7 @@ public class TokenBuffer {
     }
 
     public Token prefetchScalar(String name) {
+        Preconditions.checkState(source == null, "Tokens read directly from a parser cannot be prefetched");
         int localNesting = nesting();
         int nestingBarrier = localNesting;
         Token toReturn = null;
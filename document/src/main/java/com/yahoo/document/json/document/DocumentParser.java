@@ -4,7 +4,11 @@ package com.yahoo.document.json.document;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.yahoo.document.DocumentId;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.json.TokenBuffer;
 import com.yahoo.document.json.readers.DocumentParseInfo;
+import com.yahoo.document.json.readers.VespaJsonDocumentReader;
 
 import java.io.IOException;
 import java.util.Optional;
@@ -27,10 +31,20 @@ public class DocumentParser {
     public static final String FIELDS = "fields";
     public static final String REMOVE = "remove";
     private final JsonParser parser;
+    private final DocumentTypeManager typeManager;
     private  long indentLevel;
 
     public DocumentParser(JsonParser parser) {
+        this(parser, null);
+    }
+
+    /**
+     * Creates a parser which reads the fields of puts directly into documents of the types in the given
+     * manager, instead of buffering them, when the operation and document id come before the fields.
+     */
+    public DocumentParser(JsonParser parser, DocumentTypeManager typeManager) {
         this.parser = parser;
+        this.typeManager = typeManager;
     }
 
     /**
@@ -38,12 +52,25 @@ public class DocumentParser {
      * Returns empty is we have reached the end of the stream.
      */
     public Optional<DocumentParseInfo> parse(Optional<DocumentId> documentIdArg) throws IOException {
-        indentLevel = 0;
         DocumentParseInfo documentParseInfo = new DocumentParseInfo();
         documentIdArg.ifPresent(documentId -> documentParseInfo.documentId = documentId);
+        return parse(documentParseInfo, documentIdArg.isPresent());
+    }
+
+    /** Parses a single document, whose id and operation are given rather than read from the stream */
+    public DocumentParseInfo parse(DocumentId documentId, SupportedOperation operationType) throws IOException {
+        DocumentParseInfo documentParseInfo = new DocumentParseInfo();
+        documentParseInfo.documentId = documentId;
+        documentParseInfo.operationType = operationType;
+        return parse(documentParseInfo, true).get();
+    }
+
+    private Optional<DocumentParseInfo> parse(DocumentParseInfo documentParseInfo,
+                                              boolean docIdAndOperationIsSetExternally) throws IOException {
+        indentLevel = 0;
         boolean foundItems = false;
         do {
-            foundItems |= parseOneItem(documentParseInfo, documentIdArg.isPresent() /* doc id set externally */);
+            foundItems |= parseOneItem(documentParseInfo, docIdAndOperationIsSetExternally);
         } while (indentLevel > 0L);
 
         if (documentParseInfo.documentId == null) {
@@ -126,7 +153,9 @@ public class DocumentParser {
             JsonToken currentToken = parser.getCurrentToken();
             // "fields" opens a dictionary and is therefore on level two which might be surprising.
             if (currentToken == JsonToken.START_OBJECT && FIELDS.equals(parser.getCurrentName())) {
-                documentParseInfo.fieldsBuffer.bufferObject(currentToken, parser);
+                if ( ! readPutFields(documentParseInfo)) {
+                    documentParseInfo.fieldsBuffer.bufferObject(currentToken, parser);
+                }
                 processIndent();
             }
         } catch (IOException e) {
@@ -134,6 +163,28 @@ public class DocumentParser {
         }
     }
 
+    /**
+     * Reads the fields the parser is positioned at directly into a put, if we know the document type already.
+     *
+     * @return whether the fields were read, and need not be buffered
+     */
+    private boolean readPutFields(DocumentParseInfo documentParseInfo) {
+        if (typeManager == null || documentParseInfo.operationType != SupportedOperation.PUT
+            || documentParseInfo.documentId == null) return false;
+        DocumentType documentType = typeManager.getDocumentType(documentParseInfo.documentId.getDocType());
+        if (documentType == null) return false; // Reported when the operation is created
+
+        TokenBuffer fields = new TokenBuffer(parser);
+        try {
+            documentParseInfo.put = new VespaJsonDocumentReader().createPut(documentType, documentParseInfo.documentId, fields);
+        } catch (RuntimeException e) {
+            // Consume the rest of the document before failing, like when the fields are buffered
+            while (fields.next() != null) { }
+            documentParseInfo.putError = e;
+        }
+        return true;
+    }
+
     private static SupportedOperation operationNameToOperationType(String operationName) {
         switch (operationName) {
             case PUT:
@@ -6,7 +6,11 @@ import com.yahoo.document.DataType;
 import com.yahoo.document.DocumentId;
 import com.yahoo.document.PositionDataType;
 import com.yahoo.document.ReferenceDataType;
+import com.yahoo.document.datatypes.DoubleFieldValue;
 import com.yahoo.document.datatypes.FieldValue;
+import com.yahoo.document.datatypes.IntegerFieldValue;
+import com.yahoo.document.datatypes.LongFieldValue;
+import com.yahoo.document.datatypes.StringFieldValue;
 import com.yahoo.document.json.TokenBuffer;
 import com.yahoo.document.update.ValueUpdate;
 import org.apache.commons.codec.binary.Base64;
@@ -42,7 +46,8 @@ public class SingleValueReader {
 
     public static FieldValue readSingleValue(TokenBuffer buffer, DataType expectedType) {
         if (buffer.currentToken().isScalarValue()) {
-            return readAtomic(buffer.currentText(), expectedType);
+            FieldValue number = readNumber(buffer, expectedType);
+            return (number != null) ? number : readAtomic(buffer.currentText(), expectedType);
         } else {
             FieldValue fieldValue = expectedType.createFieldValue();
             CompositeReader.populateComposite(buffer, fieldValue);
@@ -83,8 +88,30 @@ public class SingleValueReader {
         return arithmeticExpressionPattern.matcher(expression.trim());
     }
 
+    /**
+     * Returns the current token as a value of the given numeric type if it can be read without conversion
+     * from text, or null otherwise. The value is the same as that read from the token text.
+     */
+    private static FieldValue readNumber(TokenBuffer buffer, DataType expectedType) {
+        if (expectedType.equals(DataType.DOUBLE) && buffer.currentToken().isNumeric()) {
+            return new DoubleFieldValue(buffer.currentDoubleValue());
+        }
+        if ( ! buffer.currentIsLong()) return null;
+
+        if (expectedType.equals(DataType.LONG)) {
+            return new LongFieldValue(buffer.currentLongValue());
+        }
+        if (expectedType.equals(DataType.INT)) {
+            long value = buffer.currentLongValue();
+            if (value == (int)value) return new IntegerFieldValue((int)value);
+        }
+        return null;
+    }
+
     public static FieldValue readAtomic(String field, DataType expectedType) {
-        if (expectedType.equals(DataType.RAW)) {
+        if (field != null && expectedType.equals(DataType.STRING)) {
+            return new StringFieldValue(field); // the common case, so avoid creating it by reflection
+        } else if (expectedType.equals(DataType.RAW)) {
             return expectedType.createFieldValue(new Base64().decode(field));
         } else if (expectedType.equals(PositionDataType.INSTANCE)) {
             return PositionDataType.fromString(field);
@@ -0,0 +1,94 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.serialization;
+
+import com.yahoo.io.GrowableByteBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A pool of document serializers which keep their buffers between uses. Serializers grow their buffers to fit
+ * the largest document they have written, so serializing many documents with pooled serializers does not
+ * allocate, grow and copy buffers for each document.
+ * <p>
+ * At most a fixed number of serializers with a bounded buffer size are kept, so serializers which have written
+ * very large documents, or are not needed because few threads serialize concurrently, are left to the garbage
+ * collector. This is thread-safe.
+ */
+public class DocumentSerializerPool {
+
+    /** The default maximum total buffer size of a serializer which is kept for reuse */
+    public static final int DEFAULT_MAX_RETAINED_SIZE = 8 * 1024 * 1024;
+
+    private static final int INITIAL_SIZE = 8192;
+
+    private final Supplier<VespaDocumentSerializer42> factory;
+    private final BlockingQueue<VespaDocumentSerializer42> serializers;
+    private final int maxRetainedSize;
+
+    private DocumentSerializerPool(Supplier<VespaDocumentSerializer42> factory, int maxPooled, int maxRetainedSize) {
+        this.factory = factory;
+        this.serializers = new ArrayBlockingQueue<>(maxPooled);
+        this.maxRetainedSize = maxRetainedSize;
+    }
+
+    /** Creates a pool of serializers for the current head document format */
+    public static DocumentSerializerPool createHead() {
+        return createHead(Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_RETAINED_SIZE);
+    }
+
+    /**
+     * Creates a pool of serializers for the current head document format.
+     *
+     * @param maxPooled the maximum number of serializers to keep for reuse
+     * @param maxRetainedSize the maximum total buffer size in bytes of a serializer which is kept for reuse
+     */
+    public static DocumentSerializerPool createHead(int maxPooled, int maxRetainedSize) {
+        return new DocumentSerializerPool(() -> new VespaDocumentSerializerHead(new GrowableByteBuffer(INITIAL_SIZE)),
+                                          maxPooled, maxRetainedSize);
+    }
+
+    /** Creates a pool of serializers for the document format that was created on Vespa 4.2 */
+    @SuppressWarnings("deprecation")
+    public static DocumentSerializerPool create42() {
+        return new DocumentSerializerPool(() -> new VespaDocumentSerializer42(new GrowableByteBuffer(INITIAL_SIZE)),
+                                          Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_RETAINED_SIZE);
+    }
+
+    /**
+     * Serializes using a pooled serializer, and returns the serialized bytes.
+     *
+     * @param writer writes to the serializer it is given, which is positioned at the start of an empty buffer,
+     *               and returns whether it succeeded
+     * @return the bytes written, or null if the writer did not succeed
+     */
+    @SuppressWarnings("deprecation")
+    public byte[] serialize(Predicate<DocumentSerializer> writer) {
+        VespaDocumentSerializer42 serializer = serializers.poll();
+        if (serializer == null) {
+            serializer = factory.get();
+        }
+        // A serializer is not reused if the writer throws, as it may be left in any state
+        boolean success = writer.test(serializer);
+        byte[] serialized = null;
+        if (success) {
+            ByteBuffer buffer = serializer.getBuf().getByteBuffer();
+            serialized = new byte[buffer.position()];
+            buffer.flip();
+            buffer.get(serialized);
+        }
+        release(serializer);
+        return serialized;
+    }
+
+    @SuppressWarnings("deprecation")
+    private void release(VespaDocumentSerializer42 serializer) {
+        if (serializer.bufferCapacity() > maxRetainedSize) return;
+        serializer.reset();
+        serializers.offer(serializer);
+    }
+
+}
@@ -51,10 +51,10 @@ import com.yahoo.vespa.objects.BufferSerializer;
 import com.yahoo.vespa.objects.FieldBase;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
@@ -74,6 +74,9 @@ public class VespaDocumentSerializer42 extends BufferSerializer implements Docum
     private boolean headerOnly;
     private int spanNodeCounter = -1;
     private int[] bytePositions;
+    /** Buffers the fields of structs are serialized into, reused between structs at the same nesting depth */
+    private final List<GrowableByteBuffer> structBuffers = new ArrayList<>();
+    private int structDepth = 0;
 
     VespaDocumentSerializer42(GrowableByteBuffer buf) {
         super(buf);
@@ -92,6 +95,24 @@ public class VespaDocumentSerializer42 extends BufferSerializer implements Docum
         this.headerOnly = headerOnly;
     }
 
+    /** Clears the buffer of this for writing from the start, keeping all buffers for reuse */
+    void reset() {
+        buf.clear();
+        buf.order(ByteOrder.BIG_ENDIAN);
+        spanNodeCounter = -1;
+        bytePositions = null;
+        structDepth = 0;
+    }
+
+    /** Returns the total capacity of the buffers this has allocated */
+    int bufferCapacity() {
+        int capacity = buf.capacity();
+        for (GrowableByteBuffer structBuffer : structBuffers) {
+            capacity += structBuffer.capacity();
+        }
+        return capacity;
+    }
+
     public void write(Document doc) {
         write(new Field(doc.getDataType().getName(), 0, doc.getDataType(), true), doc);
     }
@@ -336,25 +357,30 @@ public class VespaDocumentSerializer42 extends BufferSerializer implements Docum
         //keep the buffer we're serializing everything into:
         GrowableByteBuffer bigBuffer = buf;
 
-        //create a new buffer and serialize into that for a while:
-        GrowableByteBuffer buffer = new GrowableByteBuffer(4096, 2.0f);
+        //serialize into the struct buffer of this nesting depth for a while:
+        GrowableByteBuffer buffer = structBuffer(structDepth++);
         buf = buffer;
 
-        List<Integer> fieldIds = new LinkedList<>();
-        List<java.lang.Integer> fieldLengths = new LinkedList<>();
+        int[] fieldIds = new int[s.getFieldCount()];
+        int[] fieldLengths = new int[s.getFieldCount()];
 
-        for (Map.Entry<Field, FieldValue> value : s.getFields()) {
+        try {
+            int i = 0;
+            for (Map.Entry<Field, FieldValue> value : s.getFields()) {
 
-            int startPos = buffer.position();
-            value.getValue().serialize(value.getKey(), this);
+                int startPos = buffer.position();
+                value.getValue().serialize(value.getKey(), this);
 
-            fieldLengths.add(buffer.position() - startPos);
-            fieldIds.add(value.getKey().getId(s.getVersion()));
+                fieldLengths[i] = buffer.position() - startPos;
+                fieldIds[i] = value.getKey().getId(s.getVersion());
+                i++;
+            }
+        } finally {
+            // Switch buffers again:
+            buf = bigBuffer;
+            structDepth--;
         }
-
-        // Switch buffers again:
         buffer.flip();
-        buf = bigBuffer;
 
         int uncompressedSize = buffer.remaining();
         Compressor.Compression compression =
@@ -372,8 +398,8 @@ public class VespaDocumentSerializer42 extends BufferSerializer implements Docum
         buf.putInt1_4Bytes(s.getFieldCount());
 
         for (int i = 0; i < s.getFieldCount(); ++i) {
-            putInt1_4Bytes(null, fieldIds.get(i));
-            putInt2_4_8Bytes(null, fieldLengths.get(i));
+            putInt1_4Bytes(null, fieldIds[i]);
+            putInt2_4_8Bytes(null, fieldLengths[i]);
         }
 
         int pos = buf.position();
@@ -390,6 +416,16 @@ public class VespaDocumentSerializer42 extends BufferSerializer implements Docum
         buf.position(posNow);
     }
 
+    /** Returns the empty buffer to serialize the fields of structs nested at the given depth into */
+    private GrowableByteBuffer structBuffer(int depth) {
+        if (depth == structBuffers.size()) {
+            structBuffers.add(new GrowableByteBuffer(4096, 2.0f));
+        }
+        GrowableByteBuffer buffer = structBuffers.get(depth);
+        buffer.clear();
+        return buffer;
+    }
+
     /**
      * Write out the value of structured field
      *
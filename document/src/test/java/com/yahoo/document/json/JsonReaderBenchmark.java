@@ -0,0 +1,118 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.yahoo.document.ArrayDataType;
+import com.yahoo.document.DataType;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.Field;
+import com.yahoo.document.TensorDataType;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.text.Utf8;
+
+import java.io.ByteArrayInputStream;
+
+/**
+ * Measures the cost of reading feeds of puts of wide documents, documents with large arrays, and documents
+ * with tensor fields, both when the put comes before the fields, so the fields are read directly into the
+ * document, and when it comes after them, so the fields must be buffered first.
+ * <p>
+ * Run with <code>java -cp [test classpath] com.yahoo.document.json.JsonReaderBenchmark [seconds]</code>.
+ */
+public class JsonReaderBenchmark {
+
+    private static final int DOCUMENTS = 100;
+
+    private static DocumentTypeManager createTypes() {
+        DocumentTypeManager types = new DocumentTypeManager();
+        DocumentType wide = new DocumentType("wide");
+        for (int i = 0; i < 100; i++) {
+            wide.addField(new Field("string" + i, DataType.STRING));
+            wide.addField(new Field("long" + i, DataType.LONG));
+            wide.addField(new Field("double" + i, DataType.DOUBLE));
+        }
+        types.registerDocumentType(wide);
+        DocumentType arrays = new DocumentType("arrays");
+        arrays.addField(new Field("ints", new ArrayDataType(DataType.INT)));
+        arrays.addField(new Field("doubles", new ArrayDataType(DataType.DOUBLE)));
+        arrays.addField(new Field("strings", new ArrayDataType(DataType.STRING)));
+        types.registerDocumentType(arrays);
+        DocumentType tensors = new DocumentType("tensors");
+        tensors.addField(new Field("mapped", new TensorDataType(new TensorType.Builder().mapped("x").build())));
+        tensors.addField(new Field("indexed", new TensorDataType(new TensorType.Builder().indexed("x", 256).build())));
+        types.registerDocumentType(tensors);
+        return types;
+    }
+
+    private static String wideFields() {
+        StringBuilder fields = new StringBuilder("{");
+        for (int i = 0; i < 100; i++) {
+            if (i > 0) fields.append(',');
+            fields.append("\"string").append(i).append("\":\"value of field ").append(i).append("\",")
+                  .append("\"long").append(i).append("\":").append(1234567890123L * i).append(',')
+                  .append("\"double").append(i).append("\":").append(i / 7.0);
+        }
+        return fields.append('}').toString();
+    }
+
+    private static String arrayFields() {
+        StringBuilder ints = new StringBuilder(), doubles = new StringBuilder(), strings = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            String separator = (i > 0) ? "," : "";
+            ints.append(separator).append(i);
+            doubles.append(separator).append(i * 0.37);
+            strings.append(separator).append("\"element ").append(i).append('"');
+        }
+        return "{\"ints\":[" + ints + "],\"doubles\":[" + doubles + "],\"strings\":[" + strings + "]}";
+    }
+
+    private static String tensorFields() {
+        StringBuilder mapped = new StringBuilder(), indexed = new StringBuilder();
+        for (int i = 0; i < 256; i++) {
+            String separator = (i > 0) ? "," : "";
+            mapped.append(separator).append("{\"address\":{\"x\":\"label").append(i).append("\"},\"value\":").append(i * 0.5).append('}');
+            indexed.append(separator).append("{\"address\":{\"x\":\"").append(i).append("\"},\"value\":").append(i * 0.25).append('}');
+        }
+        return "{\"mapped\":{\"cells\":[" + mapped + "]},\"indexed\":{\"cells\":[" + indexed + "]}}";
+    }
+
+    /** Returns a feed of puts of documents of the given type, with the given fields before or after the put */
+    private static byte[] feed(String type, String fields, boolean putFirst) {
+        StringBuilder feed = new StringBuilder("[");
+        for (int i = 0; i < DOCUMENTS; i++) {
+            if (i > 0) feed.append(",\n");
+            String put = "\"put\":\"id:test:" + type + "::" + i + "\"";
+            String fieldsObject = "\"fields\":" + fields;
+            feed.append('{').append(putFirst ? put + "," + fieldsObject : fieldsObject + "," + put).append('}');
+        }
+        return Utf8.toBytes(feed.append(']').toString());
+    }
+
+    private static void run(String name, DocumentTypeManager types, JsonFactory factory, byte[] feed, long millis) {
+        long documents = 0;
+        long startNanos = System.nanoTime();
+        for (long end = System.currentTimeMillis() + millis; System.currentTimeMillis() < end; ) {
+            JsonReader reader = new JsonReader(types, new ByteArrayInputStream(feed), factory);
+            while (reader.next() != null) {
+                documents++;
+            }
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        System.out.println(String.format("%s: %.1f us per document", name, elapsedNanos / 1000.0 / documents));
+    }
+
+    public static void main(String[] args) {
+        long millis = (args.length > 0) ? Long.parseLong(args[0]) * 1000 : 5000;
+        DocumentTypeManager types = createTypes();
+        JsonFactory factory = new JsonFactory();
+        String[][] documents = { { "wide", wideFields() }, { "arrays", arrayFields() }, { "tensors", tensorFields() } };
+        for (int i = 0; i < 2; ++i) { // the first round is warmup
+            for (String[] document : documents) {
+                run(document[0] + ", put first", types, factory, feed(document[0], document[1], true), millis);
+                run(document[0] + ", fields first", types, factory, feed(document[0], document[1], false), millis);
+            }
+        }
+    }
+
+}
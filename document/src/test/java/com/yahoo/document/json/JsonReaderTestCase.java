@@ -182,6 +182,29 @@ public class JsonReaderTestCase {
         smokeTestDoc(put.getDocument());
     }
 
+    @Test
+    public final void putsReadDirectlyEqualPutsReadFromBuffer() {
+        String[][] puts = {
+                { "id:unittest:smoke::0", "{ 'something': 'smoketest', 'int1': -17 }" },
+                { "id:unittest:testint::0", "{ 'integerfield': '42' }" },
+                { "id:unittest:testarray::0", "{ 'actualarray': [ 'a', 'b', 'c' ] }" },
+                { "id:unittest:testset::0", "{ 'actualset': { 'a': 1, 'b': 2 } }" },
+                { "id:unittest:testmap::0", "{ 'actualmap': { 'a': 'x', 'b': 'y' } }" },
+                { "id:unittest:testMapStringToArrayOfInt::0", "{ 'actualMapStringToArrayOfInt': { 'a': [ 1, 2, 3 ] } }" },
+                { "id:unittest:mirrors::0", "{ 'skuggsjaa': { 'sandra': 'person', 'cloud': 'another person' } }" },
+                { "id:unittest:testsinglepos::0", "{ 'singlepos': 'N63.429722;E10.393333' }" },
+                { TENSOR_DOC_ID, "{ 'mappedtensorfield': { 'cells': [ { 'address': { 'x': 'a', 'y': 'b' }, 'value': 2.5 }, " +
+                                 "{ 'value': -3, 'address': { 'x': 'c', 'y': 'b' } } ] } }" }
+        };
+        for (String[] put : puts) {
+            String direct = inputJson("[ { 'put': '" + put[0] + "', 'fields': " + put[1] + " } ]");
+            String buffered = inputJson("[ { 'fields': " + put[1] + ", 'put': '" + put[0] + "' } ]");
+            DocumentPut directPut = (DocumentPut) new JsonReader(types, jsonToInputStream(direct), parserFactory).next();
+            DocumentPut bufferedPut = (DocumentPut) new JsonReader(types, jsonToInputStream(buffered), parserFactory).next();
+            assertEquals(put[0], bufferedPut.getDocument(), directPut.getDocument());
+        }
+    }
+
     @Test
     public final void readSingleDocumentUpdate() {
         InputStream rawDoc = new ByteArrayInputStream(
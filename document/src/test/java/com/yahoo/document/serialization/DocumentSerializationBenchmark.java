@@ -0,0 +1,113 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.serialization;
+
+import com.yahoo.document.ArrayDataType;
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.Field;
+import com.yahoo.document.StructDataType;
+import com.yahoo.document.datatypes.Array;
+import com.yahoo.document.datatypes.DoubleFieldValue;
+import com.yahoo.document.datatypes.LongFieldValue;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.document.datatypes.Struct;
+import com.yahoo.io.GrowableByteBuffer;
+
+import java.util.function.Consumer;
+
+/**
+ * Measures the cost of serializing small, wide and large documents into byte arrays the way messages are
+ * encoded, with a new serializer for each document and with serializers from a {@link DocumentSerializerPool}.
+ * <p>
+ * Run with <code>java -cp [test classpath] com.yahoo.document.serialization.DocumentSerializationBenchmark [seconds]</code>.
+ */
+public class DocumentSerializationBenchmark {
+
+    private static final DocumentType type = new DocumentType("benchmark");
+    private static final StructDataType structType = new StructDataType("item");
+
+    static {
+        structType.addField(new Field("name", DataType.STRING));
+        structType.addField(new Field("price", DataType.DOUBLE));
+        for (int i = 0; i < 100; i++) {
+            type.addField(new Field("string" + i, DataType.STRING));
+            type.addField(new Field("long" + i, DataType.LONG));
+        }
+        type.addField(new Field("body", DataType.STRING, false));
+        type.addField(new Field("items", new ArrayDataType(structType), false));
+    }
+
+    private static Document small() {
+        Document doc = new Document(type, "id:test:benchmark::small");
+        doc.setFieldValue("string0", new StringFieldValue("a short title"));
+        doc.setFieldValue("long0", new LongFieldValue(1234567890L));
+        doc.setFieldValue("body", new StringFieldValue("a short body of a few words"));
+        return doc;
+    }
+
+    private static Document wide() {
+        Document doc = new Document(type, "id:test:benchmark::wide");
+        for (int i = 0; i < 100; i++) {
+            doc.setFieldValue("string" + i, new StringFieldValue("value of field " + i));
+            doc.setFieldValue("long" + i, new LongFieldValue(1234567890123L * i));
+        }
+        return doc;
+    }
+
+    private static Document large() {
+        Document doc = new Document(type, "id:test:benchmark::large");
+        StringBuilder body = new StringBuilder();
+        while (body.length() < 1000000) {
+            body.append("the body of a large document, ");
+        }
+        doc.setFieldValue("body", new StringFieldValue(body.toString()));
+        Array<Struct> items = new Array<>(type.getField("items").getDataType());
+        for (int i = 0; i < 10000; i++) {
+            Struct item = new Struct(structType);
+            item.setFieldValue("name", new StringFieldValue("item " + i));
+            item.setFieldValue("price", new DoubleFieldValue(i * 0.99));
+            items.add(item);
+        }
+        doc.setFieldValue("items", items);
+        return doc;
+    }
+
+    /** Serializes as messages were encoded before serializers were pooled */
+    private static byte[] serializeUnpooled(Document doc) {
+        DocumentSerializer serializer = DocumentSerializerFactory.createHead(new GrowableByteBuffer(8192));
+        serializer.write(doc);
+        byte[] serialized = new byte[serializer.getBuf().position()];
+        serializer.getBuf().rewind();
+        serializer.getBuf().get(serialized);
+        return serialized;
+    }
+
+    private static void run(String name, Document doc, long millis, Consumer<Document> serialization) {
+        long documents = 0;
+        long startNanos = System.nanoTime();
+        for (long end = System.currentTimeMillis() + millis; System.currentTimeMillis() < end; ) {
+            for (int i = 0; i < 10; i++) {
+                serialization.accept(doc);
+            }
+            documents += 10;
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        System.out.println(String.format("%s: %.2f us per document", name, elapsedNanos / 1000.0 / documents));
+    }
+
+    public static void main(String[] args) {
+        long millis = (args.length > 0) ? Long.parseLong(args[0]) * 1000 : 5000;
+        DocumentSerializerPool pool = DocumentSerializerPool.createHead();
+        Document[] documents = { small(), wide(), large() };
+        String[] names = { "small", "wide", "large" };
+        for (int i = 0; i < 2; ++i) { // the first round is warmup
+            for (int j = 0; j < documents.length; j++) {
+                run(names[j] + ", new serializer", documents[j], millis, DocumentSerializationBenchmark::serializeUnpooled);
+                run(names[j] + ", pooled serializer", documents[j], millis,
+                    doc -> pool.serialize(serializer -> { serializer.write(doc); return true; }));
+            }
+        }
+    }
+
+}
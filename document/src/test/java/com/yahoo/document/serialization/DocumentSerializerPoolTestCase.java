@@ -0,0 +1,97 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.serialization;
+
+import com.yahoo.document.ArrayDataType;
+import com.yahoo.document.DataType;
+import com.yahoo.document.Document;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.Field;
+import com.yahoo.document.StructDataType;
+import com.yahoo.document.datatypes.Array;
+import com.yahoo.document.datatypes.StringFieldValue;
+import com.yahoo.document.datatypes.Struct;
+import com.yahoo.io.GrowableByteBuffer;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class DocumentSerializerPoolTestCase {
+
+    private final DocumentType type;
+    private final StructDataType structType;
+    private final DocumentTypeManager manager = new DocumentTypeManager();
+
+    public DocumentSerializerPoolTestCase() {
+        structType = new StructDataType("nested");
+        structType.addField(new Field("str", DataType.STRING));
+        structType.addField(new Field("strings", new ArrayDataType(DataType.STRING)));
+        type = new DocumentType("pooled");
+        type.addField(new Field("header", DataType.STRING, true));
+        type.addField(new Field("body", DataType.STRING, false));
+        type.addField(new Field("structs", new ArrayDataType(structType)));
+        manager.registerDocumentType(type);
+    }
+
+    private Document createDocument(int id, int size) {
+        Document doc = new Document(type, "id:test:pooled::" + id);
+        doc.setFieldValue("header", new StringFieldValue("header " + id));
+        char[] body = new char[size];
+        Arrays.fill(body, 'x');
+        doc.setFieldValue("body", new StringFieldValue(new String(body)));
+        Array<Struct> structs = new Array<>(type.getField("structs").getDataType());
+        for (int i = 0; i < size / 1000; i++) {
+            Struct struct = new Struct(structType);
+            struct.setFieldValue("str", new StringFieldValue("struct " + i));
+            Array<StringFieldValue> strings = new Array<>(structType.getField("strings").getDataType());
+            for (int j = 0; j < i % 10; j++) {
+                strings.add(new StringFieldValue("string " + j));
+            }
+            struct.setFieldValue("strings", strings);
+            structs.add(struct);
+        }
+        doc.setFieldValue("structs", structs);
+        return doc;
+    }
+
+    private static byte[] serializeUnpooled(Document doc) {
+        GrowableByteBuffer buffer = new GrowableByteBuffer();
+        doc.serialize(buffer);
+        byte[] serialized = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(serialized);
+        return serialized;
+    }
+
+    @Test
+    public void pooled_serializers_write_the_same_as_new_serializers() {
+        DocumentSerializerPool pool = DocumentSerializerPool.createHead(1, 1024 * 1024);
+        int[] sizes = { 10, 100000, 10, 3000, 500000, 1 };
+        for (int i = 0; i < sizes.length; i++) {
+            Document doc = createDocument(i, sizes[i]);
+            byte[] serialized = pool.serialize(serializer -> { serializer.write(doc); return true; });
+            assertArrayEquals(serializeUnpooled(doc), serialized);
+            assertEquals(doc, manager.createDocument(GrowableByteBuffer.wrap(serialized)));
+        }
+    }
+
+    @Test
+    public void serializers_are_reusable_after_failures() {
+        DocumentSerializerPool pool = DocumentSerializerPool.createHead(1, 1024 * 1024);
+        Document doc = createDocument(0, 5000);
+        assertNull(pool.serialize(serializer -> { serializer.write(doc); return false; }));
+        try {
+            pool.serialize(serializer -> { serializer.write(doc); throw new IllegalStateException("failed"); });
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            assertEquals("failed", e.getMessage());
+        }
+        assertArrayEquals(serializeUnpooled(doc), pool.serialize(serializer -> { serializer.write(doc); return true; }));
+    }
+
+}
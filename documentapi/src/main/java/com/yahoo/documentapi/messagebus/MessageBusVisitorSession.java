@@ -568,8 +568,8 @@ public class MessageBusVisitorSession implements VisitorSession {
     }
 
     private class SendCreateVisitorsTask implements Runnable {
-        // All private methods in this task must be protected by a lock around
-        // the progress token!
+        // All private methods in this task, except sendVisitor, must be protected
+        // by a lock around the progress token!
 
         private final long messageTimeoutMs;
 
@@ -614,41 +614,101 @@ public class MessageBusVisitorSession implements VisitorSession {
             return msg;
         }
 
-        public void run() {
-            // Must sync around token as legacy API exposes it to handlers
-            // and they expect to be able to sync around it.
-            synchronized (progress.getToken()) {
-                try {
+        /**
+         * Takes the next bucket the iterator lets out, if any, and creates a visitor for it. The
+         * bucket is counted as pending until it is either sent or given back to the iterator.
+         */
+        private CreateVisitorMessage takeVisitorToSend() {
+            if ( ! progress.getIterator().hasNext()) return null;
+            CreateVisitorMessage visitor = createMessage(progress.getIterator().getNext());
+            ++pendingMessageCount;
+            return visitor;
+        }
+
+        /** Gives the bucket of the given visitor, which was not sent, back to the iterator without progress */
+        private void returnUnsentVisitor(CreateVisitorMessage unsent) {
+            progress.getIterator().update(unsent.getBuckets().get(0), unsent.getBuckets().get(1));
+            --pendingMessageCount;
+        }
+
+        /** Sends the given visitor without holding the token lock, and returns whether it was accepted */
+        private boolean sendVisitor(CreateVisitorMessage msg) {
+            Result result = sender.send(msg);
+            if (result.isAccepted()) {
+                log.log(LogLevel.DEBUG, sessionName + ": sent CreateVisitor for bucket " +
+                        msg.getBuckets().get(0) + " with progress " + msg.getBuckets().get(1));
+            }
+            return result.isAccepted();
+        }
+
+        /**
+         * Handles the outcome of sending the given visitor, and returns the next one to send, or null
+         * if there is none. Must be called while holding the token lock.
+         */
+        private CreateVisitorMessage visitorSent(CreateVisitorMessage visitor, boolean accepted) {
+            if ( ! accepted) {
+                // Must reinsert bucket without progress into iterator since
+                // we failed to send its visitor.
+                returnUnsentVisitor(visitor);
+                if (pendingMessageCount == 0 && ! visitingCompleted()) {
+                    // All replies were handled while sending, so none of them will schedule a retry
                     scheduledSendCreateVisitors = false;
-                    while (progress.getIterator().hasNext()) {
-                        VisitorIterator.BucketProgress bucket = progress.getIterator().getNext();
-                        Result result = sender.send(createMessage(bucket));
-                        if (result.isAccepted()) {
-                            log.log(LogLevel.DEBUG, sessionName + ": sent CreateVisitor for bucket " +
-                                    bucket.getSuperbucket() + " with progress " + bucket.getProgress());
-                            ++pendingMessageCount;
-                        } else {
-                            // Must reinsert bucket without progress into iterator since
-                            // we failed to send visitor.
-                            progress.getIterator().update(bucket.getSuperbucket(), bucket.getProgress());
-                            break;
-                        }
+                    scheduleSendCreateVisitorsIfApplicable(100, TimeUnit.MILLISECONDS);
+                    return null;
+                }
+            } else if ( ! (state.failed() || enoughHitsReceived())) {
+                CreateVisitorMessage next = takeVisitorToSend();
+                if (next != null) return next;
+            }
+            scheduledSendCreateVisitors = false;
+            if (visitingCompleted() && ! done) {
+                markSessionCompleted();
+            }
+            return null;
+        }
+
+        public void run() {
+            // Buckets are selected and visitors created while holding the token lock, as the legacy
+            // API exposes it to handlers and they expect to be able to sync around it. Each visitor
+            // is sent without holding it, so replies may be handled meanwhile, and the buckets they
+            // free are sent by this task rather than by a new one. As before, no more visitors are
+            // created once a send is rejected.
+            CreateVisitorMessage visitor = null;
+            try {
+                synchronized (progress.getToken()) {
+                    visitor = takeVisitorToSend();
+                    scheduledSendCreateVisitors = (visitor != null);
+                }
+                while (visitor != null) {
+                    boolean accepted = sendVisitor(visitor);
+                    synchronized (progress.getToken()) {
+                        CreateVisitorMessage sent = visitor;
+                        visitor = null; // the outcome of this is handled now
+                        visitor = visitorSent(sent, accepted);
                     }
-                } catch (Exception e) {
-                    String msg = "Got exception of type " + e.getClass().getName() +
-                            " with message '" + e.getMessage() +
-                            "' while attempting to send visitors";
-                    log.log(LogLevel.WARNING, msg);
+                }
+            } catch (Exception e) {
+                String msg = "Got exception of type " + e.getClass().getName() +
+                        " with message '" + e.getMessage() +
+                        "' while attempting to send visitors";
+                log.log(LogLevel.WARNING, msg);
+                synchronized (progress.getToken()) {
+                    if (visitor != null) {
+                        returnUnsentVisitor(visitor);
+                    }
+                    scheduledSendCreateVisitors = false;
                     transitionTo(new StateDescription(State.FAILED, msg));
                     // It's likely that the exception caused a failure to send a
                     // visitor message, meaning we won't get a reply task in the
                     // future from which we can execute logic to complete the
                     // session. Thusly, we have to do this here and now.
-                    continueVisiting();
-                } catch (Throwable t) {
-                    // We can't reliably handle this; take a nosedive
-                    com.yahoo.protect.Process.logAndDie("Caught unhandled error when trying to send visitors", t);
+                    if ( ! done) {
+                        continueVisiting();
+                    }
                 }
+            } catch (Throwable t) {
+                // We can't reliably handle this; take a nosedive
+                com.yahoo.protect.Process.logAndDie("Caught unhandled error when trying to send visitors", t);
             }
         }
     }
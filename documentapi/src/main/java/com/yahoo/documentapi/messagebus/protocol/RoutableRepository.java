@@ -28,6 +28,8 @@ final class RoutableRepository {
     private static final Logger log = Logger.getLogger(RoutableRepository.class.getName());
     private final CopyOnWriteHashMap<Integer, VersionMap> factoryTypes = new CopyOnWriteHashMap<>();
     private final CopyOnWriteHashMap<CacheKey, RoutableFactory> cache = new CopyOnWriteHashMap<>();
+    private final DocumentSerializerPool headSerializers = DocumentSerializerPool.createHead();
+    private final DocumentSerializerPool serializers42 = DocumentSerializerPool.create42();
     private LoadTypeSet loadTypes;
 
     public RoutableRepository(LoadTypeSet set) {
@@ -92,23 +94,16 @@ final class RoutableRepository {
                                     " (version " + version + ").");
             return new byte[0];
         }
-        DocumentSerializer out;
-
-        if (version.getMajor() >= 5) {
-            out = DocumentSerializerFactory.createHead(new GrowableByteBuffer(8192));
-        } else {
-            out = DocumentSerializerFactory.create42(new GrowableByteBuffer(8192));
-        }
-
-        out.putInt(null, type);
-        if (!factory.encode(obj, out)) {
+        DocumentSerializerPool serializers = (version.getMajor() >= 5) ? headSerializers : serializers42;
+        byte[] ret = serializers.serialize(out -> {
+            out.putInt(null, type);
+            return factory.encode(obj, out);
+        });
+        if (ret == null) {
             log.log(LogLevel.ERROR, "Routable factory " + factory.getClass().getName() + " failed to serialize " +
                                     "routable of type " + type + " (version " + version + ").");
             return new byte[0];
         }
-        byte[] ret = new byte[out.getBuf().position()];
-        out.getBuf().rewind();
-        out.getBuf().get(ret);
         return ret;
     }
 
@@ -13,6 +13,7 @@ import com.yahoo.messagebus.Error;
 import com.yahoo.messagebus.metrics.MetricSet;
 import com.yahoo.messagebus.routing.*;
 import com.yahoo.vdslib.distribution.Distribution;
+import com.yahoo.vdslib.distribution.IdealStateCache;
 import com.yahoo.vdslib.state.ClusterState;
 import com.yahoo.vdslib.state.Node;
 import com.yahoo.vdslib.state.NodeType;
@@ -271,6 +272,9 @@ public class StoragePolicy extends ExternalSlobrokPolicy {
 
     /** Class handling the logic of picking a distributor */
     public static class DistributorSelectionLogic {
+        /** The number of buckets to cache the ideal distributor of, enough for all buckets of 16 distribution bits */
+        private static final int IDEAL_STATE_CACHE_SIZE = 1 << 16;
+
         /** Class that tracks a failure of a given type per node. */
         public static class InstabilityChecker {
             private List<Integer> nodeFailures = new ArrayList<>();
@@ -305,10 +309,23 @@ public class StoragePolicy extends ExternalSlobrokPolicy {
             }
         }
 
+        /** A cluster state and the string it was parsed from */
+        private static class ParsedClusterState {
+            final String serialized;
+            final ClusterState state;
+
+            ParsedClusterState(String serialized, ClusterState state) {
+                this.serialized = serialized;
+                this.state = state;
+            }
+        }
+
         private final HostFetcher hostFetcher;
         private final Distribution distribution;
+        private final IdealStateCache idealStateCache;
         private final InstabilityChecker persistentFailureChecker;
         private ClusterState cachedClusterState = null;
+        private volatile ParsedClusterState lastParsedClusterState = null;
         private int oldClusterVersionGottenCount = 0;
         private final int maxOldClusterVersionBeforeSendingRandom; // Reset cluster version protection
 
@@ -316,6 +333,7 @@ public class StoragePolicy extends ExternalSlobrokPolicy {
             this.hostFetcher = params.createHostFetcher(policy);
             this.hostFetcher.setRequiredUpPercentageToSendToKnownGoodNodes(params.getRequiredUpPercentageToSendToKnownGoodNodes());
             this.distribution = params.createDistribution(policy);
+            this.idealStateCache = new IdealStateCache(distribution, IDEAL_STATE_CACHE_SIZE);
             persistentFailureChecker = new InstabilityChecker(params.getAttemptRandomOnFailuresLimit());
             maxOldClusterVersionBeforeSendingRandom = params.maxOldClusterStatesSeenBeforeThrowingCachedState();
         }
@@ -331,7 +349,7 @@ public class StoragePolicy extends ExternalSlobrokPolicy {
             context.setContext(messageContext);
             if (cachedClusterState != null) { // If we have a cached cluster state (regular case), we use that to calculate correct node.
                 try{
-                    Integer target = distribution.getIdealDistributorNode(cachedClusterState, bucketId, owningBucketStates);
+                    Integer target = idealStateCache.getIdealDistributorNode(cachedClusterState, bucketId, owningBucketStates);
                     // If we have had too many failures towards existing node, reset failure count and send to random
                     if (persistentFailureChecker.tooManyFailures(target)) {
                         sendRandomReason = "Too many failures detected versus distributor " + target + ". Sending to random instead of using cached state.";
@@ -373,9 +391,17 @@ public class StoragePolicy extends ExternalSlobrokPolicy {
             return hostFetcher.getRandomTargetSpec(context);
         }
 
-        private static Optional<ClusterState> clusterStateFromReply(final WrongDistributionReply reply) {
+        private Optional<ClusterState> clusterStateFromReply(final WrongDistributionReply reply) {
+            // Many replies carry the same state, so reuse the last one parsed. This also keeps the
+            // cached state instance, and thereby the ideal states computed for it, when it is unchanged.
+            ParsedClusterState lastParsed = lastParsedClusterState;
+            if (lastParsed != null && lastParsed.serialized.equals(reply.getSystemState())) {
+                return Optional.of(lastParsed.state);
+            }
             try {
-                return Optional.of(new ClusterState(reply.getSystemState()));
+                ClusterState state = new ClusterState(reply.getSystemState());
+                lastParsedClusterState = new ParsedClusterState(reply.getSystemState(), state);
+                return Optional.of(state);
             } catch (Exception e) {
                 reply.getTrace().trace(1, "Error when parsing system state string " + reply.getSystemState());
                 return Optional.empty();
@@ -912,6 +912,51 @@ public class MessageBusVisitorSessionTestCase {
         // .... and 65533 more
     }
 
+    /**
+     * Test that a send task creates visitors one at a time, and stops as soon as the sender
+     * rejects one, rather than creating visitors for all the buckets which may be visited.
+     */
+    @Test
+    public void testVisitorsAreOnlyCreatedUntilSendIsRejected() {
+        MockSender sender = new MockSender();
+        MockReceiver receiver = new MockReceiver();
+        sender.setMaxPending(2);
+        MockAsyncTaskExecutor executor = new MockAsyncTaskExecutor();
+        VisitorParameters params = createVisitorParameters("");
+        MessageBusVisitorSession visitorSession = createVisitorSession(
+                sender, receiver, executor, params);
+
+        visitorSession.start();
+        executor.expectAndProcessTasks(1);
+        assertEquals(2, sender.getMessageCount());
+        replyWrongDistributionToCreateVisitor(sender, "version:2 storage:100 distributor:100 bits:16");
+        executor.expectAndProcessTasks(1); // WDR reply
+        replyWrongDistributionToCreateVisitor(sender, "version:2 storage:100 distributor:100 bits:16");
+        executor.expectAndProcessTasks(1); // WDR reply
+
+        // There are now 65536 buckets to visit, but only 2 visitors are accepted, and
+        // only the first rejected one is created before the task stops
+        executor.expectAndProcessTasks(1);
+        assertEquals(2, sender.getMessageCount());
+        CreateVisitorMessage first = (CreateVisitorMessage)sender.getAndRemoveMessage(0);
+        CreateVisitorMessage second = (CreateVisitorMessage)sender.getAndRemoveMessage(0);
+        assertEquals(visitorNumber(first) + 1, visitorNumber(second));
+
+        CreateVisitorReply reply = createReply(first);
+        reply.setLastBucket(ProgressToken.FINISHED_BUCKET);
+        sender.reply(reply);
+        executor.expectAndProcessTasks(1); // Reply
+        executor.expectAndProcessTasks(1); // New visitor
+        assertEquals(1, sender.getMessageCount());
+        CreateVisitorMessage third = (CreateVisitorMessage)sender.getAndRemoveMessage(0);
+        assertEquals(visitorNumber(second) + 2, visitorNumber(third)); // one was created and rejected before
+    }
+
+    private static long visitorNumber(CreateVisitorMessage msg) {
+        String instanceId = msg.getInstanceId();
+        return Long.parseLong(instanceId.substring(instanceId.lastIndexOf('-') + 1));
+    }
+
     private class MockControlHandler extends VisitorControlHandler {
         private StringBuilder builder = new StringBuilder();
         private RuntimeException exceptionOnProgress = null;
@@ -117,6 +117,9 @@ public class JettyHttpServer extends AbstractServerProvider {
 
         String URI_LENGTH = "jdisc.http.request.uri_length";
         String CONTENT_SIZE = "jdisc.http.request.content_size";
+
+        String ACCESS_LOG_DROPPED_LINES = "jdisc.http.access_log.dropped_lines";
+        String ACCESS_LOG_QUEUE_DEPTH = "jdisc.http.access_log.queue_depth";
     }
 
     private final static Logger log = Logger.getLogger(JettyHttpServer.class.getName());
@@ -124,6 +127,7 @@ public class JettyHttpServer extends AbstractServerProvider {
     private final ExecutorService janitor;
     private final ScheduledExecutorService metricReporterExecutor;
     private final Metric metric;
+    private final AccessLog accessLog;
     private final Server server;
     private final List<Integer> listenedPorts = new ArrayList<>();
 
@@ -144,6 +148,7 @@ public class JettyHttpServer extends AbstractServerProvider {
         if (connectorFactories.allComponents().isEmpty())
             throw new IllegalArgumentException("No connectors configured.");
         this.metric = metric;
+        this.accessLog = accessLog;
 
         initializeJettyLogging();
 
@@ -346,6 +351,8 @@ public class JettyHttpServer extends AbstractServerProvider {
             for (Connector connector : server.getConnectors()) {
                 setConnectorMetrics((JDiscServerConnector)connector);
             }
+
+            setAccessLogMetrics();
         }
 
     }
@@ -369,6 +376,11 @@ public class JettyHttpServer extends AbstractServerProvider {
         });
     }
 
+    private void setAccessLogMetrics() {
+        metric.add(Metrics.ACCESS_LOG_DROPPED_LINES, accessLog.takeDroppedLines(), null);
+        metric.set(Metrics.ACCESS_LOG_QUEUE_DEPTH, accessLog.queuedLines(), null);
+    }
+
     private void setConnectorMetrics(JDiscServerConnector connector) {
         ServerConnectionStatistics statistics = connector.getStatistics();
         metric.set(Metrics.NUM_CONNECTIONS, statistics.getConnectionsTotal(), connector.getConnectorMetricContext());
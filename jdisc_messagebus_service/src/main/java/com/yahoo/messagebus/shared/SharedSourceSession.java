@@ -11,6 +11,7 @@ import com.yahoo.messagebus.Result;
 import com.yahoo.messagebus.SourceSession;
 import com.yahoo.messagebus.SourceSessionParams;
 
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 /**
@@ -45,6 +46,11 @@ public class SharedSourceSession extends AbstractResource implements ClientSessi
         return session.sendBlocking(msg);
     }
 
+    /** Sends the given message as soon as there is room for it, without blocking. See {@link SourceSession#sendWhenReady} */
+    public boolean sendMessageWhenReady(Message msg, Consumer<Result> resultHandler) {
+        return session.sendWhenReady(msg, resultHandler);
+    }
+
     @Override
     public void handleReply(Reply reply) {
         reply.popHandler().handleReply(reply);
@@ -9,6 +9,10 @@ class Buffer {
 
     static final int MAX_IO = 65000;
 
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0).asReadOnlyBuffer();
+
+    private final BufferPool pool;
+    private final int        initialSize;
     private ByteBuffer buf;
     private int        readPos;
     private int        writePos;
@@ -54,35 +58,95 @@ class Buffer {
             if (buf.capacity() + free < minFree) {
                 size = buf.capacity() + minFree;
             }
-            ByteBuffer tmp = ByteBuffer.allocate(size);
+            ByteBuffer tmp = allocate(size);
             tmp.order(buf.order());
             buf.position(readPos);
             buf.limit(writePos);
             tmp.put(buf);
+            free(buf);
             buf = tmp;
             readPos = 0;
         }
     }
 
+    private ByteBuffer allocate(int size) {
+        return (pool == null) ? ByteBuffer.allocate(size) : pool.acquire(size);
+    }
+
+    private void free(ByteBuffer old) {
+        if (pool != null) {
+            pool.release(old);
+        }
+    }
+
     public Buffer(int size) {
-        buf = ByteBuffer.allocate(size);
+        this(null, size);
+    }
+
+    /**
+     * Create a buffer backed by buffers from the given pool. The
+     * underlying buffer is not obtained from the pool until something
+     * is written to this, and may be given back to the pool when this
+     * is empty by calling {@link #releaseIfEmpty}.
+     *
+     * @param pool the pool to obtain buffers from, or null to allocate heap buffers
+     * @param size the initial size of this buffer
+     **/
+    public Buffer(BufferPool pool, int size) {
+        this.pool = pool;
+        this.initialSize = size;
+        buf = (pool == null) ? ByteBuffer.allocate(size) : null;
+        readPos = 0;
+        writePos = 0;
+        readMode = false;
+    }
+
+    /**
+     * Give the underlying buffer back to the pool if this buffer is
+     * pooled and currently holds no data. A new buffer is obtained
+     * the next time this is written to.
+     *
+     * @return whether the underlying buffer was released
+     **/
+    public boolean releaseIfEmpty() {
+        if (pool == null || buf == null || bytes() > 0) {
+            return false;
+        }
+        release();
+        return true;
+    }
+
+    /**
+     * Discard any data in this buffer and give the underlying buffer
+     * back to the pool if this buffer is pooled.
+     **/
+    public void release() {
+        if (pool == null || buf == null) {
+            return;
+        }
+        pool.release(buf);
+        buf = null;
         readPos = 0;
         writePos = 0;
         readMode = false;
     }
 
     public boolean shrink(int size) {
+        if (buf == null) {
+            return false;
+        }
         int rpos = readMode? buf.position() : readPos;
         int wpos = readMode? writePos : buf.position();
         int used = wpos - rpos;
         if (used > size || buf.capacity() <= size) {
             return false;
         }
-        ByteBuffer tmp = ByteBuffer.allocate(size);
+        ByteBuffer tmp = allocate(size);
         tmp.order(buf.order());
         buf.position(rpos);
         buf.limit(wpos);
         tmp.put(buf);
+        free(buf);
         buf = tmp;
         readPos = 0;
         writePos = used;
@@ -92,17 +156,26 @@ class Buffer {
     }
 
     public int bytes() {
+        if (buf == null) {
+            return 0;
+        }
         return (readMode)
             ? (writePos - buf.position())
             : (buf.position() - readPos);
     }
 
     public ByteBuffer getReadable() {
+        if (buf == null) {
+            return EMPTY;
+        }
         setReadMode();
         return buf;
     }
 
     public ByteBuffer getWritable(int minFree) {
+        if (buf == null) {
+            buf = pool.acquire(Math.max(initialSize, minFree));
+        }
         setWriteMode();
         ensureFree(minFree);
         return buf;
@@ -0,0 +1,127 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * A pool of direct byte buffers shared by the connections of a
+ * {@link Transport}. Buffers are handed out in power of two size
+ * classes, and each size class keeps free buffers up to a bounded
+ * number of bytes. Requests for buffers larger than the largest size class
+ * are served by unpooled heap buffers. The pool is thread-safe.
+ **/
+class BufferPool {
+
+    static final int MIN_SIZE  = 4096;
+    static final int MAX_SIZE  = 1024 * 1024;
+
+    private static class SizeClass {
+        final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+        final AtomicInteger freeCount = new AtomicInteger(0);
+        final int maxFree;
+        SizeClass(int maxFree) { this.maxFree = maxFree; }
+    }
+
+    private final SizeClass[] sizeClasses;
+    private final AtomicLong allocated = new AtomicLong(0);
+    private final AtomicLong reused = new AtomicLong(0);
+
+    /**
+     * Create a new buffer pool.
+     *
+     * @param maxFreeBytesPerClass the maximum number of bytes kept in
+     *                             free buffers of each size class
+     **/
+    BufferPool(int maxFreeBytesPerClass) {
+        sizeClasses = new SizeClass[sizeClassOf(MAX_SIZE) + 1];
+        for (int i = 0; i < sizeClasses.length; i++) {
+            sizeClasses[i] = new SizeClass(Math.max(1, maxFreeBytesPerClass / sizeOf(i)));
+        }
+    }
+
+    private static int sizeClassOf(int size) {
+        if (size <= MIN_SIZE) {
+            return 0;
+        }
+        return (32 - Integer.numberOfLeadingZeros(size - 1)) - (32 - Integer.numberOfLeadingZeros(MIN_SIZE - 1));
+    }
+
+    private static int sizeOf(int sizeClass) {
+        return MIN_SIZE << sizeClass;
+    }
+
+    /**
+     * Obtain a cleared buffer with at least the given capacity. The
+     * buffer should be given back using {@link #release} when it is
+     * no longer used.
+     *
+     * @return a buffer with at least the given capacity
+     * @param minSize the minimum capacity of the buffer
+     **/
+    ByteBuffer acquire(int minSize) {
+        if (minSize > MAX_SIZE) {
+            allocated.incrementAndGet();
+            return ByteBuffer.allocate(minSize);
+        }
+        int sizeClass = sizeClassOf(minSize);
+        SizeClass pool = sizeClasses[sizeClass];
+        ByteBuffer buf = pool.free.poll();
+        if (buf != null) {
+            pool.freeCount.decrementAndGet();
+            reused.incrementAndGet();
+            return buf;
+        }
+        allocated.incrementAndGet();
+        return ByteBuffer.allocateDirect(sizeOf(sizeClass));
+    }
+
+    /**
+     * Give a buffer obtained from {@link #acquire} back to this pool.
+     * The buffer must not be used by the caller after this.
+     *
+     * @param buf the buffer to release
+     **/
+    void release(ByteBuffer buf) {
+        if (!buf.isDirect() || buf.capacity() > MAX_SIZE) {
+            return;
+        }
+        int sizeClass = sizeClassOf(buf.capacity());
+        if (sizeOf(sizeClass) != buf.capacity()) {
+            return;
+        }
+        SizeClass pool = sizeClasses[sizeClass];
+        if (pool.freeCount.incrementAndGet() > pool.maxFree) {
+            pool.freeCount.decrementAndGet();
+            return;
+        }
+        buf.clear();
+        buf.order(ByteOrder.BIG_ENDIAN);
+        pool.free.add(buf);
+    }
+
+    /** Returns the number of buffers allocated by this pool since it was created */
+    long allocatedCount() {
+        return allocated.get();
+    }
+
+    /** Returns the number of times a free buffer was reused by this pool since it was created */
+    long reusedCount() {
+        return reused.get();
+    }
+
+    /** Returns the number of free buffers currently kept by this pool */
+    int freeCount() {
+        int count = 0;
+        for (SizeClass sizeClass : sizeClasses) {
+            count += sizeClass.freeCount.get();
+        }
+        return count;
+    }
+
+}
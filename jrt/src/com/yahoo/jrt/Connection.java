@@ -31,15 +31,15 @@ class Connection extends Target {
     private int           state      = INITIAL;
     private Queue         queue      = new Queue();
     private Queue         myQueue    = new Queue();
-    private Buffer        input      = new Buffer(READ_SIZE * 2);
-    private Buffer        output     = new Buffer(WRITE_SIZE * 2);
+    private Buffer        input;
+    private Buffer        output;
     private int           maxInputSize  = 64*1024;
     private int           maxOutputSize = 64*1024;
     private Map<Integer, ReplyHandler> replyMap = new HashMap<>();
     private Map<TargetWatcher, TargetWatcher> watchers = new IdentityHashMap<>();
     private int           activeReqs = 0;
     private int           writeWork  = 0;
-    private Transport     parent;
+    private TransportThread parent;
     private Supervisor    owner;
     private Spec          spec;
     private CryptoSocket  socket;
@@ -86,21 +86,25 @@ class Connection extends Target {
         }
     }
 
-    public Connection(Transport parent, Supervisor owner,
+    public Connection(TransportThread parent, Supervisor owner,
                       SocketChannel channel) {
 
         this.parent = parent;
         this.owner = owner;
-        this.socket = parent.createCryptoSocket(channel, true);
+        this.socket = parent.transport().createCryptoSocket(channel, true);
+        input = new Buffer(parent.transport().bufferPool(), READ_SIZE * 2);
+        output = new Buffer(parent.transport().bufferPool(), WRITE_SIZE * 2);
         server = true;
         owner.sessionInit(this);
     }
 
-    public Connection(Transport parent, Supervisor owner, Spec spec, Object context) {
+    public Connection(TransportThread parent, Supervisor owner, Spec spec, Object context) {
         super(context);
         this.parent = parent;
         this.owner = owner;
         this.spec = spec;
+        input = new Buffer(parent.transport().bufferPool(), READ_SIZE * 2);
+        output = new Buffer(parent.transport().bufferPool(), WRITE_SIZE * 2);
         server = false;
         owner.sessionInit(this);
     }
@@ -114,6 +118,10 @@ class Connection extends Target {
     }
 
     public Transport transport() {
+        return parent.transport();
+    }
+
+    public TransportThread transportThread() {
         return parent;
     }
 
@@ -168,7 +176,7 @@ class Connection extends Target {
             return this;
         }
         try {
-            socket = parent.createCryptoSocket(SocketChannel.open(spec.address()), false);
+            socket = parent.transport().createCryptoSocket(SocketChannel.open(spec.address()), false);
         } catch (Exception e) {
             setLostReason(e);
         }
@@ -279,6 +287,7 @@ class Connection extends Target {
         if (maxInputSize > 0) {
             input.shrink(maxInputSize);
         }
+        input.releaseIfEmpty();
     }
 
     public void handleReadEvent() throws IOException {
@@ -335,6 +344,7 @@ class Connection extends Target {
         if (maxOutputSize > 0) {
             output.shrink(maxOutputSize);
         }
+        output.releaseIfEmpty();
     }
 
     public void handleWriteEvent() throws IOException {
@@ -352,6 +362,8 @@ class Connection extends Target {
         if (selectionKey != null) {
             selectionKey.cancel();
         }
+        input.release();
+        output.release();
     }
 
     public boolean isClosed() {
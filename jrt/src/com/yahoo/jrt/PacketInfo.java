@@ -13,11 +13,11 @@ class PacketInfo
     private int packetCode;
     private int requestId;
 
-    private PacketInfo(ByteBuffer src) {
-        packetLength = src.getInt() + 4;
-        flags = src.getShort();
-        packetCode = src.getShort();
-        requestId = src.getInt();
+    private PacketInfo(ByteBuffer src, int pos) {
+        packetLength = src.getInt(pos) + 4;
+        flags = src.getShort(pos + 4);
+        packetCode = src.getShort(pos + 6);
+        requestId = src.getInt(pos + 8);
     }
 
     PacketInfo(int plen, int flags, int pcode, int reqId) {
@@ -55,7 +55,7 @@ class PacketInfo
         if (src.remaining() < Packet.headerLength) {
             return null;
         }
-        return new PacketInfo(src.slice());
+        return new PacketInfo(src, src.position());
     }
 
     public Packet decodePacket(ByteBuffer src) {
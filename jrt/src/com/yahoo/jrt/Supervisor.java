@@ -16,37 +16,10 @@ import java.util.HashMap;
  **/
 public class Supervisor {
 
-    private class AddMethod implements Runnable {
-        private Method method;
-        AddMethod(Method method) {
-            this.method = method;
-        }
-        public void run() {
-            methodMap.put(method.name(), method);
-        }
-    }
-
-    private class RemoveMethod implements Runnable {
-        private String methodName;
-        private Method method = null;
-        RemoveMethod(String methodName) {
-            this.methodName = methodName;
-        }
-        RemoveMethod(Method method) {
-            this.methodName = method.name();
-            this.method = method;
-        }
-        public void run() {
-            Method m = methodMap.remove(methodName);
-            if (method != null && m != method) {
-                methodMap.put(method.name(), method);
-            }
-        }
-    }
-
     private Transport               transport;
     private SessionHandler          sessionHandler = null;
-    private HashMap<String, Method> methodMap      = new HashMap<>();
+    private final Object            methodMapLock  = new Object();
+    private volatile HashMap<String, Method> methodMap = new HashMap<>();
     private int                     maxInputBufferSize  = 0;
     private int                     maxOutputBufferSize = 0;
 
@@ -90,7 +63,10 @@ public class Supervisor {
     }
 
     /**
-     * Obtain the method map for this Supervisor
+     * Obtain the method map for this Supervisor. The map is replaced
+     * rather than modified when methods are added or removed, such
+     * that it can be read by all transport threads without locking,
+     * so the returned map must not be modified.
      *
      * @return the method map
      **/
@@ -122,7 +98,11 @@ public class Supervisor {
      * @param method the method to add
      **/
     public void addMethod(Method method) {
-        transport.perform(new AddMethod(method));
+        synchronized (methodMapLock) {
+            HashMap<String, Method> newMap = new HashMap<>(methodMap);
+            newMap.put(method.name(), method);
+            methodMap = newMap;
+        }
     }
 
     /**
@@ -131,7 +111,11 @@ public class Supervisor {
      * @param methodName name of the method to remove
      **/
     public void removeMethod(String methodName) {
-        transport.perform(new RemoveMethod(methodName));
+        synchronized (methodMapLock) {
+            HashMap<String, Method> newMap = new HashMap<>(methodMap);
+            newMap.remove(methodName);
+            methodMap = newMap;
+        }
     }
 
     /**
@@ -142,7 +126,14 @@ public class Supervisor {
      * @param method the method to remove
      **/
     public void removeMethod(Method method) {
-        transport.perform(new RemoveMethod(method));
+        synchronized (methodMapLock) {
+            if (methodMap.get(method.name()) != method) {
+                return;
+            }
+            HashMap<String, Method> newMap = new HashMap<>(methodMap);
+            newMap.remove(method.name());
+            methodMap = newMap;
+        }
     }
 
     /**
@@ -0,0 +1,88 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BufferPoolTest {
+
+    @org.junit.Test
+    public void testSizeClasses() {
+        BufferPool pool = new BufferPool(1024 * 1024);
+        assertEquals(BufferPool.MIN_SIZE, pool.acquire(1).capacity());
+        assertEquals(BufferPool.MIN_SIZE, pool.acquire(BufferPool.MIN_SIZE).capacity());
+        assertEquals(BufferPool.MIN_SIZE * 2, pool.acquire(BufferPool.MIN_SIZE + 1).capacity());
+        assertEquals(BufferPool.MAX_SIZE, pool.acquire(BufferPool.MAX_SIZE).capacity());
+        assertTrue(pool.acquire(100).isDirect());
+        ByteBuffer huge = pool.acquire(BufferPool.MAX_SIZE + 1);
+        assertFalse(huge.isDirect());
+        assertEquals(BufferPool.MAX_SIZE + 1, huge.capacity());
+    }
+
+    @org.junit.Test
+    public void testBuffersAreReused() {
+        BufferPool pool = new BufferPool(1024 * 1024);
+        ByteBuffer a = pool.acquire(5000);
+        a.putInt(42);
+        pool.release(a);
+        assertEquals(1, pool.freeCount());
+        ByteBuffer b = pool.acquire(6000);
+        assertSame(a, b);
+        assertEquals(0, b.position());
+        assertEquals(b.capacity(), b.limit());
+        assertNotSame(a, pool.acquire(BufferPool.MIN_SIZE));
+        assertEquals(2, pool.allocatedCount());
+        assertEquals(1, pool.reusedCount());
+    }
+
+    @org.junit.Test
+    public void testFreeBuffersAreBounded() {
+        BufferPool pool = new BufferPool(2 * BufferPool.MIN_SIZE);
+        for (int i = 0; i < 5; i++) {
+            pool.release(ByteBuffer.allocateDirect(BufferPool.MIN_SIZE));
+        }
+        assertEquals(2, pool.freeCount());
+        pool.release(ByteBuffer.allocate(BufferPool.MIN_SIZE));
+        pool.release(ByteBuffer.allocateDirect(BufferPool.MIN_SIZE + 1));
+        assertEquals(2, pool.freeCount());
+    }
+
+    @org.junit.Test
+    public void testPooledBuffer() {
+        BufferPool pool = new BufferPool(1024 * 1024);
+        Buffer buf = new Buffer(pool, 1024);
+        assertEquals(0, buf.bytes());
+        assertEquals(0, buf.getReadable().remaining());
+        assertEquals(0, pool.allocatedCount());
+        assertFalse(buf.releaseIfEmpty());
+
+        buf.getWritable(8).putInt(1).putInt(2);
+        assertEquals(1, pool.allocatedCount());
+        assertTrue(buf.getReadable().isDirect());
+        assertFalse(buf.releaseIfEmpty());
+        assertEquals(1, buf.getReadable().getInt());
+        assertFalse(buf.releaseIfEmpty());
+        assertEquals(2, buf.getReadable().getInt());
+        assertTrue(buf.releaseIfEmpty());
+        assertEquals(1, pool.freeCount());
+
+        buf.getWritable(4).putInt(3);
+        assertEquals(0, pool.freeCount());
+        assertEquals(1, pool.reusedCount());
+        assertEquals(3, buf.getReadable().getInt());
+
+        // grow beyond the size of the first buffer, which is then released
+        buf.getWritable(BufferPool.MIN_SIZE * 2).put(new byte[BufferPool.MIN_SIZE * 2]);
+        assertEquals(BufferPool.MIN_SIZE * 2, buf.bytes());
+        assertEquals(1, pool.freeCount());
+        buf.release();
+        assertEquals(0, buf.bytes());
+        assertEquals(2, pool.freeCount());
+    }
+
+}
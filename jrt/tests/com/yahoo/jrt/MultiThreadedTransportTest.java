@@ -0,0 +1,108 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+
+import org.junit.After;
+import org.junit.Before;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MultiThreadedTransportTest {
+
+    Supervisor   server;
+    Acceptor     acceptor;
+    Supervisor   client;
+    List<Target> targets = new ArrayList<>();
+
+    @Before
+    public void setUp() throws ListenFailedException {
+        server   = new Supervisor(new Transport(4));
+        client   = new Supervisor(new Transport(3));
+        acceptor = server.listen(new Spec(0));
+        server.addMethod(new Method("concat", "ss", "s", this, "rpc_concat"));
+        for (int i = 0; i < 8; i++) {
+            targets.add(client.connect(new Spec("localhost", acceptor.port())));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (Target target : targets) {
+            target.close();
+        }
+        acceptor.shutdown().join();
+        client.transport().shutdown().join();
+        server.transport().shutdown().join();
+    }
+
+    public void rpc_concat(Request req) {
+        req.returnValues().add(new StringValue(req.parameters().get(0).asString() +
+                                               req.parameters().get(1).asString()));
+    }
+
+    @org.junit.Test
+    public void testConnectionsAreSpreadOverThreads() {
+        assertEquals(4, server.transport().getNumThreads());
+        assertEquals(3, client.transport().getNumThreads());
+        Set<TransportThread> threads = new HashSet<>();
+        for (Target target : targets) {
+            threads.add(((Connection)target).transportThread());
+        }
+        assertEquals(3, threads.size());
+    }
+
+    @org.junit.Test(expected = IllegalArgumentException.class)
+    public void testRequireAtLeastOneThread() {
+        new Transport(0);
+    }
+
+    @org.junit.Test
+    public void testInvokeOnAllConnections() {
+        List<Request> requests = new ArrayList<>();
+        List<Test.Waiter> waiters = new ArrayList<>();
+        for (int i = 0; i < targets.size(); i++) {
+            Request req = new Request("concat");
+            req.parameters().add(new StringValue("abc"));
+            req.parameters().add(new StringValue(String.valueOf(i)));
+            Test.Waiter waiter = new Test.Waiter();
+            targets.get(i).invokeAsync(req, 5.0, waiter);
+            requests.add(req);
+            waiters.add(waiter);
+        }
+        for (int i = 0; i < requests.size(); i++) {
+            waiters.get(i).waitDone();
+            assertFalse(requests.get(i).errorMessage(), requests.get(i).isError());
+            assertEquals("abc" + i, requests.get(i).returnValues().get(0).asString());
+        }
+    }
+
+    @org.junit.Test
+    public void testMethodsAreVisibleToAllThreads() {
+        server.addMethod(new Method("concat2", "ss", "s", this, "rpc_concat"));
+        for (Target target : targets) {
+            Request req = new Request("concat2");
+            req.parameters().add(new StringValue("a"));
+            req.parameters().add(new StringValue("b"));
+            target.invokeSync(req, 5.0);
+            assertFalse(req.errorMessage(), req.isError());
+            assertEquals("ab", req.returnValues().get(0).asString());
+        }
+        server.removeMethod("concat2");
+        for (Target target : targets) {
+            Request req = new Request("concat2");
+            req.parameters().add(new StringValue("a"));
+            req.parameters().add(new StringValue("b"));
+            target.invokeSync(req, 5.0);
+            assertTrue(req.isError());
+            assertEquals(ErrorCode.NO_SUCH_METHOD, req.errorCode());
+        }
+    }
+
+}
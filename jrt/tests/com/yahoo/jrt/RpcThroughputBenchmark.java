@@ -0,0 +1,111 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the number of RPCs per second a server can handle over
+ * loopback for a range of transport thread counts. Each client
+ * connection keeps a fixed number of asynchronous requests in flight.
+ * <p>
+ * Run with <code>java -cp [test classpath] com.yahoo.jrt.RpcThroughputBenchmark [maxThreads] [connections] [seconds]</code>.
+ **/
+public class RpcThroughputBenchmark {
+
+    private static final int IN_FLIGHT = 16;
+
+    private static class Pipeline implements RequestWaiter {
+
+        private final Target target;
+        private final AtomicLong completed;
+        private volatile boolean running = true;
+
+        Pipeline(Target target, AtomicLong completed) {
+            this.target = target;
+            this.completed = completed;
+        }
+
+        void start() {
+            for (int i = 0; i < IN_FLIGHT; i++) {
+                send();
+            }
+        }
+
+        void stop() {
+            running = false;
+        }
+
+        private void send() {
+            Request req = new Request("inc");
+            req.parameters().add(new Int32Value(1));
+            target.invokeAsync(req, 60.0, this);
+        }
+
+        public void handleRequestDone(Request req) {
+            if ( ! running) {
+                return; // requests still in flight are aborted when the connection is closed
+            }
+            if (req.isError()) {
+                throw new IllegalStateException("Benchmark request failed: " + req.errorMessage());
+            }
+            completed.incrementAndGet();
+            send();
+        }
+    }
+
+    public void rpc_inc(Request req) {
+        req.returnValues().add(new Int32Value(req.parameters().get(0).asInt32() + 1));
+    }
+
+    private long buffersAllocated;
+
+    /** Returns the number of RPCs per second completed with the given number of transport threads */
+    double run(int numThreads, int connections, long millis) throws ListenFailedException, InterruptedException {
+        Supervisor server = new Supervisor(new Transport(numThreads));
+        Supervisor client = new Supervisor(new Transport(numThreads));
+        Acceptor acceptor = server.listen(new Spec(0));
+        server.addMethod(new Method("inc", "i", "i", this, "rpc_inc"));
+
+        AtomicLong completed = new AtomicLong();
+        List<Target> targets = new ArrayList<>();
+        List<Pipeline> pipelines = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            Target target = client.connect(new Spec("localhost", acceptor.port()));
+            targets.add(target);
+            pipelines.add(new Pipeline(target, completed));
+        }
+        pipelines.forEach(Pipeline::start);
+
+        Thread.sleep(millis / 4); // warmup
+        long startCount = completed.get();
+        long startNanos = System.nanoTime();
+        Thread.sleep(millis);
+        long count = completed.get() - startCount;
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        buffersAllocated = server.transport().bufferPool().allocatedCount() +
+                           client.transport().bufferPool().allocatedCount();
+        pipelines.forEach(Pipeline::stop);
+        targets.forEach(Target::close);
+        acceptor.shutdown().join();
+        client.transport().shutdown().join();
+        server.transport().shutdown().join();
+        return count * 1e9 / elapsedNanos;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int maxThreads = (args.length > 0) ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int connections = (args.length > 1) ? Integer.parseInt(args[1]) : 64;
+        long millis = (args.length > 2) ? Long.parseLong(args[2]) * 1000 : 5000;
+        RpcThroughputBenchmark benchmark = new RpcThroughputBenchmark();
+        for (int numThreads = 1; numThreads <= maxThreads; numThreads *= 2) {
+            double rps = benchmark.run(numThreads, connections, millis);
+            System.out.println(String.format("%d transport thread(s), %d connections: %.0f RPC/s, %d IO buffers allocated",
+                                             numThreads, connections, rps, benchmark.buffersAllocated));
+        }
+    }
+
+}
@@ -3,44 +3,80 @@ package com.yahoo.messagebus;
 
 import com.yahoo.concurrent.DaemonThreadFactory;
 import com.yahoo.log.LogLevel;
+import com.yahoo.messagebus.metrics.MessengerMetricSet;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Logger;
 
 /**
- * <p>This class implements a single thread that is able to process arbitrary
- * tasks. Tasks are enqueued using the synchronized {@link #enqueue(Task)}
- * method, and are run in the order they were enqueued.</p>
+ * <p>This class implements a pool of worker threads that process arbitrary
+ * tasks. Tasks are enqueued using the thread-safe {@link #enqueue(Task)}
+ * method, which never blocks, and are started in the order they were
+ * enqueued. When there is more than one worker thread, tasks may run
+ * concurrently, so tasks which must run in a given order must not be
+ * enqueued before the ones they depend on have completed. This is what the
+ * {@link Sequencer} does for messages with the same sequence id.</p>
+ *
+ * <p>Recurrent tasks are all run by the first worker thread, and thus never
+ * concurrently with each other.</p>
+ *
+ * <p>Messages are delivered by a separate send thread, in the order they
+ * were delivered, so that sending does not wait for reply processing.</p>
  *
  * @author Simon Thoresen Hult
  */
-public class Messenger implements Runnable {
+public class Messenger {
 
     private static final Logger log = Logger.getLogger(Messenger.class.getName());
+    private static final long IDLE_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
     private final AtomicBoolean destroyed = new AtomicBoolean(false);
     private final List<Task> children = new ArrayList<>();
     private final ExecutorService sendExecutor = Executors.newSingleThreadExecutor(new DaemonThreadFactory("messenger.send"));
-    private final Queue<Task> queue = new ArrayDeque<>();
-
-    private final Thread thread = new Thread(this, "Messenger");
+    private final Queue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final Queue<Worker> idle = new ConcurrentLinkedQueue<>();
+    private final Worker[] workers;
+    private final Object syncLock = new Object();
+    private final MessengerMetricSet metrics;
+    private volatile boolean stopped = false;
 
     public Messenger() {
-        thread.setDaemon(true);
+        this(1, new MessengerMetricSet());
+    }
+
+    /**
+     * <p>Creates a messenger with the given number of worker threads, which
+     * reports to the given metrics.</p>
+     *
+     * @param numThreads The number of worker threads to run tasks in.
+     * @param metrics    The metrics to update.
+     */
+    public Messenger(int numThreads, MessengerMetricSet metrics) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("The messenger needs at least one thread, got " + numThreads);
+        }
+        this.metrics = metrics;
+        workers = new Worker[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            workers[i] = new Worker(i == 0, numThreads == 1 ? "Messenger" : "Messenger-" + i);
+        }
     }
 
     /**
      * <p>Adds a recurrent task to this that is to be run for every iteration of
-     * the main loop. This task must be very light-weight as to not block the
-     * messenger. Note that this method is NOT thread-safe, so it should NOT be
-     * used after calling {@link #start()}.</p>
+     * the main loop of the first worker thread. This task must be very
+     * light-weight as to not block the messenger. Note that this method is NOT
+     * thread-safe, so it should NOT be used after calling {@link #start()}.</p>
      *
      * @param task The task to add.
      */
@@ -49,19 +85,25 @@ public class Messenger implements Runnable {
     }
 
     /**
-     * <p>Starts the internal thread. This must be done AFTER all recurrent
+     * <p>Starts the internal threads. This must be done AFTER all recurrent
      * tasks have been added.</p>
      *
      * @see #addRecurrentTask(Task)
      */
     public void start() {
-        thread.start();
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
+    }
+
+    /** Returns the number of worker threads of this */
+    public int getNumThreads() {
+        return workers.length;
     }
 
     /**
-     * <p>Convenience method to post a {@link Task} that delivers a {@link
-     * Message} to a {@link MessageHandler} to the queue of tasks to be
-     * executed.</p>
+     * <p>Convenience method to post a task that delivers a {@link Message}
+     * to a {@link MessageHandler} to the send thread.</p>
      *
      * @param msg     The message to send.
      * @param handler The handler to send to.
@@ -100,28 +142,49 @@ public class Messenger implements Runnable {
      */
     public void enqueue(final Task task) {
         if (destroyed.get()) {
-            task.destroy();
+            destroyTask(task);
+            return;
+        }
+        queue.add(new Entry(task));
+        metrics.queueSize.get().incrementAndGet();
+        if (stopped) {
+            destroyQueuedTasks(); // raced with destroy(), which may already have drained the queue
             return;
         }
-        synchronized (this) {
-            queue.offer(task);
-            if (queue.size() == 1) {
-                notify();
+        Worker worker = idle.poll();
+        if (worker != null) {
+            LockSupport.unpark(worker.thread);
+        }
+    }
+
+    private boolean isWorkerThread() {
+        Thread current = Thread.currentThread();
+        for (Worker worker : workers) {
+            if (worker.thread == current) {
+                return true;
             }
         }
+        return false;
     }
 
     /**
-     * <p>Handshakes with the internal thread. If this method is called using
-     * the messenger thread, this will deadlock.</p>
+     * <p>Handshakes with the internal threads, by waiting until each of them
+     * has completed the tasks it started before this was called. If this
+     * method is called using a messenger thread, it returns immediately.
+     * Concurrent callers sync one at a time, as the workers of one sync must
+     * not be split between the barriers of several.</p>
      */
     public void sync() {
-        if (Thread.currentThread() == thread) {
+        if (isWorkerThread()) {
             return; // no need to wait for self
         }
-        final SyncTask task = new SyncTask();
-        enqueue(task);
-        task.await();
+        synchronized (syncLock) {
+            final SyncTask task = new SyncTask(workers.length);
+            for (int i = 0; i < workers.length; i++) {
+                enqueue(task);
+            }
+            task.await();
+        }
     }
 
     /**
@@ -133,72 +196,92 @@ public class Messenger implements Runnable {
      * @return True if content existed and was destroyed.
      */
     public boolean destroy() {
-        boolean done = false;
-        enqueue(Terminate.INSTANCE);
-        if (!destroyed.getAndSet(true)) {
-            sendExecutor.shutdownNow().forEach((Runnable task) -> {((MessageTask) task).msg.discard();});
+        if (destroyed.getAndSet(true)) {
+            return false;
+        }
+        sendExecutor.shutdownNow().forEach((Runnable task) -> {((MessageTask) task).msg.discard();});
+        for (Worker worker : workers) {
+            queue.add(new Entry(Terminate.INSTANCE)); // tasks enqueued before this are still run
+            metrics.queueSize.get().incrementAndGet();
+        }
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker.thread);
+        }
+        for (Worker worker : workers) {
             try {
-                synchronized (this) {
-                    while (!queue.isEmpty()) {
-                        wait();
-                    }
-                }
-                thread.join();
+                worker.thread.join();
             } catch (final InterruptedException e) {
                 // ignore
             }
-            done = true;
         }
-        return done;
+        for (final Task child : children) {
+            child.destroy();
+        }
+        stopped = true;
+        destroyQueuedTasks();
+        return true;
     }
 
-    @Override
-    public void run() {
+    private void destroyQueuedTasks() {
+        Entry entry;
+        while ((entry = queue.poll()) != null) {
+            metrics.queueSize.get().decrementAndGet();
+            destroyTask(entry.task);
+        }
+    }
+
+    private static void runTask(final Task task) {
+        try {
+            task.run();
+        } catch (final Exception e) {
+            log.log(LogLevel.ERROR, "An exception was thrown while running " + task.getClass().getName(), e);
+        }
+        destroyTask(task);
+    }
+
+    private static void destroyTask(final Task task) {
+        try {
+            task.destroy();
+        } catch (final Exception e) {
+            log.warning("An exception was thrown while destroying " + task.getClass().getName() + ": " +
+                        e.toString());
+            log.warning("Someone, somewhere might have to wait indefinetly for something.");
+        }
+    }
+
+    private Entry take(Worker worker) {
+        Entry entry = queue.poll();
+        if (entry != null) {
+            return entry;
+        }
+        idle.add(worker);
+        entry = queue.poll(); // recheck, as a task enqueued before we were idle would not wake us
+        if (entry == null) {
+            LockSupport.parkNanos(this, IDLE_WAIT_NANOS);
+            entry = queue.poll();
+        }
+        idle.remove(worker);
+        return entry;
+    }
+
+    private void runWorker(Worker worker) {
         while (true) {
-            Task task = null;
-            synchronized (this) {
-                if (queue.isEmpty()) {
-                    try {
-                        wait(100);
-                    } catch (final InterruptedException e) {
-                        continue;
-                    }
-                }
-                if (queue.size() > 0) {
-                    task = queue.poll();
+            Entry entry = take(worker);
+            if (entry != null) {
+                metrics.queueSize.get().decrementAndGet();
+                if (entry.task == Terminate.INSTANCE) {
+                    break;
                 }
+                metrics.taskLatency.addValue((System.nanoTime() - entry.enqueuedNanos) / 1_000_000.0);
+                metrics.tasks.inc(1);
+                runTask(entry.task);
             }
-            if (task == Terminate.INSTANCE) {
-                break;
-            }
-            if (task != null) {
-                try {
-                    task.run();
-                } catch (final Exception e) {
-                    log.log(LogLevel.ERROR, "An exception was thrown while running " + task.getClass().getName(), e);
+            if (worker.runsChildren) {
+                for (final Task child : children) {
+                    child.run();
                 }
-                try {
-                    task.destroy();
-                } catch (final Exception e) {
-                    log.warning("An exception was thrown while destroying " + task.getClass().getName() + ": " +
-                                e.toString());
-                    log.warning("Someone, somewhere might have to wait indefinetly for something.");
-                }
-            }
-            for (final Task child : children) {
-                child.run();
             }
         }
-        for (final Task child : children) {
-            child.destroy();
-        }
-        synchronized (this) {
-            while (!queue.isEmpty()) {
-                final Task task = queue.poll();
-                task.destroy();
-            }
-            notify();
-        }
     }
 
     /**
@@ -219,6 +302,34 @@ public class Messenger implements Runnable {
         public void destroy();
     }
 
+    private class Worker implements Runnable {
+
+        final boolean runsChildren;
+        final Thread thread;
+
+        Worker(boolean runsChildren, String name) {
+            this.runsChildren = runsChildren;
+            thread = new Thread(this, name);
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            runWorker(this);
+        }
+    }
+
+    private static class Entry {
+
+        final Task task;
+        final long enqueuedNanos;
+
+        Entry(final Task task) {
+            this.task = task;
+            this.enqueuedNanos = System.nanoTime();
+        }
+    }
+
     private static class MessageTask implements Runnable {
 
         final MessageHandler handler;
@@ -262,23 +373,43 @@ public class Messenger implements Runnable {
         }
     }
 
-    private static class SyncTask implements Task {
+    /**
+     * <p>A task which is enqueued once for each worker thread. Each worker
+     * which runs it waits for all the others to do so, such that none of them
+     * can still be running a task started before the sync.</p>
+     */
+    private class SyncTask implements Task {
+
+        final CountDownLatch arrived;
+        final CountDownLatch done;
 
-        final CountDownLatch latch = new CountDownLatch(1);
+        SyncTask(int numThreads) {
+            arrived = new CountDownLatch(numThreads);
+            done = new CountDownLatch(numThreads);
+        }
 
         @Override
         public void run() {
-            // empty
+            arrived.countDown();
+            try {
+                while ( ! arrived.await(100, TimeUnit.MILLISECONDS)) {
+                    if (destroyed.get()) {
+                        return; // other workers may have terminated
+                    }
+                }
+            } catch (final InterruptedException e) {
+                // ignore
+            }
         }
 
         @Override
         public void destroy() {
-            latch.countDown();
+            done.countDown();
         }
 
         public void await() {
             try {
-                latch.await();
+                done.await();
             } catch (final InterruptedException e) {
                 // ignore
             }
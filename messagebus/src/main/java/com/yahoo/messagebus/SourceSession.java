@@ -10,6 +10,7 @@ import java.util.*;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 /**
@@ -27,6 +28,7 @@ public final class SourceSession implements ReplyHandler, MessageBus.SendBlocked
     private final Sequencer sequencer;
     private final ReplyHandler replyHandler;
     private final ThrottlePolicy throttlePolicy;
+    private final int maxBlockedMessages;
     private volatile double timeout;
     private volatile int pendingCount = 0;
     private volatile boolean closed = false;
@@ -50,6 +52,7 @@ public final class SourceSession implements ReplyHandler, MessageBus.SendBlocked
         }
         replyHandler = params.getReplyHandler();
         throttlePolicy = params.getThrottlePolicy();
+        maxBlockedMessages = params.getMaxBlockedMessages();
         timeout = params.getTimeout();
         mbus.register(this);
     }
@@ -69,6 +72,7 @@ public final class SourceSession implements ReplyHandler, MessageBus.SendBlocked
         synchronized (lock) {
             closed = true;
         }
+        sendBlockedMessages(); // fails them, as this is closed
         sequencer.destroy();
         mbus.sync();
         return true;
@@ -82,6 +86,7 @@ public final class SourceSession implements ReplyHandler, MessageBus.SendBlocked
         synchronized (lock) {
             closed = true;
         }
+        sendBlockedMessages(); // fails them, as this is closed
         if (pendingCount == 0) {
             done.countDown();
         }
@@ -164,47 +169,61 @@ public final class SourceSession implements ReplyHandler, MessageBus.SendBlocked
 
     private class BlockedMessage {
         private final Message msg;
+        private final Consumer<Result> resultHandler;
+        private final boolean replyIfExpired;
         private Result result = null;
-        BlockedMessage(Message msg) {
+        private boolean expired = false;
+        BlockedMessage(Message msg, Consumer<Result> resultHandler, boolean replyIfExpired) {
             this.msg = msg;
-        }
-
-        private void notifyComplete(Result result) {
-            synchronized (this) {
-                this.result = result;
-                notify();
-            }
+            this.resultHandler = resultHandler;
+            this.replyIfExpired = replyIfExpired;
         }
 
         Message getMessage() { return msg; }
 
-        boolean notifyIfExpired() {
+        /** Completes this with a timeout result if it has expired. Must be called while holding the lock. */
+        boolean expireIfStalled() {
             if (msg.isExpired()) {
-                Error error = new Error(ErrorCode.TIMEOUT, "Timed out in sendQ");
-                notifyComplete(new Result(error));
-                replyHandler.handleReply(createSendTimedoutReply(msg, error));
+                result = new Result(new Error(ErrorCode.TIMEOUT, "Timed out in sendQ"));
+                expired = true;
                 return true;
             }
             return false;
         }
 
+        /** Sends this, unless it has expired, and returns whether it completed. Must be called while holding the lock. */
         boolean sendOrExpire() {
-            if ( ! notifyIfExpired() ) {
+            if ( ! expireIfStalled() ) {
                 Result res = sendInternal(msg);
-                if ( ! isSendQFull(res) ) {
-                    notifyComplete(res);
-                } else {
+                if (isSendQFull(res)) {
                     return false;
                 }
+                result = res;
             }
             return true;
         }
 
-        Result waitComplete() throws InterruptedException {
-            synchronized (this) {
-                while (result == null) {
-                    this.wait();
-                }
+        /** Passes the result of this to its handlers. Must be called without holding the lock. */
+        void notifyCompleted() {
+            resultHandler.accept(result);
+            if (expired && replyIfExpired) {
+                replyHandler.handleReply(createSendTimedoutReply(msg, result.getError()));
+            }
+        }
+    }
+
+    private static class ResultWaiter implements Consumer<Result> {
+        private Result result = null;
+
+        @Override
+        public synchronized void accept(Result result) {
+            this.result = result;
+            notify();
+        }
+
+        synchronized Result waitComplete() throws InterruptedException {
+            while (result == null) {
+                this.wait();
             }
             return result;
         }
@@ -236,35 +255,85 @@ public final class SourceSession implements ReplyHandler, MessageBus.SendBlocked
     public Result sendBlocking(Message msg) throws InterruptedException {
         Result res = send(msg);
         if (isSendQFull(res)) {
-            BlockedMessage blockedMessage = new BlockedMessage(msg);
+            ResultWaiter waiter = new ResultWaiter();
             synchronized (lock) {
-                blockedQ.add(blockedMessage);
+                blockedQ.add(new BlockedMessage(msg, waiter, true));
             }
-            res = blockedMessage.waitComplete();
+            res = waiter.waitComplete();
         }
         return res;
     }
 
+    /**
+     * <p>This is a non-blocking alternative to {@link #sendBlocking(Message)}.
+     * If the message cannot be sent right away because the send queue is full,
+     * it is queued and sent as soon as replies to pending messages make room
+     * for it in the send queue, without holding the calling thread.</p>
+     *
+     * <p>The given handler is called exactly once with the result of
+     * initiating send; either by the calling thread, or by the thread which
+     * made room for the message. If the message times out before it is sent,
+     * the handler is called with a {@link ErrorCode#TIMEOUT} result, and, as
+     * the message was not accepted, no reply is produced for it. If this
+     * session is closed before the message is sent, the handler is called
+     * with a {@link ErrorCode#SEND_QUEUE_CLOSED} result. The handler is not
+     * called while holding the lock of this session, so it may send more
+     * messages, but it should not block, as it may be called by a message bus
+     * thread.</p>
+     *
+     * <p>At most {@link SourceSessionParams#getMaxBlockedMessages} messages
+     * may wait for room in the send queue. If that many are waiting already,
+     * the message is neither sent nor kept, the handler is not called, and
+     * false is returned. The caller may then e.g. fall back to
+     * {@link #sendBlocking(Message)}.</p>
+     *
+     * @param msg           The message to send.
+     * @param resultHandler The handler to receive the result of initiating send.
+     * @return False if the message was rejected because too many messages are
+     *         waiting to be sent, true otherwise.
+     */
+    public boolean sendWhenReady(Message msg, Consumer<Result> resultHandler) {
+        Result res = send(msg);
+        if (isSendQFull(res)) {
+            synchronized (lock) {
+                // a reply may have made room since send(), but queued messages go first
+                if ( ! blockedQ.isEmpty() || isSendQFull(res = sendInternal(msg))) {
+                    if (blockedQ.size() >= maxBlockedMessages) {
+                        return false;
+                    }
+                    blockedQ.add(new BlockedMessage(msg, resultHandler, false));
+                    return true;
+                }
+            }
+        }
+        resultHandler.accept(res);
+        return true;
+    }
+
     private void expireStalledBlockedMessages() {
+        List<BlockedMessage> expired = new ArrayList<>();
         synchronized (lock) {
+            if (blockedQ.isEmpty()) return;
             final Iterator<BlockedMessage> each = blockedQ.iterator();
             while (each.hasNext()) {
-                if (each.next().notifyIfExpired()) {
+                BlockedMessage blocked = each.next();
+                if (blocked.expireIfStalled()) {
                     each.remove();
+                    expired.add(blocked);
                 }
             }
         }
+        expired.forEach(BlockedMessage::notifyCompleted);
     }
 
     private void sendBlockedMessages() {
+        List<BlockedMessage> completed = new ArrayList<>();
         synchronized (lock) {
-            for (boolean success = true; success && !blockedQ.isEmpty(); ) {
-                success = blockedQ.element().sendOrExpire();
-                if (success) {
-                    blockedQ.remove();
-                }
+            while ( ! blockedQ.isEmpty() && blockedQ.element().sendOrExpire()) {
+                completed.add(blockedQ.remove());
             }
         }
+        completed.forEach(BlockedMessage::notifyCompleted);
     }
 
     @Override
@@ -280,8 +349,8 @@ public final class SourceSession implements ReplyHandler, MessageBus.SendBlocked
                 throttlePolicy.processReply(reply);
             }
             done = (closed && pendingCount == 0);
-            sendBlockedMessages();
         }
+        sendBlockedMessages();
         if (reply.getTrace().shouldTrace(TraceLevel.COMPONENT)) {
             reply.getTrace().trace(TraceLevel.COMPONENT,
                                    "Source session received reply. " + pendingCount + " message(s) now pending.");
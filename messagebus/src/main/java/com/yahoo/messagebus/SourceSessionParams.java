@@ -13,6 +13,7 @@ public class SourceSessionParams {
     private ReplyHandler replyHandler = null;
     private ThrottlePolicy throttlePolicy = new DynamicThrottlePolicy();
     private double timeout = 180.0;
+    private int maxBlockedMessages = 1000;
 
     /**
      * Instantiates a parameter object with default values.
@@ -29,6 +30,7 @@ public class SourceSessionParams {
     public SourceSessionParams(SourceSessionParams params) {
         throttlePolicy = params.throttlePolicy;
         timeout = params.timeout;
+        maxBlockedMessages = params.maxBlockedMessages;
         replyHandler = params.replyHandler;
     }
 
@@ -73,6 +75,28 @@ public class SourceSessionParams {
         return this;
     }
 
+    /**
+     * Returns the max number of messages which may wait in the session for room in the send queue after being
+     * passed to {@link SourceSession#sendWhenReady}.
+     *
+     * @return The max number of waiting messages.
+     */
+    public int getMaxBlockedMessages() {
+        return maxBlockedMessages;
+    }
+
+    /**
+     * Sets the max number of messages which may wait in the session for room in the send queue after being
+     * passed to {@link SourceSession#sendWhenReady}.
+     *
+     * @param maxBlockedMessages The max number of waiting messages.
+     * @return This, to allow chaining.
+     */
+    public SourceSessionParams setMaxBlockedMessages(int maxBlockedMessages) {
+        this.maxBlockedMessages = maxBlockedMessages;
+        return this;
+    }
+
     /**
      * Returns whether or not a reply handler has been assigned to this.
      *
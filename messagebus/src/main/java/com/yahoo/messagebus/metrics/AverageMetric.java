@@ -19,7 +19,7 @@ public class AverageMetric extends Metric {
         owner.addMetric(this);
     }
 
-    public void addValue(double value) {
+    public synchronized void addValue(double value) {
         sum += value;
         count++;
 
@@ -38,7 +38,7 @@ public class AverageMetric extends Metric {
     static private final Utf8String attrMax = new Utf8String("max");
 
     @Override
-    public void toXML(XMLWriter writer) {
+    public synchronized void toXML(XMLWriter writer) {
         renderXmlName(writer);
 
         if (count > 0) {
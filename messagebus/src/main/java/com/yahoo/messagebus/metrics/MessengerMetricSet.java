@@ -0,0 +1,24 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Metrics of the task queue of the messenger, which runs all message and reply processing of a message bus.
+ */
+public class MessengerMetricSet extends MetricSet {
+
+    /** The number of tasks currently waiting to be run */
+    public final ValueMetric<AtomicInteger> queueSize = new ValueMetric<>("queuesize", new AtomicInteger(0), this);
+
+    /** The number of tasks run */
+    public final CountMetric tasks = new CountMetric("tasks", this);
+
+    /** The time in milliseconds from a task is enqueued until it is started */
+    public final AverageMetric taskLatency = new AverageMetric("tasklatency", this);
+
+    public MessengerMetricSet() {
+        super("messenger");
+    }
+
+}
@@ -19,6 +19,7 @@ public class RPCNetworkParams {
     private int maxInputBufferSize = 256 * 1024;
     private int maxOutputBufferSize = 256 * 1024;
     private double connectionExpireSecs = 30;
+    private int numNetworkThreads = 1;
 
     /**
      * Constructs a new instance of this class with reasonable default values.
@@ -40,6 +41,7 @@ public class RPCNetworkParams {
         connectionExpireSecs = params.connectionExpireSecs;
         maxInputBufferSize = params.maxInputBufferSize;
         maxOutputBufferSize = params.maxOutputBufferSize;
+        numNetworkThreads = params.numNetworkThreads;
     }
 
     /**
@@ -142,6 +144,27 @@ public class RPCNetworkParams {
         return this;
     }
 
+    /**
+     * Returns the number of threads doing network IO.
+     *
+     * @return The number of threads.
+     */
+    public int getNumNetworkThreads() {
+        return numNetworkThreads;
+    }
+
+    /**
+     * Sets the number of threads doing network IO. The connections of the network are spread over these threads.
+     * The default is 1.
+     *
+     * @param numNetworkThreads The number of threads, which must be at least 1.
+     * @return This, to allow chaining.
+     */
+    public RPCNetworkParams setNumNetworkThreads(int numNetworkThreads) {
+        this.numNetworkThreads = numNetworkThreads;
+        return this;
+    }
+
     /**
      * Returns the maximum input buffer size allowed for the underlying FNET connection.
      *
@@ -11,7 +11,7 @@ import java.util.List;
 /**
  * The resender handles scheduling and execution of sending instances of {@link RoutingNode}. An instance of this class
  * is owned by {@link com.yahoo.messagebus.MessageBus}. Because this class does not have any internal thread, it depends
- * on message bus to keep polling it whenever it has time.
+ * on message bus to keep polling it whenever it has time. Retries may be scheduled from any thread.
  *
  * @author Simon Thoresen Hult
  */
@@ -61,7 +61,7 @@ public class Resender {
 
     /**
      * Schedules the given node for resending, if enabled. This will invoke {@link com.yahoo.messagebus.routing.RoutingNode#prepareForRetry()}
-     * if the node was queued. This method is NOT thread-safe, and should only be called by the messenger thread.
+     * if the node was queued.
      *
      * @param node  The node to resend.
      * @return True if the node was queued.
@@ -84,7 +84,9 @@ public class Resender {
         node.getTrace().trace(TraceLevel.COMPONENT,
                               "Message scheduled for retry " + retry + " in " + delay + " seconds.");
         msg.setRetry(retry);
-        queue.add(new Entry(node, SystemTimer.INSTANCE.milliTime() + (long)(delay * 1000)));
+        synchronized (queue) {
+            queue.add(new Entry(node, SystemTimer.INSTANCE.milliTime() + (long)(delay * 1000)));
+        }
         return true;
     }
 
@@ -92,12 +94,15 @@ public class Resender {
      * Invokes {@link RoutingNode#send()} on all routing nodes that are applicable for sending at the current time.
      */
     public void resendScheduled() {
-        if (queue.isEmpty()) return;
-
-        List<RoutingNode> sendList = new LinkedList<RoutingNode>();
-        long now = SystemTimer.INSTANCE.milliTime();
-        while (!queue.isEmpty() && queue.peek().time <= now) {
-            sendList.add(queue.poll().node);
+        List<RoutingNode> sendList;
+        synchronized (queue) {
+            if (queue.isEmpty()) return;
+
+            sendList = new LinkedList<RoutingNode>();
+            long now = SystemTimer.INSTANCE.milliTime();
+            while (!queue.isEmpty() && queue.peek().time <= now) {
+                sendList.add(queue.poll().node);
+            }
         }
 
         for (RoutingNode node : sendList) {
@@ -110,8 +115,14 @@ public class Resender {
      * Discards all the routing nodes currently scheduled for resending.
      */
     public void destroy() {
-        while (!queue.isEmpty()) {
-            queue.poll().node.discard();
+        List<RoutingNode> discardList = new LinkedList<RoutingNode>();
+        synchronized (queue) {
+            while (!queue.isEmpty()) {
+                discardList.add(queue.poll().node);
+            }
+        }
+        for (RoutingNode node : discardList) {
+            node.discard();
         }
     }
 
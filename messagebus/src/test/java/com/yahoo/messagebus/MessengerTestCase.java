@@ -1,11 +1,15 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.messagebus;
 
+import com.yahoo.messagebus.metrics.MessengerMetricSet;
 import org.junit.Test;
 
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -95,6 +99,89 @@ public class MessengerTestCase {
         assertTrue(tryMessenger(msn));
     }
 
+    @Test
+    public void requireThatTasksRunConcurrentlyWithMultipleThreads() throws InterruptedException {
+        Messenger msn = new Messenger(3, new MessengerMetricSet());
+        msn.start();
+        CountDownLatch running = new CountDownLatch(3);
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 3; i++) {
+            msn.enqueue(new BlockingTask(running, release));
+        }
+        assertTrue(running.await(60, TimeUnit.SECONDS)); // all three are running at once
+        release.countDown();
+        assertTrue(tryMessenger(msn));
+        msn.destroy();
+    }
+
+    @Test
+    public void requireThatSyncWaitsForAllThreads() throws InterruptedException {
+        Messenger msn = new Messenger(2, new MessengerMetricSet());
+        msn.start();
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        msn.enqueue(new BlockingTask(running, release));
+        assertTrue(running.await(60, TimeUnit.SECONDS));
+
+        AtomicBoolean synced = new AtomicBoolean(false);
+        Thread syncer = new Thread(() -> { msn.sync(); synced.set(true); });
+        syncer.start();
+        syncer.join(100);
+        assertFalse(synced.get());
+        release.countDown();
+        syncer.join(60000);
+        assertTrue(synced.get());
+        assertTrue(tryMessenger(msn));
+        msn.destroy();
+    }
+
+    @Test
+    public void requireThatConcurrentSyncsDoNotDeadlock() throws InterruptedException {
+        Messenger msn = new Messenger(2, new MessengerMetricSet());
+        msn.start();
+        CountDownLatch synced = new CountDownLatch(4);
+        for (int i = 0; i < 4; i++) {
+            new Thread(() -> {
+                for (int j = 0; j < 50; j++) {
+                    msn.sync();
+                }
+                synced.countDown();
+            }).start();
+        }
+        assertTrue(synced.await(60, TimeUnit.SECONDS));
+        assertTrue(tryMessenger(msn));
+        msn.destroy();
+    }
+
+    @Test
+    public void requireThatQueuedTasksAreDestroyed() throws InterruptedException {
+        Messenger msn = new Messenger(2, new MessengerMetricSet());
+        MyTask task = new MyTask();
+        msn.enqueue(task);
+        assertTrue(msn.destroy());
+        assertFalse(msn.destroy());
+        assertEquals(1, task.runLatch.getCount());
+        assertEquals(0, task.destroyLatch.getCount());
+
+        MyTask late = new MyTask();
+        msn.enqueue(late);
+        assertEquals(0, late.destroyLatch.getCount());
+    }
+
+    @Test
+    public void requireThatMetricsAreUpdated() throws InterruptedException {
+        MessengerMetricSet metrics = new MessengerMetricSet();
+        Messenger msn = new Messenger(2, metrics);
+        msn.start();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(tryMessenger(msn));
+        }
+        msn.sync();
+        assertEquals(10 + 2, metrics.tasks.get().get()); // including a sync task per thread
+        assertEquals(0, metrics.queueSize.get().get());
+        msn.destroy();
+    }
+
     private static boolean tryMessenger(Messenger msn) {
         MyTask task = new MyTask();
         msn.enqueue(task);
@@ -121,4 +208,30 @@ public class MessengerTestCase {
             destroyLatch.countDown();
         }
     }
+
+    private static class BlockingTask implements Messenger.Task {
+
+        final CountDownLatch running;
+        final CountDownLatch release;
+
+        BlockingTask(CountDownLatch running, CountDownLatch release) {
+            this.running = running;
+            this.release = release;
+        }
+
+        @Override
+        public void run() {
+            running.countDown();
+            try {
+                release.await(60, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+        }
+
+        @Override
+        public void destroy() {
+
+        }
+    }
 }
@@ -4,6 +4,7 @@ package com.yahoo.messagebus;
 import com.yahoo.jrt.ListenFailedException;
 import com.yahoo.jrt.slobrok.server.Slobrok;
 import com.yahoo.messagebus.network.rpc.test.TestServer;
+import com.yahoo.messagebus.routing.Route;
 import com.yahoo.messagebus.routing.RoutingTableSpec;
 import com.yahoo.messagebus.test.QueueAdapter;
 import com.yahoo.messagebus.test.Receptor;
@@ -15,10 +16,14 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -128,6 +133,120 @@ public class ThrottlerTestCase {
         dst_s.destroy();
     }
 
+    @Test
+    public void testSendWhenReadyAfterThrottle() throws InterruptedException {
+        SourceSessionParams params = new SourceSessionParams().setTimeout(600.0);
+        StaticThrottlePolicy policy = new StaticThrottlePolicy();
+        policy.setMaxPendingCount(1);
+        params.setThrottlePolicy(policy);
+
+        Receptor src_rr = new Receptor();
+        SourceSession src_s = src.mb.createSourceSession(src_rr, params);
+
+        QueueAdapter dst_q = new QueueAdapter();
+        DestinationSession dst_s = dst.mb.createDestinationSession("session", true, dst_q);
+        src.waitSlobrok("test/dst/session", 1);
+
+        assertTrue(src_s.send(new SimpleMessage("1"), "test").isAccepted());
+        assertTrue(dst_q.waitSize(1, 60));
+
+        // The handler of the queued message sends another message, which must not deadlock with the reply thread.
+        BlockingQueue<Result> results = new LinkedBlockingQueue<>();
+        src_s.sendWhenReady(new SimpleMessage("2").setRoute(Route.parse("dst")), result -> {
+            results.add(result);
+            src_s.sendWhenReady(new SimpleMessage("3").setRoute(Route.parse("dst")), results::add);
+        });
+        assertTrue(results.isEmpty());
+
+        for (int i = 0; i < 2; i++) {
+            dst_s.acknowledge((Message)dst_q.dequeue());
+            assertNotNull(src_rr.getReply(60));
+            Result result = results.poll(60, TimeUnit.SECONDS);
+            assertNotNull(result);
+            assertTrue(result.isAccepted());
+            assertTrue(dst_q.waitSize(1, 60));
+        }
+        dst_s.acknowledge((Message)dst_q.dequeue());
+        assertNotNull(src_rr.getReply(60));
+        assertTrue(results.isEmpty());
+
+        src_s.close();
+        dst_s.destroy();
+    }
+
+    @Test
+    public void testSendWhenReadyExpiresWhileThrottled() throws InterruptedException {
+        SourceSessionParams params = new SourceSessionParams().setTimeout(600.0);
+        StaticThrottlePolicy policy = new StaticThrottlePolicy();
+        policy.setMaxPendingCount(1);
+        params.setThrottlePolicy(policy);
+
+        Receptor src_rr = new Receptor();
+        SourceSession src_s = src.mb.createSourceSession(src_rr, params);
+
+        QueueAdapter dst_q = new QueueAdapter();
+        DestinationSession dst_s = dst.mb.createDestinationSession("session", true, dst_q);
+        src.waitSlobrok("test/dst/session", 1);
+
+        assertTrue(src_s.send(new SimpleMessage("1"), "test").isAccepted());
+        assertTrue(dst_q.waitSize(1, 60));
+
+        BlockingQueue<Result> results = new LinkedBlockingQueue<>();
+        Message msg = new SimpleMessage("2").setRoute(Route.parse("dst")).setTimeRemaining(1);
+        src_s.sendWhenReady(msg, results::add);
+        Result result = results.poll(60, TimeUnit.SECONDS);
+        assertNotNull(result);
+        assertFalse(result.isAccepted());
+        assertEquals(ErrorCode.TIMEOUT, result.getError().getCode());
+
+        // Only the accepted message gets a reply.
+        dst_s.acknowledge((Message)dst_q.dequeue());
+        Reply reply = src_rr.getReply(60);
+        assertNotNull(reply);
+        assertEquals("1", ((SimpleMessage)reply.getMessage()).getValue());
+        assertNull(src_rr.getReply(0));
+        assertTrue(results.isEmpty());
+
+        src_s.close();
+        dst_s.destroy();
+    }
+
+    @Test
+    public void testSendWhenReadyLimitsWaitingMessages() throws InterruptedException {
+        SourceSessionParams params = new SourceSessionParams().setTimeout(600.0).setMaxBlockedMessages(2);
+        StaticThrottlePolicy policy = new StaticThrottlePolicy();
+        policy.setMaxPendingCount(1);
+        params.setThrottlePolicy(policy);
+
+        Receptor src_rr = new Receptor();
+        SourceSession src_s = src.mb.createSourceSession(src_rr, params);
+
+        QueueAdapter dst_q = new QueueAdapter();
+        DestinationSession dst_s = dst.mb.createDestinationSession("session", true, dst_q);
+        src.waitSlobrok("test/dst/session", 1);
+
+        assertTrue(src_s.send(new SimpleMessage("1"), "test").isAccepted());
+        assertTrue(dst_q.waitSize(1, 60));
+
+        BlockingQueue<Result> results = new LinkedBlockingQueue<>();
+        assertTrue(src_s.sendWhenReady(new SimpleMessage("2").setRoute(Route.parse("dst")), results::add));
+        assertTrue(src_s.sendWhenReady(new SimpleMessage("3").setRoute(Route.parse("dst")), results::add));
+        assertFalse(src_s.sendWhenReady(new SimpleMessage("4").setRoute(Route.parse("dst")), results::add));
+        assertTrue(results.isEmpty());
+
+        // Messages still waiting when the session is closed are failed
+        src_s.destroy();
+        for (int i = 0; i < 2; i++) {
+            Result result = results.poll(60, TimeUnit.SECONDS);
+            assertNotNull(result);
+            assertEquals(ErrorCode.SEND_QUEUE_CLOSED, result.getError().getCode());
+        }
+        assertTrue(results.isEmpty());
+
+        dst_s.acknowledge((Message)dst_q.dequeue());
+        dst_s.destroy();
+    }
+
     @Test
     public void testDynamicWindowSize() {
         CustomTimer timer = new CustomTimer();
@@ -6,6 +6,7 @@ import com.yahoo.concurrent.SystemTimer;
 import com.yahoo.jrt.ListenFailedException;
 import com.yahoo.jrt.slobrok.server.Slobrok;
 import com.yahoo.messagebus.*;
+import com.yahoo.messagebus.network.Identity;
 import com.yahoo.messagebus.network.rpc.test.TestServer;
 import com.yahoo.messagebus.routing.Route;
 import com.yahoo.messagebus.routing.RoutingTableSpec;
@@ -161,4 +162,40 @@ public class BasicNetworkTestCase {
         ds.destroy();
     }
 
+    @Test
+    public void testMultipleNetworkThreads() {
+        TestServer client = new TestServer(new MessageBusParams().addProtocol(new SimpleProtocol()),
+                                           new RPCNetworkParams().setIdentity(new Identity("test/client"))
+                                                                 .setSlobrokConfigId(TestServer.getSlobrokConfig(slobrok))
+                                                                 .setNumNetworkThreads(4));
+        TestServer server = new TestServer(new MessageBusParams().addProtocol(new SimpleProtocol()),
+                                           new RPCNetworkParams().setIdentity(new Identity("test/server"))
+                                                                 .setSlobrokConfigId(TestServer.getSlobrokConfig(slobrok))
+                                                                 .setNumNetworkThreads(4));
+        Receptor replies = new Receptor();
+        Receptor messages = new Receptor();
+        SourceSession ss = client.mb.createSourceSession(replies, new SourceSessionParams().setTimeout(60.0).setThrottlePolicy(null));
+        DestinationSession ds = server.mb.createDestinationSession("session", true, messages);
+        assertTrue(client.waitSlobrok("test/server/session", 1));
+
+        int count = 100;
+        for (int i = 0; i < count; i++)
+            assertTrue(ss.send(new SimpleMessage("message " + i), Route.parse("test/server/session")).isAccepted());
+        for (int i = 0; i < count; i++) {
+            Message msg = messages.getMessage(60);
+            assertNotNull(msg);
+            ds.acknowledge(msg);
+        }
+        for (int i = 0; i < count; i++) {
+            Reply reply = replies.getReply(60);
+            assertNotNull(reply);
+            assertEquals(0, reply.getNumErrors());
+        }
+
+        ss.destroy();
+        ds.destroy();
+        server.destroy();
+        client.destroy();
+    }
+
 }
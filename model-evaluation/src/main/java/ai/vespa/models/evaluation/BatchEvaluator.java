@@ -0,0 +1,167 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.models.evaluation;
+
+import com.google.common.annotations.Beta;
+import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.evaluation.CompiledExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.TensorValue;
+import com.yahoo.searchlib.rankingexpression.evaluation.Value;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * An evaluator which evaluates a single scalar function over a batch of rows of argument values.
+ * Scalar arguments are bound column-wise, as one array of values per argument, while tensor arguments
+ * are bound to a single value used for all rows.
+ * The evaluation context is reused for all rows, so evaluating a batch does not require a context per row.
+ * <p>
+ * This is not multithread safe, but may be reused to evaluate multiple batches by binding new values.
+ */
+@Beta
+public class BatchEvaluator {
+
+    private final ExpressionFunction function;
+    private final LazyArrayContext context;
+
+    /** The compiled version of the function, or empty if it is evaluated by interpretation */
+    private final Optional<CompiledExpression> compiled;
+
+    /** The values of the scalar arguments bound column-wise, in the order they were bound */
+    private final Map<String, double[]> columns = new LinkedHashMap<>();
+
+    BatchEvaluator(ExpressionFunction function, LazyArrayContext context, Optional<CompiledExpression> compiled) {
+        this.function = function;
+        this.context = context;
+        this.compiled = compiled;
+    }
+
+    /**
+     * Binds the given scalar argument to one value per row.
+     * All arguments bound this way must have the same number of values.
+     *
+     * @param name the argument to bind
+     * @param values the value of this argument in each row
+     * @return this for chaining
+     */
+    public BatchEvaluator bind(String name, double[] values) {
+        TensorType requiredType = requireArgumentType(name);
+        if (requiredType.rank() != 0)
+            throw new IllegalArgumentException("'" + name + "' must be of type " + requiredType +
+                                               " and cannot be bound to a column of scalars");
+        columns.put(name, values);
+        return this;
+    }
+
+    /**
+     * Binds the given argument to a value which is used in all rows.
+     *
+     * @param name the argument to bind
+     * @param value the value this becomes bound to
+     * @return this for chaining
+     */
+    public BatchEvaluator bind(String name, Tensor value) {
+        TensorType requiredType = requireArgumentType(name);
+        if ( ! value.type().isAssignableTo(requiredType))
+            throw new IllegalArgumentException("'" + name + "' must be of type " + requiredType + ", not " + value.type());
+        columns.remove(name);
+        context.put(name, new TensorValue(value));
+        return this;
+    }
+
+    private TensorType requireArgumentType(String name) {
+        TensorType requiredType = function.argumentTypes().get(name);
+        if (requiredType == null)
+            throw new IllegalArgumentException("'" + name + "' is not a valid argument in " + function +
+                                               ". Expected arguments: " + function.argumentTypes().entrySet().stream()
+                                                                                  .map(e -> e.getKey() + ": " + e.getValue())
+                                                                                  .collect(Collectors.joining(", ")));
+        return requiredType;
+    }
+
+    /**
+     * Evaluates the function for each row of the bound columns.
+     * Scalar arguments which are not bound to a column are 0 in all rows.
+     *
+     * @return the value of the function for each row, in row order
+     * @throws IllegalStateException if no columns are bound, if the columns bound have different sizes,
+     *         or if a tensor argument is not bound
+     * @throws IllegalArgumentException if the function does not return a scalar
+     */
+    public double[] evaluate() {
+        for (Map.Entry<String, TensorType> argument : function.argumentTypes().entrySet()) {
+            if (argument.getValue().rank() == 0) continue; // Scalar arguments can be skipped (defaults to 0)
+            if (context.get(argument.getKey()) == LazyArrayContext.defaultContextValue)
+                throw new IllegalStateException("Missing argument '" + argument.getKey() +
+                                                "': Must be bound to a value of type " + argument.getValue());
+        }
+        if (columns.isEmpty())
+            throw new IllegalStateException("No argument values are bound to columns in " + function);
+
+        // Resolve columns to context indexes once for the whole batch
+        int rows = -1;
+        int[] indexes = new int[columns.size()];
+        double[][] values = new double[columns.size()][];
+        int column = 0;
+        for (Map.Entry<String, double[]> entry : columns.entrySet()) {
+            if (rows >= 0 && entry.getValue().length != rows)
+                throw new IllegalStateException("All columns must have the same size, but '" + entry.getKey() +
+                                                "' has " + entry.getValue().length + " values while the previous " +
+                                                "columns have " + rows);
+            rows = entry.getValue().length;
+            indexes[column] = context.arguments().contains(entry.getKey()) ? context.getIndex(entry.getKey()) : -1;
+            values[column] = entry.getValue();
+            column++;
+        }
+
+        double[] results = new double[rows];
+        if (compiled.isPresent())
+            evaluateCompiled(compiled.get(), indexes, values, results);
+        else
+            evaluateInterpreted(indexes, values, results);
+        return results;
+    }
+
+    private void evaluateCompiled(CompiledExpression compiled, int[] indexes, double[][] values, double[] results) {
+        double[] arguments = new double[context.size()];
+        for (String argument : context.arguments()) { // scalars bound to a single value
+            Value value = context.get(context.getIndex(argument));
+            if (value.hasDouble())
+                arguments[context.getIndex(argument)] = value.asDouble();
+        }
+        boolean needsContext = compiled.needsContext();
+        for (int row = 0; row < results.length; row++) {
+            for (int column = 0; column < indexes.length; column++) {
+                if (indexes[column] < 0) continue; // not referenced by the function
+                arguments[indexes[column]] = values[column][row];
+                if (needsContext)
+                    context.put(indexes[column], values[column][row]);
+            }
+            if (needsContext)
+                context.resetFunctionValues();
+            results[row] = compiled.evaluate(arguments, context);
+        }
+    }
+
+    private void evaluateInterpreted(int[] indexes, double[][] values, double[] results) {
+        for (int row = 0; row < results.length; row++) {
+            for (int column = 0; column < indexes.length; column++) {
+                if (indexes[column] < 0) continue; // not referenced by the function
+                context.put(indexes[column], values[column][row]);
+            }
+            context.resetFunctionValues();
+            Value result = function.getBody().evaluate(context);
+            if ( ! result.hasDouble())
+                throw new IllegalArgumentException(function + " does not return a scalar and cannot be batch evaluated");
+            results[row] = result.asDouble();
+        }
+    }
+
+    /** Returns the function evaluated by this */
+    public ExpressionFunction function() { return function; }
+
+}
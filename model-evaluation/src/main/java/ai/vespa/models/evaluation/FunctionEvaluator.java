@@ -3,12 +3,14 @@ package ai.vespa.models.evaluation;
 
 import com.google.common.annotations.Beta;
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.evaluation.CompiledExpression;
 import com.yahoo.searchlib.rankingexpression.evaluation.DoubleValue;
 import com.yahoo.searchlib.rankingexpression.evaluation.TensorValue;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
@@ -22,11 +24,24 @@ public class FunctionEvaluator {
 
     private final ExpressionFunction function;
     private final LazyArrayContext context;
+
+    /** The compiled version of the function, or empty if it is evaluated by interpretation */
+    private final Optional<CompiledExpression> compiled;
+
+    /** The values of the scalar arguments of the compiled function, indexed by their context index */
+    private final double[] arguments;
+
     private boolean evaluated = false;
 
     FunctionEvaluator(ExpressionFunction function, LazyArrayContext context) {
+        this(function, context, Optional.empty());
+    }
+
+    FunctionEvaluator(ExpressionFunction function, LazyArrayContext context, Optional<CompiledExpression> compiled) {
         this.function = function;
         this.context = context;
+        this.compiled = compiled;
+        this.arguments = compiled.isPresent() ? new double[context.size()] : null;
     }
 
     /**
@@ -37,17 +52,12 @@ public class FunctionEvaluator {
      * @return this for chaining
      */
     public FunctionEvaluator bind(String name, Tensor value) {
-        if (evaluated)
-            throw new IllegalStateException("Cannot bind a new value in a used evaluator");
-        TensorType requiredType = function.argumentTypes().get(name);
-        if (requiredType == null)
-            throw new IllegalArgumentException("'" + name + "' is not a valid argument in " + function +
-                                               ". Expected arguments: " + function.argumentTypes().entrySet().stream()
-                                                                                  .map(e -> e.getKey() + ": " + e.getValue())
-                                                                                  .collect(Collectors.joining(", ")));
+        TensorType requiredType = requireArgumentType(name);
         if ( ! value.type().isAssignableTo(requiredType))
             throw new IllegalArgumentException("'" + name + "' must be of type " + requiredType + ", not " + value.type());
         context.put(name, new TensorValue(value));
+        if (compiled.isPresent() && requiredType.rank() == 0 && context.arguments().contains(name))
+            arguments[context.getIndex(name)] = value.asDouble();
         return this;
     }
 
@@ -60,7 +70,30 @@ public class FunctionEvaluator {
      * @return this for chaining
      */
     public FunctionEvaluator bind(String name, double value) {
-        return bind(name, Tensor.Builder.of(TensorType.empty).cell(value).build());
+        if ( ! compiled.isPresent() || ! context.arguments().contains(name))
+            return bind(name, Tensor.Builder.of(TensorType.empty).cell(value).build());
+
+        // Bind directly to the argument array, avoiding creating tensor values when not needed
+        TensorType requiredType = requireArgumentType(name);
+        if (requiredType.rank() != 0)
+            throw new IllegalArgumentException("'" + name + "' must be of type " + requiredType + ", not " + TensorType.empty);
+        int index = context.getIndex(name);
+        arguments[index] = value;
+        if (compiled.get().needsContext())
+            context.put(index, value);
+        return this;
+    }
+
+    private TensorType requireArgumentType(String name) {
+        if (evaluated)
+            throw new IllegalStateException("Cannot bind a new value in a used evaluator");
+        TensorType requiredType = function.argumentTypes().get(name);
+        if (requiredType == null)
+            throw new IllegalArgumentException("'" + name + "' is not a valid argument in " + function +
+                                               ". Expected arguments: " + function.argumentTypes().entrySet().stream()
+                                                                                  .map(e -> e.getKey() + ": " + e.getValue())
+                                                                                  .collect(Collectors.joining(", ")));
+        return requiredType;
     }
 
     public Tensor evaluate() {
@@ -71,6 +104,8 @@ public class FunctionEvaluator {
                                                 "': Must be bound to a value of type " + argument.getValue());
         }
         evaluated = true;
+        if (compiled.isPresent())
+            return Tensor.Builder.of(TensorType.empty).cell(compiled.get().evaluate(arguments, context)).build();
         return function.getBody().evaluate(context).asTensor();
     }
 
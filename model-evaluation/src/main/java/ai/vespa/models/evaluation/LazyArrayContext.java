@@ -121,6 +121,14 @@ public final class LazyArrayContext extends Context implements ContextIndex {
         return index;
     }
 
+    /**
+     * Discards the values computed by functions invoked from this, such that this can be reused for
+     * another evaluation after rebinding the free variables.
+     */
+    void resetFunctionValues() {
+        indexedBindings.resetFunctionValues();
+    }
+
     /**
      * Creates a copy of this context suitable for evaluating against the same ranking expression
      * in a different thread or for re-binding free variables.
@@ -232,6 +240,12 @@ public final class LazyArrayContext extends Context implements ContextIndex {
         Set<String> arguments() { return arguments; }
         Integer indexOf(String name) { return nameToIndex.get(name); }
 
+        void resetFunctionValues() {
+            for (Value value : values)
+                if (value instanceof LazyValue)
+                    ((LazyValue)value).reset();
+        }
+
         IndexedBindings copy(Context context) {
             Value[] valueCopy = new Value[values.length];
             for (int i = 0; i < values.length; i++)
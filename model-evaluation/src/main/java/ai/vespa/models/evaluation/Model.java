@@ -5,15 +5,23 @@ import com.google.common.annotations.Beta;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.Reference;
+import com.yahoo.searchlib.rankingexpression.evaluation.CompiledExpression;
 import com.yahoo.searchlib.rankingexpression.evaluation.ContextIndex;
+import com.yahoo.searchlib.rankingexpression.evaluation.ExpressionCompiler;
 import com.yahoo.searchlib.rankingexpression.evaluation.ExpressionOptimizer;
 import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.TypeContext;
 
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -41,6 +49,9 @@ public class Model {
     /** Context prototypes, indexed by function name (as all invocations of the same function share the same context prototype) */
     private final ImmutableMap<String, LazyArrayContext> contextPrototypes;
 
+    /** Compiled versions of the functions which can be compiled, indexed by function name */
+    private final ImmutableMap<String, CompiledExpression> compiledFunctions;
+
     private final ExpressionOptimizer expressionOptimizer = new ExpressionOptimizer();
 
     /** Programmatically create a model containing functions without constant of function references only */
@@ -98,6 +109,15 @@ public class Model {
             functionsBuilder.put(function.getKey(), optimizedFunction);
         }
         this.referencedFunctions = functionsBuilder.build();
+
+        // Compile the functions which can be evaluated without interpreting tensor expressions
+        ImmutableMap.Builder<String, CompiledExpression> compiledBuilder = new ImmutableMap.Builder<>();
+        for (ExpressionFunction function : this.functions) {
+            LazyArrayContext context = contextPrototypes.get(function.getName());
+            if (context == null) continue;
+            compile(function, context).ifPresent(compiled -> compiledBuilder.put(function.getName(), compiled));
+        }
+        this.compiledFunctions = compiledBuilder.build();
     }
 
     /** Returns an optimized version of the given function */
@@ -107,6 +127,22 @@ public class Model {
         return function;
     }
 
+    /** Returns the given function optimized and compiled, or empty if it cannot be compiled */
+    private Optional<CompiledExpression> compile(ExpressionFunction function, LazyArrayContext context) {
+        Set<String> scalarArguments = new HashSet<>();
+        for (String argument : context.arguments()) {
+            TensorType type = function.argumentTypes().get(argument);
+            if (type != null && type.rank() == 0)
+                scalarArguments.add(argument);
+        }
+        // Optimize a copy, as the function itself is returned unoptimized by functions().
+        // This can share nodes with the function, as the optimizer replaces rather than modifies nodes.
+        RankingExpression body = new RankingExpression(function.getBody().getName(), function.getBody().getRoot());
+        expressionOptimizer.optimize(body, context);
+        return new ExpressionCompiler(context, new FunctionTypeContext(function, context), scalarArguments)
+                       .compile(body);
+    }
+
     public String name() { return name; }
 
     /**
@@ -143,6 +179,11 @@ public class Model {
         return null;
     }
 
+    /** Returns the compiled version of the given function, or empty if it is evaluated by interpretation */
+    Optional<CompiledExpression> compiledFunction(String name) {
+        return Optional.ofNullable(compiledFunctions.get(name));
+    }
+
     /** Returns an immutable map of the referenced function instances of this */
     Map<FunctionReference, ExpressionFunction> referencedFunctions() { return referencedFunctions; }
 
@@ -171,22 +212,44 @@ public class Model {
      * @throws IllegalArgumentException if the function is not present, or not uniquely identified by the names given
      */
     public FunctionEvaluator evaluatorOf(String ... names) {  // TODO: Parameter overloading?
+        return evaluatorOf(resolveFunction(names));
+    }
+
+    /**
+     * Returns an evaluator which can be used to evaluate the given scalar function over a batch of argument values
+     * in a single thread.
+     *
+     * Usage:
+     * <code>double[] results = model.batchEvaluatorOf("myFunction").bind("foo", fooValues).bind("bar", barValues).evaluate()</code>
+     *
+     * @param names the names identifying the function, see {@link #evaluatorOf}
+     * @throws IllegalArgumentException if the function is not present, or not uniquely identified by the names given
+     */
+    public BatchEvaluator batchEvaluatorOf(String ... names) {
+        ExpressionFunction function = resolveFunction(names);
+        return new BatchEvaluator(function,
+                                  requireContextProprotype(function.getName()).copy(),
+                                  compiledFunction(function.getName()));
+    }
+
+    /** Returns the function uniquely identified by the given names, or throws IllegalArgumentException */
+    private ExpressionFunction resolveFunction(String ... names) {
         if (names.length == 0) {
             if (functions.size() > 1)
                 throwUndeterminedFunction("More than one function is available in " + this + ", but no name is given");
-            return evaluatorOf(functions.get(0));
+            return functions.get(0);
         }
         else if (names.length == 1) {
             String name = names[0];
             ExpressionFunction function = function(name);
-            if (function != null) return evaluatorOf(function);
+            if (function != null) return function;
 
             List<ExpressionFunction> functionsStartingByName =
                     functions.stream().filter(f -> f.getName().startsWith(name + ".")).collect(Collectors.toList());
             if (functionsStartingByName.size() == 0)
                 throwUndeterminedFunction("No function '" + name + "' in " + this);
             else if (functionsStartingByName.size() == 1)
-                return evaluatorOf(functionsStartingByName.get(0));
+                return functionsStartingByName.get(0);
             else
                 throwUndeterminedFunction("Multiple functions start by '" + name + "' in " + this);
 
@@ -195,7 +258,7 @@ public class Model {
             String name = names[0] + "." + names[1];
             ExpressionFunction function = function(name);
             if (function == null) throwUndeterminedFunction("No function '" + name + "' in " + this);
-            return evaluatorOf(function);
+            return function;
         }
         throw new IllegalArgumentException("No more than 2 names can be given when choosing a function, got " +
                                            Arrays.toString(names));
@@ -203,7 +266,9 @@ public class Model {
 
     /** Returns a single-use evaluator of a function */
     private FunctionEvaluator evaluatorOf(ExpressionFunction function) {
-        return new FunctionEvaluator(function, requireContextProprotype(function.getName()).copy());
+        return new FunctionEvaluator(function,
+                                     requireContextProprotype(function.getName()).copy(),
+                                     compiledFunction(function.getName()));
     }
 
     private void throwUndeterminedFunction(String message) {
@@ -214,4 +279,30 @@ public class Model {
     @Override
     public String toString() { return "model '" + name + "'"; }
 
+    /** The declared types of the arguments of a function, and the types of other references as given by its context */
+    private static class FunctionTypeContext implements TypeContext<Reference> {
+
+        private final ExpressionFunction function;
+        private final LazyArrayContext context;
+
+        FunctionTypeContext(ExpressionFunction function, LazyArrayContext context) {
+            this.function = function;
+            this.context = context;
+        }
+
+        @Override
+        public TensorType getType(Reference reference) {
+            String name = reference.toString();
+            if (context.arguments().contains(name)) // arguments are not bound in the context prototype
+                return function.argumentTypes().get(name);
+            return context.getType(reference);
+        }
+
+        @Override
+        public TensorType getType(String reference) {
+            throw new UnsupportedOperationException("Not able to parse general references from string form");
+        }
+
+    }
+
 }
@@ -1,6 +1,7 @@
 // Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package ai.vespa.models.handler;
 
+import ai.vespa.models.evaluation.BatchEvaluator;
 import ai.vespa.models.evaluation.FunctionEvaluator;
 import ai.vespa.models.evaluation.Model;
 import ai.vespa.models.evaluation.ModelsEvaluator;
@@ -10,6 +11,7 @@ import com.yahoo.container.jdisc.ThreadedHttpRequestHandler;
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
 import com.yahoo.slime.Cursor;
 import com.yahoo.slime.Slime;
+import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 import com.yahoo.tensor.serialization.JsonFormat;
@@ -30,6 +32,12 @@ public class ModelsEvaluationHandler extends ThreadedHttpRequestHandler {
     public static final String VERSION_V1 = "v1";
     public static final String EVALUATE = "eval";
 
+    /** The request property which turns on batch evaluation, where scalar arguments are comma-separated lists */
+    public static final String BATCH = "batch";
+
+    /** The dimension of the tensor returned from batch evaluation, indexed by row */
+    public static final String BATCH_DIMENSION = "batch";
+
     private final ModelsEvaluator modelsEvaluator;
 
     public ModelsEvaluationHandler(ModelsEvaluator modelsEvaluator, Executor executor) {
@@ -59,6 +67,8 @@ public class ModelsEvaluationHandler extends ThreadedHttpRequestHandler {
             Optional<Integer> evalSegment = path.lastIndexOf(EVALUATE);
             String[] function = path.range(3, evalSegment);
             if (evalSegment.isPresent()) {
+                if (property(request, BATCH).map(Boolean::parseBoolean).orElse(false))
+                    return evaluateModelBatch(request, model, function);
                 return evaluateModel(request, model, function);
             }
             return listModelInformation(request, model, function);
@@ -80,6 +90,43 @@ public class ModelsEvaluationHandler extends ThreadedHttpRequestHandler {
         return new Response(200, JsonFormat.encode(result));
     }
 
+    /**
+     * Evaluates a scalar function once for each row of argument values. Scalar arguments are given as
+     * comma-separated lists of values with one value per row, while tensor arguments have the same value in all rows.
+     * The result is a tensor with one cell per row in the batch dimension.
+     */
+    private HttpResponse evaluateModelBatch(HttpRequest request, Model model, String[] function)  {
+        BatchEvaluator evaluator = model.batchEvaluatorOf(function);
+        for (Map.Entry<String, TensorType> argument : evaluator.function().argumentTypes().entrySet()) {
+            Optional<String> value = property(request, argument.getKey());
+            if ( ! value.isPresent()) continue;
+            if (argument.getValue().rank() == 0)
+                evaluator.bind(argument.getKey(), toDoubles(argument.getKey(), value.get()));
+            else
+                evaluator.bind(argument.getKey(), Tensor.from(argument.getValue(), value.get()));
+        }
+        double[] results = evaluator.evaluate();
+        IndexedTensor.BoundBuilder builder =
+                (IndexedTensor.BoundBuilder)Tensor.Builder.of(new TensorType.Builder().indexed(BATCH_DIMENSION, results.length).build());
+        for (int i = 0; i < results.length; i++)
+            builder.cellByDirectIndex(i, results[i]);
+        return new Response(200, JsonFormat.encode(builder.build()));
+    }
+
+    private double[] toDoubles(String name, String values) {
+        String[] elements = values.split(",");
+        double[] doubles = new double[elements.length];
+        try {
+            for (int i = 0; i < elements.length; i++)
+                doubles[i] = Double.parseDouble(elements[i].trim());
+        }
+        catch (NumberFormatException e) {
+            throw new IllegalStateException("Argument '" + name + "' must be a comma-separated list of numbers, not '" +
+                                            values + "'");
+        }
+        return doubles;
+    }
+
     private HttpResponse listAllModels(HttpRequest request) {
         Slime slime = new Slime();
         Cursor root = slime.setObject();
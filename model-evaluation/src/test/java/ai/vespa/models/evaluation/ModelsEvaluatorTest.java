@@ -7,6 +7,7 @@ import com.yahoo.filedistribution.fileacquirer.MockFileAcquirer;
 import com.yahoo.path.Path;
 import com.yahoo.searchlib.rankingexpression.ExpressionFunction;
 import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestNode;
 import com.yahoo.searchlib.rankingexpression.rule.ReferenceNode;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
@@ -16,9 +17,11 @@ import com.yahoo.yolean.Exceptions;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author bratseth
@@ -36,6 +39,65 @@ public class ModelsEvaluatorTest {
         assertEquals(32.0, function.evaluate().asDouble(), delta);
     }
 
+    @Test
+    public void testBatchEvaluationDependingFunctionTakingArguments() {
+        ModelsEvaluator models = createModels("src/test/resources/config/rankexpression/");
+        BatchEvaluator function = models.batchEvaluatorOf("macros", "secondphase");
+        function.bind("match", new double[] { 3, 1, 0 });
+        function.bind("rankBoost", new double[] { 5, 1, 2 });
+        double[] results = function.evaluate();
+        assertEquals(3, results.length);
+        assertEquals(32.0, results[0], delta);
+        assertEquals(8.0, results[1], delta);
+        assertEquals(8.0, results[2], delta);
+
+        // Reuse for another batch
+        function.bind("match", new double[] { 1 });
+        function.bind("rankBoost", new double[] { 1 });
+        assertEquals(8.0, function.evaluate()[0], delta);
+    }
+
+    @Test
+    public void testBatchEvaluationWithTensorArguments() {
+        List<ExpressionFunction> functions = new ArrayList<>();
+        ExpressionFunction function = new ExpressionFunction("test", RankingExpression.from("sum(arg1 * arg2) + x"));
+        function = function.withArgument("arg1", TensorType.fromSpec("tensor(d0[1])"));
+        function = function.withArgument("arg2", TensorType.fromSpec("tensor(d1{})"));
+        functions.add(function);
+        Model model = new Model("test-model", functions);
+
+        BatchEvaluator evaluator = model.batchEvaluatorOf("test");
+        evaluator.bind("arg1", Tensor.from(TensorType.fromSpec("tensor(d0[1])"), "{{d0:0}:2.0}"));
+        evaluator.bind("arg2", Tensor.from(TensorType.fromSpec("tensor(d1{})"), "{{d1:foo}:3.0}"));
+        evaluator.bind("x", new double[] { 0.5, 1.5 });
+        double[] results = evaluator.evaluate();
+        assertEquals(6.5, results[0], delta);
+        assertEquals(7.5, results[1], delta);
+
+        try { // Tensor argument bound to a column
+            evaluator.bind("arg1", new double[] { 1 });
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("'arg1' must be of type tensor(d0[1]) and cannot be bound to a column of scalars",
+                         Exceptions.toMessageString(e));
+        }
+    }
+
+    @Test
+    public void testEvaluationOfCompiledForest() {
+        ExpressionFunction function = new ExpressionFunction("forest",
+                                                             RankingExpression.from("if (x < 1.5, if (y == 2, 1.0, 2.0), 3.0) + " +
+                                                                                    "if (y < 3, 0.5, if (x in [1, 2], 0.25, 0.125))"));
+        Model model = new Model("test-model", Collections.singletonList(function));
+        assertTrue(model.compiledFunction("forest").get().expression().getRoot() instanceof GBDTForestNode);
+        assertEquals(function.getBody().getRoot().toString(), model.functions().get(0).getBody().getRoot().toString());
+
+        assertEquals(1.5, model.evaluatorOf("forest").bind("x", 1).bind("y", 2).evaluate().asDouble(), delta);
+        assertEquals(2.5, model.evaluatorOf("forest").bind("x", 0).bind("y", 0).evaluate().asDouble(), delta);
+        assertEquals(3.25, model.evaluatorOf("forest").bind("x", 2).bind("y", 4).evaluate().asDouble(), delta);
+        assertEquals(3.125, model.evaluatorOf("forest").bind("x", 3).bind("y", 3).evaluate().asDouble(), delta);
+    }
+
     @Test
     public void testBindingValidation() {
         List<ExpressionFunction> functions = new ArrayList<>();
@@ -80,6 +80,29 @@ public class ModelsEvaluationHandlerTest {
         assertResponse(url, properties, 200, expected);
     }
 
+    @Test
+    public void testXgBoostBatchEvaluation() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("batch", "true");
+        properties.put("f29", "-1.0, 0");
+        properties.put("f56", "0.2, 0");
+        properties.put("f60", "0.3, 0");
+        properties.put("f109", "0.4, 0");
+        String url = "http://localhost/model-evaluation/v1/xgboost_2_2/eval";
+        String expected = "{\"cells\":[{\"address\":{\"batch\":\"0\"},\"value\":-7.936679999999999},{\"address\":{\"batch\":\"1\"},\"value\":-8.17695}]}";
+        assertResponse(url, properties, 200, expected);
+    }
+
+    @Test
+    public void testXgBoostBatchEvaluationWithInvalidValues() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("batch", "true");
+        properties.put("f29", "-1.0, foo");
+        String url = "http://localhost/model-evaluation/v1/xgboost_2_2/eval";
+        String expected = "{\"error\":\"Argument 'f29' must be a comma-separated list of numbers, not '-1.0, foo'\"}";
+        assertResponse(url, properties, 400, expected);
+    }
+
     @Test
     public void testMnistSoftmaxDetails() {
         String url = "http://localhost:8080/model-evaluation/v1/mnist_softmax";
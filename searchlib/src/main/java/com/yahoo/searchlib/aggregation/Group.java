@@ -7,11 +7,15 @@ import com.yahoo.searchlib.expression.ResultNode;
 import com.yahoo.vespa.objects.*;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class Group extends Identifiable {
 
     public static final int classId = registerClass(0x4000 + 90, Group.class);
     private static final ObjectPredicate REF_LOCATOR = new RefLocator();
+    /** The minimum number of children to merge before they are merged in parallel, when a pool is given */
+    public static final int PARALLEL_MERGE_THRESHOLD = 1000;
     private List<Integer> orderByIdx = new ArrayList<Integer>();
     private List<ExpressionNode> orderByExp = new ArrayList<ExpressionNode>();
     private List<AggregationResult> aggregationResults = new ArrayList<AggregationResult>();
@@ -48,8 +52,15 @@ public class Group extends Identifiable {
                 aggregationResults.get(i).merge(rhs.aggregationResults.get(i));
             }
         }
+        if (rhs.children.isEmpty()) {
+            return;
+        }
+        if (children.isEmpty()) {
+            children = new ArrayList<Group>(rhs.children);
+            return;
+        }
 
-        ArrayList<Group> merged = new ArrayList<Group>();
+        ArrayList<Group> merged = new ArrayList<Group>(children.size() + rhs.children.size());
         Iterator<Group> lhsChild = children.iterator(), rhsChild = rhs.children.iterator();
         if (lhsChild.hasNext() && rhsChild.hasNext()) {
             Group lhsGroup = lhsChild.next();
@@ -85,6 +96,95 @@ public class Group extends Identifiable {
         children = merged;
     }
 
+    /**
+     * <p>Merges the content of all the given groups <b>into</b> this. This gives the same result as merging each of
+     * them into this in turn, but the children of all the groups are merged at once, so the list of children is only
+     * built once. The children with the same id are then merged in turn, which visits each of the given groups in
+     * the order they are laid out in memory. When this function returns, make sure to call {@link
+     * #postMerge(java.util.List, int, int)}.</p>
+     *
+     * @param firstLevel   The first level to merge.
+     * @param currentLevel The current level.
+     * @param others       The groups to merge with, in the order they should be merged.
+     */
+    public void merge(int firstLevel, int currentLevel, List<Group> others) {
+        merge(firstLevel, currentLevel, others, null);
+    }
+
+    /**
+     * <p>Merges the content of all the given groups <b>into</b> this as {@link #merge(int, int, java.util.List)}, but
+     * if there are at least {@link #PARALLEL_MERGE_THRESHOLD} children to merge, the children with different ids are
+     * merged in parallel in the given pool. This returns when all the groups are merged.</p>
+     *
+     * @param firstLevel   The first level to merge.
+     * @param currentLevel The current level.
+     * @param others       The groups to merge with, in the order they should be merged.
+     * @param pool         The pool to merge children in, or null to merge in the calling thread.
+     */
+    public void merge(int firstLevel, int currentLevel, List<Group> others, ForkJoinPool pool) {
+        for (Group rhs : others) {
+            if (rhs.rank > rank) {
+                rank = rhs.rank; // keep highest rank
+            }
+        }
+        if (currentLevel >= firstLevel) {
+            for (int i = 0, len = aggregationResults.size(); i < len; ++i) {
+                AggregationResult result = aggregationResults.get(i);
+                for (Group rhs : others) {
+                    result.merge(rhs.aggregationResults.get(i));
+                }
+            }
+        }
+
+        ChildCursors cursors = new ChildCursors(others.size() + 1);
+        cursors.add(children);
+        for (Group rhs : others) {
+            cursors.add(rhs.children);
+        }
+        if (cursors.lists() == 0) {
+            return;
+        }
+        if (cursors.lists() == 1) {
+            if (children.isEmpty()) {
+                for (Group rhs : others) {
+                    if (!rhs.children.isEmpty()) {
+                        children = new ArrayList<Group>(rhs.children);
+                        break;
+                    }
+                }
+            }
+            return;
+        }
+
+        int childCount = cursors.remaining();
+        ArrayList<Group> merged = new ArrayList<Group>(childCount);
+        List<List<Group>> unmerged = new ArrayList<List<Group>>();
+        while (cursors.lists() > 0) {
+            List<Group> equal = new ArrayList<Group>(cursors.lists());
+            cursors.next(equal);
+            merged.add(equal.get(0));
+            if (equal.size() > 1) {
+                unmerged.add(equal);
+            }
+        }
+        children = merged;
+        if (pool != null && childCount >= PARALLEL_MERGE_THRESHOLD && unmerged.size() > 1) {
+            pool.invoke(new MergeTask(firstLevel, currentLevel + 1, unmerged, 0, unmerged.size()));
+        } else {
+            for (List<Group> equal : unmerged) {
+                mergeEqual(firstLevel, currentLevel + 1, equal);
+            }
+        }
+    }
+
+    /** Merges the groups with the same id in the given list into the first of them */
+    private static void mergeEqual(int firstLevel, int currentLevel, List<Group> equal) {
+        Group group = equal.get(0);
+        for (int i = 1, len = equal.size(); i < len; ++i) {
+            group.merge(firstLevel, currentLevel, equal.get(i));
+        }
+    }
+
     private void executeOrderBy() {
         for (ExpressionNode node : orderByExp) {
             node.prepare();
@@ -115,10 +215,7 @@ public class Group extends Identifiable {
                 group.executeOrderBy();
             }
             if (maxGroups >= 0 && children.size() > maxGroups) {
-                // prune groups
-                sortChildrenByRank();
-                children = children.subList(0, maxGroups);
-                sortChildrenById();
+                pruneChildren(maxGroups);
             }
             for (Group group : children) {
                 group.postMerge(levels, firstLevel, currentLevel + 1);
@@ -127,6 +224,55 @@ public class Group extends Identifiable {
 
     }
 
+    /**
+     * <p>Keeps only the given number of the highest ranked children, sorted by their id. The kept children are those
+     * first in the order given by {@link #sortChildrenByRank()}, but they are selected without sorting all the
+     * children, and they are only sorted by id if they were not already.</p>
+     *
+     * @param maxGroups The number of children to keep.
+     */
+    private void pruneChildren(int maxGroups) {
+        List<Group> kept;
+        if (sortType == SortType.BYRANK) {
+            kept = new ArrayList<Group>(children.subList(0, maxGroups));
+        } else {
+            // keep the indexes of the best groups on a heap with the worst at the top, ties broken by index as a
+            // stable sort would
+            final List<Group> candidates = children;
+            PriorityQueue<Integer> best = new PriorityQueue<Integer>(maxGroups + 1, new Comparator<Integer>() {
+                public int compare(Integer lhs, Integer rhs) {
+                    int cmp = candidates.get(rhs).compareRank(candidates.get(lhs));
+                    return (cmp != 0) ? cmp : Integer.compare(rhs, lhs);
+                }
+            });
+            for (int i = 0, len = candidates.size(); i < len; i++) {
+                best.add(i);
+                if (best.size() > maxGroups) {
+                    best.poll();
+                }
+            }
+            boolean[] keep = new boolean[candidates.size()];
+            for (Integer index : best) {
+                keep[index] = true;
+            }
+            kept = new ArrayList<Group>(maxGroups);
+            for (int i = 0, len = candidates.size(); i < len; i++) { // in the current order, which is usually by id
+                if (keep[i]) {
+                    kept.add(candidates.get(i));
+                }
+            }
+        }
+        children = kept;
+        sortType = SortType.UNSORTED;
+        for (int i = 1; i < children.size(); i++) {
+            if (children.get(i - 1).compareId(children.get(i)) > 0) {
+                sortChildrenById();
+                return;
+            }
+        }
+        sortType = SortType.BYID;
+    }
+
     /**
      * <p>Will sort the children by their id, if they are not sorted already.</p>
      */
@@ -515,4 +661,184 @@ public class Group extends Identifiable {
             return -1;
         }
     }
+
+    /**
+     * <p>Merges a range of lists of groups with the same id, splitting the range in two until it contains a single
+     * list.</p>
+     */
+    @SuppressWarnings("serial")
+    private static class MergeTask extends RecursiveAction {
+
+        private final int firstLevel;
+        private final int currentLevel;
+        private final List<List<Group>> unmerged;
+        private final int start;
+        private final int end;
+
+        MergeTask(int firstLevel, int currentLevel, List<List<Group>> unmerged, int start, int end) {
+            this.firstLevel = firstLevel;
+            this.currentLevel = currentLevel;
+            this.unmerged = unmerged;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start == 1) {
+                mergeEqual(firstLevel, currentLevel, unmerged.get(start));
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(new MergeTask(firstLevel, currentLevel, unmerged, start, middle),
+                      new MergeTask(firstLevel, currentLevel, unmerged, middle, end));
+        }
+    }
+
+    /**
+     * <p>A heap of positions in lists of groups sorted by id, which returns the groups of all the lists in order of
+     * id. All the groups with the smallest id are taken at once, and the heap is repaired once for all of them, so
+     * taking a group found in all k lists costs O(k), and taking a group found in a single list costs O(log k).</p>
+     */
+    private static class ChildCursors {
+
+        private final List<List<Group>> lists;
+        private final int[] positions;
+        private final int[] heap; // indexes of lists, where lists with no groups left are larger than all others
+        private final int[] stack;
+        private final int[] taken;
+        private int live = 0;
+        private int remaining = 0;
+
+        ChildCursors(int maxLists) {
+            lists = new ArrayList<List<Group>>(maxLists);
+            positions = new int[maxLists];
+            heap = new int[maxLists];
+            stack = new int[maxLists];
+            taken = new int[maxLists];
+        }
+
+        /** Adds a list to take groups from, unless it is empty. Lists must be added before any group is taken. */
+        void add(List<Group> list) {
+            if (list.isEmpty()) {
+                return;
+            }
+            heap[live] = lists.size();
+            lists.add(list);
+            remaining += list.size();
+            siftUp(live++);
+        }
+
+        /** Returns the number of lists which have groups left */
+        int lists() {
+            return live;
+        }
+
+        /** Returns the number of groups left in all the lists */
+        int remaining() {
+            return remaining;
+        }
+
+        /**
+         * Takes all the groups with the smallest id and adds them to the given list, in the order of the lists they
+         * are taken from. There must be a list with groups left.
+         */
+        void next(List<Group> equal) {
+            // the heap entries with the smallest id form a subtree at the top of the heap
+            Group first = head(heap[0]);
+            int found = 0;
+            int stackSize = 0;
+            stack[stackSize++] = 0;
+            while (stackSize > 0) {
+                int i = stack[--stackSize];
+                taken[found++] = i;
+                for (int child = 2 * i + 1; child <= 2 * i + 2 && child < lists.size(); ++child) {
+                    if (!exhausted(heap[child]) && head(heap[child]).compareId(first) == 0) {
+                        stack[stackSize++] = child;
+                    }
+                }
+            }
+            if (found == 1) {
+                equal.add(first);
+                advance(heap[0]);
+                siftDown(0);
+                return;
+            }
+            for (int i = 0; i < found; ++i) {
+                stack[i] = heap[taken[i]];
+            }
+            Arrays.sort(stack, 0, found);
+            for (int i = 0; i < found; ++i) {
+                equal.add(head(stack[i]));
+                advance(stack[i]);
+            }
+            // repair the deepest entries first, so the subtrees of each entry are heaps when it is repaired
+            Arrays.sort(taken, 0, found);
+            for (int i = found; --i >= 0; ) {
+                siftDown(taken[i]);
+            }
+        }
+
+        private void advance(int list) {
+            --remaining;
+            if (++positions[list] == lists.get(list).size()) {
+                --live;
+            }
+        }
+
+        private boolean exhausted(int list) {
+            return positions[list] == lists.get(list).size();
+        }
+
+        private Group head(int list) {
+            return lists.get(list).get(positions[list]);
+        }
+
+        private boolean less(int lhs, int rhs) {
+            if (exhausted(lhs)) {
+                return false;
+            }
+            if (exhausted(rhs)) {
+                return true;
+            }
+            int cmp = head(lhs).compareId(head(rhs));
+            return (cmp < 0) || (cmp == 0 && lhs < rhs);
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (!less(heap[i], heap[parent])) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            int size = lists.size();
+            while (true) {
+                int smallest = i;
+                int left = 2 * i + 1, right = left + 1;
+                if (left < size && less(heap[left], heap[smallest])) {
+                    smallest = left;
+                }
+                if (right < size && less(heap[right], heap[smallest])) {
+                    smallest = right;
+                }
+                if (smallest == i) {
+                    return;
+                }
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int tmp = heap[i];
+            heap[i] = heap[j];
+            heap[j] = tmp;
+        }
+    }
 }
@@ -8,6 +8,7 @@ import com.yahoo.vespa.objects.*;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 public class Grouping extends Identifiable {
 
@@ -73,6 +74,31 @@ public class Grouping extends Identifiable {
         root.merge(firstLevel, 0, rhs.root);
     }
 
+    /**
+     * <p>Merges the content of all the given groupings <b>into</b> this at once. This gives the same result as merging
+     * each of them into this in turn.</p>
+     *
+     * @param others The groupings to merge with, in the order they should be merged.
+     */
+    public void merge(List<Grouping> others) {
+        merge(others, null);
+    }
+
+    /**
+     * <p>Merges the content of all the given groupings <b>into</b> this at once, merging large groupings in parallel
+     * in the given pool. See {@link Group#merge(int, int, List, ForkJoinPool)}.</p>
+     *
+     * @param others The groupings to merge with, in the order they should be merged.
+     * @param pool   The pool to merge in, or null to merge in the calling thread.
+     */
+    public void merge(List<Grouping> others, ForkJoinPool pool) {
+        List<Group> roots = new ArrayList<>(others.size());
+        for (Grouping rhs : others) {
+            roots.add(rhs.root);
+        }
+        root.merge(firstLevel, 0, roots, pool);
+    }
+
     /**
      * <p>This method is invoked after merging is done. It is intended used for resolving any dependencies or derivates
      * that might have changes due to the merge.</p>
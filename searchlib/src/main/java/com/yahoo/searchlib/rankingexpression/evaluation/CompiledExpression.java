@@ -0,0 +1,48 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation;
+
+import com.google.common.annotations.Beta;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+
+/**
+ * A scalar ranking expression compiled to a tree of primitive double operations by {@link ExpressionCompiler}.
+ * Instances are immutable and can be used by multiple threads at the same time.
+ */
+@Beta
+public final class CompiledExpression {
+
+    private final RankingExpression expression;
+    private final ExpressionCompiler.DoubleNode root;
+    private final boolean needsContext;
+
+    CompiledExpression(RankingExpression expression, ExpressionCompiler.DoubleNode root, boolean needsContext) {
+        this.expression = expression;
+        this.root = root;
+        this.needsContext = needsContext;
+    }
+
+    /**
+     * Evaluates this expression.
+     *
+     * @param arguments the values of the scalar arguments of this, each at the index assigned to it
+     *                  by the context index this was compiled with
+     * @param context the context used to evaluate the parts of the expression which are not compiled.
+     *                This must contain all the values of the arguments also if {@link #needsContext} is true.
+     */
+    public double evaluate(double[] arguments, Context context) {
+        return root.evaluate(arguments, context);
+    }
+
+    /**
+     * Returns whether some parts of this expression are evaluated using the context rather than
+     * the argument array, such that the context must have all the arguments bound when evaluating
+     */
+    public boolean needsContext() { return needsContext; }
+
+    /** Returns the expression this is compiled from */
+    public RankingExpression expression() { return expression; }
+
+    @Override
+    public String toString() { return "compiled " + expression; }
+
+}
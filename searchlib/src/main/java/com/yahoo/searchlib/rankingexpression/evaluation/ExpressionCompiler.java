@@ -0,0 +1,478 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation;
+
+import com.google.common.annotations.Beta;
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.Reference;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestNode;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTNode;
+import com.yahoo.searchlib.rankingexpression.rule.ArithmeticNode;
+import com.yahoo.searchlib.rankingexpression.rule.ArithmeticOperator;
+import com.yahoo.searchlib.rankingexpression.rule.ComparisonNode;
+import com.yahoo.searchlib.rankingexpression.rule.ConstantNode;
+import com.yahoo.searchlib.rankingexpression.rule.EmbracedNode;
+import com.yahoo.searchlib.rankingexpression.rule.ExpressionNode;
+import com.yahoo.searchlib.rankingexpression.rule.Function;
+import com.yahoo.searchlib.rankingexpression.rule.FunctionNode;
+import com.yahoo.searchlib.rankingexpression.rule.IfNode;
+import com.yahoo.searchlib.rankingexpression.rule.NegativeNode;
+import com.yahoo.searchlib.rankingexpression.rule.NotNode;
+import com.yahoo.searchlib.rankingexpression.rule.ReferenceNode;
+import com.yahoo.searchlib.rankingexpression.rule.SetMembershipNode;
+import com.yahoo.searchlib.rankingexpression.rule.TruthOperator;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.TypeContext;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Compiles scalar ranking expressions to a tree of primitive double operations reading scalar arguments
+ * from a double array. This avoids the virtual Value calls, Value allocations and name lookups done when
+ * interpreting an expression, which dominates the cost of evaluating small expressions such as GBDT models.
+ * <p>
+ * Nodes which cannot be compiled are evaluated by the interpreter as long as they have a scalar type.
+ * Expressions which do not produce a scalar, or where this cannot be determined, are not compiled.
+ * <p>
+ * The expression may be optimized by {@link ExpressionOptimizer} before it is compiled, using the same context index.
+ * Instances of this class are not multithread safe.
+ */
+@Beta
+public class ExpressionCompiler {
+
+    private final ContextIndex contextIndex;
+    private final TypeContext<Reference> types;
+    private final Set<String> scalarArguments;
+    private final Set<Integer> argumentIndexes = new HashSet<>();
+
+    /** Whether the expression compiled contains parts which are not read from the argument array */
+    private boolean needsContext = false;
+
+    /**
+     * Creates a compiler
+     *
+     * @param contextIndex the index of all the references in the expressions to compile
+     * @param types the types of the references in the expressions to compile
+     * @param scalarArguments the names of the scalar arguments which will be passed in the argument array
+     *                        at the index given by the context index
+     */
+    public ExpressionCompiler(ContextIndex contextIndex, TypeContext<Reference> types, Set<String> scalarArguments) {
+        this.contextIndex = contextIndex;
+        this.types = types;
+        this.scalarArguments = scalarArguments;
+        for (String argument : scalarArguments)
+            argumentIndexes.add(contextIndex.getIndex(argument));
+    }
+
+    /**
+     * Compiles the given expression.
+     *
+     * @return the compiled expression, or empty if this expression cannot be compiled to return a scalar
+     */
+    public Optional<CompiledExpression> compile(RankingExpression expression) {
+        needsContext = false;
+        try {
+            DoubleNode root = compile(expression.getRoot());
+            if (root == null) return Optional.empty();
+            return Optional.of(new CompiledExpression(expression, root, needsContext));
+        }
+        catch (RuntimeException e) { // Incomplete type or index information: Leave to the interpreter
+            return Optional.empty();
+        }
+    }
+
+    /** Returns the compiled node, or null if this node cannot be compiled to produce a scalar */
+    private DoubleNode compile(ExpressionNode node) {
+        DoubleNode compiled = compileSpecific(node);
+        if (compiled != null) return compiled;
+        return interpreted(node);
+    }
+
+    private DoubleNode compileSpecific(ExpressionNode node) {
+        if (node instanceof ConstantNode)
+            return compileConstant((ConstantNode)node);
+        if (node instanceof ReferenceNode)
+            return compileReference((ReferenceNode)node);
+        if (node instanceof EmbracedNode)
+            return compile(((EmbracedNode)node).getValue());
+        if (node instanceof ArithmeticNode)
+            return compileArithmetic((ArithmeticNode)node);
+        if (node instanceof NegativeNode)
+            return compileNegative((NegativeNode)node);
+        if (node instanceof NotNode)
+            return compileNot((NotNode)node);
+        if (node instanceof ComparisonNode)
+            return compileComparison((ComparisonNode)node);
+        if (node instanceof IfNode)
+            return compileIf((IfNode)node);
+        if (node instanceof FunctionNode)
+            return compileFunction((FunctionNode)node);
+        if (node instanceof SetMembershipNode)
+            return compileSetMembership((SetMembershipNode)node);
+        if (node instanceof GBDTNode)
+            return compileTree((GBDTNode)node);
+        if (node instanceof GBDTForestNode)
+            return compileForest((GBDTForestNode)node);
+        return null;
+    }
+
+    /** Returns a node evaluating the given node by interpretation, or null if it does not produce a scalar */
+    private DoubleNode interpreted(ExpressionNode node) {
+        if ( ! isScalar(node.type(types))) return null;
+        needsContext = true;
+        return new InterpretedNode(node);
+    }
+
+    private DoubleNode compileConstant(ConstantNode node) {
+        if ( ! (node.getValue() instanceof DoubleCompatibleValue)) return null;
+        return new ConstantDoubleNode(node.getValue().asDouble());
+    }
+
+    private DoubleNode compileReference(ReferenceNode node) {
+        String name = node.toString();
+        if (scalarArguments.contains(name))
+            return new ArgumentNode(contextIndex.getIndex(name));
+        if ( ! isScalar(node.type(types))) return null;
+        needsContext = true;
+        return new ContextValueNode(contextIndex.getIndex(name));
+    }
+
+    /** Compiles to binary operations in the same precedence order as ArithmeticNode.evaluate */
+    private DoubleNode compileArithmetic(ArithmeticNode node) {
+        Iterator<ExpressionNode> child = node.children().iterator();
+
+        Deque<OperandItem> stack = new ArrayDeque<>();
+        DoubleNode first = compile(child.next());
+        if (first == null) return null;
+        stack.push(new OperandItem(ArithmeticOperator.OR, first));
+        for (Iterator<ArithmeticOperator> it = node.operators().iterator(); it.hasNext() && child.hasNext();) {
+            ArithmeticOperator op = it.next();
+            while (stack.peek().op.hasPrecedenceOver(op))
+                popStack(stack);
+            DoubleNode operand = compile(child.next());
+            if (operand == null) return null;
+            stack.push(new OperandItem(op, operand));
+        }
+        while (stack.size() > 1)
+            popStack(stack);
+        return stack.getFirst().node;
+    }
+
+    private void popStack(Deque<OperandItem> stack) {
+        OperandItem rhs = stack.pop();
+        OperandItem lhs = stack.peek();
+        lhs.node = new ArithmeticDoubleNode(rhs.op, lhs.node, rhs.node);
+    }
+
+    private DoubleNode compileNegative(NegativeNode node) {
+        DoubleNode value = compile(node.getValue());
+        if (value == null) return null;
+        return new NegativeDoubleNode(value);
+    }
+
+    private DoubleNode compileNot(NotNode node) {
+        DoubleNode value = compile(node.getValue());
+        if (value == null) return null;
+        return new NotDoubleNode(value);
+    }
+
+    private DoubleNode compileComparison(ComparisonNode node) {
+        DoubleNode left = compile(node.getLeftCondition());
+        DoubleNode right = compile(node.getRightCondition());
+        if (left == null || right == null) return null;
+        return new ComparisonDoubleNode(node.getOperator(), left, right);
+    }
+
+    private DoubleNode compileIf(IfNode node) {
+        DoubleNode condition = compile(node.getCondition());
+        DoubleNode trueValue = compile(node.getTrueExpression());
+        DoubleNode falseValue = compile(node.getFalseExpression());
+        if (condition == null || trueValue == null || falseValue == null) return null;
+        return new IfDoubleNode(condition, trueValue, falseValue);
+    }
+
+    private DoubleNode compileFunction(FunctionNode node) {
+        List<ExpressionNode> arguments = node.children();
+        DoubleNode argument1 = arguments.size() > 0 ? compile(arguments.get(0)) : new ConstantDoubleNode(0);
+        DoubleNode argument2 = arguments.size() > 1 ? compile(arguments.get(1)) : new ConstantDoubleNode(0);
+        if (argument1 == null || argument2 == null) return null;
+        return new FunctionDoubleNode(node.getFunction(), argument1, argument2);
+    }
+
+    /** Compiles set membership tests over numbers. Other sets are left to the interpreter. */
+    private DoubleNode compileSetMembership(SetMembershipNode node) {
+        double[] setValues = new double[node.getSetValues().size()];
+        for (int i = 0; i < setValues.length; i++) {
+            ExpressionNode setValue = node.getSetValues().get(i);
+            if ( ! (setValue instanceof ConstantNode) || ! (((ConstantNode)setValue).getValue() instanceof DoubleValue))
+                return null;
+            setValues[i] = ((ConstantNode)setValue).getValue().asDouble();
+        }
+        if ( ! (node.getTestValue() instanceof ReferenceNode)) return null; // don't compare booleans with doubles
+        DoubleNode testValue = compile(node.getTestValue());
+        if (testValue == null) return null;
+        return new SetMembershipDoubleNode(testValue, setValues);
+    }
+
+    private DoubleNode compileTree(GBDTNode node) {
+        Set<Integer> variableIndexes = new HashSet<>();
+        GBDTNode.addVariableIndexes(node.values(), 0, variableIndexes);
+        if (argumentIndexes.containsAll(variableIndexes))
+            return new TreeDoubleNode(node.values());
+        return interpreted(node);
+    }
+
+    private DoubleNode compileForest(GBDTForestNode node) {
+        double[] values = node.values();
+        Set<Integer> variableIndexes = new HashSet<>();
+        for (int pc = 0; pc < values.length; ) {
+            int nextTree = (int)values[pc++];
+            GBDTNode.addVariableIndexes(values, pc, variableIndexes);
+            pc += nextTree;
+        }
+        if (argumentIndexes.containsAll(variableIndexes))
+            return new ForestDoubleNode(values);
+        return interpreted(node);
+    }
+
+    private static boolean isScalar(TensorType type) {
+        return type != null && type.rank() == 0;
+    }
+
+    private static double asDouble(boolean value) {
+        return value ? 1.0 : 0.0;
+    }
+
+    private static class OperandItem {
+
+        final ArithmeticOperator op;
+        DoubleNode node;
+
+        OperandItem(ArithmeticOperator op, DoubleNode node) {
+            this.op = op;
+            this.node = node;
+        }
+
+    }
+
+    /** A compiled node. Implementations must be immutable. */
+    interface DoubleNode {
+
+        double evaluate(double[] arguments, Context context);
+
+    }
+
+    private static final class ConstantDoubleNode implements DoubleNode {
+
+        private final double value;
+
+        ConstantDoubleNode(double value) { this.value = value; }
+
+        @Override
+        public double evaluate(double[] arguments, Context context) { return value; }
+
+    }
+
+    private static final class ArgumentNode implements DoubleNode {
+
+        private final int index;
+
+        ArgumentNode(int index) { this.index = index; }
+
+        @Override
+        public double evaluate(double[] arguments, Context context) { return arguments[index]; }
+
+    }
+
+    /** A value which is not an argument, such as a scalar constant or the value of another function */
+    private static final class ContextValueNode implements DoubleNode {
+
+        private final int index;
+
+        ContextValueNode(int index) { this.index = index; }
+
+        @Override
+        public double evaluate(double[] arguments, Context context) { return context.getDouble(index); }
+
+    }
+
+    private static final class InterpretedNode implements DoubleNode {
+
+        private final ExpressionNode node;
+
+        InterpretedNode(ExpressionNode node) { this.node = node; }
+
+        @Override
+        public double evaluate(double[] arguments, Context context) { return node.evaluate(context).asDouble(); }
+
+    }
+
+    private static final class ArithmeticDoubleNode implements DoubleNode {
+
+        private final ArithmeticOperator operator;
+        private final DoubleNode left, right;
+
+        ArithmeticDoubleNode(ArithmeticOperator operator, DoubleNode left, DoubleNode right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public double evaluate(double[] arguments, Context context) {
+            double x = left.evaluate(arguments, context);
+            double y = right.evaluate(arguments, context);
+            switch (operator) {
+                case OR: return asDouble(x != 0.0 || y != 0.0);
+                case AND: return asDouble(x != 0.0 && y != 0.0);
+                case PLUS: return x + y;
+                case MINUS: return x - y;
+                case MULTIPLY: return x * y;
+                case DIVIDE: return x / y;
+                case MODULO: return x % y;
+                case POWER: return Function.pow.evaluate(x, y);
+                default: throw new UnsupportedOperationException("Operator " + operator + " is not implemented");
+            }
+        }
+
+    }
+
+    private static final class NegativeDoubleNode implements DoubleNode {
+
+        private final DoubleNode value;
+
+        NegativeDoubleNode(DoubleNode value) { this.value = value; }
+
+        @Override
+        public double evaluate(double[] arguments, Context context) { return - value.evaluate(arguments, context); }
+
+    }
+
+    private static final class NotDoubleNode implements DoubleNode {
+
+        private final DoubleNode value;
+
+        NotDoubleNode(DoubleNode value) { this.value = value; }
+
+        @Override
+        public double evaluate(double[] arguments, Context context) {
+            return asDouble(value.evaluate(arguments, context) == 0.0);
+        }
+
+    }
+
+    private static final class ComparisonDoubleNode implements DoubleNode {
+
+        private final TruthOperator operator;
+        private final DoubleNode left, right;
+
+        ComparisonDoubleNode(TruthOperator operator, DoubleNode left, DoubleNode right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public double evaluate(double[] arguments, Context context) {
+            return asDouble(operator.evaluate(left.evaluate(arguments, context), right.evaluate(arguments, context)));
+        }
+
+    }
+
+    private static final class IfDoubleNode implements DoubleNode {
+
+        private final DoubleNode condition, trueValue, falseValue;
+
+        IfDoubleNode(DoubleNode condition, DoubleNode trueValue, DoubleNode falseValue) {
+            this.condition = condition;
+            this.trueValue = trueValue;
+            this.falseValue = falseValue;
+        }
+
+        @Override
+        public double evaluate(double[] arguments, Context context) {
+            if (condition.evaluate(arguments, context) != 0.0)
+                return trueValue.evaluate(arguments, context);
+            else
+                return falseValue.evaluate(arguments, context);
+        }
+
+    }
+
+    private static final class FunctionDoubleNode implements DoubleNode {
+
+        private final Function function;
+        private final DoubleNode argument1, argument2;
+
+        FunctionDoubleNode(Function function, DoubleNode argument1, DoubleNode argument2) {
+            this.function = function;
+            this.argument1 = argument1;
+            this.argument2 = argument2;
+        }
+
+        @Override
+        public double evaluate(double[] arguments, Context context) {
+            return function.evaluate(argument1.evaluate(arguments, context), argument2.evaluate(arguments, context));
+        }
+
+    }
+
+    private static final class SetMembershipDoubleNode implements DoubleNode {
+
+        private final DoubleNode testValue;
+        private final double[] setValues;
+
+        SetMembershipDoubleNode(DoubleNode testValue, double[] setValues) {
+            this.testValue = testValue;
+            this.setValues = setValues;
+        }
+
+        @Override
+        public double evaluate(double[] arguments, Context context) {
+            double value = testValue.evaluate(arguments, context);
+            for (double setValue : setValues)
+                if (value == setValue) return 1.0;
+            return 0.0;
+        }
+
+    }
+
+    private static final class TreeDoubleNode implements DoubleNode {
+
+        private final double[] values;
+
+        TreeDoubleNode(double[] values) { this.values = values; }
+
+        @Override
+        public double evaluate(double[] arguments, Context context) {
+            return GBDTNode.evaluate(values, 0, arguments);
+        }
+
+    }
+
+    private static final class ForestDoubleNode implements DoubleNode {
+
+        private final double[] values;
+
+        ForestDoubleNode(double[] values) { this.values = values; }
+
+        @Override
+        public double evaluate(double[] arguments, Context context) {
+            int pc = 0;
+            double treeSum = 0;
+            while (pc < values.length) {
+                int nextTree = (int)values[pc++];
+                treeSum += GBDTNode.evaluate(values, pc, arguments);
+                pc += nextTree;
+            }
+            return treeSum;
+        }
+
+    }
+
+}
@@ -0,0 +1,128 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.aggregation;
+
+import com.yahoo.searchlib.expression.AttributeNode;
+import com.yahoo.searchlib.expression.IntegerResultNode;
+import com.yahoo.searchlib.expression.StringResultNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures the cost of merging the 3-level grouping results of many content nodes, one node at a time, all at
+ * once, and all at once in parallel, including the post merge pruning.
+ * <p>
+ * Run with <code>java -cp [test classpath] com.yahoo.searchlib.aggregation.GroupingMergeBenchmark [seconds]</code>.
+ */
+public class GroupingMergeBenchmark {
+
+    private static final int NODES = 60;
+    private static final int[] GROUPS_PER_LEVEL = { 50, 10, 5 };
+
+    private static Group createGroup(Random random, int level, int idSpace) {
+        Group group = new Group().addAggregationResult(new SumAggregationResult()
+                                                               .setSum(new IntegerResultNode(random.nextInt(1000)))
+                                                               .setExpression(new AttributeNode("foo")))
+                                 .addAggregationResult(new CountAggregationResult().setCount(random.nextInt(100)));
+        group.setRank(random.nextDouble());
+        if (level < GROUPS_PER_LEVEL.length) {
+            // each node has a random selection of the possible groups of each level
+            int groups = GROUPS_PER_LEVEL[level], ids = groups * idSpace;
+            for (int id = 0; id < ids; ++id) {
+                if (random.nextInt(ids) < groups * 9 / 10) {
+                    group.addChild(createGroup(random, level + 1, idSpace).setId(new StringResultNode(String.format("group%06d", id))));
+                }
+            }
+        }
+        return group;
+    }
+
+    /**
+     * Creates grouping results where each node has about 90% of the groups in a space of the given number of times
+     * that number of possible groups at each level, so the nodes have mostly the same groups when the space is small.
+     */
+    private static List<Grouping> createNodeResults(Random random, int idSpace) {
+        Grouping request = new Grouping()
+                .setFirstLevel(0)
+                .setLastLevel(GROUPS_PER_LEVEL.length)
+                .addLevel(new GroupingLevel().setMaxGroups(20))
+                .addLevel(new GroupingLevel().setMaxGroups(5))
+                .addLevel(new GroupingLevel().setMaxGroups(3));
+        List<Grouping> results = new ArrayList<>();
+        for (int i = 0; i < NODES; ++i) {
+            results.add(request.clone().setRoot(createGroup(random, 0, idSpace)));
+        }
+        return results;
+    }
+
+    private static List<Grouping> copy(List<Grouping> results) {
+        List<Grouping> copy = new ArrayList<>(results.size());
+        for (Grouping result : results) {
+            copy.add(result.clone());
+        }
+        return copy;
+    }
+
+    private static Grouping mergeOneByOne(List<Grouping> results) {
+        Grouping merged = results.get(0);
+        for (int i = 1; i < results.size(); ++i) {
+            merged.merge(results.get(i));
+        }
+        merged.postMerge();
+        return merged;
+    }
+
+    private static Grouping mergeAll(List<Grouping> results, ForkJoinPool pool) {
+        Grouping merged = results.get(0);
+        merged.merge(results.subList(1, results.size()), pool);
+        merged.postMerge();
+        return merged;
+    }
+
+    private static void run(String name, List<List<Grouping>> copies, long millis, boolean all, ForkJoinPool pool) {
+        long merges = 0;
+        long elapsedNanos = 0;
+        for (long end = System.currentTimeMillis() + millis; System.currentTimeMillis() < end; ) {
+            for (List<Grouping> copy : copies) {
+                List<Grouping> results = copy(copy); // merging consumes the results
+                long startNanos = System.nanoTime();
+                if (all) {
+                    mergeAll(results, pool);
+                } else {
+                    mergeOneByOne(results);
+                }
+                elapsedNanos += System.nanoTime() - startNanos;
+                merges++;
+            }
+        }
+        System.out.println(String.format("%s: %.3f ms per merge of %d nodes", name, elapsedNanos / 1000000.0 / merges, NODES));
+    }
+
+    public static void main(String[] args) {
+        long millis = (args.length > 0) ? Long.parseLong(args[0]) * 1000 : 5000;
+        Random random = new Random(42);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int[] idSpaces = { 1, 10 };
+        List<List<List<Grouping>>> results = new ArrayList<>();
+        for (int idSpace : idSpaces) {
+            List<List<Grouping>> copies = new ArrayList<>();
+            for (int i = 0; i < 2; ++i) {
+                copies.add(createNodeResults(random, idSpace));
+            }
+            Grouping expected = mergeOneByOne(copy(copies.get(0)));
+            if ( ! expected.equals(mergeAll(copy(copies.get(0)), null)) || ! expected.equals(mergeAll(copy(copies.get(0)), pool)))
+                throw new IllegalStateException("Merging one by one and all at once gives different results");
+            results.add(copies);
+        }
+        for (int i = 0; i < 2; ++i) { // the first round is warmup
+            for (int j = 0; j < idSpaces.length; ++j) {
+                run("id space " + idSpaces[j] + ", one by one", results.get(j), millis, false, null);
+                run("id space " + idSpaces[j] + ", all at once", results.get(j), millis, true, null);
+                run("id space " + idSpaces[j] + ", all at once in parallel", results.get(j), millis, true, pool);
+            }
+        }
+    }
+
+}
@@ -13,8 +13,11 @@ import com.yahoo.searchlib.expression.MultiplyFunctionNode;
 import com.yahoo.searchlib.expression.StringResultNode;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.assertEquals;
 
@@ -724,6 +727,65 @@ public class MergeTestCase {
         assertMerge(request, rhs, lhs, expect);
     }
 
+    // Test that merging the results of many nodes at once gives the same result as merging them one by one.
+    @Test
+    public void testMergeManyMultiLevel() {
+        Random random = new Random(42);
+        Grouping request = new Grouping()
+                .setFirstLevel(0)
+                .setLastLevel(3)
+                .addLevel(new GroupingLevel().setMaxGroups(7))
+                .addLevel(new GroupingLevel().setMaxGroups(5))
+                .addLevel(new GroupingLevel().setMaxGroups(-1));
+        List<Grouping> nodes = new ArrayList<>();
+        for (int i = 0; i < 20; ++i) {
+            nodes.add(request.clone().setRoot(createTree(random, 0, 10, 10, 10)));
+        }
+        Grouping expect = nodes.get(0).clone();
+        for (int i = 1; i < nodes.size(); ++i) {
+            expect.merge(nodes.get(i).clone());
+        }
+        expect.postMerge();
+        assertMerge(nodes, expect.getRoot());
+        assertEquals(7, expect.getRoot().getChildren().size());
+    }
+
+    // Test that merging the results of many nodes in parallel gives the same result as merging them one by one.
+    @Test
+    public void testMergeManyMultiLevelInParallel() {
+        Random random = new Random(42);
+        Grouping request = new Grouping()
+                .setFirstLevel(0)
+                .setLastLevel(3)
+                .addLevel(new GroupingLevel().setMaxGroups(50))
+                .addLevel(new GroupingLevel().setMaxGroups(5))
+                .addLevel(new GroupingLevel().setMaxGroups(3));
+        List<Grouping> nodes = new ArrayList<>();
+        for (int i = 0; i < 30; ++i) {
+            nodes.add(request.clone().setRoot(createTree(random, 0, 100, 5, 5)));
+        }
+        Grouping expect = nodes.get(0).clone();
+        for (int i = 1; i < nodes.size(); ++i) {
+            expect.merge(nodes.get(i).clone());
+        }
+        expect.postMerge();
+
+        List<Grouping> others = new ArrayList<>();
+        for (int i = 1; i < nodes.size(); ++i) {
+            others.add(nodes.get(i).clone());
+        }
+        Grouping merged = nodes.get(0).clone();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            merged.merge(others, pool);
+        } finally {
+            pool.shutdown();
+        }
+        merged.postMerge();
+        assertEquals(expect.getRoot(), merged.getRoot());
+        assertEquals(50, merged.getRoot().getChildren().size());
+    }
+
     private static void assertMerge(Grouping request, Group lhs, Group rhs, Group expect) {
         assertMerge(Arrays.asList(request.clone().setRoot(lhs.clone()),
                                   request.clone().setRoot(rhs.clone())),
@@ -742,6 +804,16 @@ public class MergeTestCase {
     }
 
     private static void assertMerge(List<Grouping> groupingList, Group expect) {
+        List<Grouping> others = new ArrayList<>();
+        for (int i = 1; i < groupingList.size(); ++i) {
+            others.add(groupingList.get(i).clone());
+        }
+        Grouping all = groupingList.get(0).clone();
+        all.merge(others);
+        all.postMerge();
+        assertEquals(expect.toString(), all.getRoot().toString());
+        assertEquals(expect, all.getRoot());
+
         Grouping tmp = groupingList.get(0).clone();
         for (int i = 1; i < groupingList.size(); ++i) {
             tmp.merge(groupingList.get(i));
@@ -751,4 +823,19 @@ public class MergeTestCase {
         assertEquals(expect, tmp.getRoot());
     }
 
+    private static Group createTree(Random random, int level, int... groupsPerLevel) {
+        Group group = new Group().addAggregationResult(new SumAggregationResult()
+                                                               .setSum(new IntegerResultNode(random.nextInt(100)))
+                                                               .setExpression(new AttributeNode("foo")));
+        group.setRank(random.nextInt(1000));
+        if (level < groupsPerLevel.length) {
+            for (int id = 0; id < groupsPerLevel[level]; ++id) {
+                if (random.nextInt(3) > 0) {
+                    group.addChild(createTree(random, level + 1, groupsPerLevel).setId(new IntegerResultNode(id)));
+                }
+            }
+        }
+        return group;
+    }
+
 }
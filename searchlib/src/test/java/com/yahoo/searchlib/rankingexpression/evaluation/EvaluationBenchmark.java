@@ -152,6 +152,52 @@ public class EvaluationBenchmark {
         double forestTotal=benchmark(forestOptimized,forestContext,iterations,"Forest optimized");
         assertEqualish(total,forestTotal);
         System.out.println("-----------------------------------------------------------------------------------------------------");
+
+        // Forest optimized and compiled...................
+        System.out.print("Compiling ... ");
+        CompiledExpression compiled = new ExpressionCompiler(forestContext, forestContext, forestContext.names())
+                                              .compile(forestOptimized)
+                                              .orElseThrow(() -> new IllegalStateException("Could not compile " + gbdtString));
+        System.out.println("done");
+        double compiledTotal = benchmarkCompiled(compiled, forestContext, iterations, "Compiled");
+        assertEqualish(total, compiledTotal);
+        System.out.println("-----------------------------------------------------------------------------------------------------");
+    }
+
+    private double benchmarkCompiled(CompiledExpression gbdt, DoubleOnlyArrayContext context, int iterations, String description) {
+        oul("Running '" + description + "':");
+        out("   Warming up ...");
+        double total=0;
+        total+=benchmarkCompiledIterations(gbdt,context,iterations/5);
+        oul("done");
+
+        out("   Running " + iterations + " of '" + description + "' ...");
+        long tStartTime=System.currentTimeMillis();
+        total+=benchmarkCompiledIterations(gbdt,context,iterations);
+        long totalTime=System.currentTimeMillis()-tStartTime;
+        oul("done");
+        oul("   Total time running '" + description + "': " + totalTime + " ms (" + totalTime*1000/iterations + " microseconds/expression)");
+        return total;
+    }
+
+    private double benchmarkCompiledIterations(CompiledExpression gbdt, DoubleOnlyArrayContext context, int iterations) {
+        // Same bindings as in benchmarkIterations, but written directly to an argument array reused between evaluations
+        double total=0;
+        double[] arguments = new double[context.names().size()];
+        int lwNewsSearchesRatio = indexOrMinusOne("LW_NEWS_SEARCHES_RATIO", context);
+        int newsUsers = indexOrMinusOne("NEWS_USERS", context);
+        int catid = indexOrMinusOne("catid", context);
+        for (int i=0; i<iterations; i++) {
+            if (lwNewsSearchesRatio >= 0) arguments[lwNewsSearchesRatio] = (double)i;
+            if (newsUsers >= 0) arguments[newsUsers] = (double)i/1000*1000;
+            if (catid >= 0) arguments[catid] = 100300102;
+            total+=gbdt.evaluate(arguments, context);
+        }
+        return total;
+    }
+
+    private int indexOrMinusOne(String name, AbstractArrayContext context) {
+        return context.names().contains(name) ? context.getIndex(name) : -1;
     }
 
     private double benchmark(RankingExpression gbdt, Context context, int iterations, String description) {
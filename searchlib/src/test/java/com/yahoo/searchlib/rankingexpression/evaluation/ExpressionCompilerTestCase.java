@@ -0,0 +1,102 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.searchlib.rankingexpression.evaluation;
+
+import com.yahoo.searchlib.rankingexpression.RankingExpression;
+import com.yahoo.searchlib.rankingexpression.evaluation.gbdtoptimization.GBDTForestOptimizer;
+import com.yahoo.searchlib.rankingexpression.parser.ParseException;
+import com.yahoo.tensor.Tensor;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that compiled expressions produce the same results as interpreted ones
+ */
+public class ExpressionCompilerTestCase {
+
+    private final double delta = 0.00000000001;
+
+    @Test
+    public void testScalarExpressions() throws ParseException {
+        assertCompiled("1 + 2 * 3 - 4 / 8 + a ^ 2 - b", 3, 4);
+        assertCompiled("a + b * (a - b) % 3", 3, 4);
+        assertCompiled("-a + !(b > 3)", 3, 4);
+        assertCompiled("a && b || 0", 3, 0);
+        assertCompiled("if (a < b, a, b) + if (a >= 3, 10, 20)", 3, 4);
+        assertCompiled("if (a ~= 3, 1, 2) + if (b != 4, 1, 2) + if (a == 3, 1, 2)", 3, 4);
+        assertCompiled("max(a, b) + min(a, b) + sqrt(b) + log(a) + exp(a) + fmod(b, a) + atan2(a, b)", 3, 4);
+        assertCompiled("if (a in [1, 2, 3], 100, 200) + if (b in [1, 2, 3], 100, 200)", 3, 4);
+    }
+
+    @Test
+    public void testGBDT() throws ParseException {
+        String gbdt = "if (a < 2, if (b < 2, 5, 6), 4) + if (a < 3, 7, 8) + if (b in [1, 2, 3], 0.5, if (a > 1, 0.25, 0.125))";
+        for (boolean forestOptimize : new boolean[] { false, true }) {
+            RankingExpression expression = new RankingExpression(gbdt);
+            DoubleOnlyArrayContext context = new DoubleOnlyArrayContext(expression, true);
+            ExpressionOptimizer optimizer = new ExpressionOptimizer();
+            optimizer.getOptimizer(GBDTForestOptimizer.class).setEnabled(forestOptimize);
+            optimizer.optimize(expression, context);
+
+            CompiledExpression compiled = new ExpressionCompiler(context, context, context.names()).compile(expression).get();
+            assertFalse("Trees are evaluated from the argument array", compiled.needsContext());
+            for (double a = 0; a < 5; a++) {
+                for (double b = 0; b < 5; b++) {
+                    MapContext interpreterContext = new MapContext();
+                    interpreterContext.put("a", a);
+                    interpreterContext.put("b", b);
+                    double[] arguments = new double[context.names().size()];
+                    arguments[context.getIndex("a")] = a;
+                    arguments[context.getIndex("b")] = b;
+                    assertEquals(new RankingExpression(gbdt).evaluate(interpreterContext).asDouble(),
+                                 compiled.evaluate(arguments, context), delta);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testInterpretingNonArgumentReferences() throws ParseException {
+        RankingExpression expression = new RankingExpression("a * 2 + b");
+        ArrayContext context = new ArrayContext(expression);
+        CompiledExpression compiled = new ExpressionCompiler(context, context, Collections.singleton("a"))
+                                              .compile(expression).get();
+        assertTrue(compiled.needsContext());
+        context.put("b", 5);
+        double[] arguments = new double[context.names().size()];
+        arguments[context.getIndex("a")] = 3;
+        assertEquals(11.0, compiled.evaluate(arguments, context), delta);
+    }
+
+    @Test
+    public void testNonScalarExpressionsAreNotCompiled() throws ParseException {
+        RankingExpression expression = new RankingExpression("a * 2 + t");
+        ArrayContext context = new ArrayContext(expression);
+        context.put("t", new TensorValue(Tensor.from("tensor(x[2]):[1.0, 2.0]")));
+        Optional<CompiledExpression> compiled = new ExpressionCompiler(context, context, Collections.singleton("a"))
+                                                        .compile(expression);
+        assertFalse(compiled.isPresent());
+    }
+
+    private void assertCompiled(String expressionString, double a, double b) throws ParseException {
+        RankingExpression expression = new RankingExpression(expressionString);
+        MapContext interpreterContext = new MapContext();
+        interpreterContext.put("a", a);
+        interpreterContext.put("b", b);
+        double expected = expression.evaluate(interpreterContext).asDouble();
+
+        ArrayContext context = new ArrayContext(expression);
+        CompiledExpression compiled = new ExpressionCompiler(context, context, context.names()).compile(expression).get();
+        assertFalse(compiled.needsContext());
+        double[] arguments = new double[context.names().size()];
+        arguments[context.getIndex("a")] = a;
+        arguments[context.getIndex("b")] = b;
+        assertEquals(expressionString, expected, compiled.evaluate(arguments, context), delta);
+    }
+
+}
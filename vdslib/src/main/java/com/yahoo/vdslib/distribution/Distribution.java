@@ -18,6 +18,7 @@ public class Distribution {
     private int redundancy;
     private boolean distributorAutoOwnershipTransferOnWholeGroupDown = false;
     private ConfigSubscriber configSub;
+    private volatile int configGeneration = 0;
 
     public Group getRootGroup() {
         return nodeGraph;
@@ -27,6 +28,11 @@ public class Distribution {
         return redundancy;
     }
 
+    /** Returns a number which is incremented each time this is reconfigured */
+    int getConfigGeneration() {
+        return configGeneration;
+    }
+
     private ConfigSubscriber.SingleSubscriber<StorDistributionConfig> configSubscriber = new ConfigSubscriber.SingleSubscriber<StorDistributionConfig>() {
         private int[] getGroupPath(String path) {
             if (path.equals("invalid")) { return new int[0]; }
@@ -83,6 +89,7 @@ public class Distribution {
                 Distribution.this.redundancy = config.redundancy();
                 //Distribution.this.diskDistribution = config.disk_distribution();
                 distributorAutoOwnershipTransferOnWholeGroupDown = config.distributor_auto_ownership_transfer_on_whole_group_down();
+                ++configGeneration;
             } catch (ParseException e) {
                 throw (IllegalStateException) new IllegalStateException("Failed to parse config").initCause(e);
             }
@@ -125,7 +132,8 @@ public class Distribution {
         return seed;
     }
 
-    private int getDistributorSeed(BucketId bucket, ClusterState state) {
+    /** Returns the seed of the ideal distributor of the given bucket, which is all its ideal distributor depends on */
+    int getDistributorSeed(BucketId bucket, ClusterState state) {
         return ((int) bucket.getRawId()) & distributionBitMasks[state.getDistributionBitCount()];
     }
 
@@ -140,25 +148,6 @@ public class Distribution {
         return seed;
     }
 
-    private class ScoredGroup implements Comparable<ScoredGroup> {
-        Group group;
-        double score;
-
-        ScoredGroup(Group g, double score) { this.group = g; this.score = score; }
-
-        @Override
-        public int compareTo(ScoredGroup o) {
-            // Sorts by highest first.
-            return Double.valueOf(o.score).compareTo(score);
-        }
-    }
-    private class ScoredNode {
-        int index;
-        int reliability;
-        double score;
-
-        ScoredNode(int index, int reliability, double score) { this.index = index; this.reliability = reliability; this.score = score; }
-    }
     private static boolean allDistributorsDown(Group g, ClusterState clusterState) {
         if (g.isLeafGroup()) {
             for (ConfiguredNode node : g.getNodes()) {
@@ -177,27 +166,31 @@ public class Distribution {
             return parent;
         }
         int[] redundancyArray = parent.getDistribution().getRedundancyArray(redundancy);
-        TreeSet<ScoredGroup> results = new TreeSet<>();
         int seed = getGroupSeed(bucket, clusterState, parent);
         RandomGen random = new RandomGen(seed);
         int currentIndex = 0;
+        Group idealGroup = null;
+        double idealScore = 0.0;
         for(Group g : parent.getSubgroups().values()) {
             while (g.getIndex() < currentIndex++) random.nextDouble();
             double score = random.nextDouble();
             if (Math.abs(g.getCapacity() - 1.0) > 0.0000001) {
                 score = Math.pow(score, 1.0 / g.getCapacity());
             }
-            results.add(new ScoredGroup(g, score));
-        }
-        if (distributorAutoOwnershipTransferOnWholeGroupDown) {
-            while (!results.isEmpty() && allDistributorsDown(results.first().group, clusterState)) {
-                results.remove(results.first());
+            if (idealGroup != null && score <= idealScore) {
+                continue;
             }
+            // Only check the state of groups which would otherwise be picked
+            if (distributorAutoOwnershipTransferOnWholeGroupDown && allDistributorsDown(g, clusterState)) {
+                continue;
+            }
+            idealGroup = g;
+            idealScore = score;
         }
-        if (results.isEmpty()) {
+        if (idealGroup == null) {
             return null;
         }
-        return getIdealDistributorGroup(bucket, clusterState, results.first().group, redundancyArray[0]);
+        return getIdealDistributorGroup(bucket, clusterState, idealGroup, redundancyArray[0]);
     }
     private class ResultGroup implements Comparable<ResultGroup> {
         Group group;
@@ -222,10 +215,9 @@ public class Distribution {
 
         int[] redundancyArray = parent.getDistribution().getRedundancyArray(redundancy);
 
-        List<ScoredGroup> tmpResults = new ArrayList<>();
-        for (int i = 0; i < redundancyArray.length; ++i) {
-            tmpResults.add(new ScoredGroup(null, 0.0));
-        }
+        // Best groups first, with fake entries with a score of zero to avoid checking the count during iteration
+        Group[] idealGroups = new Group[redundancyArray.length];
+        double[] idealScores = new double[redundancyArray.length];
 
         int seed = getGroupSeed(bucketId, clusterState, parent);
 
@@ -245,15 +237,15 @@ public class Distribution {
                 score = Math.pow(score, 1.0 / group.getValue().getCapacity());
             }
 
-            if (score > tmpResults.get(tmpResults.size() - 1).score) {
-                tmpResults.add(new ScoredGroup(group.getValue(), score));
-                Collections.sort(tmpResults);
-                tmpResults.remove(tmpResults.size() - 1);
+            if (score > idealScores[idealScores.length - 1]) {
+                int i = insertionPoint(idealScores, score);
+                System.arraycopy(idealGroups, i, idealGroups, i + 1, idealGroups.length - i - 1);
+                idealGroups[i] = group.getValue();
             }
         }
 
-        for (int i = 0; i < tmpResults.size(); ++i) {
-            Group group = tmpResults.get(i).group;
+        for (int i = 0; i < idealGroups.length; ++i) {
+            Group group = idealGroups[i];
 
             if (group != null) {
                 getIdealGroups(bucketId, clusterState, group, redundancyArray[i], results);
@@ -261,6 +253,20 @@ public class Distribution {
         }
     }
 
+    /**
+     * Inserts the given score before the first lower score in the given array of scores sorted by highest first,
+     * dropping the last score, and returns the index it was inserted at.
+     */
+    private static int insertionPoint(double[] scores, double score) {
+        int i = 0;
+        while (score <= scores[i]) {
+            ++i;
+        }
+        System.arraycopy(scores, i, scores, i + 1, scores.length - i - 1);
+        scores[i] = score;
+        return i;
+    }
+
     private int getDiskSeed(BucketId bucket, int nodeIndex) {
         // Assumes MODULO_BID for now.
 
@@ -337,13 +343,11 @@ public class Distribution {
             int redundancy = group.redundancy;
             Collection<ConfiguredNode> nodes = group.group.getNodes();
 
-            // Create temporary place to hold results. Use double linked list
-            // for cheap access to back(). Stuff in redundancy fake entries to
-            // avoid needing to check size during iteration.
-            LinkedList<ScoredNode> tmpResults = new LinkedList<>();
-            for (int i = 0; i < redundancy; ++i) {
-                tmpResults.add(new ScoredNode(0, 0, 0.0));
-            }
+            // Create temporary place to hold results, best nodes first. Stuff
+            // in redundancy fake entries to avoid needing to check size during
+            // iteration.
+            int[] idealNodes = new int[redundancy];
+            double[] idealScores = new double[redundancy];
 
             for (ConfiguredNode configuredNode : nodes) {
                 NodeState nodeState = clusterState.getNodeState(new Node(NodeType.STORAGE, configuredNode.index()));
@@ -379,19 +383,15 @@ public class Distribution {
                 if (nodeState.getCapacity() != 1.0) {
                     score = Math.pow(score, 1.0 / nodeState.getCapacity());
                 }
-                if (score > tmpResults.getLast().score) {
-                    for (int i = 0; i < tmpResults.size(); ++i) {
-                        if (score > tmpResults.get(i).score) {
-                            tmpResults.add(i, new ScoredNode(configuredNode.index(), nodeState.getReliability(), score));
-                            break;
-                        }
-                    }
-                    tmpResults.removeLast();
+                if (score > idealScores[redundancy - 1]) {
+                    int i = insertionPoint(idealScores, score);
+                    System.arraycopy(idealNodes, i, idealNodes, i + 1, redundancy - i - 1);
+                    idealNodes[i] = configuredNode.index();
                 }
             }
 
-            for (ScoredNode node : tmpResults) {
-                resultNodes.add(node.index);
+            for (int node : idealNodes) {
+                resultNodes.add(node);
             }
         }
 
@@ -422,7 +422,8 @@ public class Distribution {
         RandomGen random = new RandomGen(seed);
         int randomIndex = 0;
         List<ConfiguredNode> configuredNodes = idealGroup.getNodes();
-        ScoredNode node = new ScoredNode(0, 0, 0);
+        int idealNode = -1;
+        double idealScore = 0.0;
         for (ConfiguredNode configuredNode : configuredNodes) {
             NodeState nodeState = state.getNodeState(new Node(NodeType.DISTRIBUTOR, configuredNode.index()));
             if (!nodeState.getState().oneOf(upStates)) continue;
@@ -441,16 +442,17 @@ public class Distribution {
             if (Math.abs(nodeState.getCapacity() - 1.0) > 0.0000001) {
                 score = Math.pow(score, 1.0 / nodeState.getCapacity());
             }
-            if (score > node.score) {
-                node = new ScoredNode(configuredNode.index(), 1, score);
+            if (score > idealScore) {
+                idealNode = configuredNode.index();
+                idealScore = score;
             }
         }
-        if (node.reliability == 0) {
+        if (idealNode == -1) {
             throw new NoDistributorsAvailableException(
                     "No available distributors in any of the given upstates '"
                     + upStates + "'.");
         }
-        return node.index;
+        return idealNode;
     }
     private boolean visitGroups(GroupVisitor visitor, Map<Integer, Group> groups) {
         for (Group g : groups.values()) {
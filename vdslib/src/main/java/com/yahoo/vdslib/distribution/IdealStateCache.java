@@ -0,0 +1,110 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vdslib.distribution;
+
+import com.yahoo.document.BucketId;
+import com.yahoo.vdslib.state.ClusterState;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A bounded cache of the ideal distributor and storage nodes of buckets, as computed by a {@link Distribution}.
+ * Cached results are only valid for the cluster state they were computed for, and all of them are dropped when
+ * this is asked about another cluster state, or the distribution has been reconfigured. Cluster states must
+ * therefore not be modified after they have been given to this. This is thread-safe.
+ */
+public class IdealStateCache {
+
+    private final Distribution distribution;
+    private final Results<Integer> distributors;
+    private final Results<List<Integer>> storageNodes;
+
+    /**
+     * Creates a new cache for the given distribution.
+     *
+     * @param distribution the distribution to compute ideal states by
+     * @param maxSize the maximum number of results to cache for distributors and storage nodes, each
+     */
+    public IdealStateCache(Distribution distribution, int maxSize) {
+        this.distribution = distribution;
+        this.distributors = new Results<>(maxSize);
+        this.storageNodes = new Results<>(maxSize);
+    }
+
+    /** Returns the same as {@link Distribution#getIdealDistributorNode}, from this cache if possible */
+    public int getIdealDistributorNode(ClusterState state, BucketId bucket, String upStates)
+            throws Distribution.TooFewBucketBitsInUseException, Distribution.NoDistributorsAvailableException {
+        if (bucket.getUsedBits() < state.getDistributionBitCount()) {
+            return distribution.getIdealDistributorNode(state, bucket, upStates); // throws
+        }
+        // Buckets with the same distribution bits have the same ideal distributor
+        long key = distribution.getDistributorSeed(bucket, state);
+        int configGeneration = distribution.getConfigGeneration();
+        Integer node = distributors.get(state, configGeneration, upStates, key);
+        if (node == null) {
+            node = distribution.getIdealDistributorNode(state, bucket, upStates);
+            distributors.put(state, configGeneration, upStates, key, node);
+        }
+        return node;
+    }
+
+    /** Returns the same as {@link Distribution#getIdealStorageNodes}, but unmodifiable, and from this cache if possible */
+    public List<Integer> getIdealStorageNodes(ClusterState state, BucketId bucket, String upStates)
+            throws Distribution.TooFewBucketBitsInUseException {
+        long key = bucket.getRawId();
+        int configGeneration = distribution.getConfigGeneration();
+        List<Integer> nodes = storageNodes.get(state, configGeneration, upStates, key);
+        if (nodes == null) {
+            nodes = Collections.unmodifiableList(distribution.getIdealStorageNodes(state, bucket, upStates));
+            storageNodes.put(state, configGeneration, upStates, key, nodes);
+        }
+        return nodes;
+    }
+
+    /** Ideal state results for a single cluster state, config generation and set of up states */
+    private static class Results<T> {
+
+        private final Map<Long, T> results;
+        private ClusterState state = null;
+        private int stateVersion;
+        private int configGeneration;
+        private String upStates;
+
+        Results(int maxSize) {
+            results = new LinkedHashMap<Long, T>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, T> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        private boolean isFor(ClusterState state, int configGeneration, String upStates) {
+            return this.state == state && stateVersion == state.getVersion() &&
+                   this.configGeneration == configGeneration && this.upStates.equals(upStates);
+        }
+
+        synchronized T get(ClusterState state, int configGeneration, String upStates, long key) {
+            if ( ! isFor(state, configGeneration, upStates)) {
+                results.clear();
+                this.state = state;
+                this.stateVersion = state.getVersion();
+                this.configGeneration = configGeneration;
+                this.upStates = upStates;
+                return null;
+            }
+            return results.get(key);
+        }
+
+        /** Adds the given result, unless the results were invalidated while it was computed */
+        synchronized void put(ClusterState state, int configGeneration, String upStates, long key, T result) {
+            if (isFor(state, configGeneration, upStates)) {
+                results.put(key, result);
+            }
+        }
+
+    }
+
+}
@@ -1,8 +1,19 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vdslib.distribution;
 
+/**
+ * Generates the same sequence as {@link java.util.Random}, but keeps its state in a plain field rather than
+ * an atomic one, as many numbers are drawn for each ideal state computation. Unlike java.util.Random,
+ * this is therefore not thread-safe.
+ */
 public class RandomGen extends java.util.Random {
 
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long state; // set through setSeed, by the superclass constructor
+
     public RandomGen() {
         super();
     }
@@ -13,6 +24,13 @@ public class RandomGen extends java.util.Random {
 
     public void setSeed(long seed){
         super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
         nextDouble();
     }
+
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
 }
@@ -14,22 +14,22 @@ public class ClusterState implements Cloneable {
     private static final NodeState DEFAULT_STORAGE_UP_NODE_STATE = new NodeState(NodeType.STORAGE, State.UP);
     private static final NodeState DEFAULT_DISTRIBUTOR_UP_NODE_STATE = new NodeState(NodeType.DISTRIBUTOR, State.UP);
 
+    private static final NodeState[] NO_NODE_STATES = new NodeState[0];
+
     private int version = 0;
     private State state = State.DOWN;
-    // nodeStates maps each of the non-up nodes that have an index <= the node count for its type.
-    private Map<Node, NodeState> nodeStates = new TreeMap<>();
+    // nodeStates holds, by node type ordinal and node index, the state of each of the non-up nodes that have
+    // an index < the node count for its type. Up nodes, and indexes beyond the node count, are null.
+    private NodeState[][] nodeStates = { NO_NODE_STATES, NO_NODE_STATES };
 
-    // TODO: Change to one count for distributor and one for storage, rather than an array
     // TODO: RenameFunction, this is not the highest node count but the highest index
-    private ArrayList<Integer> nodeCount = new ArrayList<>(2);
+    private int[] nodeCount = new int[2];
 
     private String description = "";
     private int distributionBits = 16;
     private boolean official = false;
 
     public ClusterState(String serialized) throws ParseException {
-        nodeCount.add(0);
-        nodeCount.add(0);
         deserialize(serialized);
     }
 
@@ -52,13 +52,17 @@ public class ClusterState implements Cloneable {
     public ClusterState clone() {
         try{
             ClusterState state = (ClusterState) super.clone();
-            state.nodeStates = new TreeMap<>();
-            for (Map.Entry<Node, NodeState> entry : nodeStates.entrySet()) {
-                state.nodeStates.put(entry.getKey(), entry.getValue().clone());
+            state.nodeStates = new NodeState[nodeStates.length][];
+            for (int type = 0; type < nodeStates.length; type++) {
+                state.nodeStates[type] = new NodeState[nodeCount[type]];
+                for (int index = 0; index < nodeCount[type]; index++) {
+                    NodeState nodeState = getStoredNodeState(type, index);
+                    if (nodeState != null) {
+                        state.nodeStates[type][index] = nodeState.clone();
+                    }
+                }
             }
-            state.nodeCount = new ArrayList<>(2);
-            state.nodeCount.add(nodeCount.get(0));
-            state.nodeCount.add(nodeCount.get(1));
+            state.nodeCount = nodeCount.clone();
             return state;
         } catch (CloneNotSupportedException e) {
             assert(false); // Should never happen
@@ -73,17 +77,32 @@ public class ClusterState implements Cloneable {
         if (version != other.version
             || !state.equals(other.state)
             || distributionBits != other.distributionBits
-            || !nodeCount.equals(other.nodeCount)
-            || !nodeStates.equals(other.nodeStates))
+            || !Arrays.equals(nodeCount, other.nodeCount))
         {
             return false;
         }
+        for (int type = 0; type < nodeCount.length; type++) {
+            for (int index = 0; index < nodeCount[type]; index++) {
+                if ( ! Objects.equals(getStoredNodeState(type, index), other.getStoredNodeState(type, index))) {
+                    return false;
+                }
+            }
+        }
         return true;
     }
 
     @Override
     public int hashCode() {
-        return java.util.Objects.hash(version, state, distributionBits, nodeCount, nodeStates);
+        int hash = Objects.hash(version, state, distributionBits, Arrays.hashCode(nodeCount));
+        for (int type = 0; type < nodeCount.length; type++) {
+            for (int index = 0; index < nodeCount[type]; index++) {
+                NodeState nodeState = getStoredNodeState(type, index);
+                if (nodeState != null) {
+                    hash = 31 * hash + (index ^ nodeState.hashCode());
+                }
+            }
+        }
+        return hash;
     }
 
     @FunctionalInterface
@@ -116,22 +135,22 @@ public class ClusterState implements Cloneable {
             return false;
         }
         // TODO verify behavior of C++ impl against this
-        for (Node node : unionNodeSetWith(other.nodeStates.keySet())) {
-            final NodeState lhs = nodeStates.get(node);
-            final NodeState rhs = other.nodeStates.get(node);
-            if (!nodeStateCmp.similar(node.getType(), lhs, rhs)) {
-                return false;
+        for (NodeType nodeType : NodeType.getTypes()) {
+            int type = nodeType.ordinal();
+            for (int index = 0; index < nodeCount[type]; index++) { // node counts are equal here
+                final NodeState lhs = getStoredNodeState(type, index);
+                final NodeState rhs = other.getStoredNodeState(type, index);
+                if (lhs == null && rhs == null) {
+                    continue;
+                }
+                if (!nodeStateCmp.similar(nodeType, lhs, rhs)) {
+                    return false;
+                }
             }
         }
         return true;
     }
 
-    private Set<Node> unionNodeSetWith(final Set<Node> otherNodes) {
-        final Set<Node> unionNodeSet = new TreeSet<Node>(nodeStates.keySet());
-        unionNodeSet.addAll(otherNodes);
-        return unionNodeSet;
-    }
-
     private boolean metaInformationSimilarTo(final ClusterState other) {
         if (version != other.version || !state.equals(other.state)) {
             return false;
@@ -139,7 +158,7 @@ public class ClusterState implements Cloneable {
         if (distributionBits != other.distributionBits) {
             return false;
         }
-        return nodeCount.equals(other.nodeCount);
+        return Arrays.equals(nodeCount, other.nodeCount);
     }
 
     private boolean normalizedNodeStateSimilarTo(final NodeType nodeType, final NodeState lhs, final NodeState rhs) {
@@ -185,10 +204,10 @@ public class ClusterState implements Cloneable {
             if (!empty) {
                 NodeState ns = NodeState.deserialize(node.getType(), sb.toString());
                 if (!ns.equals(defaultUpNodeState(node.getType()))) {
-                    nodeStates.put(node, ns);
+                    setStoredNodeState(node.getType().ordinal(), node.getIndex(), ns);
                 }
-                if (nodeCount.get(node.getType().ordinal()) <= node.getIndex()) {
-                    nodeCount.set(node.getType().ordinal(), node.getIndex() + 1);
+                if (nodeCount[node.getType().ordinal()] <= node.getIndex()) {
+                    nodeCount[node.getType().ordinal()] = node.getIndex() + 1;
                 }
             }
             empty = true;
@@ -266,8 +285,8 @@ public class ClusterState implements Cloneable {
                     } catch (Exception e) {
                         throw new ParseException("Illegal node count '" + value + "' in state: " + serialized, 0);
                     }
-                    if (nodeCount > this.nodeCount.get(nodeType.ordinal())) {
-                        this.nodeCount.set(nodeType.ordinal(), nodeCount);
+                    if (nodeCount > this.nodeCount[nodeType.ordinal()]) {
+                        this.nodeCount[nodeType.ordinal()] = nodeCount;
                     }
                     continue;
                 }
@@ -278,8 +297,8 @@ public class ClusterState implements Cloneable {
                 } else {
                     node = new Node(nodeType, Integer.valueOf(key.substring(dot + 1, dot2)));
                 }
-                if (node.getIndex() >= this.nodeCount.get(nodeType.ordinal())) {
-                    throw new ParseException("Cannot index " + nodeType + " node " + node.getIndex() + " of " + this.nodeCount.get(nodeType.ordinal()) + " in state: " + serialized, 0);
+                if (node.getIndex() >= this.nodeCount[nodeType.ordinal()]) {
+                    throw new ParseException("Cannot index " + nodeType + " node " + node.getIndex() + " of " + this.nodeCount[nodeType.ordinal()] + " in state: " + serialized, 0);
                 }
                 if (!nodeData.node.equals(node)) {
                     nodeData.addNodeState();
@@ -376,7 +395,7 @@ public class ClusterState implements Cloneable {
      * E.g. if node X is down and without description, but nodex X-1 is up, then Y is 1.
      * The node count for distributors is then X + 1 - Y.
      */
-    public int getNodeCount(NodeType type) { return nodeCount.get(type.ordinal()); }
+    public int getNodeCount(NodeType type) { return nodeCount[type.ordinal()]; }
 
     /**
      * Returns the state of a node.
@@ -384,9 +403,26 @@ public class ClusterState implements Cloneable {
      * and DOWN otherwise.
      */
     public NodeState getNodeState(Node node) {
-        if (node.getIndex() >= nodeCount.get(node.getType().ordinal()))
+        int type = node.getType().ordinal();
+        if (node.getIndex() >= nodeCount[type])
             return new NodeState(node.getType(), State.DOWN);
-        return nodeStates.getOrDefault(node, new NodeState(node.getType(), State.UP));
+        NodeState nodeState = getStoredNodeState(type, node.getIndex());
+        return (nodeState != null) ? nodeState : new NodeState(node.getType(), State.UP);
+    }
+
+    /** Returns the state set for the given node, or null if it is up */
+    NodeState getStoredNodeState(int type, int index) {
+        NodeState[] states = nodeStates[type];
+        return (index < states.length) ? states[index] : null;
+    }
+
+    private void setStoredNodeState(int type, int index, NodeState nodeState) {
+        NodeState[] states = nodeStates[type];
+        if (index >= states.length) {
+            if (nodeState == null) return;
+            nodeStates[type] = states = Arrays.copyOf(states, Math.max(index + 1, states.length * 2));
+        }
+        states[index] = nodeState;
     }
 
     /**
@@ -396,16 +432,17 @@ public class ClusterState implements Cloneable {
      */
     public void setNodeState(Node node, NodeState newState) {
         newState.verifyValidInSystemState(node.getType());
-        if (node.getIndex() >= nodeCount.get(node.getType().ordinal())) {
-            for (int i= nodeCount.get(node.getType().ordinal()); i<node.getIndex(); ++i) {
-                nodeStates.put(new Node(node.getType(), i), new NodeState(node.getType(), State.DOWN));
+        int type = node.getType().ordinal();
+        if (node.getIndex() >= nodeCount[type]) {
+            for (int i= nodeCount[type]; i<node.getIndex(); ++i) {
+                setStoredNodeState(type, i, new NodeState(node.getType(), State.DOWN));
             }
-            nodeCount.set(node.getType().ordinal(), node.getIndex() + 1);
+            nodeCount[type] = node.getIndex() + 1;
         }
         if (newState.equals(new NodeState(node.getType(), State.UP))) {
-            nodeStates.remove(node);
+            setStoredNodeState(type, node.getIndex(), null);
         } else {
-            nodeStates.put(node, newState);
+            setStoredNodeState(type, node.getIndex(), newState);
         }
         if (newState.getState().equals(State.DOWN)) {
             // We might be setting the last node down, so we can remove some states
@@ -414,19 +451,67 @@ public class ClusterState implements Cloneable {
     }
 
     private void removeLastNodesDownWithoutReason() {
-        for (NodeType nodeType : NodeType.values()) {
-            for (int index = nodeCount.get(nodeType.ordinal()) - 1; index >= 0; --index) {
-                Node node = new Node(nodeType, index);
-                NodeState nodeState = nodeStates.get(node);
+        for (int type = 0; type < nodeCount.length; type++) {
+            for (int index = nodeCount[type] - 1; index >= 0; --index) {
+                NodeState nodeState = getStoredNodeState(type, index);
                 if (nodeState == null) break; // Node not existing is up
                 if ( ! nodeState.getState().equals(State.DOWN)) break; // Node not down can not be removed
                 if (nodeState.hasDescription()) break; // Node have reason to be down. Don't remove node as we will forget reason
-                nodeStates.remove(node);
-                nodeCount.set(nodeType.ordinal(), node.getIndex());
+                setStoredNodeState(type, index, null);
+                nodeCount[type] = index;
             }
         }
     }
 
+    /**
+     * Applies the given delta to this in place, after which this is equal to the state the delta was
+     * computed to.
+     *
+     * @throws IllegalArgumentException if the delta is not from the version of this state
+     */
+    public void apply(ClusterStateDelta delta) {
+        if ( ! delta.isFull() && delta.getFromVersion() != version) {
+            throw new IllegalArgumentException("Cannot apply delta from cluster state version " + delta.getFromVersion() +
+                                               " to cluster state version " + version);
+        }
+        setVersion(delta.getToVersion());
+        setClusterState(delta.clusterState);
+        distributionBits = delta.distributionBits;
+        description = delta.description;
+        for (int type = 0; type < nodeCount.length; type++) {
+            int first = delta.isFull() ? 0 : delta.nodeCount[type];
+            for (int index = first; index < nodeStates[type].length; index++) {
+                nodeStates[type][index] = null;
+            }
+            nodeCount[type] = delta.nodeCount[type];
+        }
+        for (ClusterStateDelta.NodeChange change : delta.changes) {
+            setStoredNodeState(change.type.ordinal(), change.index,
+                               (change.nodeState != null) ? change.nodeState.clone() : null);
+        }
+    }
+
+    /** Returns this state in a compact binary form, which can be read by {@link #deserializeBinary} */
+    public byte[] serializeBinary() {
+        return ClusterStateDelta.full(this).serialize();
+    }
+
+    /**
+     * Returns the state serialized by {@link #serializeBinary}.
+     *
+     * @throws IllegalArgumentException if the given data is not a serialized cluster state
+     */
+    public static ClusterState deserializeBinary(byte[] serialized) {
+        ClusterStateDelta delta = ClusterStateDelta.deserialize(serialized);
+        if ( ! delta.isFull()) {
+            throw new IllegalArgumentException("Expected a complete cluster state, got a delta from version " +
+                                               delta.getFromVersion());
+        }
+        ClusterState state = emptyState();
+        state.apply(delta);
+        return state;
+    }
+
     public String getDescription() { return description; }
 
     public void setDescription(String description) {
@@ -462,29 +547,27 @@ public class ClusterState implements Cloneable {
         }
         if (distributorNodeCount > 0){
             sb.append(" distributor:").append(distributorNodeCount);
-            for (Map.Entry<Node, NodeState> entry : nodeStates.entrySet()) {
-                if (entry.getKey().getType().equals(NodeType.DISTRIBUTOR) && entry.getKey().getIndex() < distributorNodeCount) {
-                    String nodeState = entry.getValue().serialize(entry.getKey().getIndex(), verbose);
-                    if (!nodeState.isEmpty()) {
-                        sb.append(' ').append(nodeState);
-                    }
-                }
-            }
+            appendNodeStates(sb, NodeType.DISTRIBUTOR, distributorNodeCount, verbose);
         }
         if (storageNodeCount > 0){
             sb.append(" storage:").append(storageNodeCount);
-            for (Map.Entry<Node, NodeState> entry : nodeStates.entrySet()) {
-                if (entry.getKey().getType().equals(NodeType.STORAGE) && entry.getKey().getIndex() < storageNodeCount) {
-                    String nodeState = entry.getValue().serialize(entry.getKey().getIndex(), verbose);
-                    if (!nodeState.isEmpty()) {
-                        sb.append(' ').append(nodeState);
-                    }
-                }
-            }
+            appendNodeStates(sb, NodeType.STORAGE, storageNodeCount, verbose);
         }
         if (sb.length() > 0) { // Remove first space if not empty
             sb.deleteCharAt(0);
         }
         return sb.toString();
     }
+
+    private void appendNodeStates(StringBuilder sb, NodeType type, int nodeCount, boolean verbose) {
+        for (int index = 0; index < nodeCount; index++) {
+            NodeState state = getStoredNodeState(type.ordinal(), index);
+            if (state != null) {
+                String nodeState = state.serialize(index, verbose);
+                if (!nodeState.isEmpty()) {
+                    sb.append(' ').append(nodeState);
+                }
+            }
+        }
+    }
 }
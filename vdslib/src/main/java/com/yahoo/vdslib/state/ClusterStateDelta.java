@@ -0,0 +1,277 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vdslib.state;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The changes from one cluster state to another, carrying only the nodes whose state changed. Applying it
+ * to the first state, see {@link ClusterState#apply}, makes that state equal to the second. A full delta
+ * carries all nodes which are not up, and can be applied to any state.
+ * <p>
+ * Deltas have a compact binary serialization, which is also used for complete cluster states.
+ * Be aware that, unlike the textual form, this is not understood by the C++ implementation.
+ */
+public class ClusterStateDelta {
+
+    private static final byte FULL = 1;
+    private static final byte DELTA = 2;
+
+    private final int fromVersion;
+    private final int toVersion;
+    final State clusterState;
+    final int distributionBits;
+    final String description;
+    final int[] nodeCount;
+    final List<NodeChange> changes;
+
+    /** The new state of a node, which is null if the node is up */
+    static class NodeChange {
+
+        final NodeType type;
+        final int index;
+        final NodeState nodeState;
+
+        NodeChange(NodeType type, int index, NodeState nodeState) {
+            this.type = type;
+            this.index = index;
+            this.nodeState = nodeState;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if ( ! (o instanceof NodeChange)) return false;
+            NodeChange other = (NodeChange) o;
+            return type == other.type && index == other.index && same(nodeState, other.nodeState);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, index, nodeState == null ? null : nodeState.getState());
+        }
+
+    }
+
+    private ClusterStateDelta(int fromVersion, int toVersion, State clusterState, int distributionBits,
+                              String description, int[] nodeCount, List<NodeChange> changes) {
+        this.fromVersion = fromVersion;
+        this.toVersion = toVersion;
+        this.clusterState = clusterState;
+        this.distributionBits = distributionBits;
+        this.description = description;
+        this.nodeCount = nodeCount;
+        this.changes = changes;
+    }
+
+    /** Returns the changes needed to make the given from state equal to the given to state */
+    public static ClusterStateDelta between(ClusterState from, ClusterState to) {
+        return create(from, to);
+    }
+
+    /** Returns a delta which makes any state it is applied to equal to the given state */
+    public static ClusterStateDelta full(ClusterState to) {
+        return create(null, to);
+    }
+
+    private static ClusterStateDelta create(ClusterState from, ClusterState to) {
+        int[] nodeCount = new int[NodeType.values().length];
+        List<NodeChange> changes = new ArrayList<>();
+        for (NodeType type : NodeType.getTypes()) {
+            nodeCount[type.ordinal()] = to.getNodeCount(type);
+            int fromCount = (from == null) ? 0 : from.getNodeCount(type);
+            for (int index = 0; index < nodeCount[type.ordinal()]; index++) {
+                NodeState fromState = (index < fromCount) ? from.getStoredNodeState(type.ordinal(), index) : null;
+                NodeState toState = to.getStoredNodeState(type.ordinal(), index);
+                if ( ! same(fromState, toState)) {
+                    changes.add(new NodeChange(type, index, toState));
+                }
+            }
+        }
+        return new ClusterStateDelta(from == null ? -1 : from.getVersion(), to.getVersion(), to.getClusterState(),
+                                     to.getDistributionBitCount(), to.getDescription(), nodeCount, changes);
+    }
+
+    /** Returns whether the given node states are the same, including the descriptions which equals ignores */
+    private static boolean same(NodeState a, NodeState b) {
+        if (a == b) return true;
+        if (a == null || b == null) return false;
+        return a.equals(b) && a.serialize(true).equals(b.serialize(true));
+    }
+
+    /** Returns whether this can be applied to any state, rather than only to the state of its from version */
+    public boolean isFull() { return fromVersion == -1; }
+
+    /** Returns the version of the state this is a delta from, or -1 if this is a full delta */
+    public int getFromVersion() { return fromVersion; }
+
+    /** Returns the version of the state this is a delta to */
+    public int getToVersion() { return toVersion; }
+
+    /** Returns the number of nodes whose state is changed by this */
+    public int getChangedNodeCount() { return changes.size(); }
+
+    /** Returns this in a compact binary form, which can be read by {@link #deserialize} */
+    public byte[] serialize() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + changes.size() * 32);
+            DataOutputStream out = new DataOutputStream(bytes);
+            if (isFull()) {
+                out.writeByte(FULL);
+            } else {
+                out.writeByte(DELTA);
+                out.writeInt(fromVersion);
+            }
+            out.writeInt(toVersion);
+            writeState(clusterState, out);
+            out.writeByte(distributionBits);
+            out.writeUTF(description);
+            for (int count : nodeCount) {
+                out.writeInt(count);
+            }
+            out.writeInt(changes.size());
+            for (NodeChange change : changes) {
+                out.writeByte(change.type.ordinal());
+                out.writeInt(change.index);
+                out.writeBoolean(change.nodeState != null);
+                if (change.nodeState != null) {
+                    writeNodeState(change.nodeState, out);
+                }
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Writing to memory failed", e); // Does not happen
+        }
+    }
+
+    /**
+     * Returns the delta serialized by {@link #serialize}.
+     *
+     * @throws IllegalArgumentException if the given data is not a serialized delta
+     */
+    public static ClusterStateDelta deserialize(byte[] serialized) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(serialized));
+            byte format = in.readByte();
+            if (format != FULL && format != DELTA) {
+                throw new IllegalArgumentException("Unknown cluster state format " + format);
+            }
+            int fromVersion = (format == DELTA) ? in.readInt() : -1;
+            int toVersion = in.readInt();
+            State clusterState = readState(in);
+            int distributionBits = in.readByte();
+            String description = in.readUTF();
+            int[] nodeCount = new int[NodeType.values().length];
+            for (int type = 0; type < nodeCount.length; type++) {
+                nodeCount[type] = in.readInt();
+                if (nodeCount[type] < 0) {
+                    throw new IllegalArgumentException("Invalid " + NodeType.values()[type] + " node count " +
+                                                       nodeCount[type]);
+                }
+            }
+            int changeCount = in.readInt();
+            List<NodeChange> changes = new ArrayList<>(changeCount);
+            for (int i = 0; i < changeCount; i++) {
+                NodeType type = NodeType.values()[in.readByte()];
+                int index = in.readInt();
+                if (index < 0 || index >= nodeCount[type.ordinal()]) {
+                    throw new IllegalArgumentException("Cannot index " + type + " node " + index + " of " +
+                                                       nodeCount[type.ordinal()]);
+                }
+                NodeState nodeState = in.readBoolean() ? readNodeState(type, in) : null;
+                changes.add(new NodeChange(type, index, nodeState));
+            }
+            return new ClusterStateDelta(fromVersion, toVersion, clusterState, distributionBits, description,
+                                         nodeCount, Collections.unmodifiableList(changes));
+        } catch (IOException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid serialized cluster state", e);
+        }
+    }
+
+    private static void writeState(State state, DataOutputStream out) throws IOException {
+        out.writeByte(state.serialize().charAt(0));
+    }
+
+    private static State readState(DataInputStream in) throws IOException {
+        return State.get(String.valueOf((char) in.readByte()));
+    }
+
+    private static void writeNodeState(NodeState nodeState, DataOutputStream out) throws IOException {
+        writeState(nodeState.getState(), out);
+        out.writeUTF(nodeState.getDescription());
+        out.writeDouble(nodeState.getCapacity());
+        out.writeInt(nodeState.getReliability());
+        out.writeDouble(nodeState.getInitProgress());
+        out.writeByte(nodeState.getMinUsedBits());
+        out.writeLong(nodeState.getStartTimestamp());
+        out.writeInt(nodeState.getDiskCount());
+        for (DiskState diskState : nodeState.getDiskStates()) {
+            writeState(diskState.getState(), out);
+            out.writeUTF(diskState.getDescription());
+            out.writeDouble(diskState.getCapacity());
+        }
+    }
+
+    private static NodeState readNodeState(NodeType type, DataInputStream in) throws IOException {
+        NodeState nodeState = new NodeState(type, readState(in));
+        nodeState.setDescription(in.readUTF());
+        nodeState.setCapacity(in.readDouble());
+        nodeState.setReliability(in.readInt());
+        nodeState.setInitProgress(in.readDouble());
+        nodeState.setMinUsedBits(in.readByte());
+        nodeState.setStartTimestamp(in.readLong());
+        int diskCount = in.readInt();
+        if (diskCount > 0) {
+            nodeState.setDiskCount(diskCount);
+            for (int disk = 0; disk < diskCount; disk++) {
+                nodeState.setDiskState(disk, new DiskState(readState(in), in.readUTF(), in.readDouble()));
+            }
+        }
+        return nodeState;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if ( ! (o instanceof ClusterStateDelta)) return false;
+        ClusterStateDelta other = (ClusterStateDelta) o;
+        return fromVersion == other.fromVersion &&
+               toVersion == other.toVersion &&
+               clusterState == other.clusterState &&
+               distributionBits == other.distributionBits &&
+               description.equals(other.description) &&
+               Arrays.equals(nodeCount, other.nodeCount) &&
+               changes.equals(other.changes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fromVersion, toVersion, clusterState, distributionBits, description,
+                            Arrays.hashCode(nodeCount), changes);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("delta from version ").append(fromVersion).append(" to version ").append(toVersion)
+          .append(" cluster:").append(clusterState.serialize())
+          .append(" bits:").append(distributionBits)
+          .append(" distributor:").append(nodeCount[NodeType.DISTRIBUTOR.ordinal()])
+          .append(" storage:").append(nodeCount[NodeType.STORAGE.ordinal()]);
+        for (NodeChange change : changes) {
+            sb.append(' ').append(change.type).append('.').append(change.index).append(':')
+              .append(change.nodeState == null ? "u" : change.nodeState.serialize(true));
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,78 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vdslib.distribution;
+
+import com.yahoo.document.BucketId;
+import com.yahoo.vdslib.state.ClusterState;
+
+import java.util.Random;
+
+/**
+ * Measures the cost of computing the ideal distributor and storage nodes of buckets with and without an
+ * {@link IdealStateCache}, for a cluster of 100 nodes in 3 groups.
+ * <p>
+ * Run with <code>java -cp [test classpath] com.yahoo.vdslib.distribution.IdealStateBenchmark [seconds]</code>.
+ */
+public class IdealStateBenchmark {
+
+    private static final int NODES = 100;
+    private static final int GROUPS = 3;
+
+    /** Returns a raw config of the given number of nodes spread over groups, with one copy in each group */
+    static String getGroupedConfig(int nodeCount, int groupCount) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("raw:redundancy ").append(groupCount).append("\n")
+          .append("group[").append(groupCount + 1).append("]\n")
+          .append("group[0].index \"invalid\"\n")
+          .append("group[0].name \"invalid\"\n")
+          .append("group[0].partitions \"");
+        for (int i = 1; i < groupCount; ++i) {
+            sb.append("1|");
+        }
+        sb.append("*\"\n");
+        for (int group = 1; group <= groupCount; ++group) {
+            sb.append("group[").append(group).append("].index \"").append(group - 1).append("\"\n")
+              .append("group[").append(group).append("].name \"group").append(group - 1).append("\"\n");
+            sb.append("group[").append(group).append("].nodes[").append((nodeCount - group) / groupCount + 1).append("]\n");
+            for (int node = group - 1; node < nodeCount; node += groupCount) {
+                sb.append("group[").append(group).append("].nodes[").append(node / groupCount).append("].index ").append(node).append("\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    private interface Lookup {
+        void lookup(BucketId bucket) throws Exception;
+    }
+
+    private static void run(String name, BucketId[] buckets, long millis, Lookup lookup) throws Exception {
+        long lookups = 0;
+        long startNanos = System.nanoTime();
+        for (long end = System.currentTimeMillis() + millis; System.currentTimeMillis() < end; ) {
+            for (BucketId bucket : buckets) {
+                lookup.lookup(bucket);
+            }
+            lookups += buckets.length;
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        System.out.println(String.format("%s: %.0f ns per bucket", name, (double) elapsedNanos / lookups));
+    }
+
+    public static void main(String[] args) throws Exception {
+        long millis = (args.length > 0) ? Long.parseLong(args[0]) * 1000 : 5000;
+        Distribution distribution = new Distribution(getGroupedConfig(NODES, GROUPS));
+        IdealStateCache cache = new IdealStateCache(distribution, 1 << 16);
+        ClusterState state = new ClusterState("distributor:" + NODES + " .7.s:d storage:" + NODES + " .13.s:d .42.s:m");
+        Random random = new Random(1);
+        BucketId[] buckets = new BucketId[10000];
+        for (int i = 0; i < buckets.length; ++i) {
+            buckets[i] = new BucketId(32, random.nextLong()); // documents are routed by 32 bit buckets
+        }
+        for (int i = 0; i < 2; ++i) { // the first round is warmup
+            run("distributor, computed", buckets, millis, bucket -> distribution.getIdealDistributorNode(state, bucket, "uim"));
+            run("distributor, cached", buckets, millis, bucket -> cache.getIdealDistributorNode(state, bucket, "uim"));
+            run("storage nodes, computed", buckets, millis, bucket -> distribution.getIdealStorageNodes(state, bucket, "uim"));
+            run("storage nodes, cached", buckets, millis, bucket -> cache.getIdealStorageNodes(state, bucket, "uim"));
+        }
+    }
+
+}
@@ -0,0 +1,68 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vdslib.distribution;
+
+import com.yahoo.document.BucketId;
+import com.yahoo.vdslib.state.ClusterState;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class IdealStateCacheTestCase {
+
+    private static void assertSameAsDistribution(Distribution distribution, IdealStateCache cache, ClusterState state) throws Exception {
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; ++i) {
+            BucketId bucket = new BucketId(16 + random.nextInt(16), random.nextLong());
+            assertEquals(distribution.getIdealDistributorNode(state, bucket, "uim"),
+                         cache.getIdealDistributorNode(state, bucket, "uim"));
+            assertEquals(distribution.getIdealStorageNodes(state, bucket, "uim"),
+                         cache.getIdealStorageNodes(state, bucket, "uim"));
+        }
+    }
+
+    @Test
+    public void testCachedResultsAreSameAsComputed() throws Exception {
+        Distribution distribution = new Distribution("raw:" + Distribution.getSimpleGroupConfig(2, 10));
+        IdealStateCache cache = new IdealStateCache(distribution, 100);
+        ClusterState state = new ClusterState("distributor:10 storage:10");
+        assertSameAsDistribution(distribution, cache, state);
+        assertSameAsDistribution(distribution, cache, state); // now from the cache
+    }
+
+    @Test
+    public void testResultsAreDroppedWhenClusterStateChanges() throws Exception {
+        Distribution distribution = new Distribution("raw:" + Distribution.getDefaultDistributionConfig(2, 10));
+        IdealStateCache cache = new IdealStateCache(distribution, 100);
+        BucketId bucket = new BucketId(16, 1);
+        ClusterState state = new ClusterState("distributor:10 storage:10");
+        int distributor = cache.getIdealDistributorNode(state, bucket, "uim");
+        List<Integer> storageNodes = cache.getIdealStorageNodes(state, bucket, "uim");
+
+        ClusterState newState = new ClusterState("distributor:10 ." + distributor + ".s:d storage:10 ." + storageNodes.get(0) + ".s:d");
+        assertEquals(distribution.getIdealDistributorNode(newState, bucket, "uim"),
+                     cache.getIdealDistributorNode(newState, bucket, "uim"));
+        assertEquals(distribution.getIdealStorageNodes(newState, bucket, "uim"),
+                     cache.getIdealStorageNodes(newState, bucket, "uim"));
+        assertSameAsDistribution(distribution, cache, newState);
+    }
+
+    @Test(expected = Distribution.TooFewBucketBitsInUseException.class)
+    public void testTooFewBucketBitsAreNotCached() throws Exception {
+        Distribution distribution = new Distribution("raw:" + Distribution.getDefaultDistributionConfig(2, 10));
+        IdealStateCache cache = new IdealStateCache(distribution, 100);
+        ClusterState state = new ClusterState("distributor:10 storage:10");
+        cache.getIdealDistributorNode(state, new BucketId(16, 1), "uim");
+        cache.getIdealDistributorNode(state, new BucketId(15, 1), "uim");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testCachedStorageNodesAreUnmodifiable() throws Exception {
+        Distribution distribution = new Distribution("raw:" + Distribution.getDefaultDistributionConfig(2, 10));
+        IdealStateCache cache = new IdealStateCache(distribution, 100);
+        cache.getIdealStorageNodes(new ClusterState("distributor:10 storage:10"), new BucketId(16, 1), "uim").add(0);
+    }
+
+}
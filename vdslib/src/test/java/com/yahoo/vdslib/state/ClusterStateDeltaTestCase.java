@@ -0,0 +1,148 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vdslib.state;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ClusterStateDeltaTestCase {
+
+    private static final String from = "version:3 bits:20 distributor:8 .1.s:d .2.s:d storage:8 .0.s:m .0.m:maintenance " +
+                                       ".3.s:i .3.i:0.5 .4.c:1.5 .4.r:2 .5.d:4 .5.d.1.s:d .6.t:123456";
+
+    private static void assertApplied(ClusterState expected, ClusterState actual) {
+        assertEquals(expected, actual);
+        assertEquals(expected.toString(true), actual.toString(true));
+    }
+
+    @Test
+    public void testDeltaContainsChangedNodesOnly() throws ParseException {
+        ClusterState a = new ClusterState(from);
+        ClusterState b = new ClusterState("version:4 bits:20 distributor:8 .1.s:d storage:8 .0.s:m .0.m:maintenance " +
+                                          ".3.s:u .4.c:1.5 .4.r:2 .5.d:4 .5.d.1.s:d .6.t:123456 .7.s:r");
+        ClusterStateDelta delta = ClusterStateDelta.between(a, b);
+        assertFalse(delta.isFull());
+        assertEquals(3, delta.getFromVersion());
+        assertEquals(4, delta.getToVersion());
+        assertEquals(3, delta.getChangedNodeCount());
+        assertEquals("delta from version 3 to version 4 cluster:u bits:20 distributor:8 storage:8 " +
+                     "storage.3:u storage.7:s:r distributor.2:u", delta.toString());
+
+        a.apply(delta);
+        assertApplied(b, a);
+    }
+
+    @Test
+    public void testDescriptionChangesAreIncluded() throws ParseException {
+        ClusterState a = new ClusterState(from);
+        ClusterState b = new ClusterState(from.replace("version:3", "version:4").replace(".0.m:maintenance", ".0.m:upgrade"));
+        ClusterStateDelta delta = ClusterStateDelta.between(a, b);
+        assertEquals(1, delta.getChangedNodeCount());
+        ClusterState c = new ClusterState(from.replace("version:3", "version:4").replace(".0.m:maintenance", ".0.m:other"));
+        assertFalse(delta.equals(ClusterStateDelta.between(a, c)));
+        a.apply(delta);
+        assertApplied(b, a);
+    }
+
+    @Test
+    public void testDeltaToFewerAndMoreNodes() throws ParseException {
+        ClusterState a = new ClusterState(from);
+        ClusterState fewer = new ClusterState("version:4 cluster:d distributor:2 .1.s:d storage:5 .0.s:m");
+        fewer.setDescription("shrunk");
+        ClusterState more = new ClusterState("version:5 distributor:10 .1.s:d .9.s:d storage:12 .11.s:m");
+
+        a.apply(ClusterStateDelta.between(a.clone(), fewer));
+        assertApplied(fewer, a);
+        assertEquals("shrunk", a.getDescription());
+        a.apply(ClusterStateDelta.between(a.clone(), more));
+        assertApplied(more, a);
+        assertEquals(more.toString(), a.toString());
+    }
+
+    @Test
+    public void testDeltaSerialization() throws ParseException {
+        ClusterState a = new ClusterState(from);
+        ClusterState b = new ClusterState(from.replace("version:3", "version:4").replace(".2.s:d", "") + " .7.s:d");
+        ClusterStateDelta delta = ClusterStateDelta.between(a, b);
+        ClusterStateDelta deserialized = ClusterStateDelta.deserialize(delta.serialize());
+        assertEquals(delta, deserialized);
+        assertEquals(delta.hashCode(), deserialized.hashCode());
+        a.apply(deserialized);
+        assertApplied(b, a);
+    }
+
+    @Test
+    public void testBinarySerialization() throws ParseException {
+        ClusterState state = new ClusterState(from);
+        state.setDescription("a description");
+        ClusterState deserialized = ClusterState.deserializeBinary(state.serializeBinary());
+        assertApplied(state, deserialized);
+        assertEquals(state.getDescription(), deserialized.getDescription());
+        assertEquals(state.toString(), deserialized.toString());
+
+        ClusterState empty = ClusterState.emptyState();
+        assertApplied(empty, ClusterState.deserializeBinary(empty.serializeBinary()));
+    }
+
+    @Test
+    public void testFullDeltaAppliesToAnyState() throws ParseException {
+        ClusterState b = new ClusterState(from);
+        ClusterState other = new ClusterState("version:17 distributor:20 .19.s:d storage:3 .1.s:r");
+        other.apply(ClusterStateDelta.full(b));
+        assertApplied(b, other);
+    }
+
+    @Test
+    public void testDeltaFromOtherVersionIsRejected() throws ParseException {
+        ClusterState a = new ClusterState(from);
+        ClusterStateDelta delta = ClusterStateDelta.between(new ClusterState("version:2"), a);
+        try {
+            a.apply(delta);
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Cannot apply delta from cluster state version 2 to cluster state version 3", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testInvalidBinaryStatesAreRejected() throws ParseException {
+        ClusterState a = new ClusterState(from);
+        byte[] delta = ClusterStateDelta.between(a, new ClusterState("version:4")).serialize();
+        try {
+            ClusterState.deserializeBinary(delta);
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().startsWith("Expected a complete cluster state"));
+        }
+        byte[] truncated = new byte[10];
+        System.arraycopy(a.serializeBinary(), 0, truncated, 0, truncated.length);
+        try {
+            ClusterStateDelta.deserialize(truncated);
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Invalid serialized cluster state", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testNegativeNodeCountIsRejected() throws ParseException {
+        ClusterState state = new ClusterState("version:4 distributor:2 storage:3");
+        state.setDescription("");
+        byte[] serialized = ClusterStateDelta.full(state).serialize();
+        int firstNodeCountOffset = 1 + 4 + 1 + 1 + 2; // format, version, cluster state, bits and empty description
+        ByteBuffer.wrap(serialized).putInt(firstNodeCountOffset, -1);
+        try {
+            ClusterStateDelta.deserialize(serialized);
+            fail("Expected exception");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().endsWith("node count -1"));
+        }
+    }
+
+}
@@ -144,6 +144,8 @@ public final class ConnectionParams {
 
         /**
          * Set whether compression of document operations during communication to server should be enabled.
+         * Compression can also be enabled for single endpoints, see
+         * {@link Endpoint#create(String, int, boolean, boolean)}.
          *
          * @param useCompression true if compression should be enabled.
          * @return pointer to builder.
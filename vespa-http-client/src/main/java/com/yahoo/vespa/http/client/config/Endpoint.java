@@ -21,7 +21,7 @@ public final class Endpoint implements Serializable {
      * @return an Endpoint instance
      */
     public static Endpoint create(String hostname) {
-        return new Endpoint(hostname, DEFAULT_PORT, false);
+        return new Endpoint(hostname, DEFAULT_PORT, false, false);
     }
 
     /**
@@ -34,15 +34,30 @@ public final class Endpoint implements Serializable {
      * @see com.yahoo.vespa.http.client.config.ConnectionParams#getSslContext() needs to be set as well for SSL
      */
     public static Endpoint create(String hostname, int port, boolean useSsl) {
-        return new Endpoint(hostname, port, useSsl);
+        return new Endpoint(hostname, port, useSsl, false);
+    }
+
+    /**
+     * Creates an Endpoint with the given hostname, port, SSL and compression setting.
+     *
+     * @param hostname the hostname
+     * @param port the port
+     * @param useSsl true if SSL is to be used
+     * @param useCompression true if document operations sent to this endpoint are to be compressed,
+     *                       regardless of {@link ConnectionParams#getUseCompression()}
+     * @return an Endpoint instance
+     */
+    public static Endpoint create(String hostname, int port, boolean useSsl, boolean useCompression) {
+        return new Endpoint(hostname, port, useSsl, useCompression);
     }
 
     private static final long serialVersionUID = 4545345L;
     private final String hostname;
     private final int port;
     private final boolean useSsl;
+    private final boolean useCompression;
     private static final int DEFAULT_PORT = 4080;
-    private Endpoint(String hostname, int port, boolean useSsl) {
+    private Endpoint(String hostname, int port, boolean useSsl, boolean useCompression) {
         if (hostname.startsWith("https://")) {
             throw new RuntimeException("Hostname should be name of machine, not prefixed with protocol (https://)");
         }
@@ -54,6 +69,7 @@ public final class Endpoint implements Serializable {
         }
         this.port = port;
         this.useSsl = useSsl;
+        this.useCompression = useCompression;
     }
 
     public String getHostname() {
@@ -68,9 +84,13 @@ public final class Endpoint implements Serializable {
         return useSsl;
     }
 
+    public boolean isUseCompression() {
+        return useCompression;
+    }
+
     @Override
     public String toString() {
-        return hostname + ":" + port + " ssl=" + useSsl;
+        return hostname + ":" + port + " ssl=" + useSsl + (useCompression ? " compression=true" : "");
     }
 
     @Override
@@ -78,7 +98,8 @@ public final class Endpoint implements Serializable {
         if (this == o) return true;
         if (!(o instanceof Endpoint)) return false;
         Endpoint endpoint = (Endpoint) o;
-        return port == endpoint.port && useSsl == endpoint.useSsl && hostname.equals(endpoint.hostname);
+        return port == endpoint.port && useSsl == endpoint.useSsl && useCompression == endpoint.useCompression &&
+               hostname.equals(endpoint.hostname);
     }
 
     @Override
@@ -86,6 +107,7 @@ public final class Endpoint implements Serializable {
         int result = hostname.hashCode();
         result = 31 * result + port;
         result = 31 * result + (useSsl ? 1 : 0);
+        result = 31 * result + (useCompression ? 1 : 0);
         return result;
     }
 
@@ -8,7 +8,6 @@ import com.yahoo.vespa.http.client.config.ConnectionParams;
 import com.yahoo.vespa.http.client.config.Endpoint;
 import com.yahoo.vespa.http.client.config.FeedParams;
 import com.yahoo.vespa.http.client.core.Document;
-import com.yahoo.vespa.http.client.core.Encoder;
 import com.yahoo.vespa.http.client.core.Headers;
 import com.yahoo.vespa.http.client.core.ServerResponseException;
 import org.apache.http.Header;
@@ -23,16 +22,11 @@ import org.apache.http.config.RegistryBuilder;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
-import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.ByteBuffer;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -43,7 +37,6 @@ import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.zip.GZIPOutputStream;
 
 /**
  * @author Einar M R Rosenvinge
@@ -54,12 +47,7 @@ class ApacheGatewayConnection implements GatewayConnection {
     private static final ObjectMapper mapper = new ObjectMapper();
     private static final String PATH = "/reserved-for-internal-use/feedapi?";
     private final List<Integer> SUPPORTED_VERSIONS = new ArrayList<>();
-    private static final byte[] START_OF_FEED_XML = "<vespafeed>\n".getBytes(StandardCharsets.UTF_8);
-    private static final byte[] END_OF_FEED_XML = "\n</vespafeed>\n".getBytes(StandardCharsets.UTF_8);
-    private static final byte[] START_OF_FEED_JSON = "[".getBytes(StandardCharsets.UTF_8);
-    private static final byte[] END_OF_FEED_JSON = "]".getBytes(StandardCharsets.UTF_8);
-    private final byte[] startOfFeed;
-    private final byte[] endOfFeed;
+    private final RequestBodyWriter requestBodyWriter;
     private final Endpoint endpoint;
     private final FeedParams feedParams;
     private final String clusterSpecificRoute;
@@ -85,14 +73,7 @@ class ApacheGatewayConnection implements GatewayConnection {
         this.httpClientFactory = httpClientFactory;
         this.connectionParams = connectionParams;
         this.httpClient = null;
-        boolean isJson = feedParams.getDataFormat() == FeedParams.DataFormat.JSON_UTF8;
-        if (isJson) {
-            startOfFeed = START_OF_FEED_JSON;
-            endOfFeed = END_OF_FEED_JSON;
-        } else {
-            startOfFeed = START_OF_FEED_XML;
-            endOfFeed = END_OF_FEED_XML;
-        }
+        this.requestBodyWriter = RequestBodyWriter.forDataFormat(feedParams.getDataFormat());
         this.clientId = clientId;
         if (connectionParams.isEnableV3Protocol()) {
             if (this.clientId == null) {
@@ -104,7 +85,7 @@ class ApacheGatewayConnection implements GatewayConnection {
 
     @Override
     public InputStream writeOperations(List<Document> docs) throws ServerResponseException, IOException {
-        return write(docs, false, connectionParams.getUseCompression());
+        return write(docs, false, connectionParams.getUseCompression() || endpoint.isUseCompression());
     }
 
     @Override
@@ -122,64 +103,16 @@ class ApacheGatewayConnection implements GatewayConnection {
         return httpClient != null;
     }
 
-    // Protected for easier testing only.
-    protected static InputStreamEntity zipAndCreateEntity(final InputStream inputStream) throws IOException {
-        byte[] buffer = new byte[4096];
-        GZIPOutputStream gzos = null;
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try {
-            gzos = new GZIPOutputStream(baos);
-            while (inputStream.available() > 0) {
-                int length = inputStream.read(buffer);
-                gzos.write(buffer, 0,length);
-            }
-        } finally {
-            if (gzos != null)  {
-                gzos.close();
-            }
-        }
-        byte[] fooGzippedBytes = baos.toByteArray();
-        return new InputStreamEntity(new ByteArrayInputStream(fooGzippedBytes), -1);
-    }
-
     private InputStream write(List<Document> docs, boolean drain, boolean useCompression)
             throws ServerResponseException, IOException {
-        HttpPost httpPost = createPost(drain, useCompression, false /* this is not hanshake */);
-
-        final ByteBuffer[] buffers = getDataWithStartAndEndOfFeed(docs, negotiatedVersion);
-        final InputStream inputStream = new ByteBufferInputStream(buffers);
-        final InputStreamEntity reqEntity;
-        if (useCompression ) {
-            reqEntity = zipAndCreateEntity(inputStream);
-        } else {
-            reqEntity = new InputStreamEntity(inputStream, -1);
+        if (negotiatedVersion != 2 && negotiatedVersion != 3) { // TODO: Vespa 7: Remove support for version 2
+            throw new IllegalArgumentException("Protocol version " + negotiatedVersion + " unsupported by client.");
         }
-        reqEntity.setChunked(true);
-        httpPost.setEntity(reqEntity);
+        HttpPost httpPost = createPost(drain, useCompression, false /* this is not hanshake */);
+        httpPost.setEntity(requestBodyWriter.createEntity(docs, useCompression));
         return executePost(httpPost);
     }
 
-    private ByteBuffer[] getDataWithStartAndEndOfFeed(List<Document> docs, int version) {
-        List<ByteBuffer> data = new ArrayList<>();
-        if (version == 2 || version == 3) { // TODO: Vespa 7: Remove support for version 2
-            for (Document doc : docs) {
-                int operationSize = doc.size() + startOfFeed.length + endOfFeed.length;
-                StringBuilder envelope = new StringBuilder();
-                Encoder.encode(doc.getOperationId(), envelope);
-                envelope.append(' ');
-                envelope.append(Integer.toHexString(operationSize));
-                envelope.append('\n');
-                data.add(StandardCharsets.US_ASCII.encode(envelope.toString()));
-                data.add(ByteBuffer.wrap(startOfFeed));
-                data.add(doc.getData());
-                data.add(ByteBuffer.wrap(endOfFeed));
-            }
-        } else {
-            throw new IllegalArgumentException("Protocol version " + version + " unsupported by client.");
-        }
-        return data.toArray(new ByteBuffer[data.size()]);
-    }
-
     private HttpPost createPost(boolean drain, boolean useCompression, boolean isHandshake) {
         HttpPost httpPost = new HttpPost(createUri());
 
@@ -67,7 +67,7 @@ public class ClusterConnection implements AutoCloseable {
             for (int i = 0; i < connectionParams.getNumPersistentConnectionsPerEndpoint(); i++) {
                 GatewayConnection gatewayConnection;
                 if (connectionParams.isDryRun()) {
-                    gatewayConnection = new DryRunGatewayConnection(endpoint);
+                    gatewayConnection = new DryRunGatewayConnection(endpoint, feedParams, connectionParams);
                 } else {
                     gatewayConnection = new ApacheGatewayConnection(
                             endpoint,
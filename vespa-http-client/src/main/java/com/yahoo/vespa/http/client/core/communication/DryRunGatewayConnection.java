@@ -1,7 +1,9 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.vespa.http.client.core.communication;
 
+import com.yahoo.vespa.http.client.config.ConnectionParams;
 import com.yahoo.vespa.http.client.config.Endpoint;
+import com.yahoo.vespa.http.client.config.FeedParams;
 import com.yahoo.vespa.http.client.core.Document;
 import com.yahoo.vespa.http.client.core.ErrorCode;
 import com.yahoo.vespa.http.client.core.OperationStatus;
@@ -10,25 +12,36 @@ import com.yahoo.vespa.http.client.core.ServerResponseException;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Dummy implementation.
+ * Dummy implementation. Operations are encoded as they would be by {@link ApacheGatewayConnection},
+ * but discarded instead of being sent, so that a dry run also measures the cost of encoding.
  *
  * @author dybis
  */
 public class DryRunGatewayConnection implements GatewayConnection {
 
     private final Endpoint endpoint;
+    private final RequestBodyWriter requestBodyWriter;
+    private final boolean useCompression;
 
     public DryRunGatewayConnection(Endpoint endpoint) {
+        this(endpoint, new FeedParams.Builder().build(), new ConnectionParams.Builder().build());
+    }
+
+    public DryRunGatewayConnection(Endpoint endpoint, FeedParams feedParams, ConnectionParams connectionParams) {
         this.endpoint = endpoint;
+        this.requestBodyWriter = RequestBodyWriter.forDataFormat(feedParams.getDataFormat());
+        this.useCompression = connectionParams.getUseCompression() || endpoint.isUseCompression();
     }
 
     @Override
     public InputStream writeOperations(List<Document> docs) throws ServerResponseException, IOException {
+        requestBodyWriter.write(docs, useCompression, NullOutputStream.INSTANCE);
         StringBuilder result = new StringBuilder();
         for (Document doc : docs) {
             OperationStatus operationStatus = new OperationStatus("ok", doc.getOperationId(), ErrorCode.OK, false, "");
@@ -58,4 +71,16 @@ public class DryRunGatewayConnection implements GatewayConnection {
     @Override
     public void close() { }
 
+    private static class NullOutputStream extends OutputStream {
+
+        static final NullOutputStream INSTANCE = new NullOutputStream();
+
+        @Override
+        public void write(int b) { }
+
+        @Override
+        public void write(byte[] b, int off, int len) { }
+
+    }
+
 }
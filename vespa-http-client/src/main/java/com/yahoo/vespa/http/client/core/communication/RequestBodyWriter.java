@@ -0,0 +1,195 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.http.client.core.communication;
+
+import com.yahoo.vespa.http.client.config.FeedParams;
+import com.yahoo.vespa.http.client.core.Document;
+import com.yahoo.vespa.http.client.core.Encoder;
+import org.apache.http.entity.AbstractHttpEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the body of a feed request, that is, the envelope and data of each document operation,
+ * directly to the output stream of the request. The operation envelopes are encoded into a buffer
+ * which is reused for all requests written by this, so no per document buffers are created.
+ * An instance must only be used by one thread at a time, which is the case for the
+ * connection owning it.
+ */
+class RequestBodyWriter {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final byte[] START_OF_FEED_XML = "<vespafeed>\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] END_OF_FEED_XML = "\n</vespafeed>\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] START_OF_FEED_JSON = "[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] END_OF_FEED_JSON = "]".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final byte[] startOfFeed;
+    private final byte[] endOfFeed;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final StringBuilder operationId = new StringBuilder();
+    private int position = 0;
+
+    private RequestBodyWriter(byte[] startOfFeed, byte[] endOfFeed) {
+        this.startOfFeed = startOfFeed;
+        this.endOfFeed = endOfFeed;
+    }
+
+    /** Returns a writer which wraps each document in the start and end of feed of the given format */
+    static RequestBodyWriter forDataFormat(FeedParams.DataFormat dataFormat) {
+        if (dataFormat == FeedParams.DataFormat.JSON_UTF8) {
+            return new RequestBodyWriter(START_OF_FEED_JSON, END_OF_FEED_JSON);
+        }
+        return new RequestBodyWriter(START_OF_FEED_XML, END_OF_FEED_XML);
+    }
+
+    /** Returns a repeatable, chunked entity which writes the given documents when the request is sent */
+    AbstractHttpEntity createEntity(List<Document> docs, boolean useCompression) {
+        OperationsEntity entity = new OperationsEntity(docs, useCompression);
+        entity.setChunked(true);
+        return entity;
+    }
+
+    /** Writes the given documents to the given stream, compressing them if asked to */
+    void write(List<Document> docs, boolean useCompression, OutputStream out) throws IOException {
+        if ( ! useCompression) {
+            write(docs, out);
+            return;
+        }
+        // Close the gzip stream to release its deflater, but leave the request stream open
+        try (GZIPOutputStream gzip = new GZIPOutputStream(new UnclosableOutputStream(out), BUFFER_SIZE)) {
+            write(docs, gzip);
+        }
+    }
+
+    private void write(List<Document> docs, OutputStream out) throws IOException {
+        position = 0;
+        for (Document doc : docs) {
+            writeEnvelope(doc, out);
+            writeBytes(startOfFeed, out);
+            writeData(doc.getData(), out);
+            writeBytes(endOfFeed, out);
+        }
+        flush(out);
+    }
+
+    private void writeEnvelope(Document doc, OutputStream out) throws IOException {
+        operationId.setLength(0);
+        Encoder.encode(doc.getOperationId(), operationId); // only US-ASCII characters after encoding
+        for (int i = 0; i < operationId.length(); i++) {
+            writeByte((byte) operationId.charAt(i), out);
+        }
+        writeByte((byte) ' ', out);
+        writeHex(doc.size() + startOfFeed.length + endOfFeed.length, out);
+        writeByte((byte) '\n', out);
+    }
+
+    private void writeHex(int value, OutputStream out) throws IOException {
+        int shift = Math.max(0, (31 - Integer.numberOfLeadingZeros(value)) & ~3);
+        for (; shift >= 0; shift -= 4) {
+            writeByte(HEX_DIGITS[(value >>> shift) & 0xf], out);
+        }
+    }
+
+    private void writeByte(byte b, OutputStream out) throws IOException {
+        if (position == buffer.length) {
+            flush(out);
+        }
+        buffer[position++] = b;
+    }
+
+    private void writeBytes(byte[] bytes, OutputStream out) throws IOException {
+        if (bytes.length > buffer.length - position) {
+            flush(out);
+            out.write(bytes);
+            return;
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void writeData(ByteBuffer data, OutputStream out) throws IOException {
+        while (data.hasRemaining()) {
+            if (position == buffer.length) {
+                flush(out);
+            }
+            int length = Math.min(data.remaining(), buffer.length - position);
+            data.get(buffer, position, length);
+            position += length;
+        }
+    }
+
+    private void flush(OutputStream out) throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    private class OperationsEntity extends AbstractHttpEntity {
+
+        private final List<Document> docs;
+        private final boolean useCompression;
+
+        OperationsEntity(List<Document> docs, boolean useCompression) {
+            this.docs = docs;
+            this.useCompression = useCompression;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true; // the data of each document is read through a new read-only buffer
+        }
+
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            writeTo(out);
+            return new ByteArrayInputStream(out.toByteArray());
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            write(docs, useCompression, out);
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+
+    }
+
+    private static class UnclosableOutputStream extends FilterOutputStream {
+
+        UnclosableOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+
+    }
+
+}
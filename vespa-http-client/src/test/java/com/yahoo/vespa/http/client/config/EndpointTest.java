@@ -43,6 +43,15 @@ public class EndpointTest {
         assertThat(endpoint.isUseSsl(), is(true));
     }
 
+    @Test
+    public void testCompression() {
+        Endpoint endpoint = Endpoint.create("bar", 1234, false, true);
+
+        assertThat(endpoint.isUseCompression(), is(true));
+        assertThat(Endpoint.create("bar", 1234, false).isUseCompression(), is(false));
+        assertThat(endpoint, not(equalTo(Endpoint.create("bar", 1234, false))));
+    }
+
     @Test
     public void testMethods() {
         Endpoint a = Endpoint.create("a");
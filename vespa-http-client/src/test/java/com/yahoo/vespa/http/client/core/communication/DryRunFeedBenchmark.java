@@ -0,0 +1,72 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.http.client.core.communication;
+
+import com.yahoo.vespa.http.client.config.ConnectionParams;
+import com.yahoo.vespa.http.client.config.Endpoint;
+import com.yahoo.vespa.http.client.config.FeedParams;
+import com.yahoo.vespa.http.client.core.Document;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures how many documents per second a {@link DryRunGatewayConnection} encodes, and how many
+ * bytes are allocated per document, with and without compression.
+ * <p>
+ * Run with <code>java -cp [test classpath] com.yahoo.vespa.http.client.core.communication.DryRunFeedBenchmark [docsPerBatch] [documentSize] [seconds]</code>.
+ */
+public class DryRunFeedBenchmark {
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static List<Document> createBatch(int docsPerBatch, int documentSize) {
+        StringBuilder fields = new StringBuilder();
+        while (fields.length() < documentSize) {
+            fields.append("\"field").append(fields.length()).append("\": \"some text value\", ");
+        }
+        List<Document> batch = new ArrayList<>();
+        for (int i = 0; i < docsPerBatch; i++) {
+            String id = "id:namespace:type::" + i;
+            String json = "{\"put\": \"" + id + "\", \"fields\": {" + fields + "\"last\": " + i + "}}";
+            batch.add(new Document(id, json.getBytes(StandardCharsets.UTF_8), null));
+        }
+        return batch;
+    }
+
+    private static void run(List<Document> batch, boolean useCompression, long millis) throws Exception {
+        DryRunGatewayConnection connection = new DryRunGatewayConnection(
+                Endpoint.create("localhost", 4080, false, useCompression),
+                new FeedParams.Builder().setDataFormat(FeedParams.DataFormat.JSON_UTF8).build(),
+                new ConnectionParams.Builder().build());
+        long threadId = Thread.currentThread().getId();
+        for (long end = System.currentTimeMillis() + millis / 4; System.currentTimeMillis() < end; ) {
+            connection.writeOperations(batch).close(); // warmup
+        }
+        long documents = 0;
+        long startBytes = threads.getThreadAllocatedBytes(threadId);
+        long startNanos = System.nanoTime();
+        for (long end = System.currentTimeMillis() + millis; System.currentTimeMillis() < end; ) {
+            try (InputStream result = connection.writeOperations(batch)) {
+                documents += batch.size();
+            }
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        long allocatedBytes = threads.getThreadAllocatedBytes(threadId) - startBytes;
+        System.out.println(String.format("compression=%b: %.0f documents/s, %d bytes allocated per document",
+                                         useCompression, documents * 1e9 / elapsedNanos, allocatedBytes / documents));
+    }
+
+    public static void main(String[] args) throws Exception {
+        int docsPerBatch = (args.length > 0) ? Integer.parseInt(args[0]) : 100;
+        int documentSize = (args.length > 1) ? Integer.parseInt(args[1]) : 1000;
+        long millis = (args.length > 2) ? Long.parseLong(args[2]) * 1000 : 5000;
+        List<Document> batch = createBatch(docsPerBatch, documentSize);
+        run(batch, false, millis);
+        run(batch, true, millis);
+    }
+
+}
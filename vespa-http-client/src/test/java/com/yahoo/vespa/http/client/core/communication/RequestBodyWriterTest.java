@@ -0,0 +1,79 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.http.client.core.communication;
+
+import com.yahoo.vespa.http.client.TestUtils;
+import com.yahoo.vespa.http.client.config.FeedParams;
+import com.yahoo.vespa.http.client.core.Document;
+import org.apache.http.HttpEntity;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RequestBodyWriterTest {
+
+    private static Document document(String data) {
+        return new Document("id:ns:type::" + data.length(), data.getBytes(StandardCharsets.UTF_8), null);
+    }
+
+    private static String envelope(Document doc, int delimiterLength) {
+        return doc.getOperationId() + " " + Integer.toHexString(doc.size() + delimiterLength) + "\n";
+    }
+
+    private static String write(RequestBodyWriter writer, List<Document> docs, boolean useCompression) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(docs, useCompression, out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void requireThatOperationsAreWrittenWithEnvelopes() throws IOException {
+        RequestBodyWriter writer = RequestBodyWriter.forDataFormat(FeedParams.DataFormat.XML_UTF8);
+        Document foo = document("<document>foo</document>");
+        Document bar = document("<document>bar</document>");
+        int delimiterLength = "<vespafeed>\n".length() + "\n</vespafeed>\n".length();
+
+        assertEquals(envelope(foo, delimiterLength) + "<vespafeed>\n" + "<document>foo</document>" + "\n</vespafeed>\n" +
+                     envelope(bar, delimiterLength) + "<vespafeed>\n" + "<document>bar</document>" + "\n</vespafeed>\n",
+                     write(writer, Arrays.asList(foo, bar), false));
+    }
+
+    @Test
+    public void requireThatJsonOperationsAreWrappedInArrays() throws IOException {
+        RequestBodyWriter writer = RequestBodyWriter.forDataFormat(FeedParams.DataFormat.JSON_UTF8);
+        Document doc = document("{\"put\": \"id:ns:type::0\"}");
+        assertEquals(envelope(doc, 2) + "[" + "{\"put\": \"id:ns:type::0\"}" + "]",
+                     write(writer, Collections.singletonList(doc), false));
+    }
+
+    @Test
+    public void requireThatDocumentsLargerThanTheBufferAreWritten() throws IOException {
+        RequestBodyWriter writer = RequestBodyWriter.forDataFormat(FeedParams.DataFormat.JSON_UTF8);
+        char[] chars = new char[100000];
+        Arrays.fill(chars, 'x');
+        String data = new String(chars);
+        Document doc = document(data);
+        String expected = envelope(doc, 2) + "[" + data + "]";
+        assertEquals(expected, write(writer, Collections.singletonList(doc), false));
+        assertEquals(expected, write(writer, Collections.singletonList(doc), false)); // the buffer is reused
+    }
+
+    @Test
+    public void requireThatEntityIsCompressedAndRepeatable() throws IOException {
+        RequestBodyWriter writer = RequestBodyWriter.forDataFormat(FeedParams.DataFormat.JSON_UTF8);
+        Document doc = document("{}");
+        HttpEntity entity = writer.createEntity(Collections.singletonList(doc), true);
+        assertTrue(entity.isRepeatable());
+        assertTrue(entity.isChunked());
+        assertEquals(envelope(doc, 2) + "[{}]", TestUtils.zipStreamToString(entity.getContent()));
+        assertEquals(envelope(doc, 2) + "[{}]", TestUtils.zipStreamToString(entity.getContent()));
+    }
+
+}
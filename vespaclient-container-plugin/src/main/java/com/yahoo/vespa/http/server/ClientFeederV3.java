@@ -32,8 +32,6 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
-import static com.yahoo.messagebus.ErrorCode.SEND_QUEUE_FULL;
-
 /**
  * An instance of this class handles all requests from one client using VespaHttpClient.
  *
@@ -41,6 +39,10 @@ import static com.yahoo.messagebus.ErrorCode.SEND_QUEUE_FULL;
  * avoid using a threadpool that has no effect with all the extra that comes with it. V2 has one instance per thread
  * on the client, while this is one instance for all threads.
  *
+ * Operations are handed to message bus without blocking the request thread while waiting for room in the
+ * send queue, unless too many operations are waiting already. The statuses of operations, whether replies or
+ * failures to send, are collected as they complete, and returned to the client in the response to its next request.
+ *
  * @author dybis
  */
 class ClientFeederV3 {
@@ -114,11 +116,14 @@ class ClientFeederV3 {
             /*
              * The gateway handle overload from clients in different ways.
              *
-             * If the backend is overloaded, but not the gateway, it will fill the backend, messagebus throttler
-             * will start to block new documents and finally all threadsAvailableForFeeding will be blocking.
-             * However, as more threads are added, the gateway will not block on messagebus but return
-             * transitive errors on the documents that can not be processed. These errors will cause the client(s) to
-             * back off a bit.
+             * If the backend is overloaded, but not the gateway, it will fill the backend, and the messagebus throttler
+             * will start to hold back new documents until replies make room for them, without blocking any threads.
+             * The client(s) will then see their operations stay outstanding and back off. Once the session holds back
+             * as many documents as it allows, threads block until there is room, as they wait for documents to be
+             * sent. If the client asked to be
+             * denied when busy and all threadsAvailableForFeeding are in use, the gateway will instead return
+             * transitive errors on the documents that can not be sent right away. These errors will cause the
+             * client(s) to back off a bit.
              *
              * However, we can also have the case that the gateway becomes the bottleneck (e.g. CPU). In this case
              * we need to stop processing of new messages as early as possible and reject the request. This
@@ -200,25 +205,60 @@ class ClientFeederV3 {
         }
     }
 
-    private Result sendMessage(
+    /**
+     * Sends the given message without blocking. The message is sent as soon as the throttle policy of the session
+     * allows, and the status of messages which are not accepted is returned with the reply to a later request,
+     * like the replies of accepted messages. If the session already holds as many messages as it allows, this blocks
+     * until the message is sent instead. If we are out of feeding threads and the client asked to be denied
+     * when busy, messages which can not be sent right away are instead rejected with a transient error.
+     */
+    private void sendMessage(
             FeederSettings settings,
             DocumentOperationMessageV3 msg,
-            AtomicInteger threadsAvailableForFeeding) throws InterruptedException {
-        Result result = null;
-        while (result == null || result.getError().getCode() == SEND_QUEUE_FULL) {
-            msg.getMessage().pushHandler(feedReplyHandler);
-
-            if (settings.denyIfBusy && threadsAvailableForFeeding.get() < 1) {
-                return sourceSession.getResource().sendMessage(msg.getMessage());
-            } else {
-                result = sourceSession.getResource().sendMessageBlocking(msg.getMessage());
+            AtomicInteger threadsAvailableForFeeding,
+            BlockingQueue<OperationStatus> repliesFromOldMessages) throws InterruptedException {
+        msg.getMessage().pushHandler(feedReplyHandler);
+        if (settings.denyIfBusy && threadsAvailableForFeeding.get() < 1) {
+            Result result = sourceSession.getResource().sendMessage(msg.getMessage());
+            if (result.isAccepted()) {
+                outstandingOperations.incrementAndGet();
+            }
+            handleSendResult(msg, result, repliesFromOldMessages);
+        } else if (sourceSession.getResource().sendMessageWhenReady(msg.getMessage(),
+                                                                    result -> handleSendResult(msg, result, feedReplies))) {
+            outstandingOperations.incrementAndGet(); // until the reply or a failed result is taken from feedReplies
+        } else {
+            Result result = sourceSession.getResource().sendMessageBlocking(msg.getMessage());
+            if (isTimedOutInSendQueue(result)) { // the message is replied to with the timeout
+                outstandingOperations.incrementAndGet();
+                return;
             }
             if (result.isAccepted()) {
-                return result;
+                outstandingOperations.incrementAndGet();
             }
-            Thread.sleep(100);
+            handleSendResult(msg, result, repliesFromOldMessages);
+        }
+    }
+
+    private static boolean isTimedOutInSendQueue(Result result) {
+        return ! result.isAccepted() && result.getError().getCode() == com.yahoo.messagebus.ErrorCode.TIMEOUT;
+    }
+
+    /** Handles the result of initiating send of a message. This must not block, see SourceSession.sendWhenReady */
+    private void handleSendResult(DocumentOperationMessageV3 msg, Result result, BlockingQueue<OperationStatus> replies) {
+        if (result.isAccepted()) {
+            updateOpsPerSec();
+            log(LogLevel.DEBUG, "Sent message successfully, document id: ", msg.getOperationId());
+        } else if (!result.getError().isFatal()) {
+            replies.add(createOperationStatus(msg.getOperationId(), result.getError().getMessage(),
+                    ErrorCode.TRANSIENT_ERROR, false, msg.getMessage()));
+        } else {
+            // should probably not happen, but everybody knows stuff that
+            // shouldn't happen, happens all the time
+            boolean isConditionNotMet = result.getError().getCode() == DocumentProtocol.ERROR_TEST_AND_SET_CONDITION_FAILED;
+            replies.add(createOperationStatus(msg.getOperationId(), result.getError().getMessage(),
+                    ErrorCode.ERROR, isConditionNotMet, msg.getMessage()));
         }
-        return result;
     }
 
     private void feed(
@@ -235,31 +275,11 @@ class ClientFeederV3 {
             }
             setMessageParameters(msg.get(), settings);
 
-            Result result;
             try {
-                result = sendMessage(settings, msg.get(), threadsAvailableForFeeding);
-
+                sendMessage(settings, msg.get(), threadsAvailableForFeeding, repliesFromOldMessages);
             } catch  (RuntimeException e) {
                 repliesFromOldMessages.add(createOperationStatus(msg.get().getOperationId(), Exceptions.toMessageString(e),
                         ErrorCode.ERROR, false, msg.get().getMessage()));
-                continue;
-            }
-
-            if (result.isAccepted()) {
-                outstandingOperations.incrementAndGet();
-                updateOpsPerSec();
-                log(LogLevel.DEBUG, "Sent message successfully, document id: ", msg.get().getOperationId());
-            } else if (!result.getError().isFatal()) {
-                repliesFromOldMessages.add(createOperationStatus(msg.get().getOperationId(), result.getError().getMessage(),
-                        ErrorCode.TRANSIENT_ERROR, false, msg.get().getMessage()));
-                continue;
-            } else {
-                // should probably not happen, but everybody knows stuff that
-                // shouldn't happen, happens all the time
-                boolean isConditionNotMet = result.getError().getCode() == DocumentProtocol.ERROR_TEST_AND_SET_CONDITION_FAILED;
-                repliesFromOldMessages.add(createOperationStatus(msg.get().getOperationId(), result.getError().getMessage(),
-                        ErrorCode.ERROR, isConditionNotMet, msg.get().getMessage()));
-                continue;
             }
         }
     }
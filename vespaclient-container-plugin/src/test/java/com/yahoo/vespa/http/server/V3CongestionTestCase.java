@@ -29,7 +29,9 @@ import java.io.InputStream;
 
 
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 
@@ -95,7 +97,9 @@ public class V3CongestionTestCase {
     // A mock for message bus that can simulate blocking requests.
     private static class MockSharedSession extends SharedSourceSession {
         boolean queuFull = true;
+        boolean tooManyBlocked = false;
         AtomicInteger requests;
+        AtomicInteger blockingRequests = new AtomicInteger(0);
 
         public MockSharedSession(SourceSessionParams params, AtomicInteger requests) {
             super(new SharedMessageBus(new MessageBus(new MockNetwork(),
@@ -105,12 +109,24 @@ public class V3CongestionTestCase {
 
         @Override
         public Result sendMessageBlocking(Message msg) throws InterruptedException {
+            blockingRequests.incrementAndGet();
             return sendMessage(msg);
         }
 
+        @Override
+        public boolean sendMessageWhenReady(Message msg, Consumer<Result> resultHandler) {
+            if (tooManyBlocked) return false;
+            // Simulate the session sending the message once replies have made room for it
+            Result result;
+            do {
+                result = sendMessage(msg);
+            } while ( ! result.isAccepted() && result.getError().getCode() == ErrorCode.SEND_QUEUE_FULL);
+            resultHandler.accept(result);
+            return true;
+        }
+
         @Override
         public Result sendMessage(Message msg) {
-            ReplyHandler handler = msg.popHandler();
             if (queuFull) {
                 requests.incrementAndGet();
                 // Disable queue full after some attempts
@@ -121,15 +137,18 @@ public class V3CongestionTestCase {
                 return r;
             }
 
+            ReplyHandler handler = msg.popHandler();
             handler.handleReply(new MockReply(msg.getContext()));
             return Result.ACCEPTED;
         }
     }
 
+    MockSharedSession session;
+
     ReferencedResource<SharedSourceSession> retainMockSession(
             SourceSessionParams sessionParams,
             AtomicInteger requests) {
-        final SharedSourceSession session = new MockSharedSession(sessionParams, requests);
+        session = new MockSharedSession(sessionParams, requests);
         return new ReferencedResource<>(session, References.fromResource(session));
     }
 
@@ -151,6 +170,17 @@ public class V3CongestionTestCase {
         assertTrue(requests.get() == 1);
     }
 
+    @Test
+    public void testBlocksWhenTooManyOperationsAreWaitingToBeSent() throws IOException {
+        request.getJDiscRequest().headers().add(Headers.DENY_IF_BUSY, "false");
+        threadsAvail.set(10);
+        session.queuFull = false;
+        session.tooManyBlocked = true;
+
+        clientFeederV3.handleRequest(request);
+        assertEquals(1, session.blockingRequests.get());
+    }
+
     @Test
     public void testRetriesWhenNoThreadsAvailableButNoDenyIfBusy() throws IOException {
         request.getJDiscRequest().headers().add(Headers.DENY_IF_BUSY, "false");
@@ -0,0 +1,393 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.slime;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static com.yahoo.slime.BinaryFormat.decode_double;
+import static com.yahoo.slime.BinaryFormat.decode_meta;
+import static com.yahoo.slime.BinaryFormat.decode_type;
+import static com.yahoo.slime.BinaryFormat.decode_zigzag;
+
+/**
+ * A read-only inspector of Slime data in binary format which reads values directly from the
+ * encoded bytes instead of decoding them into a Slime object.
+ * <p>
+ * Creating a view validates the data and builds a small index holding the position of each value,
+ * but does not copy any strings or data, so values which are never accessed cost nothing beyond
+ * their index entry. Strings and data can be read in place by {@link #data}, {@link #valueOffset}
+ * and {@link #valueLength}, while the Inspector methods returning arrays return copies.
+ * <p>
+ * The encoded bytes must not be modified while views of them are in use.
+ *
+ * @see BinaryFormat
+ */
+public final class BinaryView implements Inspector {
+
+    private static final BinaryView invalid = new BinaryView(null, -1);
+
+    private final Index index;
+
+    /** The index of the value viewed, or -1 if this is invalid */
+    private final int value;
+
+    private BinaryView(Index index, int value) {
+        this.index = index;
+        this.value = value;
+    }
+
+    /**
+     * Returns an inspector of the given Slime binary data. If the data can be decoded without problems this is a
+     * view of the data. Otherwise it is the result of {@link BinaryFormat#decode(byte[], int, int)}, which
+     * contains the partial result and a description of the problem.
+     *
+     * @param data array containing the data to inspect
+     * @param offset where in the array the data starts
+     * @param length the number of bytes of data
+     */
+    public static Inspector inspect(byte[] data, int offset, int length) {
+        Index index = Index.decode(data, offset, length);
+        if (index == null)
+            return BinaryFormat.decode(data, offset, length).get();
+        return new BinaryView(index, 0);
+    }
+
+    private int position() { return index.positions[value]; }
+
+    private int meta() { return decode_meta(index.data[position()]); }
+
+    @Override
+    public boolean valid() { return value >= 0; }
+
+    @Override
+    public Type type() {
+        if ( ! valid()) return Type.NIX;
+        return decode_type(index.data[position()]);
+    }
+
+    @Override
+    public int children() {
+        Type type = type();
+        if (type != Type.ARRAY && type != Type.OBJECT) return 0;
+        return index.childCount(value);
+    }
+
+    @Override
+    public int entries() { return type() == Type.ARRAY ? index.childCount(value) : 0; }
+
+    @Override
+    public int fields() { return type() == Type.OBJECT ? index.childCount(value) : 0; }
+
+    @Override
+    public boolean asBool() { return type() == Type.BOOL && meta() != 0; }
+
+    @Override
+    public long asLong() {
+        switch (type()) {
+            case LONG: return readLong();
+            case DOUBLE: return (long)readDouble();
+            default: return 0;
+        }
+    }
+
+    @Override
+    public double asDouble() {
+        switch (type()) {
+            case LONG: return readLong();
+            case DOUBLE: return readDouble();
+            default: return 0.0;
+        }
+    }
+
+    private long readLong() {
+        int bytes = meta();
+        int position = position() + 1;
+        long encoded = 0;
+        for (int i = 0; i < bytes; i++)
+            encoded |= (index.data[position + i] & 0xffL) << (8 * i);
+        return decode_zigzag(encoded);
+    }
+
+    private double readDouble() {
+        int bytes = meta();
+        int position = position() + 1;
+        long encoded = 0;
+        for (int i = 0; i < bytes; i++)
+            encoded |= (index.data[position + i] & 0xffL) << (56 - 8 * i);
+        return decode_double(encoded);
+    }
+
+    @Override
+    public String asString() {
+        if (type() != Type.STRING) return "";
+        return Utf8Codec.decode(index.data, valueOffset(), valueLength());
+    }
+
+    @Override
+    public byte[] asUtf8() { return type() == Type.STRING ? copyValue() : new byte[0]; }
+
+    @Override
+    public byte[] asData() { return type() == Type.DATA ? copyValue() : new byte[0]; }
+
+    private byte[] copyValue() {
+        byte[] copy = new byte[valueLength()];
+        System.arraycopy(index.data, valueOffset(), copy, 0, copy.length);
+        return copy;
+    }
+
+    /** Returns the array holding the encoded data viewed by this. This must not be modified. */
+    public byte[] data() { return index == null ? new byte[0] : index.data; }
+
+    /**
+     * Returns the position in {@link #data} of the first byte of this string or data value,
+     * or -1 if this is not a string or data value
+     */
+    public int valueOffset() {
+        Type type = type();
+        if (type != Type.STRING && type != Type.DATA) return -1;
+        return index.links[value];
+    }
+
+    /** Returns the number of bytes of this string or data value, or 0 if this is not a string or data value */
+    public int valueLength() {
+        Type type = type();
+        if (type != Type.STRING && type != Type.DATA) return 0;
+        int meta = meta();
+        if (meta != 0) return meta - 1;
+        return (int)Index.readCompressedLong(index.data, position() + 1);
+    }
+
+    @Override
+    public void accept(Visitor v) {
+        switch (type()) {
+            case NIX: if (valid()) v.visitNix(); else v.visitInvalid(); break;
+            case BOOL: v.visitBool(asBool()); break;
+            case LONG: v.visitLong(asLong()); break;
+            case DOUBLE: v.visitDouble(asDouble()); break;
+            case STRING: v.visitString(asUtf8()); break;
+            case DATA: v.visitData(asData()); break;
+            case ARRAY: v.visitArray(this); break;
+            case OBJECT: v.visitObject(this); break;
+        }
+    }
+
+    @Override
+    public void traverse(ArrayTraverser at) {
+        if (type() != Type.ARRAY) return;
+        int first = index.links[value];
+        for (int i = 0; i < index.childCount(value); i++)
+            at.entry(i, new BinaryView(index, first + i));
+    }
+
+    @Override
+    public void traverse(ObjectSymbolTraverser ot) {
+        if (type() != Type.OBJECT) return;
+        int first = index.links[value];
+        for (int i = 0; i < index.childCount(value); i++)
+            ot.field(index.symbols[first + i], new BinaryView(index, first + i));
+    }
+
+    @Override
+    public void traverse(ObjectTraverser ot) {
+        if (type() != Type.OBJECT) return;
+        int first = index.links[value];
+        for (int i = 0; i < index.childCount(value); i++)
+            ot.field(index.names.inspect(index.symbols[first + i]), new BinaryView(index, first + i));
+    }
+
+    @Override
+    public BinaryView entry(int idx) {
+        if (type() != Type.ARRAY || idx < 0 || idx >= index.childCount(value)) return invalid;
+        return new BinaryView(index, index.links[value] + idx);
+    }
+
+    @Override
+    public BinaryView field(int sym) {
+        if (type() != Type.OBJECT) return invalid;
+        int first = index.links[value];
+        for (int i = 0; i < index.childCount(value); i++)
+            if (index.symbols[first + i] == sym)
+                return new BinaryView(index, first + i);
+        return invalid;
+    }
+
+    @Override
+    public BinaryView field(String name) {
+        if (type() != Type.OBJECT) return invalid;
+        int sym = index.names.lookup(name);
+        if (sym == SymbolTable.INVALID) return invalid;
+        return field(sym);
+    }
+
+    @Override
+    public String toString() {
+        try {
+            ByteArrayOutputStream a = new ByteArrayOutputStream();
+            new JsonFormat(true).encode(a, this);
+            return a.toString("UTF-8");
+        } catch (Exception e) {
+            return "null";
+        }
+    }
+
+    /**
+     * The positions of all the values in some binary Slime data. The children of each array or object
+     * are stored consecutively, such that each container only needs to know its first child.
+     */
+    private static final class Index {
+
+        final byte[] data;
+        final SymbolTable names = new SymbolTable();
+
+        /** The position of the type and meta byte of each value */
+        int[] positions = new int[16];
+
+        /** The index of the first child of containers, and the position of the bytes of strings and data */
+        int[] links = new int[16];
+
+        /** The number of children of containers */
+        int[] childCounts = new int[16];
+
+        /** The symbol of each value which is the field of an object */
+        int[] symbols = new int[16];
+
+        int size = 0;
+
+        /** The read position while decoding */
+        private int position;
+        private final int end;
+
+        private Index(byte[] data, int offset, int length) {
+            this.data = data;
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        int childCount(int value) { return childCounts[value]; }
+
+        /** Returns the index of the given data, or null if it is not valid binary Slime */
+        static Index decode(byte[] data, int offset, int length) {
+            if (offset < 0 || length < 0 || offset + length > data.length) return null;
+            Index index = new Index(data, offset, length);
+            try {
+                if ( ! index.decodeSymbolTable()) return null;
+                index.reserve(1);
+                index.decodeValue(0);
+                return index;
+            }
+            catch (IndexOutOfBoundsException | IllegalArgumentException e) { // underflow or invalid data
+                return null;
+            }
+        }
+
+        private boolean decodeSymbolTable() {
+            long symbolCount = readCompressedLong();
+            for (int i = 0; i < symbolCount; i++) {
+                int size = (int)readCompressedLong();
+                require(size);
+                int symbol = names.insert(Utf8Codec.decode(data, position, size));
+                position += size;
+                if (symbol != i) return false; // duplicate symbols
+            }
+            return true;
+        }
+
+        private void decodeValue(int value) {
+            require(1);
+            byte typeAndMeta = data[position];
+            positions[value] = position++;
+            int meta = decode_meta(typeAndMeta);
+            switch (decode_type(typeAndMeta)) {
+                case NIX: case BOOL:
+                    break;
+                case LONG: case DOUBLE:
+                    require(meta);
+                    position += meta;
+                    break;
+                case STRING: case DATA:
+                    int size = readSize(meta);
+                    require(size);
+                    links[value] = position;
+                    position += size;
+                    break;
+                case ARRAY:
+                    decodeChildren(value, readSize(meta), false);
+                    break;
+                case OBJECT:
+                    decodeChildren(value, readSize(meta), true);
+                    break;
+            }
+        }
+
+        private void decodeChildren(int value, int count, boolean object) {
+            require(count); // each child uses at least one byte
+            int first = reserve(count);
+            links[value] = first;
+            childCounts[value] = count;
+            for (int i = 0; i < count; i++) {
+                if (object) {
+                    long symbol = readCompressedLong();
+                    if (symbol >= names.symbols()) throw new IllegalArgumentException("Unknown symbol " + symbol);
+                    for (int j = first; j < first + i; j++)
+                        if (symbols[j] == symbol) throw new IllegalArgumentException("Duplicate field " + symbol);
+                    symbols[first + i] = (int)symbol;
+                }
+                decodeValue(first + i);
+            }
+        }
+
+        /** Reserves room for the given number of consecutive values and returns the index of the first */
+        private int reserve(int count) {
+            int first = size;
+            size += count;
+            if (size > positions.length) {
+                int capacity = Math.max(size, positions.length * 2);
+                positions = Arrays.copyOf(positions, capacity);
+                links = Arrays.copyOf(links, capacity);
+                childCounts = Arrays.copyOf(childCounts, capacity);
+                symbols = Arrays.copyOf(symbols, capacity);
+            }
+            return first;
+        }
+
+        private void require(int bytes) {
+            if (bytes < 0 || position + bytes > end)
+                throw new IndexOutOfBoundsException("Underflow at position " + position);
+        }
+
+        private int readSize(int meta) {
+            if (meta != 0) return meta - 1;
+            long size = readCompressedLong();
+            if (size > Integer.MAX_VALUE) throw new IllegalArgumentException("Size " + size + " is too large");
+            return (int)size;
+        }
+
+        private long readCompressedLong() {
+            long value = 0;
+            int shift = 0;
+            long next;
+            do {
+                require(1);
+                next = data[position++];
+                value |= (next & 0x7f) << shift;
+                shift += 7;
+            } while ((next & 0x80) != 0);
+            return value;
+        }
+
+        /** Reads a compressed long at the given position of already validated data */
+        static long readCompressedLong(byte[] data, int position) {
+            long value = 0;
+            int shift = 0;
+            long next;
+            do {
+                next = data[position++];
+                value |= (next & 0x7f) << shift;
+                shift += 7;
+            } while ((next & 0x80) != 0);
+            return value;
+        }
+
+    }
+
+}
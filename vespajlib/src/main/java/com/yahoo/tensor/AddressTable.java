@@ -0,0 +1,145 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import java.util.Arrays;
+
+/**
+ * A hash table of tensor addresses, each given as a fixed number of label ids (see {@link LabelTable}).
+ * Each address added is assigned a dense ordinal, starting at 0, which can be used to index
+ * arrays holding data for the addresses, such as cell values.
+ * <p>
+ * The label ids of the addresses are stored packed in a single int array in ordinal order,
+ * and the table is an int array of ordinals using open addressing with linear probing,
+ * so no objects are allocated per address.
+ * <p>
+ * This is not multithread safe.
+ */
+public final class AddressTable {
+
+    private static final float maxLoadFactor = 0.75f;
+
+    /** The number of label ids in each address */
+    private final int rank;
+
+    /** The label ids of each address, in ordinal order */
+    private int[] keys;
+
+    /** The ordinal + 1 of the address hashing to each slot, or 0 if the slot is empty */
+    private int[] slots;
+
+    private int size = 0;
+
+    /** Creates an empty table of addresses of the given rank */
+    public AddressTable(int rank) {
+        this(rank, 16);
+    }
+
+    /** Creates an empty table of addresses of the given rank which can hold the given number of addresses without resizing */
+    public AddressTable(int rank, int expectedSize) {
+        if (rank < 0) throw new IllegalArgumentException("Rank cannot be negative, got " + rank);
+        this.rank = rank;
+        this.keys = new int[Math.max(1, expectedSize) * rank];
+        this.slots = new int[slotsFor(expectedSize)];
+    }
+
+    private AddressTable(int rank, int[] keys, int[] slots, int size) {
+        this.rank = rank;
+        this.keys = keys;
+        this.slots = slots;
+        this.size = size;
+    }
+
+    /** Returns the number of label ids in each address of this */
+    public int rank() { return rank; }
+
+    /** Returns the number of addresses in this */
+    public int size() { return size; }
+
+    /**
+     * Adds an address to this if not already present
+     *
+     * @param key the label ids of the address, of length rank. This is copied and can be reused by the caller.
+     * @return the ordinal of the address
+     */
+    public int add(int[] key) {
+        int mask = slots.length - 1;
+        for (int slot = hash(key, 0) & mask; ; slot = (slot + 1) & mask) {
+            int ordinal = slots[slot] - 1;
+            if (ordinal < 0) {
+                if (size + 1 > slots.length * maxLoadFactor) {
+                    resize();
+                    return add(key);
+                }
+                return insert(key, slot);
+            }
+            if (keyEquals(ordinal, key)) return ordinal;
+        }
+    }
+
+    /**
+     * Returns the ordinal of the given address, or -1 if it is not present in this
+     *
+     * @param key the label ids of the address, of length rank
+     */
+    public int find(int[] key) {
+        int mask = slots.length - 1;
+        for (int slot = hash(key, 0) & mask; ; slot = (slot + 1) & mask) {
+            int ordinal = slots[slot] - 1;
+            if (ordinal < 0) return -1;
+            if (keyEquals(ordinal, key)) return ordinal;
+        }
+    }
+
+    /** Returns the label id in the given dimension of the address having the given ordinal */
+    public int labelId(int ordinal, int dimension) {
+        return keys[ordinal * rank + dimension];
+    }
+
+    /** Returns a copy of this which uses no more memory for keys than needed for the addresses it contains */
+    public AddressTable trimmedCopy() {
+        return new AddressTable(rank, Arrays.copyOf(keys, size * rank), Arrays.copyOf(slots, slots.length), size);
+    }
+
+    private int insert(int[] key, int slot) {
+        if ((size + 1) * rank > keys.length)
+            keys = Arrays.copyOf(keys, Math.max(keys.length * 2, (size + 1) * rank));
+        System.arraycopy(key, 0, keys, size * rank, rank);
+        slots[slot] = size + 1;
+        return size++;
+    }
+
+    private boolean keyEquals(int ordinal, int[] key) {
+        int start = ordinal * rank;
+        for (int i = 0; i < rank; i++)
+            if (keys[start + i] != key[i]) return false;
+        return true;
+    }
+
+    private void resize() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            int slot = hash(keys, ordinal * rank) & mask;
+            while (slots[slot] != 0)
+                slot = (slot + 1) & mask;
+            slots[slot] = ordinal + 1;
+        }
+    }
+
+    /** Returns the hash of the rank label ids starting at the given offset in the given array */
+    private int hash(int[] ids, int offset) {
+        int hash = 1;
+        for (int i = 0; i < rank; i++)
+            hash = 31 * hash + ids[offset + i];
+        hash *= 0x9E3779B9; // spread sequential ids over the table
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int slotsFor(int expectedSize) {
+        int slots = 2;
+        while (slots * maxLoadFactor < expectedSize)
+            slots <<= 1;
+        return slots;
+    }
+
+}
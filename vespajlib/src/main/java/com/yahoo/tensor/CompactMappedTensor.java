@@ -0,0 +1,246 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import com.google.common.collect.ImmutableMap;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * A sparse implementation of a tensor which stores its cells in primitive arrays rather than in a map of objects:
+ * Labels are interned to ints in a {@link LabelTable}, cell addresses are stored as packed label ids
+ * in an {@link AddressTable}, and the value of each cell is stored in a double array at the ordinal of its address.
+ * This makes each cell cost a few ints and a double rather than an address object, a label array and a boxed value,
+ * which is preferable for tensors with many cells.
+ * <p>
+ * This can only hold tensors where all dimensions are mapped.
+ * TensorAddress and Cell instances are created on demand when cells are accessed through the Tensor interface.
+ */
+public class CompactMappedTensor implements Tensor {
+
+    private final TensorType type;
+
+    private final LabelTable labels;
+
+    private final AddressTable addresses;
+
+    /** The cell values by address ordinal */
+    private final double[] values;
+
+    private CompactMappedTensor(TensorType type, LabelTable labels, AddressTable addresses, double[] values) {
+        this.type = type;
+        this.labels = labels;
+        this.addresses = addresses;
+        this.values = values;
+    }
+
+    /** Returns whether the given type can be represented by this, i.e whether all its dimensions are mapped */
+    public static boolean supports(TensorType type) {
+        return type.dimensions().stream().noneMatch(d -> d.isIndexed());
+    }
+
+    @Override
+    public TensorType type() { return type; }
+
+    @Override
+    public long size() { return addresses.size(); }
+
+    @Override
+    public double get(TensorAddress address) {
+        if (address.size() != addresses.rank()) return Double.NaN;
+        int[] key = new int[address.size()];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = labels.idOf(address.label(i));
+            if (key[i] < 0) return Double.NaN;
+        }
+        int ordinal = addresses.find(key);
+        return ordinal < 0 ? Double.NaN : values[ordinal];
+    }
+
+    /**
+     * Returns the label in the given dimension of the cell at the given index.
+     * Cell indexes are in the range [0, size()) and are stable for this instance.
+     */
+    public String label(int cellIndex, int dimension) {
+        return labels.label(addresses.labelId(cellIndex, dimension));
+    }
+
+    /** Returns the value of the cell at the given index */
+    public double value(int cellIndex) { return values[cellIndex]; }
+
+    /** Returns the address of the cell at the given index */
+    public TensorAddress address(int cellIndex) {
+        String[] labels = new String[addresses.rank()];
+        for (int i = 0; i < labels.length; i++)
+            labels[i] = label(cellIndex, i);
+        return TensorAddress.of(labels);
+    }
+
+    @Override
+    public Iterator<Cell> cellIterator() { return new CellIterator(); }
+
+    @Override
+    public Iterator<Double> valueIterator() { return new ValueIterator(); }
+
+    @Override
+    public Map<TensorAddress, Double> cells() {
+        ImmutableMap.Builder<TensorAddress, Double> cells = new ImmutableMap.Builder<>();
+        for (int i = 0; i < values.length; i++)
+            cells.put(address(i), values[i]);
+        return cells.build();
+    }
+
+    @Override
+    public Tensor withType(TensorType other) {
+        if ( ! this.type.isRenamableTo(other)) {
+            throw new IllegalArgumentException("CompactMappedTensor.withType: types are not compatible. Current type: '" +
+                                               this.type.toString() + "', requested type: '" + other.toString() + "'");
+        }
+        return new CompactMappedTensor(other, labels, addresses, values);
+    }
+
+    /** Returns the same hash code as a map of these cells, for consistency with other sparse tensors */
+    @Override
+    public int hashCode() {
+        int hashCode = 0;
+        for (int i = 0; i < values.length; i++) {
+            int addressHash = 1;
+            for (int d = 0; d < addresses.rank(); d++)
+                addressHash = 31 * addressHash + label(i, d).hashCode();
+            hashCode += addressHash ^ Double.hashCode(values[i]);
+        }
+        return hashCode;
+    }
+
+    @Override
+    public String toString() { return Tensor.toStandardString(this); }
+
+    @Override
+    public boolean equals(Object other) {
+        if ( ! ( other instanceof Tensor)) return false;
+        return Tensor.equals(this, ((Tensor)other));
+    }
+
+    /**
+     * A builder of compact mapped tensors. Adding a cell at an address which is already added replaces its value,
+     * rather than failing like the builder returned by {@link Tensor.Builder#of}, so this must be asked for
+     * explicitly, where the cell addresses are known to be unique.
+     */
+    public static class Builder implements Tensor.Builder {
+
+        private final TensorType type;
+        private final LabelTable labels = new LabelTable();
+        private final AddressTable addresses;
+        private double[] values;
+
+        /** Reused to hold the label ids of the address of the cell being added */
+        private final int[] key;
+
+        public static Builder of(TensorType type) { return new Builder(type, 16); }
+
+        /** Creates a builder which can hold the given number of cells without resizing */
+        public static Builder of(TensorType type, int expectedSize) { return new Builder(type, expectedSize); }
+
+        private Builder(TensorType type, int expectedSize) {
+            if ( ! supports(type))
+                throw new IllegalArgumentException("A CompactMappedTensor can only have mapped dimensions, not " + type);
+            this.type = type;
+            this.addresses = new AddressTable(type.dimensions().size(), expectedSize);
+            this.values = new double[Math.max(1, expectedSize)];
+            this.key = new int[type.dimensions().size()];
+        }
+
+        public CellBuilder cell() {
+            return new CellBuilder(type, this);
+        }
+
+        @Override
+        public TensorType type() { return type; }
+
+        @Override
+        public Builder cell(TensorAddress address, double value) {
+            requireRank(address.size());
+            for (int i = 0; i < key.length; i++)
+                key[i] = labels.intern(address.label(i));
+            return put(value);
+        }
+
+        @Override
+        public Builder cell(double value, long... labels) {
+            requireRank(labels.length);
+            for (int i = 0; i < key.length; i++)
+                key[i] = this.labels.intern(String.valueOf(labels[i]));
+            return put(value);
+        }
+
+        /**
+         * Adds a cell without creating an address object
+         *
+         * @param labels the labels of the cell in dimension order. This is not retained and can be reused by the caller.
+         * @param value the value of the cell
+         * @return this for chaining
+         */
+        public Builder cell(String[] labels, double value) {
+            requireRank(labels.length);
+            for (int i = 0; i < key.length; i++)
+                key[i] = this.labels.intern(labels[i]);
+            return put(value);
+        }
+
+        private Builder put(double value) {
+            int ordinal = addresses.add(key);
+            if (ordinal == values.length)
+                values = Arrays.copyOf(values, values.length * 2);
+            values[ordinal] = value;
+            return this;
+        }
+
+        private void requireRank(int rank) {
+            if (rank != key.length)
+                throw new IllegalArgumentException("Expected an address with " + key.length + " labels for " + type +
+                                                   " but got " + rank);
+        }
+
+        @Override
+        public CompactMappedTensor build() {
+            return new CompactMappedTensor(type, labels.copy(), addresses.trimmedCopy(),
+                                           Arrays.copyOf(values, addresses.size()));
+        }
+
+    }
+
+    private class CellIterator implements Iterator<Cell> {
+
+        private int next = 0;
+
+        @Override
+        public boolean hasNext() { return next < values.length; }
+
+        @Override
+        public Cell next() {
+            if ( ! hasNext()) throw new NoSuchElementException("No cell at " + next);
+            Cell cell = new Cell(address(next), values[next]);
+            next++;
+            return cell;
+        }
+
+    }
+
+    private class ValueIterator implements Iterator<Double> {
+
+        private int next = 0;
+
+        @Override
+        public boolean hasNext() { return next < values.length; }
+
+        @Override
+        public Double next() {
+            if ( ! hasNext()) throw new NoSuchElementException("No value at " + next);
+            return values[next++];
+        }
+
+    }
+
+}
@@ -605,6 +605,24 @@ public class IndexedTensor implements Tensor {
             return reusedCell;
         }
 
+        /**
+         * Advances this to the next cell and returns its value without creating a cell or boxing the value.
+         * The position of this cell in the iteration space is available from {@link #iterationValueIndex}
+         * until this or next() is called again.
+         */
+        public double nextValue() {
+            if ( ! hasNext()) throw new NoSuchElementException("No cell at " + indexes);
+            count++;
+            indexes.next();
+            return get(indexes.toSourceValueIndex());
+        }
+
+        /**
+         * Returns the direct index of the current cell in a tensor having the iteration sizes of this.
+         * This can be passed to {@link BoundBuilder#cellByDirectIndex} of a builder having those sizes.
+         */
+        public long iterationValueIndex() { return indexes.toIterationValueIndex(); }
+
     }
 
     /** A Cell which does not compute its TensorAddress unless it really has to */
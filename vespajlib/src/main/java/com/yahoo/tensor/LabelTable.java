@@ -0,0 +1,61 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns tensor labels to dense int ids, such that each distinct label is stored once
+ * and addresses can be represented as arrays of ints.
+ * Ids are assigned in the order labels are first interned, starting at 0.
+ * <p>
+ * This is not multithread safe.
+ */
+public final class LabelTable {
+
+    private final Map<String, Integer> ids;
+    private final List<String> labels;
+
+    public LabelTable() {
+        this(new HashMap<>(), new ArrayList<>());
+    }
+
+    private LabelTable(Map<String, Integer> ids, List<String> labels) {
+        this.ids = ids;
+        this.labels = labels;
+    }
+
+    /** Returns the id of the given label, assigning it the next id if it is not already interned */
+    public int intern(String label) {
+        Integer id = ids.get(label);
+        if (id != null) return id;
+
+        labels.add(label);
+        ids.put(label, labels.size() - 1);
+        return labels.size() - 1;
+    }
+
+    /** Returns the id of the given label, or -1 if it is not interned in this */
+    public int idOf(String label) {
+        Integer id = ids.get(label);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the label having the given id
+     *
+     * @throws IndexOutOfBoundsException if no label has this id
+     */
+    public String label(int id) { return labels.get(id); }
+
+    /** Returns the number of labels in this */
+    public int size() { return labels.size(); }
+
+    /** Returns a copy of this which can be modified separately */
+    public LabelTable copy() {
+        return new LabelTable(new HashMap<>(ids), new ArrayList<>(labels));
+    }
+
+}
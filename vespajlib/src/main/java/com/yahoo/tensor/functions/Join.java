@@ -3,8 +3,11 @@ package com.yahoo.tensor.functions;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Sets;
+import com.yahoo.tensor.AddressTable;
+import com.yahoo.tensor.CompactMappedTensor;
 import com.yahoo.tensor.DimensionSizes;
 import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.LabelTable;
 import com.yahoo.tensor.PartialAddress;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorAddress;
@@ -12,9 +15,7 @@ import com.yahoo.tensor.TensorType;
 import com.yahoo.tensor.evaluation.EvaluationContext;
 import com.yahoo.tensor.evaluation.TypeContext;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -106,11 +107,11 @@ public class Join extends PrimitiveTensorFunction {
 
     private static Tensor indexedVectorJoin(IndexedTensor a, IndexedTensor b, TensorType type, DoubleBinaryOperator combinator) {
         long joinedRank = Math.min(a.dimensionSizes().size(0), b.dimensionSizes().size(0));
-        Iterator<Double> aIterator = a.valueIterator();
-        Iterator<Double> bIterator = b.valueIterator();
-        IndexedTensor.Builder builder = IndexedTensor.Builder.of(type, new DimensionSizes.Builder(1).set(0, joinedRank).build());
-        for (int i = 0; i < joinedRank; i++)
-            builder.cell(combinator.applyAsDouble(aIterator.next(), bIterator.next()), i);
+        IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(type, new DimensionSizes.Builder(1).set(0, joinedRank).build());
+        ParallelEvaluation.forEachRange((int)joinedRank, joinedRank, (start, end) -> {
+            for (int i = start; i < end; i++)
+                builder.cellByDirectIndex(i, combinator.applyAsDouble(a.get(i), b.get(i)));
+        });
         return builder.build();
     }
 
@@ -140,36 +141,41 @@ public class Join extends PrimitiveTensorFunction {
 
         DimensionSizes joinedSizes = joinedSize(joinedType, subspace, superspace);
 
-        IndexedTensor.Builder builder = (IndexedTensor.Builder)Tensor.Builder.of(joinedType, joinedSizes);
+        IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder)Tensor.Builder.of(joinedType, joinedSizes);
 
         // Find dimensions which are only in the supertype
         Set<String> superDimensionNames = new HashSet<>(superspace.type().dimensionNames());
         superDimensionNames.removeAll(subspace.type().dimensionNames());
 
-        for (Iterator<IndexedTensor.SubspaceIterator> i = superspace.subspaceIterator(superDimensionNames, joinedSizes); i.hasNext(); ) {
-            IndexedTensor.SubspaceIterator subspaceInSuper = i.next();
-            joinSubspaces(subspace.valueIterator(), subspace.size(),
-                    subspaceInSuper, subspaceInSuper.size(),
-                    reversedArgumentOrder, builder, combinator);
-        }
+        ParallelEvaluation.forEach(superspace.subspaceIterator(superDimensionNames, joinedSizes), joinedSizes.totalSize(),
+                                   (subspacesInSuper, firstIndex) -> {
+            while (subspacesInSuper.hasNext())
+                joinSubspaces(subspace, subspacesInSuper.next(), reversedArgumentOrder, builder, combinator);
+        });
 
         return builder.build();
     }
 
-    private static void joinSubspaces(Iterator<Double> subspace, long subspaceSize,
-                                      Iterator<Tensor.Cell> superspace, long superspaceSize,
-                                      boolean reversedArgumentOrder, IndexedTensor.Builder builder,
+    /**
+     * Joins the values of a subspace tensor with the cells of a subspace of the superspace tensor.
+     * This reads and writes primitive values by direct index to avoid creating cells or boxing values,
+     * as this is the inner loop of joining e.g a query vector with a document matrix.
+     */
+    private static void joinSubspaces(IndexedTensor subspace, IndexedTensor.SubspaceIterator superspace,
+                                      boolean reversedArgumentOrder, IndexedTensor.BoundBuilder builder,
                                       DoubleBinaryOperator combinator) {
-        long joinedLength = Math.min(subspaceSize, superspaceSize);
+        long joinedLength = Math.min(subspace.size(), superspace.size());
         if (reversedArgumentOrder) {
             for (int i = 0; i < joinedLength; i++) {
-                Tensor.Cell supercell = superspace.next();
-                builder.cell(supercell, combinator.applyAsDouble(supercell.getValue(), subspace.next()));
+                double supercellValue = superspace.nextValue();
+                builder.cellByDirectIndex(superspace.iterationValueIndex(),
+                                          combinator.applyAsDouble(supercellValue, subspace.get(i)));
             }
         } else {
             for (int i = 0; i < joinedLength; i++) {
-                Tensor.Cell supercell = superspace.next();
-                builder.cell(supercell, combinator.applyAsDouble(subspace.next(), supercell.getValue()));
+                double supercellValue = superspace.nextValue();
+                builder.cellByDirectIndex(superspace.iterationValueIndex(),
+                                          combinator.applyAsDouble(subspace.get(i), supercellValue));
             }
         }
     }
@@ -247,21 +253,24 @@ public class Join extends PrimitiveTensorFunction {
         DimensionSizes bIterateSize = joinedSizeOf(b.type(), joinedType, joinedSize);
 
         // for each combination of dimensions only in a
-        for (Iterator<IndexedTensor.SubspaceIterator> ia = a.subspaceIterator(dimensionsOnlyInA, aIterateSize); ia.hasNext(); ) {
-            IndexedTensor.SubspaceIterator aSubspace = ia.next();
-            // for each combination of dimensions in a which is also in b
-            while (aSubspace.hasNext()) {
-                Tensor.Cell aCell = aSubspace.next();
-                PartialAddress matchingBCells = partialAddress(a.type(), aSubspace.address(), sharedDimensions);
-                // for each matching combination of dimensions ony in b
-                for (IndexedTensor.SubspaceIterator bSubspace = b.cellIterator(matchingBCells, bIterateSize); bSubspace.hasNext(); ) {
-                    Tensor.Cell bCell = bSubspace.next();
-                    TensorAddress joinedAddress = joinAddresses(aCell.getKey(), aToIndexes, bCell.getKey(), bToIndexes, joinedType);
-                    double joinedValue = combinator.applyAsDouble(aCell.getValue(), bCell.getValue());
-                    builder.cell(joinedAddress, joinedValue);
+        ParallelEvaluation.forEach(a.subspaceIterator(dimensionsOnlyInA, aIterateSize), joinedSize.totalSize(),
+                                   (aSubspaces, firstIndex) -> {
+            while (aSubspaces.hasNext()) {
+                IndexedTensor.SubspaceIterator aSubspace = aSubspaces.next();
+                // for each combination of dimensions in a which is also in b
+                while (aSubspace.hasNext()) {
+                    Tensor.Cell aCell = aSubspace.next();
+                    PartialAddress matchingBCells = partialAddress(a.type(), aSubspace.address(), sharedDimensions);
+                    // for each matching combination of dimensions ony in b
+                    for (IndexedTensor.SubspaceIterator bSubspace = b.cellIterator(matchingBCells, bIterateSize); bSubspace.hasNext(); ) {
+                        Tensor.Cell bCell = bSubspace.next();
+                        TensorAddress joinedAddress = joinAddresses(aCell.getKey(), aToIndexes, bCell.getKey(), bToIndexes, joinedType);
+                        double joinedValue = combinator.applyAsDouble(aCell.getValue(), bCell.getValue());
+                        builder.cell(joinedAddress, joinedValue);
+                    }
                 }
             }
-        }
+        });
     }
 
     private static PartialAddress partialAddress(TensorType addressType, TensorAddress address, Set<String> retainDimensions) {
@@ -300,6 +309,12 @@ public class Join extends PrimitiveTensorFunction {
         return builder.build();
     }
 
+    /**
+     * Joins by indexing the cells of the smaller tensor by their labels in the common dimensions,
+     * and looking up the matching cells for each cell of the larger tensor.
+     * The index is kept in primitive arrays, with the cells having the same common labels chained by cell number,
+     * and the result is built without intermediate address objects when it is sparse.
+     */
     private static Tensor mappedHashJoin(Tensor a, Tensor b, TensorType joinedType, DoubleBinaryOperator combinator) {
         TensorType commonDimensionType = commonDimensions(a, b);
         if (commonDimensionType.dimensions().isEmpty()) {
@@ -319,34 +334,63 @@ public class Join extends PrimitiveTensorFunction {
         int[] aIndexesInJoined = mapIndexes(a.type(), joinedType);
         int[] bIndexesInJoined = mapIndexes(b.type(), joinedType);
 
-        // Iterate once through the smaller tensor and construct a hash map for common dimensions
-        Map<TensorAddress, List<Tensor.Cell>> aCellsByCommonAddress = new HashMap<>();
-        for (Iterator<Tensor.Cell> cellIterator = a.cellIterator(); cellIterator.hasNext(); ) {
+        // Iterate once through the smaller tensor and index its cells by their common labels
+        int aSize = (int)a.size();
+        LabelTable commonLabels = new LabelTable();
+        AddressTable commonAddresses = new AddressTable(aIndexesInCommon.length, aSize);
+        int[] commonKey = new int[aIndexesInCommon.length];
+        TensorAddress[] aAddresses = new TensorAddress[aSize];
+        double[] aValues = new double[aSize];
+        int[] firstCellByCommonAddress = new int[aSize];
+        int[] nextCell = new int[aSize];
+        Arrays.fill(firstCellByCommonAddress, -1);
+        int aCellCount = 0;
+        for (Iterator<Tensor.Cell> cellIterator = a.cellIterator(); cellIterator.hasNext(); aCellCount++) {
             Tensor.Cell aCell = cellIterator.next();
-            TensorAddress partialCommonAddress = partialCommonAddress(aCell, aIndexesInCommon);
-            aCellsByCommonAddress.putIfAbsent(partialCommonAddress, new ArrayList<>());
-            aCellsByCommonAddress.get(partialCommonAddress).add(aCell);
+            for (int i = 0; i < commonKey.length; i++)
+                commonKey[i] = commonLabels.intern(aCell.getKey().label(aIndexesInCommon[i]));
+            int commonOrdinal = commonAddresses.add(commonKey);
+            aAddresses[aCellCount] = aCell.getKey();
+            aValues[aCellCount] = aCell.getValue();
+            nextCell[aCellCount] = firstCellByCommonAddress[commonOrdinal];
+            firstCellByCommonAddress[commonOrdinal] = aCellCount;
         }
 
-        // Iterate once through the larger tensor and use the hash map to find joinable cells
-        Tensor.Builder builder = Tensor.Builder.of(joinedType);
+        // Iterate once through the larger tensor and use the index to find joinable cells
+        CompactMappedTensor.Builder compactBuilder =
+                CompactMappedTensor.supports(joinedType) ? CompactMappedTensor.Builder.of(joinedType) : null;
+        Tensor.Builder builder = compactBuilder != null ? compactBuilder : Tensor.Builder.of(joinedType);
+        String[] joinedLabels = new String[joinedType.dimensions().size()];
         for (Iterator<Tensor.Cell> cellIterator = b.cellIterator(); cellIterator.hasNext(); ) {
             Tensor.Cell bCell = cellIterator.next();
-            TensorAddress partialCommonAddress = partialCommonAddress(bCell, bIndexesInCommon);
-            for (Tensor.Cell aCell : aCellsByCommonAddress.getOrDefault(partialCommonAddress, Collections.emptyList())) {
-                TensorAddress combinedAddress = joinAddresses(aCell.getKey(), aIndexesInJoined,
-                        bCell.getKey(), bIndexesInJoined, joinedType);
-                if (combinedAddress == null) continue; // not combinable
+            int commonOrdinal = findCommonAddress(bCell.getKey(), bIndexesInCommon, commonLabels, commonAddresses, commonKey);
+            if (commonOrdinal < 0) continue; // no match
+            for (int aCell = firstCellByCommonAddress[commonOrdinal]; aCell >= 0; aCell = nextCell[aCell]) {
+                Arrays.fill(joinedLabels, null);
+                mapContent(aAddresses[aCell], joinedLabels, aIndexesInJoined);
+                if ( ! mapContent(bCell.getKey(), joinedLabels, bIndexesInJoined)) continue; // not combinable
                 double combinedValue = swapTensors ?
-                        combinator.applyAsDouble(bCell.getValue(), aCell.getValue()) :
-                        combinator.applyAsDouble(aCell.getValue(), bCell.getValue());
-                builder.cell(combinedAddress, combinedValue);
+                        combinator.applyAsDouble(bCell.getValue(), aValues[aCell]) :
+                        combinator.applyAsDouble(aValues[aCell], bCell.getValue());
+                if (compactBuilder != null)
+                    compactBuilder.cell(joinedLabels, combinedValue);
+                else
+                    builder.cell(TensorAddress.of(joinedLabels), combinedValue);
             }
         }
 
         return builder.build();
     }
 
+    /** Returns the ordinal of the labels of the given address in the common dimensions, or -1 if not present */
+    private static int findCommonAddress(TensorAddress address, int[] indexesInCommon,
+                                         LabelTable commonLabels, AddressTable commonAddresses, int[] commonKey) {
+        for (int i = 0; i < commonKey.length; i++) {
+            commonKey[i] = commonLabels.idOf(address.label(indexesInCommon[i]));
+            if (commonKey[i] < 0) return -1;
+        }
+        return commonAddresses.find(commonKey);
+    }
 
     /**
      * Returns the an array having one entry in order for each dimension of fromType
@@ -405,14 +449,5 @@ public class Join extends PrimitiveTensorFunction {
         return typeBuilder.build();
     }
 
-    private static TensorAddress partialCommonAddress(Tensor.Cell cell, int[] indexMap) {
-        TensorAddress address = cell.getKey();
-        String[] labels = new String[indexMap.length];
-        for (int i = 0; i < labels.length; ++i) {
-            labels[i] = address.label(indexMap[i]);
-        }
-        return TensorAddress.of(labels);
-    }
-
 }
 
@@ -1,6 +1,7 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.tensor.functions;
 
+import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorAddress;
 import com.yahoo.tensor.TensorType;
@@ -58,6 +59,9 @@ public class Map extends PrimitiveTensorFunction {
     @Override
     public <NAMETYPE extends TypeContext.Name> Tensor evaluate(EvaluationContext<NAMETYPE> context) {
         Tensor argument = argument().evaluate(context);
+        if (argument instanceof IndexedTensor)
+            return mapIndexed((IndexedTensor)argument);
+
         Tensor.Builder builder = Tensor.Builder.of(argument.type());
         for (Iterator<Tensor.Cell> i = argument.cellIterator(); i.hasNext(); ) {
             java.util.Map.Entry<TensorAddress, Double> cell = i.next();
@@ -66,6 +70,15 @@ public class Map extends PrimitiveTensorFunction {
         return builder.build();
     }
 
+    /** Maps the values of a dense tensor by direct index, without creating cells or boxing values */
+    private Tensor mapIndexed(IndexedTensor argument) {
+        IndexedTensor.BoundBuilder builder =
+                (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(argument.type(), argument.dimensionSizes());
+        for (long i = 0; i < argument.size(); i++)
+            builder.cellByDirectIndex(i, mapper.applyAsDouble(argument.get(i)));
+        return builder.build();
+    }
+
     @Override
     public String toString(ToStringContext context) {
         return "map(" + argument.toString(context) + ", " + mapper + ")";
@@ -0,0 +1,149 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.functions;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Controls whether evaluation of tensor functions over large dense tensors is split into tasks
+ * executed in parallel in a fork-join pool. This is disabled by default.
+ * <p>
+ * When enabled, dense joins, reductions and reduce-joins (such as matrix multiplication) which visit at least
+ * the configured number of cells split their outermost dimension into ranges which are evaluated in parallel,
+ * each writing a disjoint part of the result. Smaller operations are always evaluated in the calling thread,
+ * as splitting them costs more than it saves.
+ * <p>
+ * This is a process wide setting which should be set once by the application, typically on startup.
+ */
+public final class ParallelEvaluation {
+
+    /** The settings in effect, or null if parallel evaluation is disabled */
+    private static volatile ParallelEvaluation current = null;
+
+    private final ForkJoinPool pool;
+    private final long cellThreshold;
+
+    private ParallelEvaluation(ForkJoinPool pool, long cellThreshold) {
+        this.pool = pool;
+        this.cellThreshold = cellThreshold;
+    }
+
+    /**
+     * Enables parallel evaluation in the common fork-join pool
+     *
+     * @param cellThreshold the minimum number of cells an operation must visit to be evaluated in parallel
+     */
+    public static void enable(long cellThreshold) {
+        enable(ForkJoinPool.commonPool(), cellThreshold);
+    }
+
+    /**
+     * Enables parallel evaluation
+     *
+     * @param pool the pool to execute the parallel parts of evaluations in
+     * @param cellThreshold the minimum number of cells an operation must visit to be evaluated in parallel
+     */
+    public static void enable(ForkJoinPool pool, long cellThreshold) {
+        Objects.requireNonNull(pool, "The pool cannot be null");
+        if (cellThreshold < 0)
+            throw new IllegalArgumentException("The cell threshold cannot be negative, got " + cellThreshold);
+        current = new ParallelEvaluation(pool, cellThreshold);
+    }
+
+    /** Disables parallel evaluation, such that all tensor functions are evaluated in the calling thread */
+    public static void disable() {
+        current = null;
+    }
+
+    /** Returns whether parallel evaluation is enabled */
+    public static boolean isEnabled() { return current != null; }
+
+    /** A task evaluating part of an operation */
+    @FunctionalInterface
+    interface RangeTask {
+
+        /** Evaluates the elements from start (inclusive) to end (exclusive) */
+        void evaluate(int start, int end);
+
+    }
+
+    /** A task evaluating part of an operation given by a sequence of elements */
+    @FunctionalInterface
+    interface SequenceTask<T> {
+
+        /** Evaluates the given elements, where the first one is the element with the given index in the operation */
+        void evaluate(Iterator<T> elements, int firstIndex);
+
+    }
+
+    /**
+     * Evaluates the given task over all the elements in [0, count), in parallel if parallel evaluation is enabled
+     * and the operation visits at least the threshold number of cells, and in the calling thread otherwise.
+     * This returns when all the elements are evaluated.
+     *
+     * @param count the number of elements, typically the size of the outermost dimension of the operation
+     * @param cells the total number of cells visited by the operation
+     * @param task the task to evaluate for ranges of elements, which must only write to disjoint parts of the result
+     */
+    static void forEachRange(int count, long cells, RangeTask task) {
+        ParallelEvaluation settings = current;
+        if (count < 2 || ! splits(settings, cells)) {
+            task.evaluate(0, count);
+            return;
+        }
+        int grain = Math.max(1, count / (settings.pool.getParallelism() * 4));
+        settings.pool.invoke(new RangeAction(task, 0, count, grain));
+    }
+
+    /**
+     * Evaluates the given task over all the given elements, as {@link #forEachRange}. The elements are only
+     * collected into a list when the operation is split, and are otherwise passed on lazily to a single task.
+     *
+     * @param elements the elements, typically the subspaces of the outermost dimensions of the operation
+     * @param cells the total number of cells visited by the operation
+     * @param task the task to evaluate for sequences of elements, which must only write to disjoint parts of the result
+     */
+    static <T> void forEach(Iterator<T> elements, long cells, SequenceTask<T> task) {
+        if ( ! splits(current, cells)) {
+            task.evaluate(elements, 0);
+            return;
+        }
+        List<T> elementList = new ArrayList<>();
+        elements.forEachRemaining(elementList::add);
+        forEachRange(elementList.size(), cells, (start, end) -> task.evaluate(elementList.subList(start, end).iterator(), start));
+    }
+
+    private static boolean splits(ParallelEvaluation settings, long cells) {
+        return settings != null && cells >= settings.cellThreshold && settings.pool.getParallelism() >= 2;
+    }
+
+    @SuppressWarnings("serial")
+    private static final class RangeAction extends RecursiveAction {
+
+        private final RangeTask task;
+        private final int start, end, grain;
+
+        RangeAction(RangeTask task, int start, int end, int grain) {
+            this.task = task;
+            this.start = start;
+            this.end = end;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= grain) {
+                task.evaluate(start, end);
+                return;
+            }
+            int middle = (start + end) >>> 1;
+            invokeAll(new RangeAction(task, start, middle, grain), new RangeAction(task, middle, end, grain));
+        }
+
+    }
+
+}
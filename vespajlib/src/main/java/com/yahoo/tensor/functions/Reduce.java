@@ -2,21 +2,23 @@
 package com.yahoo.tensor.functions;
 
 import com.google.common.collect.ImmutableList;
+import com.yahoo.tensor.AddressTable;
+import com.yahoo.tensor.CompactMappedTensor;
+import com.yahoo.tensor.DimensionSizes;
 import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.LabelTable;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorAddress;
 import com.yahoo.tensor.TensorType;
 import com.yahoo.tensor.evaluation.EvaluationContext;
 import com.yahoo.tensor.evaluation.TypeContext;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 
 /**
  * The <i>reduce</i> tensor operation returns a tensor produced from the argument tensor where some dimensions
@@ -129,40 +131,60 @@ public class Reduce extends PrimitiveTensorFunction {
 
         // Special case: Reduce all
         if (dimensions.isEmpty() || dimensions.size() == argument.type().dimensions().size())
-            if (argument.type().dimensions().size() == 1 && argument instanceof IndexedTensor)
-                return reduceIndexedVector((IndexedTensor)argument, aggregator);
+            if (argument instanceof IndexedTensor)
+                return reduceIndexedAll((IndexedTensor)argument, aggregator);
             else
                 return reduceAllGeneral(argument, aggregator);
 
         TensorType reducedType = type(argument.type(), dimensions);
 
+        if (argument instanceof IndexedTensor && argument.size() > 0)
+            return reduceIndexed((IndexedTensor)argument, reducedType, dimensions, aggregator);
+
+        return reduceGeneral(argument, reducedType, dimensions, aggregator);
+    }
+
+    /**
+     * Reduces some dimensions of any tensor by aggregating the cells having the same labels in the retained dimensions.
+     * The retained labels of each cell are interned and looked up in a primitive address table, which assigns each
+     * reduced cell an ordinal indexing its aggregator, such that no address object is created per argument cell.
+     */
+    private static Tensor reduceGeneral(Tensor argument, TensorType reducedType, List<String> dimensions,
+                                        Aggregator aggregator) {
+        int[] retainedIndexes = new int[reducedType.dimensions().size()];
+        int retainedIndex = 0;
+        for (int i = 0; i < argument.type().dimensions().size(); i++)
+            if ( ! dimensions.contains(argument.type().dimensions().get(i).name()))
+                retainedIndexes[retainedIndex++] = i;
+
         // Reduce cells
-        Map<TensorAddress, ValueAggregator> aggregatingCells = new HashMap<>();
+        LabelTable labels = new LabelTable();
+        AddressTable reducedAddresses = new AddressTable(retainedIndexes.length);
+        List<ValueAggregator> aggregators = new ArrayList<>();
+        int[] reducedKey = new int[retainedIndexes.length];
         for (Iterator<Tensor.Cell> i = argument.cellIterator(); i.hasNext(); ) {
             Map.Entry<TensorAddress, Double> cell = i.next();
-            TensorAddress reducedAddress = reduceDimensions(cell.getKey(), argument.type(), reducedType, dimensions);
-            aggregatingCells.putIfAbsent(reducedAddress, ValueAggregator.ofType(aggregator));
-            aggregatingCells.get(reducedAddress).aggregate(cell.getValue());
+            for (int d = 0; d < retainedIndexes.length; d++)
+                reducedKey[d] = labels.intern(cell.getKey().label(retainedIndexes[d]));
+            int ordinal = reducedAddresses.add(reducedKey);
+            if (ordinal == aggregators.size())
+                aggregators.add(ValueAggregator.ofType(aggregator));
+            aggregators.get(ordinal).aggregate(cell.getValue());
         }
-        Tensor.Builder reducedBuilder = Tensor.Builder.of(reducedType);
-        for (Map.Entry<TensorAddress, ValueAggregator> aggregatingCell : aggregatingCells.entrySet())
-            reducedBuilder.cell(aggregatingCell.getKey(), aggregatingCell.getValue().aggregatedValue());
 
+        CompactMappedTensor.Builder compactBuilder =
+                CompactMappedTensor.supports(reducedType) ? CompactMappedTensor.Builder.of(reducedType, aggregators.size()) : null;
+        Tensor.Builder reducedBuilder = compactBuilder != null ? compactBuilder : Tensor.Builder.of(reducedType);
+        String[] reducedLabels = new String[retainedIndexes.length];
+        for (int ordinal = 0; ordinal < aggregators.size(); ordinal++) {
+            for (int d = 0; d < reducedLabels.length; d++)
+                reducedLabels[d] = labels.label(reducedAddresses.labelId(ordinal, d));
+            if (compactBuilder != null)
+                compactBuilder.cell(reducedLabels, aggregators.get(ordinal).aggregatedValue());
+            else
+                reducedBuilder.cell(TensorAddress.of(reducedLabels), aggregators.get(ordinal).aggregatedValue());
+        }
         return reducedBuilder.build();
-
-    }
-
-    private static TensorAddress reduceDimensions(TensorAddress address, TensorType argumentType, TensorType reducedType, List<String> dimensions) {
-        Set<Integer> indexesToRemove = new HashSet<>();
-        for (String dimensionToRemove : dimensions)
-            indexesToRemove.add(argumentType.indexOfDimension(dimensionToRemove).get());
-
-        String[] reducedLabels = new String[reducedType.dimensions().size()];
-        int reducedLabelIndex = 0;
-        for (int i = 0; i < address.size(); i++)
-            if ( ! indexesToRemove.contains(i))
-                reducedLabels[reducedLabelIndex++] = address.label(i);
-        return TensorAddress.of(reducedLabels);
     }
 
     private static Tensor reduceAllGeneral(Tensor argument, Aggregator aggregator) {
@@ -172,13 +194,41 @@ public class Reduce extends PrimitiveTensorFunction {
         return Tensor.Builder.of(TensorType.empty).cell((valueAggregator.aggregatedValue())).build();
     }
 
-    private static Tensor reduceIndexedVector(IndexedTensor argument, Aggregator aggregator) {
+    private static Tensor reduceIndexedAll(IndexedTensor argument, Aggregator aggregator) {
         ValueAggregator valueAggregator = ValueAggregator.ofType(aggregator);
-        for (int i = 0; i < argument.dimensionSizes().size(0); i++)
+        for (long i = 0; i < argument.size(); i++)
             valueAggregator.aggregate(argument.get(i));
         return Tensor.Builder.of(TensorType.empty).cell((valueAggregator.aggregatedValue())).build();
     }
 
+    /**
+     * Reduces some dimensions of a dense tensor by aggregating the primitive values of each subspace
+     * spanned by the reduced dimensions. As subspaces are returned in the standard cell order of the
+     * retained dimensions, the n'th subspace produces the value of the n'th cell of the reduced tensor,
+     * which also allows ranges of subspaces to be reduced in parallel (see {@link ParallelEvaluation}).
+     */
+    private static Tensor reduceIndexed(IndexedTensor argument, TensorType reducedType, List<String> dimensions,
+                                        Aggregator aggregator) {
+        DimensionSizes.Builder reducedSizes = new DimensionSizes.Builder(reducedType.dimensions().size());
+        for (int i = 0; i < reducedType.dimensions().size(); i++)
+            reducedSizes.set(i, argument.dimensionSizes().size(argument.type().indexOfDimension(reducedType.dimensions().get(i).name()).get()));
+        IndexedTensor.BoundBuilder reducedBuilder =
+                (IndexedTensor.BoundBuilder)IndexedTensor.Builder.of(reducedType, reducedSizes.build());
+
+        ParallelEvaluation.forEach(argument.subspaceIterator(reducedType.dimensionNames()), argument.size(),
+                                   (subspaces, firstIndex) -> {
+            ValueAggregator valueAggregator = ValueAggregator.ofType(aggregator);
+            for (long reducedValueIndex = firstIndex; subspaces.hasNext(); reducedValueIndex++) {
+                IndexedTensor.SubspaceIterator subspace = subspaces.next();
+                valueAggregator.reset();
+                while (subspace.hasNext())
+                    valueAggregator.aggregate(subspace.nextValue());
+                reducedBuilder.cellByDirectIndex(reducedValueIndex, valueAggregator.aggregatedValue());
+            }
+        });
+        return reducedBuilder.build();
+    }
+
     static abstract class ValueAggregator {
 
         static ValueAggregator ofType(Aggregator aggregator) {
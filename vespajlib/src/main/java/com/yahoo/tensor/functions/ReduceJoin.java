@@ -164,17 +164,20 @@ public class ReduceJoin extends CompositeTensorFunction {
         DimensionSizes sizesA = a.dimensionSizes();
         DimensionSizes sizesB = b.dimensionSizes();
 
-        Reduce.ValueAggregator agg = Reduce.ValueAggregator.ofType(aggregator);
-        for (int ib = 0; ib < sizesB.size(0); ++ib) {
-            agg.reset();
-            for (int ic = 0; ic < Math.min(sizesA.size(0), sizesB.size(1)); ++ic) {
-                double va = a.get(ic);
-                double vb = b.get(ib * sizesB.size(1) + ic);
-                double result = swapped ? combinator.applyAsDouble(vb, va) : combinator.applyAsDouble(va, vb);
-                agg.aggregate(result);
+        long commonSize = Math.min(sizesA.size(0), sizesB.size(1));
+        ParallelEvaluation.forEachRange((int)sizesB.size(0), sizesB.size(0) * commonSize, (start, end) -> {
+            Reduce.ValueAggregator agg = Reduce.ValueAggregator.ofType(aggregator);
+            for (int ib = start; ib < end; ++ib) {
+                agg.reset();
+                for (int ic = 0; ic < commonSize; ++ic) {
+                    double va = a.get(ic);
+                    double vb = b.get(ib * sizesB.size(1) + ic);
+                    double result = swapped ? combinator.applyAsDouble(vb, va) : combinator.applyAsDouble(va, vb);
+                    agg.aggregate(result);
+                }
+                builder.cellByDirectIndex(ib, agg.aggregatedValue());
             }
-            builder.cellByDirectIndex(ib, agg.aggregatedValue());
-        }
+        });
         return builder.build();
     }
 
@@ -190,18 +193,21 @@ public class ReduceJoin extends CompositeTensorFunction {
         long strideA = iaToReduced < ibToReduced ? sizesB.size(0) : 1;
         long strideB = ibToReduced < iaToReduced ? sizesA.size(0) : 1;
 
-        Reduce.ValueAggregator agg = Reduce.ValueAggregator.ofType(aggregator);
-        for (int ia = 0; ia < sizesA.size(0); ++ia) {
-            for (int ib = 0; ib < sizesB.size(0); ++ib) {
-                agg.reset();
-                for (int ic = 0; ic < Math.min(sizesA.size(1), sizesB.size(1)); ++ic) {
-                    double va = a.get(ia * sizesA.size(1) + ic);
-                    double vb = b.get(ib * sizesB.size(1) + ic);
-                    agg.aggregate(combinator.applyAsDouble(va, vb));
+        long commonSize = Math.min(sizesA.size(1), sizesB.size(1));
+        ParallelEvaluation.forEachRange((int)sizesA.size(0), sizesA.size(0) * sizesB.size(0) * commonSize, (start, end) -> {
+            Reduce.ValueAggregator agg = Reduce.ValueAggregator.ofType(aggregator);
+            for (int ia = start; ia < end; ++ia) {
+                for (int ib = 0; ib < sizesB.size(0); ++ib) {
+                    agg.reset();
+                    for (int ic = 0; ic < commonSize; ++ic) {
+                        double va = a.get(ia * sizesA.size(1) + ic);
+                        double vb = b.get(ib * sizesB.size(1) + ic);
+                        agg.aggregate(combinator.applyAsDouble(va, vb));
+                    }
+                    builder.cellByDirectIndex(ia * strideA + ib * strideB, agg.aggregatedValue());
                 }
-                builder.cellByDirectIndex(ia * strideA + ib * strideB, agg.aggregatedValue());
             }
-        }
+        });
         return builder.build();
     }
 
@@ -0,0 +1,141 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.slime;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryViewTestCase {
+
+    @Test
+    public void testViewIsEqualToDecodedSlime() {
+        Slime slime = createSlime();
+        byte[] encoded = BinaryFormat.encode(slime);
+        Inspector view = BinaryView.inspect(encoded, 0, encoded.length);
+        assertTrue(view instanceof BinaryView);
+        assertEqual(BinaryFormat.decode(encoded).get(), view);
+        assertEquals(slime.get().toString(), view.toString());
+    }
+
+    @Test
+    public void testViewAtOffset() {
+        byte[] encoded = BinaryFormat.encode(createSlime());
+        byte[] padded = new byte[encoded.length + 7];
+        System.arraycopy(encoded, 0, padded, 3, encoded.length);
+        Inspector view = BinaryView.inspect(padded, 3, encoded.length);
+        assertTrue(view instanceof BinaryView);
+        assertEqual(BinaryFormat.decode(encoded).get(), view);
+    }
+
+    @Test
+    public void testStringsAreViewedInPlace() {
+        Slime slime = new Slime();
+        Cursor root = slime.setObject();
+        root.setString("short", "foo");
+        root.setString("long", String.join("", Collections.nCopies(100, "bar")));
+        root.setData("data", new byte[] { 1, 2, 3 });
+        root.setLong("long value", 7);
+        byte[] encoded = BinaryFormat.encode(slime);
+
+        BinaryView view = (BinaryView)BinaryView.inspect(encoded, 0, encoded.length);
+        assertSame(encoded, view.data());
+        assertInPlace("foo".getBytes(), view.field("short"));
+        assertInPlace(String.join("", Collections.nCopies(100, "bar")).getBytes(), view.field("long"));
+        assertInPlace(new byte[] { 1, 2, 3 }, view.field("data"));
+        assertEquals(-1, view.field("long value").valueOffset());
+        assertEquals(0, view.field("long value").valueLength());
+    }
+
+    @Test
+    public void testInvalidValues() {
+        byte[] encoded = BinaryFormat.encode(createSlime());
+        BinaryView view = (BinaryView)BinaryView.inspect(encoded, 0, encoded.length);
+        assertFalse(view.field("nonexisting").valid());
+        assertFalse(view.field("array").entry(41).valid());
+        assertFalse(view.field("array").entry(-1).valid());
+        assertFalse(view.entry(0).valid());
+        assertFalse(view.field("long").field("foo").valid());
+        assertEquals(Type.NIX, view.field("nonexisting").type());
+        assertEquals("", view.field("nonexisting").asString());
+        assertEquals(0, view.field("nonexisting").asLong());
+        assertEquals(0, view.field("nonexisting").asUtf8().length);
+        assertEquals(-1, view.field("nonexisting").valueOffset());
+    }
+
+    @Test
+    public void testMalformedDataIsDecodedAsPartialResult() {
+        byte[] encoded = BinaryFormat.encode(createSlime());
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length - 5);
+        Inspector inspector = BinaryView.inspect(truncated, 0, truncated.length);
+        assertFalse(inspector instanceof BinaryView);
+        assertEqual(BinaryFormat.decode(truncated).get(), inspector);
+        assertTrue(inspector.field("partial_result").valid());
+    }
+
+    @Test
+    public void testDuplicateFieldsAreDecodedAsPartialResult() {
+        byte[] encoded = new byte[] {
+                1, 1, 'a', // symbol table
+                BinaryFormat.encode_type_and_meta(Type.OBJECT.ID, 3),
+                0, BinaryFormat.encode_type_and_meta(Type.BOOL.ID, 1),
+                0, BinaryFormat.encode_type_and_meta(Type.BOOL.ID, 0)
+        };
+        Inspector inspector = BinaryView.inspect(encoded, 0, encoded.length);
+        assertFalse(inspector instanceof BinaryView);
+        assertTrue(inspector.field("partial_result").valid());
+    }
+
+    private static Slime createSlime() {
+        Slime slime = new Slime();
+        Cursor root = slime.setObject();
+        root.setNix("nix");
+        root.setBool("true", true);
+        root.setBool("false", false);
+        root.setLong("long", -123456789012L);
+        root.setLong("small", 3);
+        root.setDouble("double", 3.25);
+        root.setDouble("negative", -1e300);
+        root.setString("string", "blåbær");
+        root.setString("empty", "");
+        root.setData("data", new byte[] { 0, -1, 42 });
+        Cursor array = root.setArray("array");
+        for (int i = 0; i < 40; i++)
+            array.addLong(i * 1000);
+        array.addObject().setString("in array", "value");
+        Cursor object = root.setObject("object");
+        object.setObject("nested").setArray("empty");
+        object.setString("string", "nested string");
+        return slime;
+    }
+
+    private static void assertInPlace(byte[] expected, BinaryView value) {
+        assertArrayEquals(expected,
+                          Arrays.copyOfRange(value.data(), value.valueOffset(), value.valueOffset() + value.valueLength()));
+    }
+
+    private static void assertEqual(Inspector expected, Inspector actual) {
+        assertEquals(expected.valid(), actual.valid());
+        assertEquals(expected.type(), actual.type());
+        assertEquals(expected.children(), actual.children());
+        assertEquals(expected.entries(), actual.entries());
+        assertEquals(expected.fields(), actual.fields());
+        assertEquals(expected.asBool(), actual.asBool());
+        assertEquals(expected.asLong(), actual.asLong());
+        assertEquals(expected.asDouble(), actual.asDouble(), 0.0);
+        assertEquals(expected.asString(), actual.asString());
+        assertArrayEquals(expected.asUtf8(), actual.asUtf8());
+        assertArrayEquals(expected.asData(), actual.asData());
+        for (int i = 0; i < expected.entries(); i++)
+            assertEqual(expected.entry(i), actual.entry(i));
+        expected.traverse((ObjectTraverser)(name, value) -> assertEqual(value, actual.field(name)));
+        expected.traverse((ObjectSymbolTraverser)(symbol, value) -> assertEqual(value, actual.field(symbol)));
+    }
+
+}
@@ -0,0 +1,69 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the compact sparse tensor representation
+ */
+public class CompactMappedTensorTestCase {
+
+    @Test
+    public void testBuilding() {
+        TensorType type = new TensorType.Builder().mapped("x").mapped("y").build();
+        Tensor tensor = CompactMappedTensor.Builder.of(type).
+                cell().label("x", "0").label("y", "0").value(1).
+                cell().label("x", "1").label("y", "0").value(2).
+                cell(3, 1, 1).
+                cell(4, 1, 0).build(); // replaces {x:1,y:0}
+        assertEquals(3, tensor.size());
+        assertEquals("{{x:0,y:0}:1.0,{x:1,y:0}:4.0,{x:1,y:1}:3.0}", tensor.toString());
+        assertEquals(4.0, tensor.get(TensorAddress.of(1, 0)), 0.0);
+        assertTrue(Double.isNaN(tensor.get(TensorAddress.of(0, 1))));
+        assertTrue(Double.isNaN(tensor.get(TensorAddress.of(2, 0))));
+        assertTrue(Double.isNaN(tensor.get(TensorAddress.of(1))));
+        assertEquals("tensor(x{},y{}):{}", CompactMappedTensor.Builder.of(type).build().toString());
+    }
+
+    @Test
+    public void testEqualToMappedTensor() {
+        TensorType type = new TensorType.Builder().mapped("x").mapped("y").build();
+        Tensor.Builder mappedBuilder = MappedTensor.Builder.of(type);
+        CompactMappedTensor.Builder compactBuilder = CompactMappedTensor.Builder.of(type, 1);
+        for (int x = 0; x < 100; x++) {
+            for (int y = 0; y < 50; y++) {
+                mappedBuilder.cell(x * y + 0.5, x, y);
+                compactBuilder.cell(new String[] { String.valueOf(x), String.valueOf(y) }, x * y + 0.5);
+            }
+        }
+        Tensor mapped = mappedBuilder.build();
+        Tensor compact = compactBuilder.build();
+        assertEquals(5000, compact.size());
+        assertEquals(mapped, compact);
+        assertEquals(compact, mapped);
+        assertEquals(mapped.hashCode(), compact.hashCode());
+        assertEquals(mapped.cells(), compact.cells());
+        assertEquals(mapped.toString(), compact.toString());
+    }
+
+    @Test
+    public void testRequiresMappedTypeAndRank() {
+        try {
+            CompactMappedTensor.Builder.of(TensorType.fromSpec("tensor(x{},y[2])"));
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException expected) {
+        }
+        try {
+            CompactMappedTensor.Builder.of(TensorType.fromSpec("tensor(x{},y{})")).cell(1.0, 0);
+            fail("Expected exception");
+        }
+        catch (IllegalArgumentException expected) {
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Microbenchmark of the dense join, reduce and map paths, reported as cells processed per second.
+ * This uses the shape of joining a query vector with a document embedding matrix, which is the common
+ * case for container side ranking.
+ */
+public class IndexedTensorCellsBenchmark {
+
+    private final static Random random = new Random(1);
+
+    /** Returns the number of cells processed per second by the given operation */
+    private static double cellsPerSecond(int iterations, long cellsPerIteration, Supplier<Tensor> operation) {
+        for (int i = 0; i < Math.max(iterations / 10, 10); i++) // warmup
+            operation.get();
+        System.gc();
+        long startTime = System.nanoTime();
+        for (int i = 0; i < iterations; i++)
+            operation.get();
+        long totalTime = System.nanoTime() - startTime;
+        return (double)cellsPerIteration * iterations / (totalTime / 1.0e9);
+    }
+
+    private static Tensor vector(String dimension, int size) {
+        IndexedTensor.Builder builder = IndexedTensor.Builder.of(new TensorType.Builder().indexed(dimension, size).build());
+        for (int i = 0; i < size; i++)
+            builder.cell(random.nextDouble(), i);
+        return builder.build();
+    }
+
+    private static Tensor matrix(String outerDimension, int outerSize, String innerDimension, int innerSize) {
+        IndexedTensor.Builder builder = IndexedTensor.Builder.of(new TensorType.Builder().indexed(outerDimension, outerSize)
+                                                                                         .indexed(innerDimension, innerSize)
+                                                                                         .build());
+        for (int i = 0; i < outerSize; i++)
+            for (int j = 0; j < innerSize; j++)
+                builder.cell(random.nextDouble(), i, j);
+        return builder.build();
+    }
+
+    private static void report(String name, double cellsPerSecond) {
+        System.out.printf("%-40s %8.1f M cells/s\n", name, cellsPerSecond / 1.0e6);
+    }
+
+    public static void main(String[] args) {
+        Tensor query = vector("x", 512);
+        Tensor document = vector("x", 512);
+        Tensor matrix = matrix("d", 100, "x", 512);
+
+        report("Vector join", cellsPerSecond(200000, 512, () -> query.multiply(document)));
+        report("Vector dot product", cellsPerSecond(200000, 512, () -> query.multiply(document).sum()));
+        report("Subspace join (vector * matrix)", cellsPerSecond(2000, 100 * 512, () -> query.multiply(matrix)));
+        report("Reduce inner dimension", cellsPerSecond(2000, 100 * 512, () -> matrix.sum("x")));
+        report("Reduce outer dimension", cellsPerSecond(2000, 100 * 512, () -> matrix.sum("d")));
+        report("Reduce all", cellsPerSecond(2000, 100 * 512, () -> matrix.sum()));
+        report("Map", cellsPerSecond(2000, 100 * 512, () -> matrix.map((value) -> value * 2)));
+    }
+
+}
@@ -0,0 +1,92 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import com.yahoo.tensor.evaluation.MapEvaluationContext;
+import com.yahoo.tensor.evaluation.VariableTensor;
+import com.yahoo.tensor.functions.Join;
+import com.yahoo.tensor.functions.ParallelEvaluation;
+import com.yahoo.tensor.functions.Reduce;
+import com.yahoo.tensor.functions.ReduceJoin;
+import com.yahoo.tensor.functions.ScalarFunctions;
+import com.yahoo.tensor.functions.TensorFunction;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Microbenchmark of evaluating large dense tensor functions with an increasing number of threads,
+ * to show how parallel evaluation scales with the number of cores.
+ */
+public class ParallelEvaluationBenchmark {
+
+    private final static Random random = new Random();
+
+    /** Returns the average time in ms of evaluating the given function over the given arguments */
+    public double benchmark(int iterations, TensorFunction function, Tensor a, Tensor b) {
+        MapEvaluationContext context = new MapEvaluationContext();
+        context.put("a", a);
+        context.put("b", b);
+        evaluate(function, context, Math.max(iterations / 10, 2)); // warmup
+        System.gc();
+        long startTime = System.nanoTime();
+        evaluate(function, context, iterations);
+        long totalTime = System.nanoTime() - startTime;
+        return totalTime / 1_000_000.0 / iterations;
+    }
+
+    private double evaluate(TensorFunction function, MapEvaluationContext context, int iterations) {
+        double result = 0;
+        for (int i = 0; i < iterations; i++)
+            result += function.evaluate(context).size();
+        return result;
+    }
+
+    private static Tensor matrix(String dimension1, String dimension2, int size) {
+        TensorType type = new TensorType.Builder().indexed(dimension1, size).indexed(dimension2, size).build();
+        IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder)Tensor.Builder.of(type);
+        for (int i = 0; i < size * size; i++)
+            builder.cellByDirectIndex(i, random.nextDouble());
+        return builder.build();
+    }
+
+    private static void run(String name, int iterations, TensorFunction function, Tensor a, Tensor b) {
+        double singleThreadTime = 0;
+        for (int threads = 1; threads <= Runtime.getRuntime().availableProcessors(); threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            if (threads == 1)
+                ParallelEvaluation.disable();
+            else
+                ParallelEvaluation.enable(pool, 10000);
+            double time = new ParallelEvaluationBenchmark().benchmark(iterations, function, a, b);
+            if (threads == 1)
+                singleThreadTime = time;
+            System.out.printf("%-28s %2d threads: %8.3f ms, speedup %5.2f\n", name, threads, time, singleThreadTime / time);
+            pool.shutdown();
+        }
+        ParallelEvaluation.disable();
+    }
+
+    public static void main(String[] args) {
+        TensorFunction a = new VariableTensor("a");
+        TensorFunction b = new VariableTensor("b");
+
+        // Matrix product of 256x256 matrices using the reduce-join optimization
+        run("Matmul (reduce-join)", 20,
+            new ReduceJoin(a, b, ScalarFunctions.multiply(), Reduce.Aggregator.sum, Collections.singletonList("k")),
+            matrix("i", "k", 256), matrix("j", "k", 256));
+
+        // Matrix product of 128x128 matrices as a general join followed by a reduce
+        run("Matmul (join, reduce)", 5,
+            new Reduce(new Join(a, b, ScalarFunctions.multiply()), Reduce.Aggregator.sum, "k"),
+            matrix("i", "k", 128), matrix("k", "j", 128));
+
+        // Join of a 1000x1000 matrix with a 1000 vector
+        Tensor vector = matrix("i", "x", 1000).sum("x");
+        run("Subspace join", 20, new Join(a, b, ScalarFunctions.multiply()), matrix("i", "j", 1000), vector);
+
+        // Reduction of a 1000x1000 matrix
+        run("Reduce", 20, new Reduce(a, Reduce.Aggregator.max, "j"), matrix("i", "j", 1000), vector);
+    }
+
+}
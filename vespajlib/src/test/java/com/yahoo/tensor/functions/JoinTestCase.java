@@ -1,10 +1,13 @@
 // Copyright 2017 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.tensor.functions;
 
+import com.yahoo.tensor.CompactMappedTensor;
 import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorAddress;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author bratseth
@@ -46,4 +49,39 @@ public class JoinTestCase {
                              .divide(Tensor.from("tensor(y[],z[]):{ {y:0,z:0}:2, {y:1,z:0}:4, {y:2,z:0}:6 }")));
     }
 
+    @Test
+    public void testMappedHashJoin() {
+        Tensor a = Tensor.from("tensor(x{},y{}):{ {x:a,y:p}:1, {x:a,y:q}:2, {x:b,y:p}:3 }");
+        Tensor b = Tensor.from("tensor(y{},z{}):{ {y:p,z:0}:10, {y:q,z:0}:20, {y:q,z:1}:30, {y:r,z:0}:40 }");
+        Tensor expected = Tensor.from("tensor(x{},y{},z{}):{ {x:a,y:p,z:0}:10, {x:a,y:q,z:0}:40, {x:a,y:q,z:1}:60, {x:b,y:p,z:0}:30 }");
+        assertEquals(expected, a.multiply(b));
+        assertEquals(expected, b.multiply(a));
+        assertTrue(a.multiply(b) instanceof CompactMappedTensor);
+        assertEquals(Tensor.from("tensor(x{},y{},z{}):{ {x:a,y:p,z:0}:-9, {x:b,y:p,z:0}:-7 }"),
+                     a.subtract(Tensor.from("tensor(y{},z{}):{ {y:p,z:0}:10 }")));
+    }
+
+    /** Joins where the smaller argument is indexed, so its cells are indexed before the larger is iterated */
+    @Test
+    public void testMappedHashJoinOfIndexedAndMixed() {
+        Tensor indexed = Tensor.from("tensor(x[2],y[3]):{ {x:0,y:0}:1, {x:0,y:1}:2, {x:0,y:2}:3, {x:1,y:0}:4, {x:1,y:1}:5, {x:1,y:2}:6 }");
+        Tensor mixed = Tensor.from("tensor(x[2],z{}):{ {x:0,z:a}:1, {x:0,z:b}:2, {x:0,z:c}:3, {x:0,z:d}:4, " +
+                                                     "{x:1,z:a}:10, {x:1,z:b}:20, {x:1,z:c}:30, {x:1,z:d}:40 }");
+        assertIndexedTimesMixed(indexed, mixed, indexed.multiply(mixed));
+        assertIndexedTimesMixed(indexed, mixed, mixed.multiply(indexed));
+    }
+
+    private void assertIndexedTimesMixed(Tensor indexed, Tensor mixed, Tensor product) {
+        assertEquals(24, product.size());
+        for (int x = 0; x < 2; x++) {
+            for (int y = 0; y < 3; y++) {
+                for (String z : new String[] { "a", "b", "c", "d" }) {
+                    double expected = indexed.get(TensorAddress.of(x, y)) * mixed.get(TensorAddress.of(new String[] { String.valueOf(x), z }));
+                    assertEquals("{x:" + x + ",y:" + y + ",z:" + z + "}",
+                                 expected, product.get(TensorAddress.of(new String[] { String.valueOf(x), String.valueOf(y), z })), 0.0);
+                }
+            }
+        }
+    }
+
 }
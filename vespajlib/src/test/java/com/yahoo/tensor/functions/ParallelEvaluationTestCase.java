@@ -0,0 +1,70 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.functions;
+
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.evaluation.MapEvaluationContext;
+import com.yahoo.tensor.evaluation.VariableTensor;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that parallel evaluation of dense tensor functions produces the same results as sequential evaluation.
+ */
+public class ParallelEvaluationTestCase {
+
+    @Test
+    public void testParallelEvaluationEqualsSequential() {
+        Tensor matrixIK = matrix("i", 7, "k", 5);
+        Tensor matrixJK = matrix("j", 9, "k", 5);
+        Tensor matrixKJ = matrix("k", 5, "j", 9);
+        Tensor vectorI = matrix("i", 7, "x", 1).sum("x");
+        Tensor vectorK = matrix("k", 5, "x", 1).sum("x");
+
+        TensorFunction a = new VariableTensor("a");
+        TensorFunction b = new VariableTensor("b");
+        assertParallelEqualsSequential(new ReduceJoin(a, b, ScalarFunctions.multiply(), Reduce.Aggregator.sum,
+                                                      Collections.singletonList("k")),
+                                       matrixIK, matrixJK);
+        assertParallelEqualsSequential(new ReduceJoin(a, b, ScalarFunctions.multiply(), Reduce.Aggregator.sum,
+                                                      Collections.singletonList("k")),
+                                       vectorK, matrixJK);
+        assertParallelEqualsSequential(new Join(a, b, ScalarFunctions.multiply()), matrixIK, vectorI);
+        assertParallelEqualsSequential(new Join(a, b, ScalarFunctions.add()), vectorI, vectorI);
+        assertParallelEqualsSequential(new Join(a, b, ScalarFunctions.multiply()), matrixIK, matrixKJ);
+        assertParallelEqualsSequential(new Reduce(a, Reduce.Aggregator.max, "k"), matrixIK, vectorI);
+        assertParallelEqualsSequential(new Reduce(new Join(a, b, ScalarFunctions.multiply()), Reduce.Aggregator.sum, "k"),
+                                       matrixIK, matrixKJ);
+    }
+
+    private void assertParallelEqualsSequential(TensorFunction function, Tensor a, Tensor b) {
+        MapEvaluationContext context = new MapEvaluationContext();
+        context.put("a", a);
+        context.put("b", b);
+        Tensor expected = function.evaluate(context);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ParallelEvaluation.enable(pool, 0);
+            assertEquals(function.toString(), expected, function.evaluate(context));
+        }
+        finally {
+            ParallelEvaluation.disable();
+            pool.shutdown();
+        }
+    }
+
+    private static Tensor matrix(String dimension1, int size1, String dimension2, int size2) {
+        TensorType type = new TensorType.Builder().indexed(dimension1, size1).indexed(dimension2, size2).build();
+        IndexedTensor.BoundBuilder builder = (IndexedTensor.BoundBuilder)Tensor.Builder.of(type);
+        for (int i = 0; i < size1 * size2; i++)
+            builder.cellByDirectIndex(i, i + 1);
+        return builder.build();
+    }
+
+}
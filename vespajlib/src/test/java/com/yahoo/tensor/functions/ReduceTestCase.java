@@ -0,0 +1,50 @@
+// Copyright 2018 Yahoo Holdings. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.functions;
+
+import com.yahoo.tensor.CompactMappedTensor;
+import com.yahoo.tensor.Tensor;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests reduction and mapping of dense tensors.
+ */
+public class ReduceTestCase {
+
+    /** Test the indexed reduce optimization */
+    @Test
+    public void testReduceIndexed() {
+        Tensor t = Tensor.from("tensor(x[],y[],z[]):{{x:0,y:0,z:0}:1,{x:0,y:0,z:1}:2,{x:0,y:1,z:0}:3,{x:0,y:1,z:1}:4," +
+                                                    "{x:1,y:0,z:0}:5,{x:1,y:0,z:1}:6,{x:1,y:1,z:0}:7,{x:1,y:1,z:1}:8}");
+        assertEquals(Tensor.from("{{}:36.0}"), t.sum());
+        assertEquals(Tensor.from("tensor(x[],y[]):{{x:0,y:0}:3,{x:0,y:1}:7,{x:1,y:0}:11,{x:1,y:1}:15}"),
+                     t.sum("z"));
+        assertEquals(Tensor.from("tensor(x[],z[]):{{x:0,z:0}:4,{x:0,z:1}:6,{x:1,z:0}:12,{x:1,z:1}:14}"),
+                     t.sum("y"));
+        assertEquals(Tensor.from("tensor(y[]):{{y:0}:14,{y:1}:22}"),
+                     t.sum(Arrays.asList("x", "z")));
+        assertEquals(Tensor.from("tensor(x[]):{{x:0}:4,{x:1}:8}"),
+                     t.reduce(Reduce.Aggregator.max, Arrays.asList("y", "z")));
+    }
+
+    @Test
+    public void testMapIndexed() {
+        Tensor t = Tensor.from("tensor(x[],y[]):{{x:0,y:0}:1,{x:0,y:1}:2,{x:1,y:0}:3,{x:1,y:1}:4}");
+        assertEquals(Tensor.from("tensor(x[],y[]):{{x:0,y:0}:2,{x:0,y:1}:4,{x:1,y:0}:6,{x:1,y:1}:8}"),
+                     t.map((value) -> value * 2));
+    }
+
+    @Test
+    public void testReduceMapped() {
+        Tensor t = Tensor.from("tensor(x{},y{}):{ {x:a,y:p}:1, {x:a,y:q}:2, {x:b,y:p}:3, {x:c,y:q}:4 }");
+        assertEquals(Tensor.from("tensor(x{}):{ {x:a}:3, {x:b}:3, {x:c}:4 }"), t.sum("y"));
+        assertEquals(Tensor.from("tensor(y{}):{ {y:p}:2, {y:q}:2 }"), t.count("x"));
+        assertEquals(Tensor.from("tensor(y{}):{ {y:p}:3, {y:q}:4 }"), t.max("x"));
+        assertTrue(t.sum("y") instanceof CompactMappedTensor);
+    }
+
+}